@@ -0,0 +1,280 @@
+package hemera.core.shell.command;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import hemera.core.environment.config.Configuration;
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.util.BenchResult;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.LoadGenerator;
+import hemera.core.shell.util.LoopbackClient;
+import hemera.core.shell.util.ReplayRequest;
+import hemera.core.shell.util.RuntimeConnector;
+import hemera.core.shell.util.UShell;
+
+/**
+ * <code>BenchCommand</code> defines the unit of logic
+ * that measures the throughput and latency of the
+ * installed runtime environment, by driving concurrent
+ * keep-alive HTTP load against a running instance on
+ * the loopback interface. This command does not
+ * require any arguments.
+ * <p>
+ * The result can be saved as a named baseline, and
+ * compared against a baseline to catch regressions
+ * before a rollout. The command fails if the result
+ * regressed beyond the tolerance.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param requests The <code>String</code> path of the
+ * request mix file, given as <code>--requests FILE</code>.
+ * The file uses the recorded requests format, and a
+ * request can be repeated to weight it. Defaults to a
+ * GET request to every deployed resource.
+ * @param concurrency The <code>int</code> number of
+ * concurrent connections, given as
+ * <code>--concurrency C</code>. Defaults to
+ * <code>16</code>.
+ * @param rate The <code>int</code> total number of
+ * requests per second, given as <code>--rate R</code>.
+ * Defaults to the maximum throughput.
+ * @param duration The <code>String</code> duration to
+ * measure, given as <code>--duration D</code>, such as
+ * <code>2m</code>. Defaults to <code>30s</code>.
+ * @param warmUp The <code>String</code> duration of
+ * unmeasured load before measuring, given as
+ * <code>--warm-up D</code>. Defaults to <code>5s</code>.
+ * @param instance The <code>int</code> index of the
+ * instance to load, given as <code>--instance I</code>.
+ * Defaults to the first instance.
+ * @param saveBaseline The <code>String</code> name of
+ * the baseline to save the result as, given as
+ * <code>--save-baseline NAME</code>.
+ * @param baseline The <code>String</code> name of the
+ * baseline to compare against, given as
+ * <code>--baseline NAME</code>.
+ * @param tolerance The <code>int</code> tolerated
+ * regression in percent, given as
+ * <code>--tolerance P</code>. Defaults to
+ * <code>10</code>.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class BenchCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for the request
+	 * mix file.
+	 */
+	private static final String OptionRequests = "requests";
+	/**
+	 * The <code>String</code> option key for the number
+	 * of concurrent connections.
+	 */
+	private static final String OptionConcurrency = "concurrency";
+	/**
+	 * The <code>String</code> option key for the rate.
+	 */
+	private static final String OptionRate = "rate";
+	/**
+	 * The <code>String</code> option key for the
+	 * measured duration.
+	 */
+	private static final String OptionDuration = "duration";
+	/**
+	 * The <code>String</code> option key for the warm-up
+	 * duration.
+	 */
+	private static final String OptionWarmUp = "warm-up";
+	/**
+	 * The <code>String</code> option key for the instance
+	 * index.
+	 */
+	private static final String OptionInstance = "instance";
+	/**
+	 * The <code>String</code> option key for saving a
+	 * baseline.
+	 */
+	private static final String OptionSaveBaseline = "save-baseline";
+	/**
+	 * The <code>String</code> option key for comparing
+	 * against a baseline.
+	 */
+	private static final String OptionBaseline = "baseline";
+	/**
+	 * The <code>String</code> option key for the
+	 * tolerance.
+	 */
+	private static final String OptionTolerance = "tolerance";
+
+	@Override
+	public void execute(final String[] args) throws Exception {
+		final CommandOptions options = new CommandOptions(args);
+		final int concurrency = options.getInt(BenchCommand.OptionConcurrency, 16);
+		final int rate = options.getInt(BenchCommand.OptionRate, 0);
+		final long duration = options.getDuration(BenchCommand.OptionDuration, 30000L);
+		final long warmUp = options.getDuration(BenchCommand.OptionWarmUp, 5000L);
+		final int tolerance = options.getInt(BenchCommand.OptionTolerance, 10);
+		if (concurrency < 1) throw new IllegalArgumentException("Concurrency must be at least 1.");
+		if (rate < 0) throw new IllegalArgumentException("Rate cannot be negative.");
+		if (duration < 1000) throw new IllegalArgumentException("Duration must be at least 1 second.");
+		if (tolerance < 0) throw new IllegalArgumentException("Tolerance cannot be negative.");
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int index = options.getInt(BenchCommand.OptionInstance, 0);
+		if (index < 0 || index >= shellConfig.instances.count) {
+			throw new IllegalArgumentException("Invalid instance index: " + index + ". There are " + shellConfig.instances.count + " instances.");
+		}
+		final String name = UShell.instance.getInstanceName(shellConfig, index);
+		if (!UShell.instance.isRunning(index)) {
+			throw new IllegalStateException(name + " is not running.");
+		}
+		// Load the baseline first, so a missing one fails fast.
+		final String baselineName = options.get(BenchCommand.OptionBaseline, null);
+		final BenchResult baseline = (baselineName==null) ? null : BenchResult.load(this.getBaselineFile(homeDir, baselineName));
+		final List<ReplayRequest> mix = this.loadMix(options, shellConfig, index);
+		final Configuration config = UEnvironment.instance.getConfiguration(homeDir);
+		final int port = RuntimeConnector.instance.getInstancePort(config, shellConfig, index);
+		final LoopbackClient client = RuntimeConnector.instance.newClient(config, port);
+		System.out.println("Benchmarking " + name + " on port " + port + " with " + concurrency + " connections, " +
+				((rate > 0) ? rate + " requests per second" : "maximum throughput") + ", " + mix.size() + " requests in the mix.");
+		if (warmUp > 0) {
+			System.out.println("Warming up for " + (warmUp/1000) + " seconds...");
+			LoadGenerator.instance.run(client, mix, concurrency, rate, warmUp);
+		}
+		System.out.println("Measuring for " + (duration/1000) + " seconds...");
+		final BenchResult result = LoadGenerator.instance.run(client, mix, concurrency, rate, duration);
+		this.printResult(result);
+		final String saveName = options.get(BenchCommand.OptionSaveBaseline, null);
+		if (saveName != null) {
+			final File file = this.getBaselineFile(homeDir, saveName);
+			result.save(file);
+			System.out.println("Saved baseline " + saveName + " to " + file.getAbsolutePath());
+		}
+		if (baseline != null) this.compare(result, baseline, baselineName, tolerance);
+	}
+
+	/**
+	 * Load the request mix.
+	 * @param options The <code>CommandOptions</code>.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>List</code> of
+	 * <code>ReplayRequest</code>.
+	 * @throws Exception If loading requests failed.
+	 */
+	private List<ReplayRequest> loadMix(final CommandOptions options, final ShellConfiguration shellConfig, final int index) throws Exception {
+		final String path = options.get(BenchCommand.OptionRequests, null);
+		List<ReplayRequest> mix = (path==null) ? RuntimeConnector.instance.getResourceRequests(shellConfig, index) : ReplayRequest.load(new File(path));
+		if (mix.isEmpty()) {
+			if (path != null) throw new IllegalArgumentException("Request mix file does not contain any requests: " + path);
+			System.out.println("No deployed resources found, using the health probe request.");
+			mix = new ArrayList<ReplayRequest>();
+			mix.add(new ReplayRequest("GET", shellConfig.startup.healthPath, null));
+		}
+		return mix;
+	}
+
+	/**
+	 * Retrieve the file of the baseline with given name.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param name The <code>String</code> baseline name.
+	 * @return The baseline <code>File</code>.
+	 */
+	private File getBaselineFile(final String homeDir, final String name) {
+		if (name.isEmpty() || name.contains("/") || name.contains(File.separator)) {
+			throw new IllegalArgumentException("Invalid baseline name: " + name);
+		}
+		return new File(homeDir + EShell.BenchBaselineDir.value + name + EShell.BenchBaselineExtension.value);
+	}
+
+	/**
+	 * Print the given result.
+	 * @param result The <code>BenchResult</code>.
+	 */
+	private void printResult(final BenchResult result) {
+		System.out.println(String.format("  %-12s%d in %.1f s, %.1f/s", "Requests", result.getRequests(), result.seconds, result.getThroughput()));
+		System.out.println(String.format("  %-12s%d failed, %d server errors, %d client errors", "Errors", result.failed,
+				result.serverErrors, result.clientErrors));
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < BenchResult.Percentiles.length; i++) {
+			if (i > 0) builder.append(", ");
+			builder.append(String.format("%s %.2f ms", BenchResult.PercentileLabels[i], result.getLatency(BenchResult.Percentiles[i])));
+		}
+		System.out.println(String.format("  %-12s%s", "Latency", builder.toString()));
+	}
+
+	/**
+	 * Compare the given result against the given
+	 * baseline and fail if it regressed.
+	 * @param result The <code>BenchResult</code>.
+	 * @param baseline The baseline <code>BenchResult</code>.
+	 * @param name The <code>String</code> baseline name.
+	 * @param tolerance The <code>int</code> tolerance
+	 * in percent.
+	 */
+	private void compare(final BenchResult result, final BenchResult baseline, final String name, final int tolerance) {
+		System.out.println("Compared to baseline " + name + ":");
+		System.out.println(String.format("  %-14s%12s%12s%10s", "", "baseline", "current", "change"));
+		this.printComparison("Throughput/s", baseline.getThroughput(), result.getThroughput());
+		for (int i = 0; i < BenchResult.Percentiles.length; i++) {
+			final double percentile = BenchResult.Percentiles[i];
+			this.printComparison(BenchResult.PercentileLabels[i] + " ms", baseline.getLatency(percentile), result.getLatency(percentile));
+		}
+		final List<String> regressions = result.compare(baseline, tolerance/100.0);
+		if (regressions.isEmpty()) {
+			System.out.println("No regression beyond " + tolerance + "% against baseline " + name + ".");
+			return;
+		}
+		final StringBuilder builder = new StringBuilder();
+		builder.append("Benchmark regressed beyond ").append(tolerance).append("% against baseline ").append(name).append(":");
+		for (final String regression : regressions) {
+			builder.append("\n  ").append(regression);
+		}
+		throw new IllegalStateException(builder.toString());
+	}
+
+	/**
+	 * Print the comparison of the given values.
+	 * @param label The <code>String</code> label.
+	 * @param before The <code>double</code> baseline
+	 * value.
+	 * @param after The <code>double</code> current value.
+	 */
+	private void printComparison(final String label, final double before, final double after) {
+		final String change = (before > 0) ? String.format("%+.1f%%", (after-before)*100/before) : "n/a";
+		System.out.println(String.format("  %-14s%12.2f%12.2f%10s", label, before, after, change));
+	}
+
+	@Override
+	public String getKey() {
+		return "bench";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Measure the throughput and latency of the running runtime environment.";
+	}
+
+	@Override
+	public String[] getArgsDescription() {
+		return new String[] {
+				"--requests FILE", "Optional request mix file with one \"METHOD path [body]\" request per line, defaults to a GET of every deployed resource",
+				"--concurrency C", "Optional number of concurrent keep-alive connections, defaults to 16",
+				"--rate R", "Optional total number of requests per second, defaults to maximum throughput",
+				"--duration D", "Optional duration to measure, such as 30s or 2m, defaults to 30 seconds",
+				"--warm-up D", "Optional duration of unmeasured load before measuring, such as 10s, defaults to 5 seconds",
+				"--instance I", "Optional index of the runtime instance to load, defaults to the first instance",
+				"--save-baseline NAME", "Optional name of the baseline to save the result as",
+				"--baseline NAME", "Optional name of the baseline to compare the result against, failing on regression",
+				"--tolerance P", "Optional tolerated regression against the baseline in percent, defaults to 10"
+		};
+	}
+}
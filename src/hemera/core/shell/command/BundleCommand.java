@@ -1,24 +1,44 @@
 package hemera.core.shell.command;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
 import org.w3c.dom.Document;
 
 import hemera.core.environment.enumn.EEnvironment;
 import hemera.core.environment.ham.HAM;
 import hemera.core.environment.hbm.HBM;
-import hemera.core.environment.hbm.HBMDependency;
 import hemera.core.environment.hbm.HBMResource;
 import hemera.core.environment.util.UEnvironment;
 import hemera.core.shell.enumn.EShell;
 import hemera.core.shell.enumn.KBundleManifest;
 import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.util.BundleCache;
+import hemera.core.shell.util.ClassCompiler;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.DependencyResolver;
+import hemera.core.shell.util.DependencySet;
+import hemera.core.shell.util.JarStreamWriter;
 import hemera.core.utility.FileUtils;
-import hemera.core.utility.Compiler;
 
 /**
  * <code>BundleCommand</code> defines the logic that
@@ -29,20 +49,70 @@ import hemera.core.utility.Compiler;
  * <code>hbm</code> file.
  * @param bundlePath The <code>String</code> path to
  * put the final bundle file.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param jobs The <code>int</code> number of resources
+ * to build in parallel, given as <code>--jobs N</code>.
+ * Defaults to <code>1</code>.
+ * @param noCache The flag <code>--no-cache</code> to
+ * rebuild all resources without using or updating the
+ * bundle cache.
+ * @param version The <code>String</code> version of
+ * the application, given as <code>--version V</code>.
+ * It is recorded as the implementation version of the
+ * bundle and reported for the deployed application.
  *
  * @author Yi Wang (Neakor)
  * @version 1.0.0
  */
 public class BundleCommand implements ICommand {
 
+	/**
+	 * The <code>String</code> option key for the number
+	 * of parallel build jobs.
+	 */
+	private static final String OptionJobs = "jobs";
+	/**
+	 * The <code>String</code> option key for disabling
+	 * the bundle cache.
+	 */
+	private static final String OptionNoCache = "no-cache";
+	/**
+	 * The <code>String</code> option key for the
+	 * application version.
+	 */
+	private static final String OptionVersion = "version";
+	/**
+	 * The <code>String</code> entry name of the library
+	 * Jar in the bundle.
+	 */
+	private static final String LibraryJarName = "lib.jar";
+	/**
+	 * The <code>String</code> entry name of the shared
+	 * resources Jar in the bundle.
+	 */
+	private static final String SharedResourcesJarName = "resources.jar";
+
 	@Override
 	public void execute(final String[] args) throws Exception {
-		if (args == null || args.length < 2) {
+		final CommandOptions options = new CommandOptions(args);
+		if (options.getPositionalCount() < 2) {
 			throw new IllegalArgumentException("hbm file path and bundle target directory must be specified.");
 		}
-		final String hbmPath = args[0];
-		final String bundlePath = args[1];
+		final String hbmPath = options.getPositional(0);
+		final String bundlePath = options.getPositional(1);
+		final int jobs = options.getInt(BundleCommand.OptionJobs, 1);
+		if (jobs < 1) {
+			throw new IllegalArgumentException("Number of jobs must be at least 1.");
+		}
+		final String version = options.get(BundleCommand.OptionVersion, null);
+		if (options.has(BundleCommand.OptionVersion) && (version == null || !version.matches("\\S+"))) {
+			throw new IllegalArgumentException("Invalid application version: " + version + ". It cannot be empty or contain whitespace.");
+		}
 		final String tempPath = UEnvironment.instance.getInstalledTempDir();
+		final BundleCache cache = options.has(BundleCommand.OptionNoCache) ? null :
+			new BundleCache(UEnvironment.instance.getInstalledHomeDir() + EShell.BundleCacheDir.value);
 		try {
 			// Create the temporary directory.
 			FileUtils.instance.delete(tempPath);
@@ -54,40 +124,53 @@ public class BundleCommand implements ICommand {
 			final HBM bundle = new HBM(document);
 			// Process all shared dependencies.
 			System.out.println("Processing shared dependencies...");
-			final List<File> sharedDependencies = this.processDependencies(bundle, tempPath);
+			final DependencyResolver resolver = new DependencyResolver(tempPath, cache);
+			final List<File> sharedDependencies = resolver.resolve((bundle.shared==null) ? null : bundle.shared.dependencies);
 			// Generate HAM file.
 			System.out.println("Generating Hemera Application Model (HAM) file...");
 			final Document ham = new HAM(bundle).toXML();
-			final String hamTarget = tempPath + bundle.applicationName.toLowerCase() + EEnvironment.HAMExtension.value;
-			final File hamFile = FileUtils.instance.writeDocument(ham, hamTarget);
-			// Build resources.
-			System.out.println("Building resources...");
-			final List<File> resourceJars = this.buildResources(bundle, sharedDependencies, tempPath);
-			// Package all library files into a single Jar file.
-			System.out.println("Packaging application library files...");
-			final File libJar = this.buildAppLib(bundle, sharedDependencies, tempPath);
-			// Package shared resource files into a Jar file.
-			System.out.println("Packaging application shared resources...");
-			File sharedResourceJar = null;
-			if (bundle.shared != null && bundle.shared.resourcesDir != null) {
-				final List<File> resourceFiles = FileUtils.instance.getFiles(bundle.shared.resourcesDir);
-				final String resourceTarget = tempPath + "resources.jar";
-				sharedResourceJar = FileUtils.instance.jarFiles(resourceFiles, resourceTarget);
-			}
+			final String hamName = bundle.applicationName.toLowerCase() + EEnvironment.HAMExtension.value;
+			final byte[] hamData = this.toBytes(ham);
 			// Create a manifest file for the bundle.
-			final Manifest manifest = this.createManifest(resourceJars, libJar, sharedResourceJar, hamFile);
-			// Package all resource Jar files, application library Jar file, and
-			// the HAM file into a single bundle Jar file.
-			System.out.println("Packaging final bundle...");
-			final ArrayList<File> files = new ArrayList<File>();
+			final boolean hasSharedResources = (bundle.shared != null && bundle.shared.resourcesDir != null);
+			final String sharedResourcesName = hasSharedResources ? BundleCommand.SharedResourcesJarName : null;
+			final Manifest manifest = this.createManifest(BundleCommand.LibraryJarName, sharedResourcesName, hamName, version);
+			// Stream all resource Jar files, application library Jar file, and
+			// the HAM file into a single bundle Jar file. Write to a temporary
+			// file first so a failed run never leaves a partial bundle behind.
 			final String bundleTarget = FileUtils.instance.getValidDir(bundlePath) + bundle.applicationName + EShell.BundleExtension.value;
-			files.addAll(resourceJars);
-			files.add(libJar);
-			files.add(hamFile);
-			if (sharedResourceJar != null) files.add(sharedResourceJar);
-			FileUtils.instance.jarFiles(files, bundleTarget, manifest);
-			// Remove temporary directory.
+			final File partialFile = new File(bundleTarget + ".partial");
+			partialFile.getParentFile().mkdirs();
+			System.out.println("Packaging final bundle...");
+			final JarStreamWriter writer = new JarStreamWriter(new BufferedOutputStream(new FileOutputStream(partialFile)), manifest);
+			boolean written = false;
+			try {
+				// Build resources.
+				System.out.println("Building resources...");
+				this.buildResources(bundle, resolver, sharedDependencies, cache, tempPath, jobs, writer);
+				// Package all library files into a single Jar file.
+				System.out.println("Packaging application library files...");
+				writer.writeStoredArchive(BundleCommand.LibraryJarName, this.buildAppLib(bundle, resolver, sharedDependencies));
+				writer.writeEntry(hamName, hamData);
+				// Package shared resource files into a Jar file.
+				System.out.println("Packaging application shared resources...");
+				if (hasSharedResources) {
+					final List<File> resourceFiles = FileUtils.instance.getFiles(bundle.shared.resourcesDir);
+					writer.writeStored(sharedResourcesName, this.buildJar(resourceFiles));
+				}
+				written = true;
+			} finally {
+				writer.close();
+				if (!written) partialFile.delete();
+			}
+			final File bundleFile = new File(bundleTarget);
+			bundleFile.delete();
+			if (!partialFile.renameTo(bundleFile)) {
+				throw new IOException("Moving bundle file to " + bundleTarget + " failed.");
+			}
+			// Remove temporary directory and expired cache entries.
 			FileUtils.instance.delete(tempPath);
+			if (cache != null) cache.prune();
 			System.out.println("Bundling completed: " + bundleTarget);
 		} catch (final Exception e) {
 			System.err.println("Bundling failed.");
@@ -96,185 +179,253 @@ public class BundleCommand implements ICommand {
 	}
 
 	/**
-	 * Process the bundle shared dependencies.
-	 * @param bundle The <code>HBM</code> bundle.
-	 * @param tempDir The <code>String</code> path of
-	 * the temporary directory.
-	 * @return The <code>List</code> of all the bundle
-	 * shared dependency Jar <code>File</code>.
-	 * @throws Exception If compiling sources failed.
+	 * Serialize the given XML document.
+	 * @param document The <code>Document</code>.
+	 * @return The <code>byte</code> array of the
+	 * serialized document.
+	 * @throws TransformerException If serializing
+	 * failed.
 	 */
-	private List<File> processDependencies(final HBM bundle, final String tempDir) throws Exception {
-		final ArrayList<File> store = new ArrayList<File>();
-		if (bundle.shared != null && bundle.shared.dependencies != null) {
-			final int size = bundle.shared.dependencies.size();
-			for (int i = 0; i < size; i++) {
-				final HBMDependency dependency = bundle.shared.dependencies.get(i);
-				final List<File> jarFiles = dependency.process(tempDir);
-				store.addAll(jarFiles);
-			}
-		}
-		return store;
+	private byte[] toBytes(final Document document) throws TransformerException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.transform(new DOMSource(document), new StreamResult(output));
+		return output.toByteArray();
+	}
+
+	/**
+	 * Package the given files into an in-memory Jar
+	 * file with each file entry named by its file name.
+	 * @param files The <code>List</code> of all the
+	 * <code>File</code> to package.
+	 * @return The <code>byte</code> array of the Jar.
+	 * @throws IOException If packaging failed.
+	 */
+	private byte[] buildJar(final List<File> files) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final JarStreamWriter writer = new JarStreamWriter(output, null);
+		writer.writeFiles(files);
+		writer.close();
+		return output.toByteArray();
 	}
 
 	/**
 	 * Build all the resources contained in the given
-	 * bundle.
+	 * bundle. Resources are compiled and packaged on a
+	 * bounded pool of the given number of threads, and
+	 * the built Jar files are written to the bundle in
+	 * the same order as the resources are declared in
+	 * the bundle, each as soon as it and all the ones
+	 * before it are built. A resource whose inputs did
+	 * not change is restored from the cache instead.
 	 * @param bundle The <code>HBundle</code> node.
+	 * @param resolver The <code>DependencyResolver</code>.
 	 * @param sharedDependencies The <code>List</code> of
 	 * all the shared dependency <code>File</code>.
+	 * @param cache The <code>BundleCache</code>. It is
+	 * <code>null</code> if caching is disabled.
 	 * @param tempDir The <code>String</code> temporary
 	 * directory.
-	 * @return The <code>List</code> of built resource
-	 * Jar <code>File</code>.
+	 * @param jobs The <code>int</code> maximum number of
+	 * resources to build in parallel.
+	 * @param writer The bundle <code>JarStreamWriter</code>.
 	 * @throws Exception If building resources failed.
 	 */
-	private List<File> buildResources(final HBM bundle, final List<File> sharedDependencies, final String tempDir) throws Exception {
-		final Compiler compiler = new Compiler();
+	private void buildResources(final HBM bundle, final DependencyResolver resolver, final List<File> sharedDependencies,
+			final BundleCache cache,
+			final String tempDir, final int jobs, final JarStreamWriter writer) throws Exception {
 		final int size = bundle.resources.size();
-		final ArrayList<File> resourceJars = new ArrayList<File>(size);
+		// Resolve dependencies up front since they all share the temporary directory.
+		final ArrayList<List<File>> dependencies = new ArrayList<List<File>>(size);
 		for (int i = 0; i < size; i++) {
 			final HBMResource resource = bundle.resources.get(i);
-			final File resourceJar = this.buildResource(bundle, resource, sharedDependencies, compiler, tempDir);
-			resourceJars.add(resourceJar);
+			final List<File> resourceDependencies = new ArrayList<File>(sharedDependencies);
+			resourceDependencies.addAll(resolver.resolve(resource.dependencies));
+			dependencies.add(resourceDependencies);
+		}
+		System.out.println("Resolved " + resolver.getResolvedCount() + " distinct dependencies (" +
+				resolver.getCachedCount() + " cached).");
+		// Build resources in parallel.
+		final int threads = Math.max(1, Math.min(jobs, size));
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final ArrayList<Future<ResourceBuild>> futures = new ArrayList<Future<ResourceBuild>>(size);
+		try {
+			for (int i = 0; i < size; i++) {
+				final HBMResource resource = bundle.resources.get(i);
+				final List<File> resourceDependencies = dependencies.get(i);
+				futures.add(executor.submit(new Callable<ResourceBuild>() {
+					@Override
+					public ResourceBuild call() throws Exception {
+						final long start = System.currentTimeMillis();
+						final String key = (cache==null) ? null : cache.getResourceKey(bundle, resource, resourceDependencies);
+						byte[] jar = (key==null) ? null : cache.restore(key);
+						final boolean cached = (jar != null);
+						if (!cached) {
+							jar = BundleCommand.this.buildResource(bundle, resource, resourceDependencies, tempDir);
+							if (key != null) cache.store(key, jar);
+						}
+						return new ResourceBuild(resource.classname, jar, System.currentTimeMillis()-start, cached);
+					}
+				}));
+			}
+			// Write in declaration order for deterministic output.
+			final ArrayList<ResourceBuild> builds = new ArrayList<ResourceBuild>(size);
+			for (int i = 0; i < size; i++) {
+				final ResourceBuild build;
+				try {
+					build = futures.get(i).get();
+				} catch (final ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof Exception) throw (Exception)cause;
+					throw e;
+				}
+				writer.writeStored(build.classname + ".jar", build.jar);
+				// Release the written data.
+				futures.set(i, null);
+				builds.add(new ResourceBuild(build.classname, null, build.time, build.cached));
+			}
+			this.printTimings(builds, threads);
+		} finally {
+			executor.shutdownNow();
 		}
-		return resourceJars;
+	}
+
+	/**
+	 * Print out the build time of each resource.
+	 * @param builds The <code>List</code> of all the
+	 * <code>ResourceBuild</code> in declaration order.
+	 * @param threads The <code>int</code> number of
+	 * threads used.
+	 */
+	private void printTimings(final List<ResourceBuild> builds, final int threads) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("Built ").append(builds.size()).append(" resources using ").append(threads).append(" thread(s):");
+		final int size = builds.size();
+		for (int i = 0; i < size; i++) {
+			final ResourceBuild build = builds.get(i);
+			builder.append("\n    ").append(build.classname).append(": ").append(build.time).append(" ms");
+			if (build.cached) builder.append(" (cached)");
+		}
+		System.out.println(builder.toString());
 	}
 
 	/**
 	 * Build the HBM resource node by packaging all the
 	 * compiled resource class files and its configuration
-	 * file if there is one into a single Jar file under
-	 * the bundler temporary directory.
+	 * file if there is one into a single in-memory Jar.
+	 * The class Jar and the resource files Jar are nested
+	 * as uncompressed entries, so every file is only
+	 * compressed once. This method may be invoked
+	 * concurrently for different resources.
 	 * @param bundle The <code>HBM</code> bundle.
 	 * @param resource The <code>HBMResource</code> to be
 	 * built.
-	 * @param sharedDependencies The <code>List</code> of
-	 * all the shared dependency <code>File</code>.
-	 * @param compiler The <code>Compiler</code> instance
-	 * to compile the resource classes.
+	 * @param dependencies The <code>List</code> of all
+	 * the resolved dependency <code>File</code>.
 	 * @param tempDir The <code>String</code> temporary
 	 * directory.
-	 * @return The packaged resource Jar <code>File</code>.
+	 * @return The <code>byte</code> array of the packaged
+	 * resource Jar.
 	 * @throws Exception If any processing failed.
 	 */
-	private File buildResource(final HBM bundle, final HBMResource resource, final List<File> sharedDependencies,
-			final Compiler compiler, final String tempDir) throws Exception {
+	private byte[] buildResource(final HBM bundle, final HBMResource resource, final List<File> dependencies,
+			final String tempDir) throws Exception {
 		// Each resource gets a separate build directory.
 		final String buildDir = tempDir + resource.classname + File.separator;
-		// Compile classes with both shared and resource dependencies.
-		final List<File> dependencies = new ArrayList<File>();
-		dependencies.addAll(sharedDependencies);
-		if (resource.dependencies != null) {
-			final int size = resource.dependencies.size();
-			for (int i = 0; i < size; i++) {
-				final List<File> resourceDependencies = resource.dependencies.get(i).process(tempDir);
-				dependencies.addAll(resourceDependencies);
-			}
-		}
-		final String classDir = buildDir + "classes" + File.separator;
-		compiler.compile(resource.srcDir, classDir, dependencies);
-		// Package class files into a Jar file.
-		final String classjarPath = buildDir + resource.classname + ".jar";
-		final ArrayList<File> classDirFileList = new ArrayList<File>(1);
-		classDirFileList.add(new File(classDir));
-		final File classjar = FileUtils.instance.jarFiles(classDirFileList, classjarPath);
-		// Process resource configuration.
-		final File resourceConfig = resource.processConfig(bundle.shared, tempDir);
-		// Package class Jar file, processed configuration file and all resource files into a resource Jar file.
-		final String resourcejarPath = tempDir + resource.classname + ".jar";
-		final ArrayList<File> resourcefiles = new ArrayList<File>();
-		resourcefiles.add(classjar);
-		if (resourceConfig != null) resourcefiles.add(resourceConfig);
-		// Package resource files into a Jar file.
+		// Compile classes in memory with both shared and resource dependencies.
+		final SortedMap<String, byte[]> classes = ClassCompiler.instance.compile(resource.srcDir, dependencies);
+		// Package class files into a Jar.
+		final ByteArrayOutputStream classjar = new ByteArrayOutputStream();
+		final JarStreamWriter classWriter = new JarStreamWriter(classjar, null);
+		classWriter.writeEntries(classes);
+		classWriter.close();
+		// Process resource configuration into the build directory to avoid
+		// collisions with other resources using the same file name.
+		final File resourceConfig = resource.processConfig(bundle.shared, buildDir);
+		// Package class Jar, processed configuration file and all resource files into a resource Jar.
+		final ByteArrayOutputStream resourcejar = new ByteArrayOutputStream();
+		final JarStreamWriter writer = new JarStreamWriter(resourcejar, null);
+		writer.writeStored(resource.classname + ".jar", classjar.toByteArray());
+		if (resourceConfig != null) writer.writeFile(resourceConfig.getName(), resourceConfig);
+		// Package resource files into a Jar.
 		if (resource.resourcesDir != null) {
 			final List<File> resourceFiles = FileUtils.instance.getFiles(resource.resourcesDir);
-			final String resourceTarget = tempDir + resource.classname + "-resources.jar";
-			final File resourceJar = FileUtils.instance.jarFiles(resourceFiles, resourceTarget);
-			resourcefiles.add(resourceJar);
+			writer.writeStored(resource.classname + "-resources.jar", this.buildJar(resourceFiles));
 		}
-		final File resourcejar = FileUtils.instance.jarFiles(resourcefiles, resourcejarPath);
+		writer.close();
 		// Remove the build directory.
 		FileUtils.instance.delete(buildDir);
-		return resourcejar;
+		return resourcejar.toByteArray();
 	}
 
 	/**
-	 * Package all the shared library files and all the
-	 * library files of all the resources into a single
-	 * Jar file under the bundler temporary directory.
+	 * Collect all the shared library files and all the
+	 * library files of all the resources that should be
+	 * packaged into the application library Jar. Files
+	 * with the same name are only included once, and
+	 * those with different contents are reported as
+	 * version conflicts.
 	 * @param bundle The <code>HBM</code> bundle.
+	 * @param resolver The <code>DependencyResolver</code>.
 	 * @param sharedDependencies The <code>List</code> of
 	 * all the shared dependency <code>File</code>.
-	 * @param tempDir The <code>String</code> temporary
-	 * directory.
-	 * @return The library Jar <code>File</code>.
+	 * @return The <code>List</code> of library Jar
+	 * <code>File</code>.
 	 * @throws Exception If any processing failed.
 	 */
-	private File buildAppLib(final HBM bundle, final List<File> sharedDependencies, final String tempDir) throws Exception {
-		// Add all shared library files.
-		final List<File> libFiles = new ArrayList<File>();
+	private List<File> buildAppLib(final HBM bundle, final DependencyResolver resolver, final List<File> sharedDependencies)
+			throws Exception {
+		// Add all shared library files first so they take precedence.
+		final DependencySet libFiles = new DependencySet();
 		libFiles.addAll(sharedDependencies);
 		// Add all the resource library files.
-		final int resourceSize = bundle.resources.size();
-		for (int i = 0; i < resourceSize; i++) {
+		final int size = bundle.resources.size();
+		for (int i = 0; i < size; i++) {
 			final HBMResource resource = bundle.resources.get(i);
-			if (resource.dependencies == null) continue;
-			final int size = resource.dependencies.size();
-			for (int j = 0; j < size; j++) {
-				final HBMDependency dependency = resource.dependencies.get(j);
-				// Exclude duplicates based on name.
-				final List<File> resourceDependencies = dependency.process(tempDir);
-				final int libsize = resourceDependencies.size();
-				for (int k = 0; k < libsize; k++) {
-					final File file = resourceDependencies.get(k);
-					boolean contains = false;
-					final int addedSize = libFiles.size();
-					for (int l = 0; l < addedSize; l++) {
-						if (libFiles.get(l).getName().equals(file.getName())) {
-							contains = true;
-							break;
-						}
-					}
-					if (!contains) libFiles.add(file);
-				}
-			}
+			libFiles.addAll(resolver.resolve(resource.dependencies));
 		}
-		// Package all files into a single Jar file.
-		final String libjarPath = tempDir + "lib.jar";
-		final File libjar = FileUtils.instance.jarFiles(libFiles, libjarPath);
-		return libjar;
+		// Report libraries with the same name but different contents.
+		final List<String> conflicts = libFiles.getConflicts();
+		final int conflictSize = conflicts.size();
+		for (int i = 0; i < conflictSize; i++) {
+			System.err.println("Warning: library version conflict: " + conflicts.get(i));
+		}
+		return libFiles.getFiles();
 	}
 
 	/**
 	 * Create the bundle manifest file.
-	 * @param resourcejars The <code>List</code> of all
-	 * resource Jar <code>File</code> to be included in
-	 * the final bundle file.
-	 * @param libjar The <code>File</code> of the
-	 * single Jar file containing all resource library
-	 * files to be included in the final bundle file.
-	 * @param sharedResourcesJar The <code>File</code>
-	 * of the shared resources Jar. <code>null</code>
-	 * if there are no shared resources.
-	 * @param hamfile The HAM <code>File</code> to be
-	 * included in the final bundle file.
+	 * @param libjar The <code>String</code> entry name
+	 * of the single Jar file containing all resource
+	 * library files to be included in the final bundle
+	 * file.
+	 * @param sharedResourcesJar The <code>String</code>
+	 * entry name of the shared resources Jar.
+	 * <code>null</code> if there are no shared resources.
+	 * @param hamfile The <code>String</code> entry name
+	 * of the HAM file to be included in the final bundle
+	 * file.
+	 * @param version The <code>String</code> application
+	 * version. <code>null</code> if not given.
 	 * @return The <code>Manifest</code> instance.
 	 */
-	private Manifest createManifest(final List<File> resourcejars, final File libjar, final File sharedResourcesJar,
-			final File hamfile) {
+	private Manifest createManifest(final String libjar, final String sharedResourcesJar, final String hamfile, final String version) {
 		final Manifest manifest = new Manifest();
 		// Must include the basic attributes.
 		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
 		manifest.getMainAttributes().put(Attributes.Name.SPECIFICATION_VENDOR, "Hemera");
 		manifest.getMainAttributes().put(Attributes.Name.SPECIFICATION_VERSION, EEnvironment.Version.value);
+		// Add application version attribute.
+		if (version != null) {
+			manifest.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_VERSION, version);
+		}
 		// Add HAM file attribute.
-		manifest.getMainAttributes().putValue(KBundleManifest.HAMFile.key, hamfile.getName());
+		manifest.getMainAttributes().putValue(KBundleManifest.HAMFile.key, hamfile);
 		// Add library Jar file attribute.
-		manifest.getMainAttributes().putValue(KBundleManifest.LibraryJarFile.key, libjar.getName());
+		manifest.getMainAttributes().putValue(KBundleManifest.LibraryJarFile.key, libjar);
 		// Add shared resources Jar file attribute.
 		if (sharedResourcesJar != null) {
-			manifest.getMainAttributes().putValue(KBundleManifest.SharedResourcesJarFile.key, sharedResourcesJar.getName());
+			manifest.getMainAttributes().putValue(KBundleManifest.SharedResourcesJarFile.key, sharedResourcesJar);
 		}
 		return manifest;
 	}
@@ -293,7 +444,53 @@ public class BundleCommand implements ICommand {
 	public String[] getArgsDescription() {
 		return new String[] {
 				"hbmFile", "The path to the Hemera Bundle Model (hbm) file",
-				"targetDir", "The directory to put the created bundle file"
+				"targetDir", "The directory to put the created bundle file",
+				"--jobs N", "Optional number of resources to compile and package in parallel, defaults to 1",
+				"--no-cache", "Optional flag to rebuild all resources without using the bundle cache",
+				"--version V", "Optional version of the application, reported once the bundle is deployed"
 		};
 	}
+
+	/**
+	 * <code>ResourceBuild</code> defines the result of
+	 * building a single resource.
+	 */
+	private static class ResourceBuild {
+		/**
+		 * The <code>String</code> resource class name.
+		 */
+		private final String classname;
+		/**
+		 * The <code>byte</code> array of the built resource
+		 * Jar. <code>null</code> once it is written.
+		 */
+		private final byte[] jar;
+		/**
+		 * The <code>long</code> build time in milliseconds.
+		 */
+		private final long time;
+		/**
+		 * The <code>boolean</code> indicating if the Jar
+		 * file was restored from the cache.
+		 */
+		private final boolean cached;
+
+		/**
+		 * Constructor of <code>ResourceBuild</code>.
+		 * @param classname The <code>String</code> resource
+		 * class name.
+		 * @param jar The <code>byte</code> array of the
+		 * built resource Jar.
+		 * @param time The <code>long</code> build time in
+		 * milliseconds.
+		 * @param cached The <code>boolean</code> indicating
+		 * if the Jar file was restored from the cache.
+		 */
+		private ResourceBuild(final String classname, final byte[] jar, final long time, final boolean cached) {
+			this.classname = classname;
+			this.jar = jar;
+			this.time = time;
+			this.cached = cached;
+		}
+	}
 }
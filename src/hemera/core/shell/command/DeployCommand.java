@@ -3,11 +3,19 @@ package hemera.core.shell.command;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 
+import javax.management.remote.JMXConnector;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -22,11 +30,20 @@ import hemera.core.environment.ham.HAM;
 import hemera.core.environment.ham.HAMResource;
 import hemera.core.environment.ham.key.KHAM;
 import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
 import hemera.core.shell.enumn.ECommand;
 import hemera.core.shell.enumn.EShell;
 import hemera.core.shell.enumn.KBundleManifest;
 import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.runtime.RuntimeControlMBean;
+import hemera.core.shell.util.BundleExtractor;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.DeployManifest;
+import hemera.core.shell.util.DeploymentRegistry;
 import hemera.core.shell.util.JSVCScriptGenerator;
+import hemera.core.shell.util.RollingRestart;
+import hemera.core.shell.util.RuntimeConnector;
+import hemera.core.shell.util.UShell;
 import hemera.core.utility.FileUtils;
 
 /**
@@ -36,18 +53,91 @@ import hemera.core.utility.FileUtils;
  * <p>
  * @param bundlePath The <code>String</code> path to
  * the bundle file.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param jobs The <code>int</code> number of bundle
+ * entries to extract in parallel, given as
+ * <code>--jobs N</code>. Defaults to the number of
+ * available processors.
+ * @param delta The flag <code>--delta</code> to only
+ * write the files that changed since the previous
+ * deployment, and remove the files that were deleted,
+ * instead of replacing the application directory.
+ * Falls back to a full deployment if the previous
+ * deployment did not record a manifest.
+ * @param rolling The flag <code>--rolling</code> to
+ * extract the application into a staging directory
+ * while the current version keeps serving, then swap
+ * it in and restart the instances one at a time, each
+ * drained, restarted and probed before the next. A
+ * single instance is covered by a temporary surge
+ * instance while it restarts. The
+ * previous version is restored if an instance does
+ * not become ready.
+ * @param readyTimeout The <code>int</code> number of
+ * seconds to wait for each instance to become ready,
+ * given as <code>--ready-timeout S</code>. Defaults to
+ * <code>60</code>.
+ * @param hot The flag <code>--hot</code> to load the
+ * application into the running runtime without
+ * restarting it. Falls back to a restart if the
+ * runtime management interface cannot be reached.
  *
  * @author Yi Wang (Neakor)
  * @version 1.0.0
  */
 public class DeployCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for the number
+	 * of parallel extraction jobs.
+	 */
+	private static final String OptionJobs = "jobs";
+	/**
+	 * The <code>String</code> option key for only
+	 * writing the changed files.
+	 */
+	private static final String OptionDelta = "delta";
+	/**
+	 * The <code>String</code> option key for staging
+	 * the deployment before swapping it in.
+	 */
+	private static final String OptionRolling = "rolling";
+	/**
+	 * The <code>String</code> option key for the number
+	 * of seconds to wait for a rolled out runtime to
+	 * become ready.
+	 */
+	private static final String OptionReadyTimeout = "ready-timeout";
+	/**
+	 * The <code>String</code> option key for deploying
+	 * into the running runtime without restarting it.
+	 */
+	private static final String OptionHot = "hot";
 
 	@Override
 	public void execute(final String[] args) throws Exception {
-		if (args == null || args.length < 1) {
+		final CommandOptions options = new CommandOptions(args);
+		if (options.getPositionalCount() < 1) {
 			throw new IllegalArgumentException("Bundle file path must be specified.");
 		}
-		final String bundlePath = args[0];
+		final String bundlePath = options.getPositional(0);
+		final int jobs = options.getInt(DeployCommand.OptionJobs, Runtime.getRuntime().availableProcessors());
+		if (jobs < 1) {
+			throw new IllegalArgumentException("Number of jobs must be at least 1.");
+		}
+		final boolean rolling = options.has(DeployCommand.OptionRolling);
+		if (rolling && options.has(DeployCommand.OptionDelta)) {
+			throw new IllegalArgumentException("Delta and rolling deployments cannot be combined.");
+		}
+		final boolean hot = options.has(DeployCommand.OptionHot);
+		if (rolling && hot) {
+			throw new IllegalArgumentException("Hot and rolling deployments cannot be combined.");
+		}
+		final int readyTimeout = options.getInt(DeployCommand.OptionReadyTimeout, 60);
+		if (readyTimeout < 1) {
+			throw new IllegalArgumentException("Ready timeout must be at least 1 second.");
+		}
 		try {
 			if (!bundlePath.endsWith(EShell.BundleExtension.value)) {
 				throw new IllegalArgumentException("Invalid bundle file.");
@@ -56,36 +146,199 @@ public class DeployCommand implements ICommand {
 			// Read in HAM document.
 			final Document hamDoc = this.readHAM(bundle);
 			final HAM ham = new HAM(hamDoc);
-			// Create application directory.
-			final String appDir = this.createAppDir(ham);
-			// Deploy bundle library files.
-			System.out.println("Deploying libraries...");
-			this.deployLibrary(appDir, bundle);
-			// Deploy shared resources.
-			System.out.println("Deploying shared resources...");
-			this.deploySharedResources(appDir, bundle);
+			final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+			// Create application directory, or reuse it if only changes are deployed.
+			// Rolling deployments extract into a staging directory outside of the
+			// applications directory while the current version keeps running.
+			final String appDir = UEnvironment.instance.getApplicationDir(ham.applicationName);
+			final String targetDir = rolling ? this.createStagingDir(homeDir, ham) : appDir;
+			final File manifestFile = new File(targetDir + ham.applicationName + EShell.DeployManifestExtension.value);
+			final DeployManifest previous = options.has(DeployCommand.OptionDelta) ? this.loadManifest(manifestFile) : null;
+			if (previous == null && !rolling) this.createAppDir(ham);
+			// Deploy bundle library files, shared resources and resources
+			// in parallel, since they are extracted into separate directories.
+			final BundleExtractor extractor = new BundleExtractor(bundle, targetDir, previous);
+			final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			tasks.add(this.deployLibrary(targetDir, bundle, extractor));
+			tasks.add(this.deploySharedResources(targetDir, bundle, extractor));
+			tasks.addAll(this.deployResources(targetDir, ham, extractor));
+			final int threads = Math.max(1, Math.min(jobs, tasks.size()));
+			System.out.println("Deploying libraries, shared resources and " + ham.resources.size() + " resources using " +
+					threads + " thread(s)...");
+			this.execute(tasks, threads);
+			final String version = this.readVersion(bundle);
+			bundle.close();
+			// Remove files that no longer exist in the bundle.
+			final DeployManifest current = extractor.getManifest();
+			final int removed = (previous == null) ? 0 : this.removeStaleFiles(targetDir, previous, current);
+			if (previous != null) {
+				System.out.println("Wrote " + extractor.getWrittenCount() + " changed files, kept " +
+						extractor.getUnchangedCount() + " unchanged files, removed " + removed + " deleted files.");
+			}
+			current.save(manifestFile);
 			// Deploy HAM file.
 			System.out.println("Deploying HAM...");
-			this.deployHAM(appDir, ham, hamDoc);
-			// Deploy resources.
-			System.out.println("Deploying resources...");
-			this.deployResources(appDir, bundle, ham);
-			// Update runtime scripts.
-			System.out.println("Updating scripts...");
-			final String homeDir = UEnvironment.instance.getInstalledHomeDir();
-			final Configuration config = UEnvironment.instance.getConfiguration(homeDir);
-			JSVCScriptGenerator.instance.exportScripts(homeDir, config);
+			this.deployHAM(targetDir, appDir, ham, hamDoc);
 			// Delete temp directory.
 			FileUtils.instance.delete(UEnvironment.instance.getInstalledTempDir());
-			System.out.println("Successfully deployed: " + ham.applicationName);
-			// Run restart command.
-			ECommand.Restart.execute(null);
+			if (rolling) {
+				this.rollOut(homeDir, ham, version, targetDir, appDir, readyTimeout);
+			} else {
+				// Record the deployment then update runtime scripts.
+				DeploymentRegistry.register(homeDir, DeploymentRegistry.newEntry(homeDir, ham, version, System.currentTimeMillis()));
+				System.out.println("Updating scripts...");
+				final Configuration config = UEnvironment.instance.getConfiguration(homeDir);
+				JSVCScriptGenerator.instance.exportScripts(homeDir, config);
+				System.out.println("Successfully deployed: " + ham.applicationName);
+				// Load into the running runtime, or run restart command.
+				if (!hot || !this.hotDeploy(homeDir, appDir, ham)) {
+					ECommand.Restart.execute(null);
+				}
+			}
 		} catch (final Exception e) {
 			System.err.println("Deploying failed.");
 			throw e;
 		}
 	}
 
+	/**
+	 * Load the deployed application into every running
+	 * runtime instance through its management interface,
+	 * replacing the previous version of the application
+	 * while all the other applications keep serving.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param appDir The <code>String</code> application
+	 * directory.
+	 * @param ham The <code>HAM</code> document.
+	 * @return <code>true</code> if the application was
+	 * loaded. <code>false</code> if the runtime needs to
+	 * be restarted instead.
+	 * @throws Exception If loading the application
+	 * failed.
+	 */
+	private boolean hotDeploy(final String homeDir, final String appDir, final HAM ham) throws Exception {
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int count = shellConfig.instances.count;
+		for (int i = 0; i < count; i++) {
+			if (!UShell.instance.isRunning(i)) return false;
+		}
+		final JMXConnector[] connectors = new JMXConnector[count];
+		try {
+			final RuntimeControlMBean[] controls = new RuntimeControlMBean[count];
+			for (int i = 0; i < count; i++) {
+				connectors[i] = RuntimeConnector.instance.connect(shellConfig, i);
+				if (connectors[i] == null) {
+					System.out.println("Runtime management interface is not reachable, restarting runtime instead...");
+					return false;
+				}
+				controls[i] = RuntimeConnector.instance.getControl(connectors[i]);
+				if (controls[i] == null) {
+					System.out.println("Runtime launcher does not support hot deployment, restarting runtime instead...");
+					return false;
+				}
+			}
+			System.out.println("Loading application into running runtime...");
+			final String hamPath = appDir + ham.applicationName + EEnvironment.HAMExtension.value;
+			for (int i = 0; i < count; i++) {
+				final long start = System.nanoTime();
+				final int loaded = controls[i].deploy(hamPath);
+				final long time = (System.nanoTime()-start) / 1000000L;
+				final String target = (count==1) ? "" : " into instance " + i;
+				System.out.println("Loaded " + loaded + " resources of " + ham.applicationName + target + " in " + time + " ms without restart.");
+			}
+			return true;
+		} finally {
+			for (int i = 0; i < count; i++) RuntimeConnector.instance.close(connectors[i]);
+		}
+	}
+
+	/**
+	 * Create an empty staging directory for the given
+	 * application.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param ham The <code>HAM</code> document.
+	 * @return The <code>String</code> staging directory.
+	 */
+	private String createStagingDir(final String homeDir, final HAM ham) {
+		final String path = homeDir + EShell.DeployStagingDir.value + ham.applicationName + File.separator;
+		FileUtils.instance.delete(path);
+		new File(path).mkdirs();
+		return path;
+	}
+
+	/**
+	 * Roll out the staged application. The staged
+	 * directory is swapped in place of the current
+	 * application directory, which is kept aside, then
+	 * the runtime instances are restarted one at a time
+	 * on the new scripts. All instances share the same
+	 * port, so the others keep serving while one of them
+	 * is restarted, and a single instance is covered by
+	 * a temporary surge instance. If an instance does not become ready
+	 * within the timeout, the previous version is swapped
+	 * back and the instances restarted so far are rolled
+	 * back the same way.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param ham The <code>HAM</code> document.
+	 * @param version The <code>String</code> version of
+	 * the bundle.
+	 * @param stagingDir The <code>String</code> staging
+	 * directory.
+	 * @param appDir The <code>String</code> application
+	 * directory.
+	 * @param readyTimeout The <code>int</code> readiness
+	 * timeout of each instance in seconds.
+	 * @throws Exception If rolling out failed.
+	 */
+	private void rollOut(final String homeDir, final HAM ham, final String version, final String stagingDir,
+			final String appDir, final int readyTimeout) throws Exception {
+		final File current = new File(appDir);
+		final File staged = new File(stagingDir);
+		final File retired = new File(homeDir + EShell.DeployStagingDir.value + ham.applicationName + ".previous");
+		FileUtils.instance.delete(retired.getAbsolutePath());
+		// Swap the staged version in.
+		System.out.println("Swapping in staged application...");
+		final boolean replacing = current.exists();
+		if (replacing && !current.renameTo(retired)) {
+			throw new IOException("Moving current application to " + retired.getAbsolutePath() + " failed.");
+		}
+		if (!staged.renameTo(current)) {
+			retired.renameTo(current);
+			throw new IOException("Moving staged application to " + appDir + " failed.");
+		}
+		final DeploymentRegistry.Entry previous =
+				DeploymentRegistry.register(homeDir, DeploymentRegistry.newEntry(homeDir, ham, version, System.currentTimeMillis()));
+		final Configuration config = UEnvironment.instance.getConfiguration(homeDir);
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		JSVCScriptGenerator.instance.exportScripts(homeDir, config);
+		final long start = System.currentTimeMillis();
+		final int failed = RollingRestart.instance.restart(homeDir, config, shellConfig, shellConfig.instances.count, readyTimeout);
+		if (failed < 0) {
+			FileUtils.instance.delete(retired.getAbsolutePath());
+			System.out.println("Successfully deployed: " + ham.applicationName + ", rolled out in " + (System.currentTimeMillis()-start) + " ms.");
+			return;
+		}
+		// Roll back the instances that were restarted on the new version.
+		final String name = UShell.instance.getInstanceName(shellConfig, failed);
+		System.err.println(name + " did not become ready within " + readyTimeout + " seconds, rolling back...");
+		FileUtils.instance.delete(appDir);
+		if (replacing && !retired.renameTo(current)) {
+			throw new IOException("Restoring previous application from " + retired.getAbsolutePath() + " failed.");
+		}
+		if (previous != null) DeploymentRegistry.register(homeDir, previous);
+		else DeploymentRegistry.unregister(homeDir, ham.applicationName);
+		JSVCScriptGenerator.instance.exportScripts(homeDir, config);
+		final int failedBack = RollingRestart.instance.restart(homeDir, config, shellConfig, failed+1, readyTimeout);
+		if (failedBack >= 0) {
+			System.err.println(UShell.instance.getInstanceName(shellConfig, failedBack) + " did not become ready after rolling back.");
+		}
+		final String outcome = replacing ? "previous version restored." : "application removed.";
+		throw new IllegalStateException("Rolling deployment of " + ham.applicationName + " failed readiness check, " + outcome);
+	}
+
 	/**
 	 * Read in the HAM XML document from the given
 	 * application bundle.
@@ -109,6 +362,76 @@ public class DeployCommand implements ICommand {
 		return builder.parse(input);
 	}
 
+	/**
+	 * Read the application version of the given bundle
+	 * from its manifest, which is the implementation
+	 * version written by the bundle command.
+	 * @param bundle The bundle <code>JarFile</code>.
+	 * @return The <code>String</code> version. Or
+	 * <code>null</code> if the bundle declares none.
+	 * @throws IOException If parsing bundle file
+	 * failed.
+	 */
+	private String readVersion(final JarFile bundle) throws IOException {
+		final Attributes attributes = bundle.getManifest().getMainAttributes();
+		return attributes.getValue(Attributes.Name.IMPLEMENTATION_VERSION);
+	}
+
+	/**
+	 * Load the deploy manifest of the existing
+	 * deployment and remove it, so a failed delta
+	 * deployment falls back to a full deployment the
+	 * next time.
+	 * @param manifestFile The manifest <code>File</code>.
+	 * @return The <code>DeployManifest</code>. Or
+	 * <code>null</code> if there is no usable manifest.
+	 */
+	private DeployManifest loadManifest(final File manifestFile) {
+		DeployManifest manifest = null;
+		try {
+			manifest = DeployManifest.load(manifestFile);
+		} catch (final IOException e) {
+			System.err.println(e.getMessage());
+		}
+		if (manifest == null) {
+			System.out.println("No valid deploy manifest found, deploying all files...");
+			return null;
+		}
+		manifestFile.delete();
+		System.out.println("Deploying changed files only...");
+		return manifest;
+	}
+
+	/**
+	 * Remove all the files recorded in the previous
+	 * manifest that are not part of the current one,
+	 * along with any directories left empty.
+	 * @param appDir The <code>String</code> path of
+	 * the application directory.
+	 * @param previous The previous <code>DeployManifest</code>.
+	 * @param current The current <code>DeployManifest</code>.
+	 * @return The <code>int</code> number of removed
+	 * files.
+	 */
+	private int removeStaleFiles(final String appDir, final DeployManifest previous, final DeployManifest current) {
+		final File root = new File(appDir).getAbsoluteFile();
+		final List<String> paths = previous.getPaths();
+		final int size = paths.size();
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			final String path = paths.get(i);
+			if (current.contains(path)) continue;
+			File file = new File(root, path.replace('/', File.separatorChar));
+			if (file.delete()) count++;
+			// Remove emptied parent directories up to the application directory.
+			file = file.getParentFile();
+			while (file != null && !file.equals(root) && file.delete()) {
+				file = file.getParentFile();
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * Create the application directory. This will
 	 * first delete the existing directory.
@@ -127,62 +450,103 @@ public class DeployCommand implements ICommand {
 	}
 
 	/**
-	 * Deploy all the library files contained in the
-	 * given bundle file excluding the ones that are
-	 * already installed with the environment.
+	 * Execute all the given deployment tasks on a
+	 * bounded pool of the given number of threads and
+	 * wait for all of them to complete.
+	 * @param tasks The <code>List</code> of all the
+	 * <code>Callable</code> tasks.
+	 * @param threads The <code>int</code> number of
+	 * threads.
+	 * @throws Exception If any task failed.
+	 */
+	private void execute(final List<Callable<Void>> tasks, final int threads) throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<Void>> futures = executor.invokeAll(tasks);
+			final int size = futures.size();
+			for (int i = 0; i < size; i++) {
+				try {
+					futures.get(i).get();
+				} catch (final ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof Exception) throw (Exception)cause;
+					throw e;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Create the task that deploys all the library
+	 * files contained in the given bundle file
+	 * excluding the ones that are already installed
+	 * with the environment.
 	 * @param appDir The <code>String</code> path of
 	 * the application directory.
 	 * @param bundle The bundle <code>JarFile</code>.
+	 * @param extractor The <code>BundleExtractor</code>.
+	 * @return The <code>Callable</code> task.
 	 * @throws IOException If parsing bundle file
 	 * failed.
 	 */
-	private void deployLibrary(final String appDir, final JarFile bundle) throws IOException {
+	private Callable<Void> deployLibrary(final String appDir, final JarFile bundle, final BundleExtractor extractor)
+			throws IOException {
 		// Retrieve the lib Jar entry.
 		final Manifest manifest = bundle.getManifest();
 		final String libEntryName = manifest.getMainAttributes().getValue(KBundleManifest.LibraryJarFile.key);
-		// Bundle may not contain any library files.
-		if (libEntryName == null || libEntryName.isEmpty()) return;
-		// Write the lib Jar file to temp directory.
-		final String tempDir = UEnvironment.instance.getInstalledTempDir();
-		final File libFile = FileUtils.instance.writeToFile(bundle, libEntryName, tempDir);
-		// Write all the contents of the lib Jar file to application's
-		// lib directory, excluding environment already installed.
-		final String binDir = UEnvironment.instance.getInstalledBinDir();
-		final String appLibDir = UEnvironment.instance.getApplicationLibDir(appDir);
-		final List<File> existing = FileUtils.instance.getFiles(binDir);
-		FileUtils.instance.writeAll(libFile, appLibDir, existing);
-		// Delete temporary lib Jar file.
-		libFile.delete();
+		return new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				// Bundle may not contain any library files.
+				if (libEntryName == null || libEntryName.isEmpty()) return null;
+				// Write all the contents of the lib Jar entry to application's
+				// lib directory, excluding environment already installed.
+				final String binDir = UEnvironment.instance.getInstalledBinDir();
+				final String appLibDir = UEnvironment.instance.getApplicationLibDir(appDir);
+				final List<File> existing = FileUtils.instance.getFiles(binDir);
+				extractor.extract(libEntryName, appLibDir, existing);
+				return null;
+			}
+		};
 	}
 
 	/**
-	 * Deploy all the shared resources files contained
-	 * in the given bundle file.
+	 * Create the task that deploys all the shared
+	 * resources files contained in the given bundle
+	 * file.
 	 * @param appDir The <code>String</code> path of
 	 * the application directory.
 	 * @param bundle The bundle <code>JarFile</code>.
+	 * @param extractor The <code>BundleExtractor</code>.
+	 * @return The <code>Callable</code> task.
 	 * @throws IOException If parsing bundle file
 	 * failed.
 	 */
-	private void deploySharedResources(final String appDir, final JarFile bundle) throws IOException {
+	private Callable<Void> deploySharedResources(final String appDir, final JarFile bundle, final BundleExtractor extractor)
+			throws IOException {
 		// Retrieve the resources Jar entry.
 		final Manifest manifest = bundle.getManifest();
 		final String resourcesEntryName = manifest.getMainAttributes().getValue(KBundleManifest.SharedResourcesJarFile.key);
-		// Bundle may not contain any shared resources.
-		if (resourcesEntryName == null || resourcesEntryName.isEmpty()) return;
-		// Write the resources Jar file to temp directory.
-		final String tempDir = UEnvironment.instance.getInstalledTempDir();
-		final File resourcesFile = FileUtils.instance.writeToFile(bundle, resourcesEntryName, tempDir);
-		// Write all the contents of the resources Jar file to application's
-		// resources directory, excluding environment already installed.
-		final String appResourcesDir = UEnvironment.instance.getApplicationResourcesDir(appDir);
-		FileUtils.instance.writeAll(resourcesFile, appResourcesDir, null);
-		// Delete temporary resources Jar file.
-		resourcesFile.delete();
+		return new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				// Bundle may not contain any shared resources.
+				if (resourcesEntryName == null || resourcesEntryName.isEmpty()) return null;
+				// Write all the contents of the resources Jar entry to application's
+				// resources directory.
+				final String appResourcesDir = UEnvironment.instance.getApplicationResourcesDir(appDir);
+				extractor.extract(resourcesEntryName, appResourcesDir, null);
+				return null;
+			}
+		};
 	}
 
 	/**
 	 * Deploy the HAM configuration.
+	 * @param targetDir The <code>String</code> path of
+	 * the directory to write the HAM file to.
 	 * @param appDir The <code>String</code> path of
 	 * the application directory.
 	 * @param ham The <code>HAM</code> document.
@@ -191,9 +555,10 @@ public class DeployCommand implements ICommand {
 	 * @throws TransformerException If writing the
 	 * XML document failed.
 	 */
-	private void deployHAM(final String appDir, final HAM ham, final Document hamDoc) throws IOException, TransformerException {
+	private void deployHAM(final String targetDir, final String appDir, final HAM ham, final Document hamDoc) throws IOException, TransformerException {
 		// Write HAM to a temporary location.
 		final String tempDir = UEnvironment.instance.getInstalledTempDir();
+		new File(tempDir).mkdirs();
 		final String tempTarget = tempDir + ham.applicationName + EEnvironment.HAMExtension.value;
 		final File tempFile = FileUtils.instance.writeDocument(hamDoc, tempTarget);
 		// Replace applications directory.
@@ -201,45 +566,42 @@ public class DeployCommand implements ICommand {
 		final String updated = contents.replace(KHAM.PlaceholderAppsDir.tag, appDir);
 		// Write to file.
 		final StringBuilder builder = new StringBuilder();
-		builder.append(appDir).append(ham.applicationName).append(EEnvironment.HAMExtension.value);
+		builder.append(targetDir).append(ham.applicationName).append(EEnvironment.HAMExtension.value);
 		FileUtils.instance.writeAsString(updated, builder.toString());
 	}
 
 	/**
-	 * Deploy all the resources contained in the given
-	 * bundle file.
+	 * Create the tasks that deploy all the resources
+	 * contained in the given bundle file, one task per
+	 * resource.
 	 * @param appDir The <code>String</code> path of
 	 * the application directory.
-	 * @param bundle The bundle <code>JarFile</code>.
 	 * @param ham The <code>HAM</code> document.
-	 * @throws IOException If parsing bundle file
-	 * failed.
+	 * @param extractor The <code>BundleExtractor</code>.
+	 * @return The <code>List</code> of <code>Callable</code>
+	 * tasks.
 	 */
-	private void deployResources(final String appDir, final JarFile bundle, final HAM ham) throws IOException {
-		final String tempDir = UEnvironment.instance.getInstalledTempDir();
+	private List<Callable<Void>> deployResources(final String appDir, final HAM ham, final BundleExtractor extractor) {
 		final int size = ham.resources.size();
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(size);
 		for (int i = 0; i < size; i++) {
 			final HAMResource resource = ham.resources.get(i);
-			// Use class name as the Jar file entry name.
-			final String entryName = resource.classname + ".jar";
-			final File resourceFile = FileUtils.instance.writeToFile(bundle, entryName, tempDir);
-			// Write all the contents of the resource Jar file to the resource directory.
-			final String resourceDir = appDir + resource.classname + File.separator;
-			FileUtils.instance.writeAll(resourceFile, resourceDir);
-			// Retrieve the resources Jar file.
-			final File resourcesFile = new File(resourceDir+resource.classname+"-resources.jar");
-			if (resourcesFile.exists()) {
-				// Create resources directory.
-				final File resourcesDir = new File(resourceDir+"resources/");
-				resourcesDir.mkdir();
-				// Write all the contents of resources Jar file to resources directory.
-				FileUtils.instance.writeAll(resourcesFile, resourcesDir.getAbsolutePath());
-				// Remove resources Jar file.
-				resourcesFile.delete();
-			}
-			// Delete the temporary resource Jar file.
-			resourceFile.delete();
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					// Use class name as the Jar file entry name.
+					final String entryName = resource.classname + ".jar";
+					// Write all the contents of the resource Jar entry to the resource
+					// directory, and the contents of the nested resources Jar to the
+					// resources directory.
+					final String resourceDir = appDir + resource.classname + File.separator;
+					final String resourcesDir = resourceDir + "resources" + File.separator;
+					extractor.extract(entryName, resourceDir, resource.classname+"-resources.jar", resourcesDir);
+					return null;
+				}
+			});
 		}
+		return tasks;
 	}
 
 	@Override
@@ -255,7 +617,12 @@ public class DeployCommand implements ICommand {
 	@Override
 	public String[] getArgsDescription() {
 		return new String[] {
-				"habFile", "The path to the Hemera Application Bundle (hab) file"
+				"habFile", "The path to the Hemera Application Bundle (hab) file",
+				"--jobs N", "Optional number of bundle entries to extract in parallel, defaults to the number of processors",
+				"--delta", "Optional flag to only write the files that changed since the last deployment and remove deleted ones",
+				"--rolling", "Optional flag to stage the application while the runtime keeps serving, then restart the instances one at a time and roll back if one does not become ready",
+				"--ready-timeout S", "Optional number of seconds a rolling deployment waits for each instance to become ready, defaults to 60",
+				"--hot", "Optional flag to load the application into the running runtime without restarting it"
 		};
 	}
 }
@@ -0,0 +1,85 @@
+package hemera.core.shell.command;
+
+import java.io.File;
+
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.RecordingDumper;
+import hemera.core.shell.util.UShell;
+
+/**
+ * <code>DumpRecordingCommand</code> defines the unit of
+ * logic that snapshots the continuous flight recording
+ * of the running runtime environment into the log
+ * directory, so the data leading up to an incident can
+ * be analyzed with JDK Mission Control or the
+ * <code>jfr</code> tool. This command does not require
+ * any arguments.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param instance The <code>int</code> index of the
+ * single instance to dump, given as
+ * <code>--instance I</code>. Defaults to all instances.
+ * @param last The <code>int</code> number of most
+ * recent seconds to dump, given as
+ * <code>--last S</code>. Defaults to all the recorded
+ * data.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class DumpRecordingCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for the most
+	 * recent seconds to dump.
+	 */
+	private static final String OptionLast = "last";
+
+	@Override
+	public void execute(final String[] args) throws Exception {
+		final CommandOptions options = new CommandOptions(args);
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int selected = UShell.instance.parseInstance(options, shellConfig);
+		final int last = options.getInt(DumpRecordingCommand.OptionLast, 0);
+		if (last < 0) throw new IllegalArgumentException("Last seconds cannot be negative.");
+		if (!shellConfig.recording.enabled) {
+			throw new IllegalStateException("Continuous flight recording is not enabled in the shell configuration.");
+		}
+		for (int i = 0; i < shellConfig.instances.count; i++) {
+			if (selected >= 0 && i != selected) continue;
+			final String name = UShell.instance.getInstanceName(shellConfig, i);
+			if (!UShell.instance.isRunning(i)) {
+				System.out.println(name + " is not running.");
+				continue;
+			}
+			try {
+				final File file = RecordingDumper.instance.dump(homeDir, shellConfig, i, last);
+				System.out.println("Dumped flight recording of " + name + " to " + file.getAbsolutePath());
+			} catch (final IllegalStateException e) {
+				System.err.println(name + ": " + e.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public String getKey() {
+		return "dump-recording";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Dump the continuous flight recording of the running runtime environment into the log directory.";
+	}
+
+	@Override
+	public String[] getArgsDescription() {
+		return new String[] {
+				"--instance I", "Optional index of the single runtime instance to dump, defaults to all instances",
+				"--last S", "Optional number of most recent seconds to dump, defaults to all the recorded data"
+		};
+	}
+}
@@ -10,9 +10,11 @@ import org.w3c.dom.Document;
 
 import hemera.core.environment.config.Configuration;
 import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
 import hemera.core.shell.enumn.EShell;
 import hemera.core.shell.interfaces.ICommand;
 import hemera.core.shell.util.JSVCScriptGenerator;
+import hemera.core.shell.util.UShell;
 import hemera.core.utility.FileUtils;
 import hemera.core.utility.shell.Shell;
 import hemera.core.utility.shell.ShellResult;
@@ -46,6 +48,8 @@ public class InstallCommand implements ICommand {
 			// Create the configuration file.
 			System.out.println("Creating runtime environment configuration...");
 			final Configuration config = this.createConfigFile(homeDir);
+			System.out.println("Creating shell configuration...");
+			this.createShellConfigFile(homeDir);
 			// Install internal libraries.
 			System.out.println("Installing internal libraries...");
 			this.installLibraries(binDir);
@@ -116,6 +120,23 @@ public class InstallCommand implements ICommand {
 		return defaultConfig;
 	}
 
+	/**
+	 * Create the shell configuration file.
+	 * @param homeDir The specified <code>String</code>
+	 * home directory.
+	 * @throws IOException If any file processing
+	 * failed.
+	 * @throws ParserConfigurationException If XML
+	 * processing failed.
+	 * @throws TransformerException If writing XML
+	 * file failed.
+	 */
+	private void createShellConfigFile(final String homeDir) throws IOException, ParserConfigurationException, TransformerException {
+		final Document document = new ShellConfiguration().toDocument();
+		final String target = UShell.instance.getConfigurationFile(homeDir);
+		FileUtils.instance.writeDocument(document, target);
+	}
+
 	/**
 	 * Install the internal library files.
 	 * @param binDir The <code>String</code> home
@@ -1,49 +1,55 @@
 package hemera.core.shell.command;
 
-import java.io.File;
-import java.util.ArrayList;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
 
-import org.w3c.dom.Document;
-
-import hemera.core.environment.enumn.EEnvironment;
-import hemera.core.environment.ham.HAM;
 import hemera.core.environment.util.UEnvironment;
 import hemera.core.shell.interfaces.ICommand;
-import hemera.core.utility.FileUtils;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.DeploymentRegistry;
 
 /**
  * <code>ListCommand</code> defines the command that
- * lists all the deployed application names. This
- * command does not require any arguments.
+ * lists all the deployed applications with their
+ * versions, number of resources and deploy times, as
+ * recorded in the deployment registry. This command
+ * does not require any arguments.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param rescan The flag <code>--rescan</code> to
+ * rebuild the deployment registry from the deployed
+ * HAM files before listing.
  *
  * @author Yi Wang (Neakor)
  * @version 1.0.0
  */
 public class ListCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for rebuilding
+	 * the registry.
+	 */
+	private static final String OptionRescan = "rescan";
 
 	@Override
 	public void execute(final String[] args) throws Exception {
-		// Scan all HAM files.
-		final String appsDir = UEnvironment.instance.getInstalledAppsDir();
-		final List<File> hamFiles = FileUtils.instance.getFiles(appsDir, EEnvironment.HAMExtension.value);
-		final int hamSize = hamFiles.size();
-		final ArrayList<String> apps = new ArrayList<String>(hamSize);
-		for (int i = 0; i < hamSize; i++) {
-			final File hamFile = hamFiles.get(i);
-			// Parse HAM file.
-			final Document document = FileUtils.instance.readAsDocument(hamFile);
-			final HAM ham = new HAM(document);
-			apps.add(ham.applicationName);
-		}
+		final CommandOptions options = new CommandOptions(args);
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		final DeploymentRegistry registry = options.has(ListCommand.OptionRescan) ?
+				DeploymentRegistry.rebuild(homeDir) : DeploymentRegistry.load(homeDir);
+		final List<DeploymentRegistry.Entry> entries = registry.getEntries();
 		// Print out.
-		final int size = apps.size();
+		final int size = entries.size();
 		if (size <= 0) {
 			System.out.println("There are no applications deployed.");
 		} else {
 			System.out.println(size + " deployed applications:");
+			final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 			for (int i = 0; i < size; i++) {
-				System.out.println("    " + apps.get(i));
+				final DeploymentRegistry.Entry entry = entries.get(i);
+				System.out.println(String.format("    %-24s%-16s%4d resources, deployed %s", entry.name, entry.version,
+						entry.resources.size(), format.format(new Date(entry.time))));
 			}
 		}
 	}
@@ -55,11 +61,13 @@ public class ListCommand implements ICommand {
 
 	@Override
 	public String getDescription() {
-		return "List the names of all the deployed applications.";
+		return "List all the deployed applications with their versions and deploy times.";
 	}
 
 	@Override
 	public String[] getArgsDescription() {
-		return null;
+		return new String[] {
+				"--rescan", "Optional flag to rebuild the deployment registry from the deployed applications before listing"
+		};
 	}
 }
@@ -0,0 +1,225 @@
+package hemera.core.shell.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.runtime.RotatingLogFile;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.LogReader;
+import hemera.core.shell.util.UShell;
+
+/**
+ * <code>LogsCommand</code> defines the unit of logic
+ * that prints the output of a runtime instance from
+ * its <code>jsvc.out</code> file, or its
+ * <code>jsvc.error</code> file, including the rotated
+ * files. This command does not require any arguments.
+ * <p>
+ * Without any options, the last lines of the current
+ * file are printed. Logs written since a given time
+ * are located through the index written next to every
+ * log file, so only the matching part of the files is
+ * read.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param since The <code>String</code> duration to
+ * print the logs written within, given as
+ * <code>--since D</code>, such as <code>10m</code>.
+ * The duration is a number followed by <code>s</code>,
+ * <code>m</code>, <code>h</code> or <code>d</code>, or
+ * a number of seconds.
+ * @param grep The <code>String</code> regular
+ * expression the printed lines must contain, given as
+ * <code>--grep REGEX</code>. Without a duration, all
+ * the retained files are searched.
+ * @param lines The <code>int</code> number of last
+ * lines to print, given as <code>--lines N</code>.
+ * Defaults to <code>50</code> if neither a duration
+ * nor an expression is given.
+ * @param follow The flag <code>--follow</code> to keep
+ * printing new lines until interrupted. When the file
+ * is rotated, the rest of the rotated file is printed
+ * before following the new file.
+ * @param error The flag <code>--error</code> to print
+ * the error output instead.
+ * @param instance The <code>int</code> index of the
+ * instance, given as <code>--instance I</code>.
+ * Defaults to the first instance.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class LogsCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for the
+	 * duration.
+	 */
+	private static final String OptionSince = "since";
+	/**
+	 * The <code>String</code> option key for the
+	 * expression.
+	 */
+	private static final String OptionGrep = "grep";
+	/**
+	 * The <code>String</code> option key for the number
+	 * of last lines.
+	 */
+	private static final String OptionLines = "lines";
+	/**
+	 * The <code>String</code> option key for following.
+	 */
+	private static final String OptionFollow = "follow";
+	/**
+	 * The <code>String</code> option key for the error
+	 * output.
+	 */
+	private static final String OptionError = "error";
+	/**
+	 * The <code>String</code> option key for the instance
+	 * index.
+	 */
+	private static final String OptionInstance = "instance";
+	/**
+	 * The <code>long</code> interval between checks for
+	 * new lines when following in milliseconds.
+	 */
+	private static final long FollowInterval = 250;
+
+	@Override
+	public void execute(final String[] args) throws Exception {
+		final CommandOptions options = new CommandOptions(args);
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int index = options.getInt(LogsCommand.OptionInstance, 0);
+		if (index < 0 || index >= shellConfig.instances.count) {
+			throw new IllegalArgumentException("Invalid instance index: " + index + ". There are " + shellConfig.instances.count + " instances.");
+		}
+		final long since = options.has(LogsCommand.OptionSince) ?
+				System.currentTimeMillis() - options.getDuration(LogsCommand.OptionSince, 0) : -1;
+		final Pattern pattern = this.parsePattern(options.get(LogsCommand.OptionGrep, null));
+		final int lines = options.getInt(LogsCommand.OptionLines, (since < 0 && pattern == null) ? 50 : -1);
+		if (options.has(LogsCommand.OptionLines) && lines < 0) {
+			throw new IllegalArgumentException("Number of lines cannot be negative.");
+		}
+		final String name = options.has(LogsCommand.OptionError) ? EShell.JSVCError.value : EShell.JSVCOut.value;
+		final File file = new File(UEnvironment.instance.getLogDir(homeDir) + UShell.instance.getInstanceFile(name, index));
+		final LogReader reader = new LogReader(pattern, System.out);
+		// Identify the file before reading, so a rotation during reading is detected.
+		Object key = this.getFileKey(file);
+		// Following starts at the end of the file if nothing of it is printed.
+		long position = file.length();
+		if (lines >= 0) {
+			// Only the current file.
+			if (file.isFile()) position = reader.read(file, LogReader.getTailOffset(file, lines), false);
+		} else {
+			final List<File> files = LogReader.getLogFiles(file);
+			for (final File log : files) {
+				// The last modification is the last write, so older files are skipped entirely.
+				if (since >= 0 && log.lastModified() < since) continue;
+				final long offset = (since < 0) ? 0 : LogReader.getOffset(log, since);
+				final long end = reader.read(log, offset, !log.equals(file) || !options.has(LogsCommand.OptionFollow));
+				if (log.equals(file)) position = end;
+			}
+		}
+		if (!options.has(LogsCommand.OptionFollow)) return;
+		while (true) {
+			Thread.sleep(LogsCommand.FollowInterval);
+			final Object current = this.getFileKey(file);
+			if (current != null && !current.equals(key)) {
+				// The file was rotated, finish the followed file under its rotated name.
+				final File rotated = this.getRotatedFile(file, key);
+				if (rotated != null) reader.read(rotated, position, true);
+				key = current;
+				position = 0;
+			}
+			if (!file.isFile()) continue;
+			// The file was truncated in place.
+			if (file.length() < position) position = 0;
+			if (file.length() > position) position = reader.read(file, position, false);
+		}
+	}
+
+	/**
+	 * Retrieve the identity of the given file, which is
+	 * kept when the file is renamed by rotation.
+	 * @param file The <code>File</code>.
+	 * @return The file key <code>Object</code>.
+	 * <code>null</code> if the file does not exist or
+	 * the file system does not provide keys.
+	 */
+	private Object getFileKey(final File file) {
+		try {
+			return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+		} catch (final IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Retrieve the rotated file the given log file with
+	 * the given identity was renamed to.
+	 * @param file The current log <code>File</code>.
+	 * @param key The file key <code>Object</code> of the
+	 * followed file. <code>null</code> if unknown.
+	 * @return The rotated <code>File</code>. The newest
+	 * rotated file if the followed file has already
+	 * been compressed. <code>null</code> if there are no
+	 * rotated files or the followed file is unknown.
+	 */
+	private File getRotatedFile(final File file, final Object key) {
+		if (key == null) return null;
+		final List<File> rotated = RotatingLogFile.getRotatedFiles(file);
+		for (int i = rotated.size()-1; i >= 0; i--) {
+			if (key.equals(this.getFileKey(rotated.get(i)))) return rotated.get(i);
+		}
+		return rotated.isEmpty() ? null : rotated.get(rotated.size()-1);
+	}
+
+	/**
+	 * Parse the given regular expression.
+	 * @param value The <code>String</code> expression.
+	 * <code>null</code> if not given.
+	 * @return The <code>Pattern</code>. <code>null</code>
+	 * if not given.
+	 */
+	private Pattern parsePattern(final String value) {
+		if (value == null) return null;
+		try {
+			return Pattern.compile(value);
+		} catch (final PatternSyntaxException e) {
+			throw new IllegalArgumentException("Invalid expression: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public String getKey() {
+		return "logs";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Print, search and follow the output of the runtime environment.";
+	}
+
+	@Override
+	public String[] getArgsDescription() {
+		return new String[] {
+				"--since D", "Optional duration to print the logs written within, such as 30s, 10m, 2h or 1d",
+				"--grep REGEX", "Optional regular expression the printed lines must contain",
+				"--lines N", "Optional number of last lines to print, defaults to 50 without a duration or an expression",
+				"--follow", "Optional flag to keep printing new lines until interrupted",
+				"--error", "Optional flag to print the error output instead of the standard output",
+				"--instance I", "Optional index of the runtime instance, defaults to the first instance"
+		};
+	}
+}
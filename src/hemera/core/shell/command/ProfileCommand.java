@@ -0,0 +1,270 @@
+package hemera.core.shell.command;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.remote.JMXConnector;
+
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.runtime.RuntimeControlMBean;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.LatencyHistogram;
+import hemera.core.shell.util.RuntimeConnector;
+import hemera.core.shell.util.UShell;
+
+/**
+ * <code>ProfileCommand</code> defines the unit of logic
+ * that profiles the requests of a deployed application
+ * in a running runtime, to find out which resources use
+ * the most CPU time and memory. It requires the
+ * following arguments:
+ * <p>
+ * @param appName The <code>String</code> name of the
+ * application to profile.
+ * <p>
+ * The CPU time, allocated bytes and latency of every
+ * request of the application are measured, and the
+ * stacks of the threads processing them are sampled.
+ * The report and the sampled stacks, in the collapsed
+ * format of flame graph tools, are written into the
+ * log directory. Requests of other applications are
+ * not affected.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param duration The <code>String</code> duration to
+ * profile, given as <code>--duration D</code>, such as
+ * <code>90s</code> or <code>5m</code>. Defaults to
+ * <code>60s</code>.
+ * @param interval The <code>int</code> stack sampling
+ * interval in milliseconds, given as
+ * <code>--interval MS</code>. Defaults to
+ * <code>20</code>.
+ * @param instance The <code>int</code> index of the
+ * instance to profile, given as
+ * <code>--instance I</code>. Defaults to the first
+ * instance.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ProfileCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for the
+	 * profiling duration.
+	 */
+	private static final String OptionDuration = "duration";
+	/**
+	 * The <code>String</code> option key for the
+	 * sampling interval.
+	 */
+	private static final String OptionInterval = "interval";
+	/**
+	 * The <code>String</code> option key for the instance
+	 * index.
+	 */
+	private static final String OptionInstance = "instance";
+	/**
+	 * The <code>int</code> number of hottest frames
+	 * included in the report.
+	 */
+	private static final int HotFrameCount = 20;
+
+	@Override
+	public void execute(final String[] args) throws Exception {
+		final CommandOptions options = new CommandOptions(args);
+		if (options.getPositionalCount() < 1) {
+			throw new IllegalArgumentException("Application name must be specified.");
+		}
+		final String appName = options.getPositional(0);
+		final long duration = options.getDuration(ProfileCommand.OptionDuration, 60000L);
+		final int interval = options.getInt(ProfileCommand.OptionInterval, 20);
+		if (duration < 1000) throw new IllegalArgumentException("Duration must be at least 1 second.");
+		if (interval < 1) throw new IllegalArgumentException("Sampling interval must be at least 1 millisecond.");
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int index = options.getInt(ProfileCommand.OptionInstance, 0);
+		if (index < 0 || index >= shellConfig.instances.count) {
+			throw new IllegalArgumentException("Invalid instance index: " + index + ". There are " + shellConfig.instances.count + " instances.");
+		}
+		final String name = UShell.instance.getInstanceName(shellConfig, index);
+		if (!UShell.instance.isRunning(index)) {
+			throw new IllegalStateException(name + " is not running.");
+		}
+		final JMXConnector connector = RuntimeConnector.instance.connect(shellConfig, index);
+		try {
+			final RuntimeControlMBean control = (connector==null) ? null : RuntimeConnector.instance.getControl(connector);
+			if (control == null) {
+				throw new IllegalStateException("The management interface of " + name + " cannot be reached. Profiling requires management to be enabled.");
+			}
+			final long start = System.currentTimeMillis();
+			control.startProfiling(appName, duration, interval);
+			System.out.println("Profiling " + appName + " on " + name + " for " + (duration/1000) + " seconds...");
+			Thread.sleep(duration);
+			final Map<String, long[]> resources = control.stopProfiling();
+			final Map<String, Long> stacks = control.getProfileStacks();
+			final double seconds = (System.currentTimeMillis()-start) / 1000.0;
+			// Write the report.
+			final String logDir = UEnvironment.instance.getLogDir(homeDir);
+			new File(logDir).mkdirs();
+			final String prefix = logDir + UShell.instance.getInstanceFile(EShell.ProfileFilePrefix.value + appName + "-" +
+					new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(start)), index);
+			final File reportFile = new File(prefix + EShell.ProfileReportExtension.value);
+			final File stacksFile = new File(prefix + EShell.ProfileStacksExtension.value);
+			final List<String> report = this.buildReport(appName, name, seconds, resources, stacks);
+			this.write(reportFile, report);
+			this.writeStacks(stacksFile, stacks);
+			for (final String line : report) {
+				System.out.println(line);
+			}
+			System.out.println("Report written to " + reportFile.getAbsolutePath());
+			System.out.println("Flame graph stacks written to " + stacksFile.getAbsolutePath());
+		} finally {
+			RuntimeConnector.instance.close(connector);
+		}
+	}
+
+	/**
+	 * Build the report of the given profile.
+	 * @param appName The <code>String</code> application
+	 * name.
+	 * @param name The <code>String</code> instance name.
+	 * @param seconds The <code>double</code> profiled
+	 * duration in seconds.
+	 * @param resources The <code>Map</code> of resource
+	 * class name to its measurements.
+	 * @param stacks The <code>Map</code> of collapsed
+	 * stack to its number of samples.
+	 * @return The <code>List</code> of report lines.
+	 */
+	private List<String> buildReport(final String appName, final String name, final double seconds, final Map<String, long[]> resources,
+			final Map<String, Long> stacks) {
+		final List<String> report = new ArrayList<String>();
+		long samples = 0;
+		for (final Long count : stacks.values()) samples += count;
+		report.add(String.format("Profile of %s on %s over %.1f s, %d stack samples.", appName, name, seconds, samples));
+		if (resources.isEmpty()) {
+			report.add("No requests were processed by " + appName + ".");
+			return report;
+		}
+		// Resources by descending CPU time, then requests.
+		final List<Map.Entry<String, long[]>> entries = new ArrayList<Map.Entry<String, long[]>>(resources.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+			@Override
+			public int compare(final Map.Entry<String, long[]> o1, final Map.Entry<String, long[]> o2) {
+				final int cpu = Long.compare(o2.getValue()[1], o1.getValue()[1]);
+				return (cpu != 0) ? cpu : Long.compare(o2.getValue()[0], o1.getValue()[0]);
+			}
+		});
+		report.add("");
+		report.add(String.format("%-48s%10s%10s%10s%8s%12s%12s%10s%10s%10s", "Resource", "requests", "req/s", "cpu ms/req", "cpu %",
+				"alloc KB/req", "alloc MB/s", "p50 ms", "p99 ms", "max ms"));
+		for (final Map.Entry<String, long[]> entry : entries) {
+			final long[] values = entry.getValue();
+			final long requests = values[0];
+			final long[] latencies = Arrays.copyOfRange(values, 3, values.length);
+			final String cpuPerRequest = (values[1] < 0) ? "n/a" : String.format("%.3f", values[1]/1000000.0/requests);
+			final String cpuPercent = (values[1] < 0) ? "n/a" : String.format("%.1f", values[1]/10000000.0/seconds);
+			final String allocPerRequest = (values[2] < 0) ? "n/a" : String.format("%.1f", values[2]/1024.0/requests);
+			final String allocRate = (values[2] < 0) ? "n/a" : String.format("%.2f", values[2]/1048576.0/seconds);
+			report.add(String.format("%-48s%10d%10.1f%10s%8s%12s%12s%10.2f%10.2f%10.2f", entry.getKey(), requests, requests/seconds,
+					cpuPerRequest, cpuPercent, allocPerRequest, allocRate, LatencyHistogram.percentile(latencies, 0.5),
+					LatencyHistogram.percentile(latencies, 0.99), LatencyHistogram.percentile(latencies, 1)));
+		}
+		if (samples == 0) return report;
+		// Hottest frames by self samples.
+		final Map<String, Long> frames = new HashMap<String, Long>();
+		for (final Map.Entry<String, Long> entry : stacks.entrySet()) {
+			final String stack = entry.getKey();
+			final String frame = stack.substring(stack.lastIndexOf(';')+1);
+			final Long previous = frames.get(frame);
+			frames.put(frame, (previous==null) ? entry.getValue() : previous+entry.getValue());
+		}
+		final List<Map.Entry<String, Long>> hottest = new ArrayList<Map.Entry<String, Long>>(frames.entrySet());
+		Collections.sort(hottest, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(final Map.Entry<String, Long> o1, final Map.Entry<String, Long> o2) {
+				return Long.compare(o2.getValue(), o1.getValue());
+			}
+		});
+		report.add("");
+		report.add(String.format("%-88s%10s%8s", "Hottest frames", "samples", "%"));
+		final int count = Math.min(ProfileCommand.HotFrameCount, hottest.size());
+		for (int i = 0; i < count; i++) {
+			final Map.Entry<String, Long> entry = hottest.get(i);
+			report.add(String.format("%-88s%10d%8.1f", entry.getKey(), entry.getValue(), entry.getValue()*100.0/samples));
+		}
+		return report;
+	}
+
+	/**
+	 * Write the given lines into the given file.
+	 * @param file The <code>File</code> to write to.
+	 * @param lines The <code>List</code> of lines.
+	 * @throws IOException If writing failed.
+	 */
+	private void write(final File file, final List<String> lines) throws IOException {
+		final PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			for (final String line : lines) {
+				writer.println(line);
+			}
+		} finally {
+			writer.close();
+		}
+		if (writer.checkError()) throw new IOException("Writing " + file.getAbsolutePath() + " failed.");
+	}
+
+	/**
+	 * Write the given stacks into the given file in the
+	 * collapsed format, one stack per line followed by
+	 * its number of samples.
+	 * @param file The <code>File</code> to write to.
+	 * @param stacks The <code>Map</code> of collapsed
+	 * stack to its number of samples.
+	 * @throws IOException If writing failed.
+	 */
+	private void writeStacks(final File file, final Map<String, Long> stacks) throws IOException {
+		final List<String> lines = new ArrayList<String>(stacks.size());
+		for (final Map.Entry<String, Long> entry : stacks.entrySet()) {
+			lines.add(entry.getKey() + " " + entry.getValue());
+		}
+		Collections.sort(lines);
+		this.write(file, lines);
+	}
+
+	@Override
+	public String getKey() {
+		return "profile";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Profile the CPU time, allocations and latency of the resources of a deployed application.";
+	}
+
+	@Override
+	public String[] getArgsDescription() {
+		return new String[] {
+				"appName", "The name of the application to profile",
+				"--duration D", "Optional duration to profile, such as 90s or 5m, defaults to 60 seconds",
+				"--interval MS", "Optional stack sampling interval in milliseconds, defaults to 20",
+				"--instance I", "Optional index of the runtime instance to profile, defaults to the first instance"
+		};
+	}
+}
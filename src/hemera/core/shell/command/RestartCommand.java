@@ -7,6 +7,12 @@ import hemera.core.shell.interfaces.ICommand;
  * <code>RestartCommand</code> defines the command that
  * stops then starts the runtime environment. This command
  * does not require any arguments.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param instance The <code>int</code> index of the
+ * single instance to restart, given as
+ * <code>--instance I</code>. Defaults to all instances.
  *
  * @author Yi Wang (Neakor)
  * @version 1.0.0
@@ -16,8 +22,8 @@ public class RestartCommand implements ICommand {
 	@Override
 	public void execute(final String[] args) throws Exception {
 		System.out.println("Hemera Runtime Environment will restart now...");
-		ECommand.Stop.execute(null);
-		ECommand.Start.execute(null);
+		ECommand.Stop.execute(args);
+		ECommand.Start.execute(args);
 	}
 
 	@Override
@@ -32,6 +38,8 @@ public class RestartCommand implements ICommand {
 
 	@Override
 	public String[] getArgsDescription() {
-		return null;
+		return new String[] {
+				"--instance I", "Optional index of the single runtime instance to restart, defaults to all instances"
+		};
 	}
 }
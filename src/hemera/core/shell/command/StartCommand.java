@@ -1,39 +1,327 @@
 package hemera.core.shell.command;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import javax.management.remote.JMXConnector;
+
+import hemera.core.environment.config.Configuration;
 import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ConfigInstances;
+import hemera.core.shell.config.ShellConfiguration;
 import hemera.core.shell.enumn.EShell;
 import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.runtime.RuntimeControlMBean;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.JSVCScriptGenerator;
+import hemera.core.shell.util.LoopbackClient;
+import hemera.core.shell.util.ReplayRequest;
+import hemera.core.shell.util.RuntimeConnector;
+import hemera.core.shell.util.RuntimeProbe;
+import hemera.core.shell.util.RuntimeWarmUp;
+import hemera.core.shell.util.UShell;
 import hemera.core.utility.shell.Shell;
 import hemera.core.utility.shell.ShellResult;
 
 /**
  * <code>StartCommand</code> defines the unit of logic
  * that starts the Hemera runtime environment using the
- * generated JSVC script. This command does not require
+ * generated JSVC scripts. This command does not require
  * any arguments.
+ * <p>
+ * A started instance is only reported as running once
+ * it is ready as defined by the startup configuration.
+ * The time taken by each startup phase is reported, so
+ * startup time can be tracked.
+ * <p>
+ * All the instances share the configured port. With
+ * management enabled, a started instance only listens
+ * on a loopback port of its own until it is ready and
+ * warmed up, then it is admitted to the shared port to
+ * receive live traffic.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param instances The <code>int</code> number of
+ * runtime instances to run, given as
+ * <code>--instances N</code>. The number is stored in
+ * the shell configuration and the scripts of all the
+ * instances are regenerated. It can only be changed
+ * while the runtime is stopped.
+ * @param instance The <code>int</code> index of the
+ * single instance to start, given as
+ * <code>--instance I</code>. Defaults to all instances.
+ * @param readyTimeout The <code>int</code> number of
+ * seconds to wait for each instance to become ready,
+ * given as <code>--ready-timeout S</code>. Defaults to
+ * the startup configuration.
+ * @param warmUp The flag <code>--warm-up</code> to warm
+ * up each started instance before it is reported as
+ * running, even if warm-up is not enabled in the shell
+ * configuration.
+ * @param noWarmUp The flag <code>--no-warm-up</code> to
+ * skip the configured warm-up.
  *
  * @author Yi Wang (Neakor)
  * @version 1.0.6
  */
 public class StartCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for the number
+	 * of runtime instances.
+	 */
+	private static final String OptionInstances = "instances";
+	/**
+	 * The <code>String</code> option key for warming up
+	 * the started instances.
+	 */
+	private static final String OptionWarmUp = "warm-up";
+	/**
+	 * The <code>String</code> option key for skipping
+	 * the warm-up.
+	 */
+	private static final String OptionNoWarmUp = "no-warm-up";
+	/**
+	 * The <code>String</code> option key for the
+	 * readiness timeout.
+	 */
+	private static final String OptionReadyTimeout = "ready-timeout";
 
 	@Override
 	public void execute(final String[] args) throws Exception {
-		// Check if runtime is running.
-		final boolean running = UEnvironment.instance.isRunning();
-		if (running) {
-			System.out.println("Runtime environment is already running.");
-		} else {
+		final CommandOptions options = new CommandOptions(args);
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		if (options.has(StartCommand.OptionInstances)) {
+			shellConfig = this.updateInstances(homeDir, shellConfig, options.getInt(StartCommand.OptionInstances, 1));
+		}
+		final int selected = UShell.instance.parseInstance(options, shellConfig);
+		final boolean warmUp = !options.has(StartCommand.OptionNoWarmUp) && (shellConfig.warmUp.enabled || options.has(StartCommand.OptionWarmUp));
+		final int readyTimeout = options.getInt(StartCommand.OptionReadyTimeout, shellConfig.startup.readyTimeout);
+		if (readyTimeout < 1) {
+			throw new IllegalArgumentException("Ready timeout must be at least 1 second.");
+		}
+		final Configuration config = UEnvironment.instance.getConfiguration(homeDir);
+		final String binDir = UEnvironment.instance.getInstalledBinDir();
+		for (int i = 0; i < shellConfig.instances.count; i++) {
+			if (selected >= 0 && i != selected) continue;
+			final String name = UShell.instance.getInstanceName(shellConfig, i);
+			// Check if runtime is running.
+			if (UShell.instance.isRunning(i)) {
+				System.out.println(name + " is already running.");
+				continue;
+			}
 			// Execute the script as root.
-			System.out.println("Starting Hemera runtime environment...");
-			final String binDir = UEnvironment.instance.getInstalledBinDir();
-			final ShellResult result = Shell.instance.execute(new String[] {binDir+EShell.JSVCStartScriptFile.value}, true);
+			System.out.println("Starting " + name + "...");
+			final String script = binDir + UShell.instance.getInstanceFile(EShell.JSVCStartScriptFile.value, i);
+			final long begin = System.currentTimeMillis();
+			final ShellResult result = Shell.instance.execute(new String[] {script}, true);
 			if (result.code != 0) {
 				System.err.println("Executing JSVC script failed: " + result.code);
 				System.err.println(result.output);
+			} else if (!this.awaitReady(config, shellConfig, i, begin, readyTimeout*1000L)) {
+				System.err.println(name + " did not become ready within " + readyTimeout + " seconds.");
+			} else {
+				if (warmUp) this.warmUp(homeDir, config, shellConfig, i);
+				this.admit(shellConfig, i);
+				System.out.println(name + " is now running.");
+			}
+		}
+	}
+
+	/**
+	 * Wait until the given started runtime instance is
+	 * ready and report the time taken by each startup
+	 * phase. With management enabled, the instance is
+	 * ready once its runtime control is registered and
+	 * it answers the health probe on its loopback port.
+	 * Otherwise it is ready once it answers the health
+	 * probe on the configured port.
+	 * @param config The <code>Configuration</code>.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @param begin The <code>long</code> time the start
+	 * script was executed.
+	 * @param timeout The <code>long</code> readiness
+	 * timeout in milliseconds.
+	 * @return <code>true</code> if the instance became
+	 * ready within the timeout.
+	 * @throws Exception If waiting was interrupted.
+	 */
+	private boolean awaitReady(final Configuration config, final ShellConfiguration shellConfig, final int index, final long begin,
+			final long timeout) throws Exception {
+		final long exited = System.currentTimeMillis();
+		final long deadline = begin + timeout;
+		long[] times = null;
+		long accepting = 0;
+		int port = config.runtime.socket.port;
+		if (shellConfig.management.jmxPort > 0) {
+			// The runtime control is registered once applications are deployed.
+			System.out.println("Waiting for runtime to become ready...");
+			times = this.awaitStartupTimes(shellConfig, index, deadline);
+			if (times == null) return false;
+			port = RuntimeConnector.instance.getInstancePort(config, shellConfig, index);
+		} else {
+			System.out.println("Waiting for runtime to become ready on port " + port + "...");
+			if (RuntimeProbe.instance.waitUntilAccepting(port, Math.max(0, deadline-System.currentTimeMillis())) < 0) return false;
+			accepting = System.currentTimeMillis();
+		}
+		final LoopbackClient client = RuntimeConnector.instance.newClient(config, port);
+		final ReplayRequest probe = new ReplayRequest("GET", shellConfig.startup.healthPath, null);
+		if (RuntimeProbe.instance.waitUntilServing(client, probe, Math.max(0, deadline-System.currentTimeMillis())) < 0) return false;
+		final long responded = System.currentTimeMillis();
+		// Report startup phases.
+		System.out.println("Startup phases, in milliseconds since start:");
+		this.printPhase("Script exited", exited-begin);
+		if (times != null) {
+			this.printPhase("JVM started", times[0]-begin);
+			this.printPhase("JVM up", times[1]-begin);
+			this.printPhase("Socket bound", times[2]-begin);
+			this.printPhase("Apps loaded", times[3]-begin);
+		} else {
+			this.printPhase("Socket accepting", accepting-begin);
+		}
+		this.printPhase("First response", responded-begin);
+		return true;
+	}
+
+	/**
+	 * Wait until the runtime control of the given
+	 * instance is registered and retrieve its startup
+	 * phase times.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @param deadline The <code>long</code> time to
+	 * give up at.
+	 * @return The <code>long</code> array of startup
+	 * phase times. Or <code>null</code> if the runtime
+	 * control was not registered before the deadline.
+	 * @throws InterruptedException If waiting was
+	 * interrupted.
+	 */
+	private long[] awaitStartupTimes(final ShellConfiguration shellConfig, final int index, final long deadline) throws InterruptedException {
+		while (true) {
+			final JMXConnector connector = RuntimeConnector.instance.connect(shellConfig, index);
+			try {
+				final RuntimeControlMBean control = (connector==null) ? null : RuntimeConnector.instance.getControl(connector);
+				if (control != null) return control.getStartupTimes();
+			} catch (final IOException e) {
+				// Runtime not reachable yet.
+			} finally {
+				RuntimeConnector.instance.close(connector);
+			}
+			if (System.currentTimeMillis() >= deadline) return null;
+			Thread.sleep(200);
+		}
+	}
+
+	/**
+	 * Print the given startup phase.
+	 * @param phase The <code>String</code> phase name.
+	 * @param time The <code>long</code> time in
+	 * milliseconds since start.
+	 */
+	private void printPhase(final String phase, final long time) {
+		System.out.println(String.format("  %-18s%8d", phase, time));
+	}
+
+	/**
+	 * Admit the given ready runtime instance to the
+	 * shared port. Without management, the instance is
+	 * admitted by itself when it starts.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @throws IOException If the runtime control cannot
+	 * be reached.
+	 */
+	private void admit(final ShellConfiguration shellConfig, final int index) throws IOException {
+		if (shellConfig.management.jmxPort <= 0) return;
+		final JMXConnector connector = RuntimeConnector.instance.connect(shellConfig, index);
+		try {
+			final RuntimeControlMBean control = (connector==null) ? null : RuntimeConnector.instance.getControl(connector);
+			if (control == null) {
+				throw new IOException("Runtime control of instance " + index + " cannot be reached.");
+			}
+			if (control.admit()) {
+				System.out.println("Admitted to shared port.");
+			}
+		} finally {
+			RuntimeConnector.instance.close(connector);
+		}
+	}
+
+	/**
+	 * Warm up the given ready runtime instance.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param config The <code>Configuration</code>.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @throws Exception If warm-up failed.
+	 */
+	private void warmUp(final String homeDir, final Configuration config, final ShellConfiguration shellConfig, final int index) throws Exception {
+		final List<ReplayRequest> requests = this.loadWarmUpRequests(homeDir, shellConfig, index);
+		if (requests.isEmpty()) {
+			System.out.println("No warm-up requests available, skipping warm-up.");
+			return;
+		}
+		System.out.println("Warming up with " + requests.size() + " requests per round, " + shellConfig.warmUp.concurrency + " concurrent...");
+		final int port = RuntimeConnector.instance.getInstancePort(config, shellConfig, index);
+		RuntimeWarmUp.instance.warmUp(RuntimeConnector.instance.newClient(config, port), requests, shellConfig.warmUp);
+	}
+
+	/**
+	 * Load the warm-up requests. The recorded requests
+	 * file is resolved against the configuration
+	 * directory. Without a file, a request to every
+	 * resource deployed in the given instance is used.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>List</code> of
+	 * <code>ReplayRequest</code>.
+	 * @throws Exception If loading requests failed.
+	 */
+	private List<ReplayRequest> loadWarmUpRequests(final String homeDir, final ShellConfiguration shellConfig, final int index) throws Exception {
+		if (shellConfig.warmUp.requests != null) {
+			File file = new File(shellConfig.warmUp.requests);
+			if (!file.isAbsolute()) file = new File(UEnvironment.instance.getConfigDir(homeDir), shellConfig.warmUp.requests);
+			return ReplayRequest.load(file);
+		}
+		return RuntimeConnector.instance.getResourceRequests(shellConfig, index);
+	}
+
+	/**
+	 * Store the given number of runtime instances in
+	 * the shell configuration and regenerate the scripts
+	 * if it changed.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param shellConfig The current <code>ShellConfiguration</code>.
+	 * @param count The <code>int</code> number of
+	 * instances.
+	 * @return The updated <code>ShellConfiguration</code>.
+	 * @throws Exception If updating failed.
+	 */
+	private ShellConfiguration updateInstances(final String homeDir, final ShellConfiguration shellConfig, final int count) throws Exception {
+		if (count < 1) {
+			throw new IllegalArgumentException("Number of instances must be at least 1.");
+		}
+		if (count == shellConfig.instances.count) return shellConfig;
+		// Instances that are no longer configured could not be stopped anymore.
+		for (int i = 0; i < shellConfig.instances.count; i++) {
+			if (UShell.instance.isRunning(i)) {
+				throw new IllegalStateException("Runtime environment is running. Stop it before changing the number of instances.");
 			}
-			else System.out.println("Hemera runtime environment is now running.");
 		}
+		final ShellConfiguration updated = new ShellConfiguration(shellConfig, new ConfigInstances(shellConfig.instances, count));
+		UShell.instance.writeConfiguration(homeDir, updated);
+		System.out.println("Generating scripts for " + count + " runtime instance(s)...");
+		final Configuration config = UEnvironment.instance.getConfiguration(homeDir);
+		JSVCScriptGenerator.instance.exportScripts(homeDir, config);
+		return updated;
 	}
 
 	@Override
@@ -48,6 +336,12 @@ public class StartCommand implements ICommand {
 
 	@Override
 	public String[] getArgsDescription() {
-		return null;
+		return new String[] {
+				"--instances N", "Optional number of runtime instances to run, all sharing the configured port",
+				"--instance I", "Optional index of the single runtime instance to start, defaults to all instances",
+				"--ready-timeout S", "Optional number of seconds to wait for each started instance to become ready, defaults to the shell configuration",
+				"--warm-up", "Optional flag to replay the warm-up requests against each started instance before it is reported running",
+				"--no-warm-up", "Optional flag to skip the warm-up configured in the shell configuration"
+		};
 	}
 }
@@ -1,28 +1,225 @@
 package hemera.core.shell.command;
 
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.remote.JMXConnector;
+
 import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
 import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.runtime.RuntimeControlMBean;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.LatencyHistogram;
+import hemera.core.shell.util.RuntimeConnector;
+import hemera.core.shell.util.RuntimeSnapshot;
+import hemera.core.shell.util.UShell;
 
 /**
  * <code>StatusCommand</code> defines the unit of logic
  * that checks the running status of the Hemera runtime
  * environment. It does not require any arguments.
+ * <p>
+ * For every running instance that can be reached over
+ * its management interface, the live request rate,
+ * latency percentiles, active connections, execution
+ * service, heap and garbage collection statistics, the
+ * captured output, and the request rate of every
+ * application are shown. The
+ * rates and percentiles cover the sampling interval.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param instance The <code>int</code> index of the
+ * single instance to check, given as
+ * <code>--instance I</code>. Defaults to all instances.
+ * @param watch The <code>int</code> number of seconds
+ * between refreshes, given as <code>--watch S</code>.
+ * The status is refreshed until the command is
+ * interrupted. Defaults to <code>2</code> if only the
+ * flag is given.
  *
  * @author Yi Wang (Neakor)
- * @version 1.0.0
+ * @version 1.0.7
  */
 public class StatusCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for watching.
+	 */
+	private static final String OptionWatch = "watch";
+	/**
+	 * The <code>long</code> sampling interval in
+	 * milliseconds when not watching.
+	 */
+	private static final long SampleInterval = 1000;
+	/**
+	 * The <code>String</code> terminal sequence that
+	 * clears the screen.
+	 */
+	private static final String ClearScreen = "\033[H\033[2J";
 
 	@Override
 	public void execute(final String[] args) throws Exception {
-		final boolean running = UEnvironment.instance.isRunning();
-		if (running) {
-			System.out.println("Hemera runtime environment is currently running.");
+		final CommandOptions options = new CommandOptions(args);
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int selected = UShell.instance.parseInstance(options, shellConfig);
+		final int watch = options.has(StatusCommand.OptionWatch) ? options.getInt(StatusCommand.OptionWatch, 2) : 0;
+		if (options.has(StatusCommand.OptionWatch) && watch < 1) {
+			throw new IllegalArgumentException("Watch interval must be at least 1 second.");
+		}
+		final Monitor[] monitors = new Monitor[shellConfig.instances.count];
+		try {
+			// Take the first snapshots to compute rates against.
+			boolean sampled = false;
+			for (int i = 0; i < monitors.length; i++) {
+				if (selected >= 0 && i != selected) continue;
+				if (UShell.instance.isRunning(i)) monitors[i] = this.sample(null, shellConfig, i);
+				sampled |= (monitors[i] != null);
+			}
+			if (watch > 0) Thread.sleep(watch*1000L);
+			else if (sampled) Thread.sleep(StatusCommand.SampleInterval);
+			while (true) {
+				if (watch > 0) {
+					System.out.print(StatusCommand.ClearScreen);
+					System.out.println(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()) + ", refreshing every " + watch + " seconds.");
+				}
+				for (int i = 0; i < monitors.length; i++) {
+					if (selected >= 0 && i != selected) continue;
+					monitors[i] = this.printStatus(monitors[i], shellConfig, i);
+				}
+				if (watch <= 0) return;
+				Thread.sleep(watch*1000L);
+			}
+		} finally {
+			for (int i = 0; i < monitors.length; i++) {
+				if (monitors[i] != null) RuntimeConnector.instance.close(monitors[i].connector);
+			}
+		}
+	}
+
+	/**
+	 * Print the status of the given instance.
+	 * @param monitor The <code>Monitor</code> of the
+	 * instance. <code>null</code> if there is none.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The updated <code>Monitor</code>.
+	 * <code>null</code> if the instance cannot be
+	 * monitored.
+	 */
+	private Monitor printStatus(final Monitor monitor, final ShellConfiguration shellConfig, final int index) {
+		final String name = UShell.instance.getInstanceName(shellConfig, index);
+		if (!UShell.instance.isRunning(index)) {
+			if (monitor != null) RuntimeConnector.instance.close(monitor.connector);
+			System.out.println(name + " is not running.");
+			return null;
+		}
+		System.out.println(name + " is currently running.");
+		final RuntimeSnapshot previous = (monitor==null) ? null : monitor.snapshot;
+		final Monitor updated = this.sample(monitor, shellConfig, index);
+		if (updated == null) {
+			System.out.println("  Live metrics are not available, the management interface cannot be reached.");
+		} else if (previous == null || LatencyHistogram.total(updated.snapshot.latencies) < LatencyHistogram.total(previous.latencies)) {
+			// The instance was restarted since the previous snapshot.
+			System.out.println("  Collecting metrics...");
 		} else {
-			System.out.println("Hemera runtime environment is not running.");
+			this.printMetrics(previous, updated.snapshot);
 		}
+		return updated;
 	}
-	
+
+	/**
+	 * Take a snapshot of the given instance, connecting
+	 * to it if necessary.
+	 * @param monitor The <code>Monitor</code> of the
+	 * instance. <code>null</code> if not connected.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>Monitor</code> with the new
+	 * snapshot. <code>null</code> if the instance cannot
+	 * be reached.
+	 */
+	private Monitor sample(final Monitor monitor, final ShellConfiguration shellConfig, final int index) {
+		JMXConnector connector = (monitor==null) ? null : monitor.connector;
+		if (connector == null) connector = RuntimeConnector.instance.connect(shellConfig, index);
+		if (connector == null) return null;
+		try {
+			final RuntimeControlMBean control = RuntimeConnector.instance.getControl(connector);
+			if (control != null) {
+				return new Monitor(connector, new RuntimeSnapshot(connector.getMBeanServerConnection(), control));
+			}
+		} catch (final IOException e) {
+			// Runtime went away, reconnect next time.
+		} catch (final UndeclaredThrowableException e) {
+			// Runtime went away during a proxy call.
+		}
+		RuntimeConnector.instance.close(connector);
+		return null;
+	}
+
+	/**
+	 * Print the metrics over the interval between the
+	 * given snapshots.
+	 * @param previous The earlier <code>RuntimeSnapshot</code>.
+	 * @param current The later <code>RuntimeSnapshot</code>.
+	 */
+	private void printMetrics(final RuntimeSnapshot previous, final RuntimeSnapshot current) {
+		final double seconds = Math.max(1, current.time-previous.time) / 1000000000.0;
+		// Requests.
+		final long[] latencies = LatencyHistogram.subtract(previous.latencies, current.latencies);
+		final long requests = LatencyHistogram.total(latencies);
+		if (requests == 0) {
+			this.printLine("Requests", "0.0/s");
+		} else {
+			this.printLine("Requests", String.format("%.1f/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms", requests/seconds,
+					LatencyHistogram.percentile(latencies, 0.5), LatencyHistogram.percentile(latencies, 0.99),
+					LatencyHistogram.percentile(latencies, 1)));
+		}
+		// Connections.
+		this.printLine("Connections", current.connections + " open");
+		// Execution service.
+		final StringBuilder executors = new StringBuilder();
+		executors.append(current.execution.get("executors"));
+		final Number idle = current.execution.get("idle-executors");
+		if (idle != null) executors.append(", ").append(idle).append(" idle");
+		final Number queue = current.execution.get("average-queue-length");
+		if (queue != null) executors.append(String.format(", average queue length %.2f", queue.doubleValue()));
+		this.printLine("Executors", executors.toString());
+		// Heap and garbage collection.
+		final String max = (current.heap.getMax() < 0) ? "" : String.format(", %.1f MB max", current.heap.getMax()/1048576.0);
+		this.printLine("Heap", String.format("%.1f / %.1f MB used%s", current.heap.getUsed()/1048576.0, current.heap.getCommitted()/1048576.0, max));
+		this.printLine("GC", String.format("%d collections, %d ms in last %.1f s", current.gcCount-previous.gcCount,
+				current.gcTime-previous.gcTime, seconds));
+		// Captured output.
+		if (current.output != null) {
+			final String dropped = (current.output[1] == 0) ? "none dropped" :
+				String.format("%.1f MB dropped in %d writes", current.output[1]/1048576.0, current.output[2]);
+			this.printLine("Output", String.format("%.1f MB written, %s", current.output[0]/1048576.0, dropped));
+		}
+		// Applications.
+		if (current.applications.isEmpty()) return;
+		System.out.println("  Applications");
+		for (final Map.Entry<String, Long> entry : new TreeMap<String, Long>(current.applications).entrySet()) {
+			final Long before = previous.applications.get(entry.getKey());
+			final long count = entry.getValue() - ((before==null) ? 0 : before);
+			System.out.println(String.format("    %-24s%10.1f/s", entry.getKey(), count/seconds));
+		}
+	}
+
+	/**
+	 * Print the given metric line.
+	 * @param label The <code>String</code> label.
+	 * @param value The <code>String</code> value.
+	 */
+	private void printLine(final String label, final String value) {
+		System.out.println(String.format("  %-14s%s", label, value));
+	}
+
 	@Override
 	public String getKey() {
 		return "status";
@@ -30,11 +227,39 @@ public class StatusCommand implements ICommand {
 
 	@Override
 	public String getDescription() {
-		return "Check the running status of the runtime environment.";
+		return "Check the running status and live metrics of the runtime environment.";
 	}
 
 	@Override
 	public String[] getArgsDescription() {
-		return null;
+		return new String[] {
+				"--instance I", "Optional index of the single runtime instance to check, defaults to all instances",
+				"--watch S", "Optional number of seconds between refreshes to keep showing the status until interrupted, defaults to 2"
+		};
+	}
+
+	/**
+	 * <code>Monitor</code> defines the connection to a
+	 * running instance with its latest snapshot.
+	 */
+	private static class Monitor {
+		/**
+		 * The <code>JMXConnector</code>.
+		 */
+		private final JMXConnector connector;
+		/**
+		 * The latest <code>RuntimeSnapshot</code>.
+		 */
+		private final RuntimeSnapshot snapshot;
+
+		/**
+		 * Constructor of <code>Monitor</code>.
+		 * @param connector The <code>JMXConnector</code>.
+		 * @param snapshot The latest <code>RuntimeSnapshot</code>.
+		 */
+		private Monitor(final JMXConnector connector, final RuntimeSnapshot snapshot) {
+			this.connector = connector;
+			this.snapshot = snapshot;
+		}
 	}
 }
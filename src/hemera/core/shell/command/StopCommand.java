@@ -1,45 +1,146 @@
 package hemera.core.shell.command;
 
+import java.io.File;
+import java.io.IOException;
+
+import javax.management.remote.JMXConnector;
+
 import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
 import hemera.core.shell.enumn.EShell;
 import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.runtime.RuntimeControlMBean;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.RecordingDumper;
+import hemera.core.shell.util.RuntimeConnector;
+import hemera.core.shell.util.RuntimeJVM;
+import hemera.core.shell.util.UShell;
 import hemera.core.utility.shell.Shell;
 import hemera.core.utility.shell.ShellResult;
 
 /**
  * <code>StopCommand</code> defines the unit of logic
  * that stops the Hemera runtime environment using the
- * generated JSVC script. This command does not require
+ * generated JSVC scripts. This command does not require
  * any arguments.
+ * <p>
+ * Each instance is drained before it is stopped. It
+ * stops accepting connections and the requests in
+ * process are given the configured drain timeout to
+ * complete. If an instance fails to stop, its
+ * continuous flight recording is dumped into the log
+ * directory for analysis.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param instance The <code>int</code> index of the
+ * single instance to stop, given as
+ * <code>--instance I</code>. Defaults to all instances.
+ * @param drainTimeout The <code>int</code> number of
+ * seconds to wait for the requests in process, given
+ * as <code>--drain-timeout S</code>. Defaults to the
+ * shutdown configuration.
  *
  * @author Yi Wang (Neakor)
  * @version 1.0.6
  */
 public class StopCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for the drain
+	 * timeout.
+	 */
+	private static final String OptionDrainTimeout = "drain-timeout";
 
 	@Override
 	public void execute(final String[] args) throws Exception {
-		System.out.println("Stopping Hemera runtime environment...");
-		// Check if runtime is running.
-		final boolean running = UEnvironment.instance.isRunning();
-		if (!running) {
-			System.out.println("No PID file found. Hemera is currently not running.");
-		} else {
+		final CommandOptions options = new CommandOptions(args);
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int selected = UShell.instance.parseInstance(options, shellConfig);
+		final int drainTimeout = options.getInt(StopCommand.OptionDrainTimeout, shellConfig.shutdown.drainTimeout);
+		if (drainTimeout < 0) {
+			throw new IllegalArgumentException("Drain timeout cannot be negative.");
+		}
+		final String binDir = UEnvironment.instance.getInstalledBinDir();
+		for (int i = 0; i < shellConfig.instances.count; i++) {
+			if (selected >= 0 && i != selected) continue;
+			final String name = UShell.instance.getInstanceName(shellConfig, i);
+			System.out.println("Stopping " + name + "...");
+			// Check if runtime is running.
+			if (!UShell.instance.isRunning(i)) {
+				System.out.println("No PID file found. " + name + " is currently not running.");
+				continue;
+			}
+			this.drain(shellConfig, i, drainTimeout);
 			// Execute the script as root.
-			final String binDir = UEnvironment.instance.getInstalledBinDir();
-			final ShellResult result = Shell.instance.execute(new String[] {binDir+EShell.JSVCStopScriptFile.value}, true);
+			final String script = binDir + UShell.instance.getInstanceFile(EShell.JSVCStopScriptFile.value, i);
+			final ShellResult result = Shell.instance.execute(new String[] {script}, true);
 			if (result.code != 0) {
 				if (result.code == 255) {
-					System.err.println("Stopping Hemera runtime environment failed. This is probably due to an application resource shutdown failure.");
+					System.err.println("Stopping " + name + " failed. This is probably due to an application resource shutdown failure, " +
+							"or the runtime did not stop within the drain timeout.");
 				} else {
 					System.err.println("Executing JSVC script failed: " + result.code);
 				}
 				System.err.println(result.output);
+				this.dumpRecording(homeDir, shellConfig, i);
 			}
-			else System.out.println("Hemera runtime environment is now stopped.");
+			else System.out.println(name + " is now stopped.");
 		}
 	}
 	
+	/**
+	 * Drain the given runtime instance through its
+	 * management interface and report the outcome. If
+	 * the interface cannot be reached, the runtime
+	 * drains itself with the configured timeout when it
+	 * is stopped.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @param drainTimeout The <code>int</code> drain
+	 * timeout in seconds.
+	 */
+	private void drain(final ShellConfiguration shellConfig, final int index, final int drainTimeout) {
+		final JMXConnector connector = RuntimeConnector.instance.connect(shellConfig, index);
+		if (connector == null) return;
+		try {
+			final RuntimeControlMBean control = RuntimeConnector.instance.getControl(connector);
+			if (control == null) return;
+			System.out.println("Draining requests in process, waiting up to " + drainTimeout + " seconds...");
+			final long start = System.currentTimeMillis();
+			final long[] result = control.drain(drainTimeout*1000L);
+			System.out.println("Drained " + result[0] + " requests in " + (System.currentTimeMillis()-start) + " ms, cut " + result[1] +
+					", rejected " + result[2] + " arriving during draining.");
+		} catch (final IOException e) {
+			System.err.println("Draining failed: " + e.getMessage());
+		} catch (final IllegalStateException e) {
+			System.err.println(e.getMessage());
+		} finally {
+			RuntimeConnector.instance.close(connector);
+		}
+	}
+
+	/**
+	 * Dump the continuous flight recording of the given
+	 * runtime instance after it failed to stop, if the
+	 * recording is enabled.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 */
+	private void dumpRecording(final String homeDir, final ShellConfiguration shellConfig, final int index) {
+		if (!shellConfig.recording.enabled || !RecordingDumper.instance.isSupported(RuntimeJVM.instance.getVersion(homeDir))) return;
+		try {
+			final File file = RecordingDumper.instance.dump(homeDir, shellConfig, index, 0);
+			System.err.println("Dumped flight recording to " + file.getAbsolutePath());
+		} catch (final IllegalStateException e) {
+			System.err.println(e.getMessage());
+		} catch (final Exception e) {
+			System.err.println("Dumping flight recording failed: " + e.getMessage());
+		}
+	}
+
 	@Override
 	public String getKey() {
 		return "stop";
@@ -52,6 +153,9 @@ public class StopCommand implements ICommand {
 
 	@Override
 	public String[] getArgsDescription() {
-		return null;
+		return new String[] {
+				"--instance I", "Optional index of the single runtime instance to stop, defaults to all instances",
+				"--drain-timeout S", "Optional number of seconds to wait for requests in process before stopping, defaults to the shell configuration"
+		};
 	}
 }
@@ -1,10 +1,18 @@
 package hemera.core.shell.command;
 
+import javax.management.remote.JMXConnector;
+
 import hemera.core.environment.config.Configuration;
 import hemera.core.environment.util.UEnvironment;
-import hemera.core.shell.enumn.ECommand;
+import hemera.core.shell.config.ShellConfiguration;
 import hemera.core.shell.interfaces.ICommand;
+import hemera.core.shell.runtime.RuntimeControlMBean;
+import hemera.core.shell.util.CommandOptions;
+import hemera.core.shell.util.DeploymentRegistry;
 import hemera.core.shell.util.JSVCScriptGenerator;
+import hemera.core.shell.util.RollingRestart;
+import hemera.core.shell.util.RuntimeConnector;
+import hemera.core.shell.util.UShell;
 import hemera.core.utility.FileUtils;
 
 /**
@@ -14,31 +22,131 @@ import hemera.core.utility.FileUtils;
  * <p>
  * @param appName The <code>String</code> name of the
  * application to un-deploy.
+ * <p>
+ * It also accepts the following optional arguments:
+ * <p>
+ * @param hot The flag <code>--hot</code> to remove the
+ * application from the running runtime without
+ * restarting it. Falls back to a restart if the
+ * runtime management interface cannot be reached.
+ * @param readyTimeout The <code>int</code> number of
+ * seconds to wait for each instance to become ready,
+ * given as <code>--ready-timeout S</code>. Defaults to
+ * <code>60</code>.
+ * <p>
+ * Unless the application is removed hot, the instances
+ * are restarted one at a time, each drained, restarted
+ * and probed before the next, so the service is not
+ * interrupted.
  *
  * @author Yi Wang (Neakor)
  * @version 1.0.0
  */
 public class UndeployCommand implements ICommand {
+	/**
+	 * The <code>String</code> option key for removing
+	 * from the running runtime without restarting it.
+	 */
+	private static final String OptionHot = "hot";
+	/**
+	 * The <code>String</code> option key for the number
+	 * of seconds to wait for a restarted runtime to
+	 * become ready.
+	 */
+	private static final String OptionReadyTimeout = "ready-timeout";
 
 	@Override
 	public void execute(final String[] args) throws Exception {
-		if (args == null || args.length < 1) {
+		final CommandOptions options = new CommandOptions(args);
+		if (options.getPositionalCount() < 1) {
 			throw new IllegalArgumentException("Application name must be specified.");
 		}
-		final String appName = args[0];
+		final String appName = options.getPositional(0);
+		final int readyTimeout = options.getInt(UndeployCommand.OptionReadyTimeout, 60);
+		if (readyTimeout < 1) {
+			throw new IllegalArgumentException("Ready timeout must be at least 1 second.");
+		}
+		final String homeDir = UEnvironment.instance.getInstalledHomeDir();
+		// Unload from the running runtime before its files are removed.
+		final boolean unloaded = options.has(UndeployCommand.OptionHot) && this.hotUndeploy(homeDir, appName);
 		// Remove the application folder.
 		final String path = UEnvironment.instance.getApplicationDir(appName);
 		final boolean removed = FileUtils.instance.delete(path);
+		DeploymentRegistry.unregister(homeDir, appName);
 		if (!removed) {
 			System.err.println("No such application: " + appName);
 		} else {
 			// Regenerate JSVC scripts.
-			final String homeDir = UEnvironment.instance.getInstalledHomeDir();
 			final Configuration config = UEnvironment.instance.getConfiguration(homeDir);
 			JSVCScriptGenerator.instance.exportScripts(homeDir, config);
 			System.out.println(appName + " successfully removed.");
-			// Restart the runtime.
-			ECommand.Restart.execute(null);
+			// Restart the instances one at a time, so the others keep serving.
+			if (!unloaded) this.rollInstances(homeDir, config, readyTimeout);
+		}
+	}
+
+	/**
+	 * Restart the runtime instances one at a time on
+	 * the regenerated scripts.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param config The <code>Configuration</code>.
+	 * @param readyTimeout The <code>int</code> readiness
+	 * timeout of each instance in seconds.
+	 * @throws Exception If restarting failed.
+	 */
+	private void rollInstances(final String homeDir, final Configuration config, final int readyTimeout) throws Exception {
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int failed = RollingRestart.instance.restart(homeDir, config, shellConfig, shellConfig.instances.count, readyTimeout);
+		if (failed >= 0) {
+			throw new IllegalStateException(UShell.instance.getInstanceName(shellConfig, failed) + " did not become ready within " +
+					readyTimeout + " seconds after removing the application.");
+		}
+	}
+
+	/**
+	 * Remove the application from every running runtime
+	 * instance through its management interface.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param appName The <code>String</code> name of the
+	 * application.
+	 * @return <code>true</code> if the application was
+	 * removed. <code>false</code> if the runtime needs
+	 * to be restarted instead.
+	 * @throws Exception If removing the application
+	 * failed.
+	 */
+	private boolean hotUndeploy(final String homeDir, final String appName) throws Exception {
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int count = shellConfig.instances.count;
+		for (int i = 0; i < count; i++) {
+			if (!UShell.instance.isRunning(i)) return false;
+		}
+		final JMXConnector[] connectors = new JMXConnector[count];
+		try {
+			final RuntimeControlMBean[] controls = new RuntimeControlMBean[count];
+			for (int i = 0; i < count; i++) {
+				connectors[i] = RuntimeConnector.instance.connect(shellConfig, i);
+				if (connectors[i] == null) {
+					System.out.println("Runtime management interface is not reachable, restarting runtime instead...");
+					return false;
+				}
+				controls[i] = RuntimeConnector.instance.getControl(connectors[i]);
+				if (controls[i] == null) {
+					System.out.println("Runtime launcher does not support hot deployment, restarting runtime instead...");
+					return false;
+				}
+			}
+			for (int i = 0; i < count; i++) {
+				if (controls[i].undeploy(appName)) {
+					final String target = (count==1) ? "" : " instance " + i;
+					System.out.println("Unloaded " + appName + " from running runtime" + target + ".");
+				}
+			}
+			return true;
+		} finally {
+			for (int i = 0; i < count; i++) RuntimeConnector.instance.close(connectors[i]);
 		}
 	}
 
@@ -55,7 +163,9 @@ public class UndeployCommand implements ICommand {
 	@Override
 	public String[] getArgsDescription() {
 		return new String[] {
-				"appName", "The name of the application to undeploy. The name is case sensitive."
+				"appName", "The name of the application to undeploy. The name is case sensitive.",
+				"--hot", "Optional flag to remove the application from the running runtime without restarting it",
+				"--ready-timeout S", "Optional number of seconds to wait for each restarted instance to become ready, defaults to 60"
 		};
 	}
 }
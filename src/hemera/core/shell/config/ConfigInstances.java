@@ -0,0 +1,148 @@
+package hemera.core.shell.config;
+
+import hemera.core.shell.config.key.KConfigInstances;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigInstances</code> defines the structure
+ * of the runtime instances configuration. Each instance
+ * is a separate JSVC daemon with its own heap, scripts,
+ * PID file and log files. All instances share the
+ * listening port of the configuration, while instance
+ * <code>0</code> uses the management port of the
+ * configuration and every other instance the port
+ * offset by its index.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigInstances {
+	/**
+	 * The <code>int</code> number of runtime instances.
+	 */
+	public final int count;
+	/**
+	 * The <code>String</code> minimum heap size of each
+	 * instance. <code>null</code> if the environment
+	 * configuration value is used.
+	 */
+	public final String memoryMin;
+	/**
+	 * The <code>String</code> maximum heap size of each
+	 * instance. <code>null</code> if the environment
+	 * configuration value is used.
+	 */
+	public final String memoryMax;
+	/**
+	 * The <code>boolean</code> flag indicating if each
+	 * instance is bound to the NUMA node of its index,
+	 * instead of the configured placement.
+	 */
+	public final boolean bindNodes;
+
+	/**
+	 * Constructor of <code>ConfigInstances</code>.
+	 */
+	public ConfigInstances() {
+		this.count = 1;
+		this.memoryMin = null;
+		this.memoryMax = null;
+		this.bindNodes = false;
+	}
+
+	/**
+	 * Constructor of <code>ConfigInstances</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigInstances(final Element root) {
+		final Element instances = this.parseInstances(root);
+		final String count = this.parseValue(instances, KConfigInstances.Count);
+		this.count = (count==null) ? 1 : Integer.valueOf(count);
+		if (this.count < 1) {
+			throw new IllegalArgumentException("Invalid instances configuration. Count must be at least 1.");
+		}
+		this.memoryMin = this.parseValue(instances, KConfigInstances.MemoryMin);
+		this.memoryMax = this.parseValue(instances, KConfigInstances.MemoryMax);
+		this.bindNodes = Boolean.valueOf(this.parseValue(instances, KConfigInstances.BindNodes));
+	}
+
+	/**
+	 * Constructor of <code>ConfigInstances</code>.
+	 * @param config The <code>ConfigInstances</code> to
+	 * copy the values other than the count from.
+	 * @param count The <code>int</code> number of
+	 * runtime instances.
+	 */
+	public ConfigInstances(final ConfigInstances config, final int count) {
+		if (count < 1) throw new IllegalArgumentException("Number of instances must be at least 1.");
+		this.count = count;
+		this.memoryMin = config.memoryMin;
+		this.memoryMax = config.memoryMax;
+		this.bindNodes = config.bindNodes;
+	}
+
+	/**
+	 * Parse the instances tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The instances <code>Element</code>.
+	 */
+	private Element parseInstances(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigInstances.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one instances tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the value of the optional tag with given
+	 * key.
+	 * @param instances The <code>Element</code> of the
+	 * instances tag to parse from.
+	 * @param key The <code>KConfigInstances</code> key.
+	 * @return The trimmed <code>String</code> value.
+	 * <code>null</code> if the tag is omitted or empty.
+	 */
+	private String parseValue(final Element instances, final KConfigInstances key) {
+		final NodeList list = instances.getElementsByTagName(key.tag);
+		if (list == null || list.getLength() == 0) return null;
+		if (list.getLength() > 1) {
+			throw new IllegalArgumentException("Invalid instances configuration. Must contain at most one " + key.tag + " tag.");
+		}
+		final String value = list.item(0).getTextContent().trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Create the instances configuration tag.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for instances
+	 * configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element instances = document.createElement(KConfigInstances.Root.tag);
+		// Count tag.
+		final Element count = document.createElement(KConfigInstances.Count.tag);
+		count.setTextContent(String.valueOf(this.count));
+		instances.appendChild(count);
+		// Memory minimum tag.
+		final Element memoryMin = document.createElement(KConfigInstances.MemoryMin.tag);
+		if (this.memoryMin != null) memoryMin.setTextContent(this.memoryMin);
+		instances.appendChild(memoryMin);
+		// Memory maximum tag.
+		final Element memoryMax = document.createElement(KConfigInstances.MemoryMax.tag);
+		if (this.memoryMax != null) memoryMax.setTextContent(this.memoryMax);
+		instances.appendChild(memoryMax);
+		// Bind nodes tag.
+		final Element bindNodes = document.createElement(KConfigInstances.BindNodes.tag);
+		bindNodes.setTextContent(String.valueOf(this.bindNodes));
+		instances.appendChild(bindNodes);
+		return instances;
+	}
+}
@@ -0,0 +1,209 @@
+package hemera.core.shell.config;
+
+import hemera.core.shell.config.key.KConfigLogging;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigLogging</code> defines the structure of
+ * the runtime output logging configuration. When
+ * enabled, the standard output and error of a runtime
+ * instance are captured in memory buffers, and written
+ * to the <code>jsvc.out</code> and <code>jsvc.error</code>
+ * files by a background thread. Output is dropped and
+ * counted instead of blocking the writing thread when
+ * the buffer is full. The files are rotated by size,
+ * and optionally by time, and the rotated files can be
+ * compressed.
+ * <p>
+ * Output is only captured when the runtime is started
+ * by the shell launcher. With a custom launcher, JSVC
+ * keeps writing the files directly.
+ * <p>
+ * Sizes are given in the JVM memory size format, such
+ * as <code>100m</code>. The rotation interval is given
+ * in hours, where <code>0</code> only rotates by size.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigLogging {
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * output is captured.
+	 */
+	public final boolean enabled;
+	/**
+	 * The <code>String</code> size of the buffer of each
+	 * output.
+	 */
+	public final String bufferSize;
+	/**
+	 * The <code>String</code> maximum size of a file
+	 * before it is rotated.
+	 */
+	public final String maxSize;
+	/**
+	 * The <code>int</code> number of hours after which
+	 * a file is rotated. <code>0</code> to only rotate
+	 * by size.
+	 */
+	public final int rotateInterval;
+	/**
+	 * The <code>int</code> maximum number of rotated
+	 * files kept for each output.
+	 */
+	public final int maxFiles;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * rotated files are compressed.
+	 */
+	public final boolean compress;
+
+	/**
+	 * Constructor of <code>ConfigLogging</code>.
+	 */
+	public ConfigLogging() {
+		this.enabled = true;
+		this.bufferSize = "8m";
+		this.maxSize = "100m";
+		this.rotateInterval = 24;
+		this.maxFiles = 10;
+		this.compress = true;
+	}
+
+	/**
+	 * Constructor of <code>ConfigLogging</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigLogging(final Element root) {
+		final Element logging = this.parseLogging(root);
+		final String enabled = this.parseValue(logging, KConfigLogging.Enabled);
+		this.enabled = (enabled==null) ? true : Boolean.valueOf(enabled);
+		final String bufferSize = this.parseValue(logging, KConfigLogging.BufferSize);
+		this.bufferSize = (bufferSize==null) ? "8m" : bufferSize;
+		if (ConfigLogging.parseSize(this.bufferSize) < 65536 || ConfigLogging.parseSize(this.bufferSize) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid output logging configuration. " + KConfigLogging.BufferSize.tag + " must be a size between 64k and 2g: " + this.bufferSize);
+		}
+		final String maxSize = this.parseValue(logging, KConfigLogging.MaxSize);
+		this.maxSize = (maxSize==null) ? "100m" : maxSize;
+		if (ConfigLogging.parseSize(this.maxSize) < 1048576) {
+			throw new IllegalArgumentException("Invalid output logging configuration. " + KConfigLogging.MaxSize.tag + " must be a size of at least 1m: " + this.maxSize);
+		}
+		final String rotateInterval = this.parseValue(logging, KConfigLogging.RotateInterval);
+		this.rotateInterval = (rotateInterval==null) ? 24 : Integer.valueOf(rotateInterval);
+		if (this.rotateInterval < 0) {
+			throw new IllegalArgumentException("Invalid output logging configuration. " + KConfigLogging.RotateInterval.tag + " cannot be negative.");
+		}
+		final String maxFiles = this.parseValue(logging, KConfigLogging.MaxFiles);
+		this.maxFiles = (maxFiles==null) ? 10 : Integer.valueOf(maxFiles);
+		if (this.maxFiles < 1) {
+			throw new IllegalArgumentException("Invalid output logging configuration. " + KConfigLogging.MaxFiles.tag + " must be at least 1.");
+		}
+		final String compress = this.parseValue(logging, KConfigLogging.Compress);
+		this.compress = (compress==null) ? true : Boolean.valueOf(compress);
+	}
+
+	/**
+	 * Parse the given size in the JVM memory size
+	 * format.
+	 * @param size The <code>String</code> size.
+	 * @return The <code>long</code> number of bytes.
+	 * <code>-1</code> if the format is invalid.
+	 */
+	private static long parseSize(final String size) {
+		if (!size.matches("[0-9]{1,12}[kKmMgG]?")) return -1;
+		final char unit = Character.toLowerCase(size.charAt(size.length()-1));
+		if (Character.isDigit(unit)) return Long.parseLong(size);
+		final long value = Long.parseLong(size.substring(0, size.length()-1));
+		switch (unit) {
+		case 'k': return value << 10;
+		case 'm': return value << 20;
+		default: return value << 30;
+		}
+	}
+
+	/**
+	 * Retrieve the buffer size.
+	 * @return The <code>int</code> number of bytes.
+	 */
+	public int getBufferSizeBytes() {
+		return (int)ConfigLogging.parseSize(this.bufferSize);
+	}
+
+	/**
+	 * Retrieve the maximum file size.
+	 * @return The <code>long</code> number of bytes.
+	 */
+	public long getMaxSizeBytes() {
+		return ConfigLogging.parseSize(this.maxSize);
+	}
+
+	/**
+	 * Parse the output logging tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The output logging <code>Element</code>.
+	 */
+	private Element parseLogging(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigLogging.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one output logging tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the value of the optional tag with given
+	 * key.
+	 * @param logging The <code>Element</code> of the
+	 * output logging tag to parse from.
+	 * @param key The <code>KConfigLogging</code> key.
+	 * @return The trimmed <code>String</code> value.
+	 * <code>null</code> if the tag is omitted or empty.
+	 */
+	private String parseValue(final Element logging, final KConfigLogging key) {
+		final NodeList list = logging.getElementsByTagName(key.tag);
+		if (list == null || list.getLength() == 0) return null;
+		if (list.getLength() > 1) {
+			throw new IllegalArgumentException("Invalid output logging configuration. Must contain at most one " + key.tag + " tag.");
+		}
+		final String value = list.item(0).getTextContent().trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Create the output logging configuration tag.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for output
+	 * logging configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element logging = document.createElement(KConfigLogging.Root.tag);
+		this.appendValue(document, logging, KConfigLogging.Enabled, String.valueOf(this.enabled));
+		this.appendValue(document, logging, KConfigLogging.BufferSize, this.bufferSize);
+		this.appendValue(document, logging, KConfigLogging.MaxSize, this.maxSize);
+		this.appendValue(document, logging, KConfigLogging.RotateInterval, String.valueOf(this.rotateInterval));
+		this.appendValue(document, logging, KConfigLogging.MaxFiles, String.valueOf(this.maxFiles));
+		this.appendValue(document, logging, KConfigLogging.Compress, String.valueOf(this.compress));
+		return logging;
+	}
+
+	/**
+	 * Append a tag with given key and value.
+	 * @param document The <code>Document</code> to
+	 * create the new tag from.
+	 * @param parent The parent <code>Element</code>.
+	 * @param key The <code>KConfigLogging</code> key.
+	 * @param value The <code>String</code> value.
+	 */
+	private void appendValue(final Document document, final Element parent, final KConfigLogging key, final String value) {
+		final Element element = document.createElement(key.tag);
+		element.setTextContent(value);
+		parent.appendChild(element);
+	}
+}
@@ -0,0 +1,89 @@
+package hemera.core.shell.config;
+
+import hemera.core.shell.config.key.KConfigManagement;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigManagement</code> defines the structure
+ * of the runtime management configuration. The runtime
+ * exposes its management interface over JMX on the
+ * loopback interface only, so the shell can control
+ * and inspect it without restarting it. The interface
+ * requires the credentials generated in the
+ * configuration directory, which only the user that
+ * runs the runtime can read.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigManagement {
+	/**
+	 * The <code>int</code> local JMX port the runtime
+	 * listens to. <code>0</code> disables management.
+	 */
+	public final int jmxPort;
+
+	/**
+	 * Constructor of <code>ConfigManagement</code>.
+	 */
+	public ConfigManagement() {
+		this.jmxPort = 9010;
+	}
+
+	/**
+	 * Constructor of <code>ConfigManagement</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigManagement(final Element root) {
+		final Element management = this.parseManagement(root);
+		this.jmxPort = this.parseJMXPort(management);
+	}
+
+	/**
+	 * Parse the management tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The management <code>Element</code>.
+	 */
+	private Element parseManagement(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigManagement.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one management tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the JMX port value.
+	 * @param management The <code>Element</code> of the
+	 * management tag to parse from.
+	 * @return The <code>int</code> value.
+	 */
+	private int parseJMXPort(final Element management) {
+		final NodeList list = management.getElementsByTagName(KConfigManagement.JMXPort.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid management configuration. Must contain one JMX port tag.");
+		}
+		return Integer.valueOf(list.item(0).getTextContent());
+	}
+
+	/**
+	 * Create the management configuration tag.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for management
+	 * configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element management = document.createElement(KConfigManagement.Root.tag);
+		// JMX port tag.
+		final Element jmxPort = document.createElement(KConfigManagement.JMXPort.tag);
+		jmxPort.setTextContent(String.valueOf(this.jmxPort));
+		management.appendChild(jmxPort);
+		return management;
+	}
+}
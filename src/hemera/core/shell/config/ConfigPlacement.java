@@ -0,0 +1,166 @@
+package hemera.core.shell.config;
+
+import hemera.core.shell.config.key.KConfigPlacement;
+import hemera.core.shell.util.CPUTopology;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigPlacement</code> defines the structure
+ * of the CPU placement configuration of the runtime
+ * process. The runtime can be pinned to a set of CPUs,
+ * to a NUMA node, or to both, in which case the CPU
+ * set selects the CPUs and memory is allocated on the
+ * NUMA node.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigPlacement {
+	/**
+	 * The <code>String</code> CPU list such as
+	 * <code>0-7,16-23</code>. <code>null</code> if the
+	 * runtime is not pinned to a CPU set.
+	 */
+	public final String cpuSet;
+	/**
+	 * The <code>int</code> NUMA node. <code>-1</code>
+	 * if the runtime is not bound to a node.
+	 */
+	public final int numaNode;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * JVM allocates memory with NUMA awareness.
+	 */
+	public final boolean useNUMA;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * configured executor counts are scaled down to the
+	 * share of the host CPUs the runtime is pinned to.
+	 */
+	public final boolean scaleExecutors;
+
+	/**
+	 * Constructor of <code>ConfigPlacement</code>.
+	 */
+	public ConfigPlacement() {
+		this.cpuSet = null;
+		this.numaNode = -1;
+		this.useNUMA = false;
+		this.scaleExecutors = true;
+	}
+
+	/**
+	 * Constructor of <code>ConfigPlacement</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigPlacement(final Element root) {
+		final Element placement = this.parsePlacement(root);
+		final String cpuSet = this.parseValue(placement, KConfigPlacement.CPUSet);
+		if (cpuSet != null) CPUTopology.instance.countCPUs(cpuSet);
+		this.cpuSet = cpuSet;
+		final String numaNode = this.parseValue(placement, KConfigPlacement.NUMANode);
+		this.numaNode = (numaNode==null) ? -1 : Integer.valueOf(numaNode);
+		this.useNUMA = Boolean.valueOf(this.parseValue(placement, KConfigPlacement.UseNUMA));
+		final String scaleExecutors = this.parseValue(placement, KConfigPlacement.ScaleExecutors);
+		this.scaleExecutors = (scaleExecutors==null) ? true : Boolean.valueOf(scaleExecutors);
+	}
+
+	/**
+	 * Constructor of <code>ConfigPlacement</code>.
+	 * @param config The <code>ConfigPlacement</code> to
+	 * copy the JVM and executor settings from.
+	 * @param numaNode The <code>int</code> NUMA node to
+	 * bind to.
+	 */
+	private ConfigPlacement(final ConfigPlacement config, final int numaNode) {
+		this.cpuSet = null;
+		this.numaNode = numaNode;
+		this.useNUMA = config.useNUMA;
+		this.scaleExecutors = config.scaleExecutors;
+	}
+
+	/**
+	 * Parse the placement tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The placement <code>Element</code>.
+	 */
+	private Element parsePlacement(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigPlacement.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one placement tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the value of the optional tag with given
+	 * key.
+	 * @param placement The <code>Element</code> of the
+	 * placement tag to parse from.
+	 * @param key The <code>KConfigPlacement</code> key.
+	 * @return The trimmed <code>String</code> value.
+	 * <code>null</code> if the tag is omitted or empty.
+	 */
+	private String parseValue(final Element placement, final KConfigPlacement key) {
+		final NodeList list = placement.getElementsByTagName(key.tag);
+		if (list == null || list.getLength() == 0) return null;
+		if (list.getLength() > 1) {
+			throw new IllegalArgumentException("Invalid placement configuration. Must contain at most one " + key.tag + " tag.");
+		}
+		final String value = list.item(0).getTextContent().trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Check if the runtime is pinned to a subset of the
+	 * host CPUs.
+	 * @return <code>true</code> if a CPU set or a NUMA
+	 * node is configured.
+	 */
+	public boolean isPinned() {
+		return (this.cpuSet != null || this.numaNode >= 0);
+	}
+
+	/**
+	 * Create a placement that binds to the given NUMA
+	 * node instead of the configured CPUs.
+	 * @param numaNode The <code>int</code> NUMA node.
+	 * @return The <code>ConfigPlacement</code>.
+	 */
+	public ConfigPlacement forNode(final int numaNode) {
+		return new ConfigPlacement(this, numaNode);
+	}
+
+	/**
+	 * Create the placement configuration tag.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for placement
+	 * configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element placement = document.createElement(KConfigPlacement.Root.tag);
+		// CPU set tag.
+		final Element cpuSet = document.createElement(KConfigPlacement.CPUSet.tag);
+		if (this.cpuSet != null) cpuSet.setTextContent(this.cpuSet);
+		placement.appendChild(cpuSet);
+		// NUMA node tag.
+		final Element numaNode = document.createElement(KConfigPlacement.NUMANode.tag);
+		if (this.numaNode >= 0) numaNode.setTextContent(String.valueOf(this.numaNode));
+		placement.appendChild(numaNode);
+		// Use NUMA tag.
+		final Element useNUMA = document.createElement(KConfigPlacement.UseNUMA.tag);
+		useNUMA.setTextContent(String.valueOf(this.useNUMA));
+		placement.appendChild(useNUMA);
+		// Scale executors tag.
+		final Element scaleExecutors = document.createElement(KConfigPlacement.ScaleExecutors.tag);
+		scaleExecutors.setTextContent(String.valueOf(this.scaleExecutors));
+		placement.appendChild(scaleExecutors);
+		return placement;
+	}
+}
@@ -0,0 +1,149 @@
+package hemera.core.shell.config;
+
+import hemera.core.shell.config.key.KConfigRecording;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigRecording</code> defines the structure of
+ * the continuous flight recording configuration. When
+ * enabled, every runtime instance keeps a Java Flight
+ * Recorder recording running from startup, bounded by
+ * the maximum size and age, so the data leading up to
+ * an incident can be dumped afterwards. The recording
+ * is also dumped into the log directory when the JVM
+ * exits.
+ * <p>
+ * The size is given in the JVM memory size format,
+ * such as <code>250m</code>, and the age as a number
+ * followed by <code>s</code>, <code>m</code>,
+ * <code>h</code> or <code>d</code>. The settings are
+ * the name of a JDK settings file such as
+ * <code>default</code> or <code>profile</code>, or the
+ * path to a custom one.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigRecording {
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * continuous recording is enabled.
+	 */
+	public final boolean enabled;
+	/**
+	 * The <code>String</code> maximum size of the
+	 * recording data kept on disk.
+	 */
+	public final String maxSize;
+	/**
+	 * The <code>String</code> maximum age of the
+	 * recording data kept on disk.
+	 */
+	public final String maxAge;
+	/**
+	 * The <code>String</code> recording settings.
+	 */
+	public final String settings;
+
+	/**
+	 * Constructor of <code>ConfigRecording</code>.
+	 */
+	public ConfigRecording() {
+		this.enabled = true;
+		this.maxSize = "250m";
+		this.maxAge = "6h";
+		this.settings = "default";
+	}
+
+	/**
+	 * Constructor of <code>ConfigRecording</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigRecording(final Element root) {
+		final Element recording = this.parseRecording(root);
+		final String enabled = this.parseValue(recording, KConfigRecording.Enabled);
+		this.enabled = (enabled==null) ? true : Boolean.valueOf(enabled);
+		final String maxSize = this.parseValue(recording, KConfigRecording.MaxSize);
+		this.maxSize = (maxSize==null) ? "250m" : maxSize;
+		if (!this.maxSize.matches("[0-9]+[kKmMgG]?")) {
+			throw new IllegalArgumentException("Invalid recording configuration. " + KConfigRecording.MaxSize.tag + " must be a size such as 250m: " + this.maxSize);
+		}
+		final String maxAge = this.parseValue(recording, KConfigRecording.MaxAge);
+		this.maxAge = (maxAge==null) ? "6h" : maxAge;
+		if (!this.maxAge.matches("[0-9]+[smhd]")) {
+			throw new IllegalArgumentException("Invalid recording configuration. " + KConfigRecording.MaxAge.tag + " must be an age such as 6h: " + this.maxAge);
+		}
+		final String settings = this.parseValue(recording, KConfigRecording.Settings);
+		this.settings = (settings==null) ? "default" : settings;
+		if (this.settings.contains(",") || this.settings.contains(" ")) {
+			throw new IllegalArgumentException("Invalid recording configuration. " + KConfigRecording.Settings.tag + " cannot contain commas or spaces: " + this.settings);
+		}
+	}
+
+	/**
+	 * Parse the recording tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The recording <code>Element</code>.
+	 */
+	private Element parseRecording(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigRecording.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one recording tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the value of the optional tag with given
+	 * key.
+	 * @param recording The <code>Element</code> of the
+	 * recording tag to parse from.
+	 * @param key The <code>KConfigRecording</code> key.
+	 * @return The trimmed <code>String</code> value.
+	 * <code>null</code> if the tag is omitted or empty.
+	 */
+	private String parseValue(final Element recording, final KConfigRecording key) {
+		final NodeList list = recording.getElementsByTagName(key.tag);
+		if (list == null || list.getLength() == 0) return null;
+		if (list.getLength() > 1) {
+			throw new IllegalArgumentException("Invalid recording configuration. Must contain at most one " + key.tag + " tag.");
+		}
+		final String value = list.item(0).getTextContent().trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Create the recording configuration tag.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for recording
+	 * configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element recording = document.createElement(KConfigRecording.Root.tag);
+		this.appendValue(document, recording, KConfigRecording.Enabled, String.valueOf(this.enabled));
+		this.appendValue(document, recording, KConfigRecording.MaxSize, this.maxSize);
+		this.appendValue(document, recording, KConfigRecording.MaxAge, this.maxAge);
+		this.appendValue(document, recording, KConfigRecording.Settings, this.settings);
+		return recording;
+	}
+
+	/**
+	 * Append a tag with given key and value.
+	 * @param document The <code>Document</code> to
+	 * create the new tag from.
+	 * @param parent The parent <code>Element</code>.
+	 * @param key The <code>KConfigRecording</code> key.
+	 * @param value The <code>String</code> value.
+	 */
+	private void appendValue(final Document document, final Element parent, final KConfigRecording key, final String value) {
+		final Element element = document.createElement(key.tag);
+		element.setTextContent(value);
+		parent.appendChild(element);
+	}
+}
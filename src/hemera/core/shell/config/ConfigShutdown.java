@@ -0,0 +1,96 @@
+package hemera.core.shell.config;
+
+import hemera.core.shell.config.key.KConfigShutdown;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigShutdown</code> defines the structure of
+ * the runtime shutdown configuration. Before a runtime
+ * instance is stopped, it stops accepting connections
+ * and is given the drain timeout to complete the
+ * requests in process. Requests still in process after
+ * the timeout are cut when the runtime shuts down.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigShutdown {
+	/**
+	 * The <code>int</code> number of seconds to wait for
+	 * the requests in process to complete.
+	 */
+	public final int drainTimeout;
+
+	/**
+	 * Constructor of <code>ConfigShutdown</code>.
+	 */
+	public ConfigShutdown() {
+		this.drainTimeout = 15;
+	}
+
+	/**
+	 * Constructor of <code>ConfigShutdown</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigShutdown(final Element root) {
+		final Element shutdown = this.parseShutdown(root);
+		final String drainTimeout = this.parseValue(shutdown, KConfigShutdown.DrainTimeout);
+		this.drainTimeout = (drainTimeout==null) ? 15 : Integer.valueOf(drainTimeout);
+		if (this.drainTimeout < 0) {
+			throw new IllegalArgumentException("Invalid shutdown configuration. " + KConfigShutdown.DrainTimeout.tag + " cannot be negative.");
+		}
+	}
+
+	/**
+	 * Parse the shutdown tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The shutdown <code>Element</code>.
+	 */
+	private Element parseShutdown(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigShutdown.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one shutdown tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the value of the optional tag with given
+	 * key.
+	 * @param shutdown The <code>Element</code> of the
+	 * shutdown tag to parse from.
+	 * @param key The <code>KConfigShutdown</code> key.
+	 * @return The trimmed <code>String</code> value.
+	 * <code>null</code> if the tag is omitted or empty.
+	 */
+	private String parseValue(final Element shutdown, final KConfigShutdown key) {
+		final NodeList list = shutdown.getElementsByTagName(key.tag);
+		if (list == null || list.getLength() == 0) return null;
+		if (list.getLength() > 1) {
+			throw new IllegalArgumentException("Invalid shutdown configuration. Must contain at most one " + key.tag + " tag.");
+		}
+		final String value = list.item(0).getTextContent().trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Create the shutdown configuration tag.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for shutdown
+	 * configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element shutdown = document.createElement(KConfigShutdown.Root.tag);
+		// Drain timeout tag.
+		final Element drainTimeout = document.createElement(KConfigShutdown.DrainTimeout.tag);
+		drainTimeout.setTextContent(String.valueOf(this.drainTimeout));
+		shutdown.appendChild(drainTimeout);
+		return shutdown;
+	}
+}
@@ -0,0 +1,136 @@
+package hemera.core.shell.config;
+
+import hemera.core.shell.config.key.KConfigStartup;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigStartup</code> defines the structure of
+ * the runtime startup configuration. A started runtime
+ * instance is only reported as running once it accepts
+ * connections on its socket port and answers the
+ * health probe request over the loopback interface.
+ * Any response with a status code below 500 counts as
+ * an answer, so the health path does not have to be
+ * a deployed resource.
+ * <p>
+ * When management is enabled, a started instance is
+ * probed and warmed up over its own loopback port, and
+ * it only binds the shared configured port once the
+ * shell admits it into rotation. If the shell does not
+ * admit it within the admit timeout, for instance when
+ * the start script is run directly, the instance
+ * admits itself.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigStartup {
+	/**
+	 * The <code>int</code> number of seconds to wait for
+	 * a started runtime to become ready.
+	 */
+	public final int readyTimeout;
+	/**
+	 * The <code>String</code> REST path the health
+	 * probe request is sent to.
+	 */
+	public final String healthPath;
+	/**
+	 * The <code>int</code> number of seconds a started
+	 * runtime waits to be admitted into rotation before
+	 * it admits itself.
+	 */
+	public final int admitTimeout;
+
+	/**
+	 * Constructor of <code>ConfigStartup</code>.
+	 */
+	public ConfigStartup() {
+		this.readyTimeout = 60;
+		this.healthPath = "/";
+		this.admitTimeout = 300;
+	}
+
+	/**
+	 * Constructor of <code>ConfigStartup</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigStartup(final Element root) {
+		final Element startup = this.parseStartup(root);
+		final String readyTimeout = this.parseValue(startup, KConfigStartup.ReadyTimeout);
+		this.readyTimeout = (readyTimeout==null) ? 60 : Integer.valueOf(readyTimeout);
+		if (this.readyTimeout < 1) {
+			throw new IllegalArgumentException("Invalid startup configuration. " + KConfigStartup.ReadyTimeout.tag + " must be at least 1.");
+		}
+		final String healthPath = this.parseValue(startup, KConfigStartup.HealthPath);
+		if (healthPath == null) this.healthPath = "/";
+		else if (healthPath.startsWith("/")) this.healthPath = healthPath;
+		else this.healthPath = "/" + healthPath;
+		final String admitTimeout = this.parseValue(startup, KConfigStartup.AdmitTimeout);
+		this.admitTimeout = (admitTimeout==null) ? 300 : Integer.valueOf(admitTimeout);
+		if (this.admitTimeout < 1) {
+			throw new IllegalArgumentException("Invalid startup configuration. " + KConfigStartup.AdmitTimeout.tag + " must be at least 1.");
+		}
+	}
+
+	/**
+	 * Parse the startup tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The startup <code>Element</code>.
+	 */
+	private Element parseStartup(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigStartup.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one startup tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the value of the optional tag with given
+	 * key.
+	 * @param startup The <code>Element</code> of the
+	 * startup tag to parse from.
+	 * @param key The <code>KConfigStartup</code> key.
+	 * @return The trimmed <code>String</code> value.
+	 * <code>null</code> if the tag is omitted or empty.
+	 */
+	private String parseValue(final Element startup, final KConfigStartup key) {
+		final NodeList list = startup.getElementsByTagName(key.tag);
+		if (list == null || list.getLength() == 0) return null;
+		if (list.getLength() > 1) {
+			throw new IllegalArgumentException("Invalid startup configuration. Must contain at most one " + key.tag + " tag.");
+		}
+		final String value = list.item(0).getTextContent().trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Create the startup configuration tag.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for startup
+	 * configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element startup = document.createElement(KConfigStartup.Root.tag);
+		// Ready timeout tag.
+		final Element readyTimeout = document.createElement(KConfigStartup.ReadyTimeout.tag);
+		readyTimeout.setTextContent(String.valueOf(this.readyTimeout));
+		startup.appendChild(readyTimeout);
+		// Health path tag.
+		final Element healthPath = document.createElement(KConfigStartup.HealthPath.tag);
+		healthPath.setTextContent(this.healthPath);
+		startup.appendChild(healthPath);
+		// Admit timeout tag.
+		final Element admitTimeout = document.createElement(KConfigStartup.AdmitTimeout.tag);
+		admitTimeout.setTextContent(String.valueOf(this.admitTimeout));
+		startup.appendChild(admitTimeout);
+		return startup;
+	}
+}
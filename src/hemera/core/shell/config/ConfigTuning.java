@@ -0,0 +1,264 @@
+package hemera.core.shell.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import hemera.core.shell.config.key.KConfigTuning;
+import hemera.core.shell.enumn.EGarbageCollector;
+import hemera.core.shell.enumn.ETuningProfile;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigTuning</code> defines the structure of
+ * the JVM tuning configuration that is written into
+ * the generated runtime scripts. Settings are based on
+ * a named profile. Any setting that is explicitly given
+ * overrides the profile, and settings that are omitted
+ * or left empty use the profile value.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigTuning {
+	/**
+	 * The <code>ETuningProfile</code>.
+	 */
+	public final ETuningProfile profile;
+	/**
+	 * The explicit <code>EGarbageCollector</code>.
+	 * <code>null</code> if the profile value is used.
+	 */
+	private final EGarbageCollector collector;
+	/**
+	 * The explicit <code>int</code> pause time target in
+	 * milliseconds. <code>-1</code> if the profile value
+	 * is used.
+	 */
+	private final int maxPauseMillis;
+	/**
+	 * The <code>boolean</code> flag indicating if large
+	 * memory pages are used.
+	 */
+	public final boolean largePages;
+	/**
+	 * The explicit <code>Boolean</code> pre-touch flag.
+	 * <code>null</code> if the profile value is used.
+	 */
+	private final Boolean alwaysPreTouch;
+	/**
+	 * The <code>String</code> initial metaspace size
+	 * such as <code>128m</code>. <code>null</code> if
+	 * not set.
+	 */
+	public final String metaspaceSize;
+	/**
+	 * The <code>String</code> maximum metaspace size.
+	 * <code>null</code> if not set.
+	 */
+	public final String maxMetaspaceSize;
+	/**
+	 * The <code>String</code> maximum direct memory
+	 * size. <code>null</code> if not set.
+	 */
+	public final String maxDirectMemorySize;
+	/**
+	 * The <code>boolean</code> flag indicating if garbage
+	 * collections are logged to the log directory.
+	 */
+	public final boolean gcLog;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * runtime classes are loaded from a class data
+	 * sharing archive that is built for the runtime
+	 * class path.
+	 */
+	public final boolean classDataSharing;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * class path Jar files are merged into a single
+	 * uncompressed runtime Jar file.
+	 */
+	public final boolean mergedClasspath;
+	/**
+	 * The unmodifiable <code>List</code> of additional
+	 * <code>String</code> JVM options.
+	 */
+	public final List<String> options;
+
+	/**
+	 * Constructor of <code>ConfigTuning</code>.
+	 */
+	public ConfigTuning() {
+		this.profile = ETuningProfile.None;
+		this.collector = null;
+		this.maxPauseMillis = -1;
+		this.largePages = false;
+		this.alwaysPreTouch = null;
+		this.metaspaceSize = null;
+		this.maxMetaspaceSize = null;
+		this.maxDirectMemorySize = null;
+		this.gcLog = false;
+		this.classDataSharing = true;
+		this.mergedClasspath = false;
+		this.options = Collections.emptyList();
+	}
+
+	/**
+	 * Constructor of <code>ConfigTuning</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigTuning(final Element root) {
+		final Element tuning = this.parseTuning(root);
+		final String profile = this.parseValue(tuning, KConfigTuning.Profile);
+		this.profile = (profile==null) ? ETuningProfile.None : ETuningProfile.parse(profile);
+		final String collector = this.parseValue(tuning, KConfigTuning.Collector);
+		this.collector = (collector==null) ? null : EGarbageCollector.parse(collector);
+		final String maxPauseMillis = this.parseValue(tuning, KConfigTuning.MaxPauseMillis);
+		this.maxPauseMillis = (maxPauseMillis==null) ? -1 : Integer.valueOf(maxPauseMillis);
+		this.largePages = Boolean.valueOf(this.parseValue(tuning, KConfigTuning.LargePages));
+		final String alwaysPreTouch = this.parseValue(tuning, KConfigTuning.AlwaysPreTouch);
+		this.alwaysPreTouch = (alwaysPreTouch==null) ? null : Boolean.valueOf(alwaysPreTouch);
+		this.metaspaceSize = this.parseValue(tuning, KConfigTuning.MetaspaceSize);
+		this.maxMetaspaceSize = this.parseValue(tuning, KConfigTuning.MaxMetaspaceSize);
+		this.maxDirectMemorySize = this.parseValue(tuning, KConfigTuning.MaxDirectMemorySize);
+		this.gcLog = Boolean.valueOf(this.parseValue(tuning, KConfigTuning.GCLog));
+		final String classDataSharing = this.parseValue(tuning, KConfigTuning.ClassDataSharing);
+		this.classDataSharing = (classDataSharing==null) ? true : Boolean.valueOf(classDataSharing);
+		this.mergedClasspath = Boolean.valueOf(this.parseValue(tuning, KConfigTuning.MergedClasspath));
+		this.options = this.parseOptions(tuning);
+	}
+
+	/**
+	 * Parse the JVM tuning tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The JVM tuning <code>Element</code>.
+	 */
+	private Element parseTuning(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigTuning.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one JVM tuning tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the value of the optional tag with given
+	 * key.
+	 * @param tuning The <code>Element</code> of the JVM
+	 * tuning tag to parse from.
+	 * @param key The <code>KConfigTuning</code> key.
+	 * @return The trimmed <code>String</code> value.
+	 * <code>null</code> if the tag is omitted or empty.
+	 */
+	private String parseValue(final Element tuning, final KConfigTuning key) {
+		final NodeList list = tuning.getElementsByTagName(key.tag);
+		if (list == null || list.getLength() == 0) return null;
+		if (list.getLength() > 1) {
+			throw new IllegalArgumentException("Invalid JVM tuning configuration. Must contain at most one " + key.tag + " tag.");
+		}
+		final String value = list.item(0).getTextContent().trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Parse the additional options.
+	 * @param tuning The <code>Element</code> of the JVM
+	 * tuning tag to parse from.
+	 * @return The unmodifiable <code>List</code> of
+	 * <code>String</code> options.
+	 */
+	private List<String> parseOptions(final Element tuning) {
+		final NodeList list = tuning.getElementsByTagName(KConfigTuning.Option.tag);
+		if (list == null || list.getLength() == 0) return Collections.emptyList();
+		final List<String> options = new ArrayList<String>(list.getLength());
+		for (int i = 0; i < list.getLength(); i++) {
+			final String option = list.item(i).getTextContent().trim();
+			if (option.isEmpty()) continue;
+			if (!option.startsWith("-") || option.contains(" ")) {
+				throw new IllegalArgumentException("Invalid JVM tuning option: " + option);
+			}
+			options.add(option);
+		}
+		return Collections.unmodifiableList(options);
+	}
+
+	/**
+	 * Retrieve the effective garbage collector.
+	 * @return The <code>EGarbageCollector</code>.
+	 * <code>null</code> if the JVM default is used.
+	 */
+	public EGarbageCollector getCollector() {
+		return (this.collector!=null) ? this.collector : this.profile.collector;
+	}
+
+	/**
+	 * Retrieve the effective pause time target.
+	 * @return The <code>int</code> target in milliseconds.
+	 * <code>-1</code> if not set.
+	 */
+	public int getMaxPauseMillis() {
+		return (this.maxPauseMillis>0) ? this.maxPauseMillis : this.profile.maxPauseMillis;
+	}
+
+	/**
+	 * Retrieve the effective heap pre-touch flag.
+	 * @return <code>true</code> if the heap is touched
+	 * at startup.
+	 */
+	public boolean isAlwaysPreTouch() {
+		return (this.alwaysPreTouch!=null) ? this.alwaysPreTouch.booleanValue() : this.profile.alwaysPreTouch;
+	}
+
+	/**
+	 * Create the JVM tuning configuration tag. Settings
+	 * that are not set are written as empty tags, so the
+	 * file lists all the available settings.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for JVM tuning
+	 * configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element tuning = document.createElement(KConfigTuning.Root.tag);
+		this.appendValue(document, tuning, KConfigTuning.Profile, this.profile.name);
+		this.appendValue(document, tuning, KConfigTuning.Collector, (this.collector==null) ? null : this.collector.name);
+		this.appendValue(document, tuning, KConfigTuning.MaxPauseMillis, (this.maxPauseMillis>0) ? String.valueOf(this.maxPauseMillis) : null);
+		this.appendValue(document, tuning, KConfigTuning.LargePages, String.valueOf(this.largePages));
+		this.appendValue(document, tuning, KConfigTuning.AlwaysPreTouch, (this.alwaysPreTouch==null) ? null : this.alwaysPreTouch.toString());
+		this.appendValue(document, tuning, KConfigTuning.MetaspaceSize, this.metaspaceSize);
+		this.appendValue(document, tuning, KConfigTuning.MaxMetaspaceSize, this.maxMetaspaceSize);
+		this.appendValue(document, tuning, KConfigTuning.MaxDirectMemorySize, this.maxDirectMemorySize);
+		this.appendValue(document, tuning, KConfigTuning.GCLog, String.valueOf(this.gcLog));
+		this.appendValue(document, tuning, KConfigTuning.ClassDataSharing, String.valueOf(this.classDataSharing));
+		this.appendValue(document, tuning, KConfigTuning.MergedClasspath, String.valueOf(this.mergedClasspath));
+		// Options tag.
+		final Element options = document.createElement(KConfigTuning.Options.tag);
+		final int size = this.options.size();
+		for (int i = 0; i < size; i++) {
+			this.appendValue(document, options, KConfigTuning.Option, this.options.get(i));
+		}
+		tuning.appendChild(options);
+		return tuning;
+	}
+
+	/**
+	 * Append a tag with given key and value.
+	 * @param document The <code>Document</code> to
+	 * create the new tag from.
+	 * @param parent The parent <code>Element</code>.
+	 * @param key The <code>KConfigTuning</code> key.
+	 * @param value The <code>String</code> value.
+	 * <code>null</code> for an empty tag.
+	 */
+	private void appendValue(final Document document, final Element parent, final KConfigTuning key, final String value) {
+		final Element element = document.createElement(key.tag);
+		if (value != null) element.setTextContent(value);
+		parent.appendChild(element);
+	}
+}
@@ -0,0 +1,152 @@
+package hemera.core.shell.config;
+
+import hemera.core.shell.config.key.KConfigWarmUp;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ConfigWarmUp</code> defines the structure of
+ * the runtime warm-up configuration. When warm-up is
+ * enabled, the shell replays a request set against a
+ * started runtime instance over its loopback port
+ * before it admits the instance to the shared port, so
+ * the request paths are compiled before real traffic
+ * is served. Warm-up starts once the instance is ready as
+ * defined by the startup configuration.
+ * <p>
+ * The request set is read from the recorded requests
+ * file. Without a file, a synthetic set with a request
+ * to every deployed resource is used.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ConfigWarmUp {
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * runtime is warmed up when it is started.
+	 */
+	public final boolean enabled;
+	/**
+	 * The <code>String</code> path of the recorded
+	 * requests file. <code>null</code> if a synthetic
+	 * request set is used.
+	 */
+	public final String requests;
+	/**
+	 * The <code>int</code> number of times the request
+	 * set is replayed.
+	 */
+	public final int rounds;
+	/**
+	 * The <code>int</code> number of requests sent
+	 * concurrently.
+	 */
+	public final int concurrency;
+
+	/**
+	 * Constructor of <code>ConfigWarmUp</code>.
+	 */
+	public ConfigWarmUp() {
+		this.enabled = false;
+		this.requests = null;
+		this.rounds = 20;
+		this.concurrency = 4;
+	}
+
+	/**
+	 * Constructor of <code>ConfigWarmUp</code>.
+	 * @param root The <code>Element</code> of the root
+	 * shell configuration tag.
+	 */
+	public ConfigWarmUp(final Element root) {
+		final Element warmUp = this.parseWarmUp(root);
+		this.enabled = Boolean.valueOf(this.parseValue(warmUp, KConfigWarmUp.Enabled));
+		this.requests = this.parseValue(warmUp, KConfigWarmUp.Requests);
+		this.rounds = this.parseInt(warmUp, KConfigWarmUp.Rounds, 20);
+		this.concurrency = this.parseInt(warmUp, KConfigWarmUp.Concurrency, 4);
+	}
+
+	/**
+	 * Parse the warm-up tag.
+	 * @param root The <code>Element</code> of the root
+	 * tag to parse from.
+	 * @return The warm-up <code>Element</code>.
+	 */
+	private Element parseWarmUp(final Element root) {
+		final NodeList list = root.getElementsByTagName(KConfigWarmUp.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one warm-up tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the value of the optional tag with given
+	 * key.
+	 * @param warmUp The <code>Element</code> of the
+	 * warm-up tag to parse from.
+	 * @param key The <code>KConfigWarmUp</code> key.
+	 * @return The trimmed <code>String</code> value.
+	 * <code>null</code> if the tag is omitted or empty.
+	 */
+	private String parseValue(final Element warmUp, final KConfigWarmUp key) {
+		final NodeList list = warmUp.getElementsByTagName(key.tag);
+		if (list == null || list.getLength() == 0) return null;
+		if (list.getLength() > 1) {
+			throw new IllegalArgumentException("Invalid warm-up configuration. Must contain at most one " + key.tag + " tag.");
+		}
+		final String value = list.item(0).getTextContent().trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Parse the positive integer value of the optional
+	 * tag with given key.
+	 * @param warmUp The <code>Element</code> of the
+	 * warm-up tag to parse from.
+	 * @param key The <code>KConfigWarmUp</code> key.
+	 * @param defaultValue The <code>int</code> value if
+	 * the tag is omitted or empty.
+	 * @return The <code>int</code> value.
+	 */
+	private int parseInt(final Element warmUp, final KConfigWarmUp key, final int defaultValue) {
+		final String value = this.parseValue(warmUp, key);
+		if (value == null) return defaultValue;
+		final int parsed = Integer.valueOf(value);
+		if (parsed < 1) {
+			throw new IllegalArgumentException("Invalid warm-up configuration. " + key.tag + " must be at least 1.");
+		}
+		return parsed;
+	}
+
+	/**
+	 * Create the warm-up configuration tag.
+	 * @param document The <code>Document</code> to
+	 * create the new tags from.
+	 * @return The <code>Element</code> for warm-up
+	 * configuration.
+	 */
+	public Element toXML(final Document document) {
+		final Element warmUp = document.createElement(KConfigWarmUp.Root.tag);
+		// Enabled tag.
+		final Element enabled = document.createElement(KConfigWarmUp.Enabled.tag);
+		enabled.setTextContent(String.valueOf(this.enabled));
+		warmUp.appendChild(enabled);
+		// Requests tag.
+		final Element requests = document.createElement(KConfigWarmUp.Requests.tag);
+		if (this.requests != null) requests.setTextContent(this.requests);
+		warmUp.appendChild(requests);
+		// Rounds tag.
+		final Element rounds = document.createElement(KConfigWarmUp.Rounds.tag);
+		rounds.setTextContent(String.valueOf(this.rounds));
+		warmUp.appendChild(rounds);
+		// Concurrency tag.
+		final Element concurrency = document.createElement(KConfigWarmUp.Concurrency.tag);
+		concurrency.setTextContent(String.valueOf(this.concurrency));
+		warmUp.appendChild(concurrency);
+		return warmUp;
+	}
+}
@@ -0,0 +1,226 @@
+package hemera.core.shell.config;
+
+import hemera.core.environment.enumn.EEnvironment;
+import hemera.core.shell.config.key.KConfigInstances;
+import hemera.core.shell.config.key.KConfigLogging;
+import hemera.core.shell.config.key.KConfigManagement;
+import hemera.core.shell.config.key.KConfigPlacement;
+import hemera.core.shell.config.key.KConfigRecording;
+import hemera.core.shell.config.key.KConfigShutdown;
+import hemera.core.shell.config.key.KConfigStartup;
+import hemera.core.shell.config.key.KConfigTuning;
+import hemera.core.shell.config.key.KConfigWarmUp;
+import hemera.core.shell.config.key.KShellConfiguration;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <code>ShellConfiguration</code> defines the utility
+ * that provides access to the shell configuration. It
+ * holds the settings that the shell applies when it
+ * generates the runtime scripts and controls the
+ * runtime, which are not part of the environment
+ * configuration.
+ * <p>
+ * Sections that are missing from the configuration
+ * file use their default values, so files written by
+ * older versions remain valid.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ShellConfiguration {
+	/**
+	 * The <code>String</code> version.
+	 */
+	public final String version;
+	/**
+	 * The <code>ConfigManagement</code> instance.
+	 */
+	public final ConfigManagement management;
+	/**
+	 * The <code>ConfigTuning</code> instance.
+	 */
+	public final ConfigTuning tuning;
+	/**
+	 * The <code>ConfigPlacement</code> instance.
+	 */
+	public final ConfigPlacement placement;
+	/**
+	 * The <code>ConfigInstances</code> instance.
+	 */
+	public final ConfigInstances instances;
+	/**
+	 * The <code>ConfigWarmUp</code> instance.
+	 */
+	public final ConfigWarmUp warmUp;
+	/**
+	 * The <code>ConfigStartup</code> instance.
+	 */
+	public final ConfigStartup startup;
+	/**
+	 * The <code>ConfigShutdown</code> instance.
+	 */
+	public final ConfigShutdown shutdown;
+	/**
+	 * The <code>ConfigRecording</code> instance.
+	 */
+	public final ConfigRecording recording;
+	/**
+	 * The <code>ConfigLogging</code> instance.
+	 */
+	public final ConfigLogging logging;
+
+	/**
+	 * Constructor of <code>ShellConfiguration</code>.
+	 * <p>
+	 * This constructor creates a default configuration.
+	 */
+	public ShellConfiguration() {
+		this.version = EEnvironment.Version.value;
+		this.management = new ConfigManagement();
+		this.tuning = new ConfigTuning();
+		this.placement = new ConfigPlacement();
+		this.instances = new ConfigInstances();
+		this.warmUp = new ConfigWarmUp();
+		this.startup = new ConfigStartup();
+		this.shutdown = new ConfigShutdown();
+		this.recording = new ConfigRecording();
+		this.logging = new ConfigLogging();
+	}
+
+	/**
+	 * Constructor of <code>ShellConfiguration</code>.
+	 * @param document The XML <code>Document</code>
+	 * to parse and set the values.
+	 */
+	public ShellConfiguration(final Document document) {
+		final Element root = this.parseRoot(document);
+		this.version = this.parseVersion(root);
+		this.management = this.hasSection(root, KConfigManagement.Root.tag) ? new ConfigManagement(root) : new ConfigManagement();
+		this.tuning = this.hasSection(root, KConfigTuning.Root.tag) ? new ConfigTuning(root) : new ConfigTuning();
+		this.placement = this.hasSection(root, KConfigPlacement.Root.tag) ? new ConfigPlacement(root) : new ConfigPlacement();
+		this.instances = this.hasSection(root, KConfigInstances.Root.tag) ? new ConfigInstances(root) : new ConfigInstances();
+		this.warmUp = this.hasSection(root, KConfigWarmUp.Root.tag) ? new ConfigWarmUp(root) : new ConfigWarmUp();
+		this.startup = this.hasSection(root, KConfigStartup.Root.tag) ? new ConfigStartup(root) : new ConfigStartup();
+		this.shutdown = this.hasSection(root, KConfigShutdown.Root.tag) ? new ConfigShutdown(root) : new ConfigShutdown();
+		this.recording = this.hasSection(root, KConfigRecording.Root.tag) ? new ConfigRecording(root) : new ConfigRecording();
+		this.logging = this.hasSection(root, KConfigLogging.Root.tag) ? new ConfigLogging(root) : new ConfigLogging();
+	}
+
+	/**
+	 * Constructor of <code>ShellConfiguration</code>.
+	 * @param config The <code>ShellConfiguration</code>
+	 * to copy all the other sections from.
+	 * @param instances The <code>ConfigInstances</code>
+	 * to use.
+	 */
+	public ShellConfiguration(final ShellConfiguration config, final ConfigInstances instances) {
+		this.version = config.version;
+		this.management = config.management;
+		this.tuning = config.tuning;
+		this.placement = config.placement;
+		this.instances = instances;
+		this.warmUp = config.warmUp;
+		this.startup = config.startup;
+		this.shutdown = config.shutdown;
+		this.recording = config.recording;
+		this.logging = config.logging;
+	}
+
+	/**
+	 * Parse the root shell tag.
+	 * @param document The XML <code>Document</code>
+	 * to parse and set the values.
+	 * @return The root shell <code>Element</code>.
+	 */
+	private Element parseRoot(final Document document) {
+		final NodeList list = document.getElementsByTagName(KShellConfiguration.Root.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one root shell tag.");
+		}
+		return (Element)list.item(0);
+	}
+
+	/**
+	 * Parse the version value.
+	 * @param root The <code>Element</code> of the root
+	 * shell tag to parse from.
+	 * @return The <code>String</code> value.
+	 */
+	private String parseVersion(final Element root) {
+		final NodeList list = root.getElementsByTagName(KShellConfiguration.Version.tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid shell configuration. Must contain one version tag.");
+		}
+		return list.item(0).getTextContent();
+	}
+
+	/**
+	 * Check if the given root tag contains a section
+	 * with given tag.
+	 * @param root The <code>Element</code> of the root
+	 * shell tag.
+	 * @param tag The <code>String</code> section tag.
+	 * @return <code>true</code> if the section exists.
+	 */
+	private boolean hasSection(final Element root, final String tag) {
+		final NodeList list = root.getElementsByTagName(tag);
+		return (list != null && list.getLength() > 0);
+	}
+
+	/**
+	 * Convert this shell configuration to a XML
+	 * document.
+	 * @return The XML <code>Document</code> instance.
+	 * @throws ParserConfigurationException If document
+	 * generation failed.
+	 */
+	public Document toDocument() throws ParserConfigurationException {
+		// Create the document.
+		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		final DocumentBuilder builder = factory.newDocumentBuilder();
+		final Document document = builder.newDocument();
+		// Root tag.
+		final Element root = document.createElement(KShellConfiguration.Root.tag);
+		document.appendChild(root);
+		// Version tag.
+		final Element version = document.createElement(KShellConfiguration.Version.tag);
+		version.setTextContent(EEnvironment.Version.value);
+		root.appendChild(version);
+		// Management tag.
+		final Element management = this.management.toXML(document);
+		root.appendChild(management);
+		// JVM tuning tag.
+		final Element tuning = this.tuning.toXML(document);
+		root.appendChild(tuning);
+		// Placement tag.
+		final Element placement = this.placement.toXML(document);
+		root.appendChild(placement);
+		// Instances tag.
+		final Element instances = this.instances.toXML(document);
+		root.appendChild(instances);
+		// Warm-up tag.
+		final Element warmUp = this.warmUp.toXML(document);
+		root.appendChild(warmUp);
+		// Startup tag.
+		final Element startup = this.startup.toXML(document);
+		root.appendChild(startup);
+		// Shutdown tag.
+		final Element shutdown = this.shutdown.toXML(document);
+		root.appendChild(shutdown);
+		// Recording tag.
+		final Element recording = this.recording.toXML(document);
+		root.appendChild(recording);
+		// Output logging tag.
+		final Element logging = this.logging.toXML(document);
+		root.appendChild(logging);
+		return document;
+	}
+}
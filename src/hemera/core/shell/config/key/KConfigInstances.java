@@ -0,0 +1,45 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigInstances</code> defines the enumerations
+ * of all the XML tags used in the runtime instances
+ * section of the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigInstances {
+	/**
+	 * The runtime instances configuration tag.
+	 */
+	Root("instances"),
+	/**
+	 * The instance count tag.
+	 */
+	Count("count"),
+	/**
+	 * The per instance minimum heap size tag.
+	 */
+	MemoryMin("memory-min"),
+	/**
+	 * The per instance maximum heap size tag.
+	 */
+	MemoryMax("memory-max"),
+	/**
+	 * The NUMA node binding tag.
+	 */
+	BindNodes("bind-nodes");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigInstances</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigInstances(final String tag) {
+		this.tag = tag;
+	}
+}
@@ -0,0 +1,53 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigLogging</code> defines the enumerations
+ * of all the XML tags used in the output logging
+ * section of the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigLogging {
+	/**
+	 * The output logging configuration tag.
+	 */
+	Root("output-logging"),
+	/**
+	 * The enabled flag tag.
+	 */
+	Enabled("enabled"),
+	/**
+	 * The buffer size tag.
+	 */
+	BufferSize("buffer-size"),
+	/**
+	 * The maximum file size tag.
+	 */
+	MaxSize("max-size"),
+	/**
+	 * The rotation interval tag.
+	 */
+	RotateInterval("rotate-interval"),
+	/**
+	 * The maximum number of rotated files tag.
+	 */
+	MaxFiles("max-files"),
+	/**
+	 * The compression flag tag.
+	 */
+	Compress("compress");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigLogging</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigLogging(final String tag) {
+		this.tag = tag;
+	}
+}
@@ -0,0 +1,33 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigManagement</code> defines the
+ * enumerations of all the XML tags used in the
+ * management section of the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigManagement {
+	/**
+	 * The management configuration tag.
+	 */
+	Root("management"),
+	/**
+	 * The local JMX port tag.
+	 */
+	JMXPort("jmx-port");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigManagement</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigManagement(final String tag) {
+		this.tag = tag;
+	}
+}
@@ -0,0 +1,45 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigPlacement</code> defines the enumerations
+ * of all the XML tags used in the CPU placement section
+ * of the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigPlacement {
+	/**
+	 * The CPU placement configuration tag.
+	 */
+	Root("placement"),
+	/**
+	 * The CPU set tag.
+	 */
+	CPUSet("cpu-set"),
+	/**
+	 * The NUMA node tag.
+	 */
+	NUMANode("numa-node"),
+	/**
+	 * The NUMA aware allocation tag.
+	 */
+	UseNUMA("use-numa"),
+	/**
+	 * The executor scaling tag.
+	 */
+	ScaleExecutors("scale-executors");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigPlacement</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigPlacement(final String tag) {
+		this.tag = tag;
+	}
+}
@@ -0,0 +1,45 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigRecording</code> defines the enumerations
+ * of all the XML tags used in the flight recording
+ * section of the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigRecording {
+	/**
+	 * The flight recording configuration tag.
+	 */
+	Root("recording"),
+	/**
+	 * The enabled flag tag.
+	 */
+	Enabled("enabled"),
+	/**
+	 * The maximum recording size tag.
+	 */
+	MaxSize("max-size"),
+	/**
+	 * The maximum recording age tag.
+	 */
+	MaxAge("max-age"),
+	/**
+	 * The recording settings tag.
+	 */
+	Settings("settings");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigRecording</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigRecording(final String tag) {
+		this.tag = tag;
+	}
+}
@@ -0,0 +1,33 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigShutdown</code> defines the enumerations
+ * of all the XML tags used in the shutdown section of
+ * the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigShutdown {
+	/**
+	 * The shutdown configuration tag.
+	 */
+	Root("shutdown"),
+	/**
+	 * The drain timeout tag.
+	 */
+	DrainTimeout("drain-timeout");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigShutdown</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigShutdown(final String tag) {
+		this.tag = tag;
+	}
+}
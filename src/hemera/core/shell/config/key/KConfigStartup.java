@@ -0,0 +1,41 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigStartup</code> defines the enumerations
+ * of all the XML tags used in the startup section of
+ * the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigStartup {
+	/**
+	 * The startup configuration tag.
+	 */
+	Root("startup"),
+	/**
+	 * The readiness timeout tag.
+	 */
+	ReadyTimeout("ready-timeout"),
+	/**
+	 * The health probe path tag.
+	 */
+	HealthPath("health-path"),
+	/**
+	 * The admission timeout tag.
+	 */
+	AdmitTimeout("admit-timeout");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigStartup</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigStartup(final String tag) {
+		this.tag = tag;
+	}
+}
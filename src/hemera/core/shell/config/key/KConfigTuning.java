@@ -0,0 +1,81 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigTuning</code> defines the enumerations
+ * of all the XML tags used in the JVM tuning section
+ * of the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigTuning {
+	/**
+	 * The JVM tuning configuration tag.
+	 */
+	Root("jvm-tuning"),
+	/**
+	 * The named profile tag.
+	 */
+	Profile("profile"),
+	/**
+	 * The garbage collector tag.
+	 */
+	Collector("collector"),
+	/**
+	 * The pause time target tag.
+	 */
+	MaxPauseMillis("max-pause-millis"),
+	/**
+	 * The large pages tag.
+	 */
+	LargePages("large-pages"),
+	/**
+	 * The heap pre-touch tag.
+	 */
+	AlwaysPreTouch("always-pre-touch"),
+	/**
+	 * The initial metaspace size tag.
+	 */
+	MetaspaceSize("metaspace-size"),
+	/**
+	 * The maximum metaspace size tag.
+	 */
+	MaxMetaspaceSize("max-metaspace-size"),
+	/**
+	 * The maximum direct memory size tag.
+	 */
+	MaxDirectMemorySize("max-direct-memory-size"),
+	/**
+	 * The garbage collection logging tag.
+	 */
+	GCLog("gc-log"),
+	/**
+	 * The class data sharing tag.
+	 */
+	ClassDataSharing("class-data-sharing"),
+	/**
+	 * The merged class path tag.
+	 */
+	MergedClasspath("merged-classpath"),
+	/**
+	 * The additional options tag.
+	 */
+	Options("options"),
+	/**
+	 * The single additional option tag.
+	 */
+	Option("option");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigTuning</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigTuning(final String tag) {
+		this.tag = tag;
+	}
+}
@@ -0,0 +1,45 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KConfigWarmUp</code> defines the enumerations
+ * of all the XML tags used in the warm-up section of
+ * the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KConfigWarmUp {
+	/**
+	 * The warm-up configuration tag.
+	 */
+	Root("warm-up"),
+	/**
+	 * The enabled tag.
+	 */
+	Enabled("enabled"),
+	/**
+	 * The recorded requests file tag.
+	 */
+	Requests("requests"),
+	/**
+	 * The number of rounds tag.
+	 */
+	Rounds("rounds"),
+	/**
+	 * The number of concurrent requests tag.
+	 */
+	Concurrency("concurrency");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KConfigWarmUp</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KConfigWarmUp(final String tag) {
+		this.tag = tag;
+	}
+}
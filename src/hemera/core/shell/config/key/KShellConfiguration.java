@@ -0,0 +1,33 @@
+package hemera.core.shell.config.key;
+
+/**
+ * <code>KShellConfiguration</code> defines the
+ * enumerations of all the XML tags used in the root
+ * section of the shell configuration file.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum KShellConfiguration {
+	/**
+	 * The root shell configuration tag.
+	 */
+	Root("hemera-shell"),
+	/**
+	 * The version tag.
+	 */
+	Version("version");
+
+	/**
+	 * The <code>String</code> tag.
+	 */
+	public final String tag;
+
+	/**
+	 * Constructor of <code>KShellConfiguration</code>.
+	 * @param tag The <code>String</code> tag.
+	 */
+	private KShellConfiguration(final String tag) {
+		this.tag = tag;
+	}
+}
@@ -1,10 +1,14 @@
 package hemera.core.shell.enumn;
 
+import hemera.core.shell.command.BenchCommand;
 import hemera.core.shell.command.BundleCommand;
 import hemera.core.shell.command.DeployCommand;
+import hemera.core.shell.command.DumpRecordingCommand;
 import hemera.core.shell.command.HelpCommand;
 import hemera.core.shell.command.InstallCommand;
 import hemera.core.shell.command.ListCommand;
+import hemera.core.shell.command.LogsCommand;
+import hemera.core.shell.command.ProfileCommand;
 import hemera.core.shell.command.RestartCommand;
 import hemera.core.shell.command.StartCommand;
 import hemera.core.shell.command.StatusCommand;
@@ -61,6 +65,22 @@ public enum ECommand implements ICommand {
 	 * The status command.
 	 */
 	Status(new StatusCommand()),
+	/**
+	 * The benchmark command.
+	 */
+	Bench(new BenchCommand()),
+	/**
+	 * The profile command.
+	 */
+	Profile(new ProfileCommand()),
+	/**
+	 * The dump recording command.
+	 */
+	DumpRecording(new DumpRecordingCommand()),
+	/**
+	 * The logs command.
+	 */
+	Logs(new LogsCommand()),
 	/**
 	 * The un-install command.
 	 */
@@ -94,6 +114,14 @@ public enum ECommand implements ICommand {
 			return ECommand.List;
 		} else if (value.equals(ECommand.Status.command.getKey())) {
 			return ECommand.Status;
+		} else if (value.equals(ECommand.Bench.command.getKey())) {
+			return ECommand.Bench;
+		} else if (value.equals(ECommand.Profile.command.getKey())) {
+			return ECommand.Profile;
+		} else if (value.equals(ECommand.DumpRecording.command.getKey())) {
+			return ECommand.DumpRecording;
+		} else if (value.equals(ECommand.Logs.command.getKey())) {
+			return ECommand.Logs;
 		} else if (value.equals(ECommand.Uninstall.command.getKey())) {
 			return ECommand.Uninstall;
 		} else {
@@ -0,0 +1,92 @@
+package hemera.core.shell.enumn;
+
+/**
+ * <code>EGarbageCollector</code> defines the enumerations
+ * of the garbage collectors that can be selected in
+ * the JVM tuning configuration, along with the JVM
+ * option that enables each of them and the Java
+ * version before which the collector is experimental.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum EGarbageCollector {
+	/**
+	 * The single threaded serial collector.
+	 */
+	Serial("serial", "-XX:+UseSerialGC", 0),
+	/**
+	 * The parallel throughput collector.
+	 */
+	Parallel("parallel", "-XX:+UseParallelGC", 0),
+	/**
+	 * The region based G1 collector.
+	 */
+	G1("g1", "-XX:+UseG1GC", 0),
+	/**
+	 * The concurrent Z collector.
+	 */
+	Z("zgc", "-XX:+UseZGC", 15),
+	/**
+	 * The concurrent Shenandoah collector.
+	 */
+	Shenandoah("shenandoah", "-XX:+UseShenandoahGC", 15);
+
+	/**
+	 * Parse the given value into the corresponding
+	 * collector.
+	 * @param value The <code>String</code> input.
+	 * @return The <code>EGarbageCollector</code> instance.
+	 * @throws IllegalArgumentException If there is no
+	 * such collector.
+	 */
+	public static EGarbageCollector parse(final String value) {
+		final EGarbageCollector[] collectors = EGarbageCollector.values();
+		for (int i = 0; i < collectors.length; i++) {
+			if (collectors[i].name.equals(value)) return collectors[i];
+		}
+		throw new IllegalArgumentException("Invalid garbage collector: " + value);
+	}
+
+	/**
+	 * The <code>String</code> configuration name.
+	 */
+	public final String name;
+	/**
+	 * The <code>String</code> JVM option.
+	 */
+	public final String option;
+	/**
+	 * The <code>int</code> Java version from which the
+	 * collector is a product feature. <code>0</code> if
+	 * it has never been experimental.
+	 */
+	private final int productVersion;
+
+	/**
+	 * Constructor of <code>EGarbageCollector</code>.
+	 * @param name The <code>String</code> configuration
+	 * name.
+	 * @param option The <code>String</code> JVM option.
+	 * @param productVersion The <code>int</code> Java
+	 * version from which the collector is a product
+	 * feature.
+	 */
+	private EGarbageCollector(final String name, final String option, final int productVersion) {
+		this.name = name;
+		this.option = option;
+		this.productVersion = productVersion;
+	}
+
+	/**
+	 * Check if the collector is experimental in the
+	 * given Java version, which requires experimental
+	 * options to be unlocked.
+	 * @param version The <code>int</code> Java major
+	 * version.
+	 * @return <code>true</code> if experimental.
+	 */
+	public boolean isExperimental(final int version) {
+		return version < this.productVersion;
+	}
+}
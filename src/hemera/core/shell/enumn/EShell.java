@@ -37,6 +37,20 @@ public enum EShell {
 	 * The JSVC error output file.
 	 */
 	JSVCError("jsvc.error"),
+	/**
+	 * The JSVC standard output file of the JVM native
+	 * output when the output is captured.
+	 */
+	JSVCNativeOut("jsvc-native.out"),
+	/**
+	 * The JSVC error output file of the JVM native
+	 * output when the output is captured.
+	 */
+	JSVCNativeError("jsvc-native.error"),
+	/**
+	 * The garbage collection log file.
+	 */
+	GCLog("gc.log"),
 	/**
 	 * The JSVC start script file name.
 	 */
@@ -45,6 +59,201 @@ public enum EShell {
 	 * The JSVC stop script file name.
 	 */
 	JSVCStopScriptFile("hemera-jsvc-stop"),
+	/**
+	 * The class data sharing training script file name.
+	 */
+	ClassDataTrainingScriptFile("hemera-cds-train"),
+	/**
+	 * The class data sharing archive file name.
+	 */
+	ClassDataArchiveFile("hemera-cds.jsa"),
+	/**
+	 * The file name of the key of the class path the
+	 * class data sharing archive was built for.
+	 */
+	ClassDataKeyFile("hemera-cds.key"),
+	/**
+	 * The script file name that probes the version
+	 * of the runtime JVM.
+	 */
+	JavaVersionScriptFile("hemera-java-version"),
+	/**
+	 * The file name of the recorded major version of
+	 * the runtime JVM.
+	 */
+	JavaVersionFile("hemera-java.version"),
+	/**
+	 * The runtime launcher class used when the
+	 * environment configuration does not specify one.
+	 */
+	RuntimeLauncher("hemera.core.shell.runtime.ShellRuntimeLauncher"),
+	/**
+	 * The object name of the runtime control
+	 * management bean.
+	 */
+	RuntimeControlName("hemera.core.shell:type=RuntimeControl"),
+	/**
+	 * The system property that passes the drain timeout
+	 * in seconds to the runtime launcher.
+	 */
+	DrainTimeoutProperty("hemera.shell.drainTimeout"),
+	/**
+	 * The system property that passes the number of
+	 * seconds a started runtime keeps its shared port
+	 * closed, waiting for the shell to admit it, to the
+	 * runtime launcher.
+	 */
+	AdmitTimeoutProperty("hemera.shell.admitTimeout"),
+	/**
+	 * The system property that tells the runtime
+	 * launcher to share its port with the other runtime
+	 * instances on the host.
+	 */
+	SharedPortProperty("hemera.shell.sharedPort"),
+	/**
+	 * The system property that passes the standard
+	 * output log file to the runtime launcher. The
+	 * output is only captured if it is set.
+	 */
+	OutputFileProperty("hemera.shell.outputFile"),
+	/**
+	 * The system property that passes the standard
+	 * error log file to the runtime launcher.
+	 */
+	ErrorFileProperty("hemera.shell.errorFile"),
+	/**
+	 * The system property that passes the output
+	 * buffer size in bytes to the runtime launcher.
+	 */
+	OutputBufferSizeProperty("hemera.shell.outputBufferSize"),
+	/**
+	 * The system property that passes the maximum
+	 * output log file size in bytes to the runtime
+	 * launcher.
+	 */
+	OutputMaxSizeProperty("hemera.shell.outputMaxSize"),
+	/**
+	 * The system property that passes the output log
+	 * rotation interval in hours to the runtime
+	 * launcher.
+	 */
+	OutputRotateIntervalProperty("hemera.shell.outputRotateInterval"),
+	/**
+	 * The system property that passes the maximum
+	 * number of rotated output log files to the
+	 * runtime launcher.
+	 */
+	OutputMaxFilesProperty("hemera.shell.outputMaxFiles"),
+	/**
+	 * The system property that passes the output log
+	 * compression flag to the runtime launcher.
+	 */
+	OutputCompressProperty("hemera.shell.outputCompress"),
+	/**
+	 * The shell configuration file name in the
+	 * configuration directory.
+	 */
+	ShellConfigurationFile("hemera-shell.conf"),
+	/**
+	 * The file name of the configuration derived for
+	 * the runtime process in the configuration directory.
+	 */
+	RuntimeConfigurationFile("hemera-runtime.conf"),
+	/**
+	 * The file name of the management password file in
+	 * the configuration directory.
+	 */
+	ManagementPasswordFile("hemera-jmx.password"),
+	/**
+	 * The file name of the management access file in
+	 * the configuration directory.
+	 */
+	ManagementAccessFile("hemera-jmx.access"),
+	/**
+	 * The management user name.
+	 */
+	ManagementUser("hemera"),
+	/**
+	 * The log directory name prefix of a runtime
+	 * instance other than the first, relative to the
+	 * configured logging directory.
+	 */
+	InstanceLogDir("instance-"),
+	/**
+	 * The bundle cache directory relative to the
+	 * home directory.
+	 */
+	BundleCacheDir("cache/bundle/"),
+	/**
+	 * The merged class path cache directory relative
+	 * to the home directory.
+	 */
+	ClasspathCacheDir("cache/classpath/"),
+	/**
+	 * The merged runtime Jar file name in the class
+	 * path cache directory.
+	 */
+	MergedRuntimeJarFile("hemera-runtime.jar"),
+	/**
+	 * The file name of the key of the Jar files the
+	 * merged runtime Jar file was built from.
+	 */
+	MergedRuntimeKeyFile("hemera-runtime.key"),
+	/**
+	 * The deploy manifest file extension. The file is
+	 * stored next to the deployed HAM file.
+	 */
+	DeployManifestExtension(".deploy"),
+	/**
+	 * The rolling deployment staging directory
+	 * relative to the home directory.
+	 */
+	DeployStagingDir("staging/"),
+	/**
+	 * The deployment registry file name relative to
+	 * the home directory.
+	 */
+	DeploymentRegistryFile("apps.registry"),
+	/**
+	 * The benchmark baseline directory relative to the
+	 * home directory.
+	 */
+	BenchBaselineDir("bench/"),
+	/**
+	 * The benchmark baseline file extension.
+	 */
+	BenchBaselineExtension(".baseline"),
+	/**
+	 * The profile file name prefix in the log
+	 * directory.
+	 */
+	ProfileFilePrefix("profile-"),
+	/**
+	 * The profile report file extension.
+	 */
+	ProfileReportExtension(".txt"),
+	/**
+	 * The profile collapsed stacks file extension.
+	 */
+	ProfileStacksExtension(".folded"),
+	/**
+	 * The name of the continuous flight recording.
+	 */
+	RecordingName("hemera"),
+	/**
+	 * The flight recording file the JVM dumps the
+	 * continuous recording into when it exits.
+	 */
+	RecordingExitFile("recording-exit.jfr"),
+	/**
+	 * The flight recording dump file name prefix in
+	 * the log directory.
+	 */
+	RecordingFilePrefix("recording-"),
+	/**
+	 * The flight recording file extension.
+	 */
+	RecordingExtension(".jfr"),
 	/**
 	 * The internal resources package path.
 	 */
@@ -0,0 +1,80 @@
+package hemera.core.shell.enumn;
+
+/**
+ * <code>ETuningProfile</code> defines the enumerations
+ * of the named JVM tuning profiles. A profile provides
+ * the defaults of the tuning settings that are not
+ * explicitly configured.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum ETuningProfile {
+	/**
+	 * The profile that leaves all the settings to the
+	 * JVM defaults.
+	 */
+	None("none", null, -1, false),
+	/**
+	 * The profile that favors short and predictable
+	 * collection pauses over throughput.
+	 */
+	LowLatency("low-latency", EGarbageCollector.G1, 50, true),
+	/**
+	 * The profile that favors throughput over pause
+	 * times.
+	 */
+	Throughput("throughput", EGarbageCollector.Parallel, -1, true);
+
+	/**
+	 * Parse the given value into the corresponding
+	 * profile.
+	 * @param value The <code>String</code> input.
+	 * @return The <code>ETuningProfile</code> instance.
+	 * @throws IllegalArgumentException If there is no
+	 * such profile.
+	 */
+	public static ETuningProfile parse(final String value) {
+		final ETuningProfile[] profiles = ETuningProfile.values();
+		for (int i = 0; i < profiles.length; i++) {
+			if (profiles[i].name.equals(value)) return profiles[i];
+		}
+		throw new IllegalArgumentException("Invalid JVM tuning profile: " + value);
+	}
+
+	/**
+	 * The <code>String</code> profile name.
+	 */
+	public final String name;
+	/**
+	 * The <code>EGarbageCollector</code>. <code>null</code>
+	 * if the JVM default is used.
+	 */
+	public final EGarbageCollector collector;
+	/**
+	 * The <code>int</code> pause time target in
+	 * milliseconds. <code>-1</code> if not set.
+	 */
+	public final int maxPauseMillis;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * heap is touched at startup.
+	 */
+	public final boolean alwaysPreTouch;
+
+	/**
+	 * Constructor of <code>ETuningProfile</code>.
+	 * @param name The <code>String</code> profile name.
+	 * @param collector The <code>EGarbageCollector</code>.
+	 * @param maxPauseMillis The <code>int</code> pause
+	 * time target in milliseconds.
+	 * @param alwaysPreTouch The <code>boolean</code>
+	 * pre-touch flag.
+	 */
+	private ETuningProfile(final String name, final EGarbageCollector collector, final int maxPauseMillis, final boolean alwaysPreTouch) {
+		this.name = name;
+		this.collector = collector;
+		this.maxPauseMillis = maxPauseMillis;
+		this.alwaysPreTouch = alwaysPreTouch;
+	}
+}
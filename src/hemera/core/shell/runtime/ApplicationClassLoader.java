@@ -0,0 +1,84 @@
+package hemera.core.shell.runtime;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * <code>ApplicationClassLoader</code> defines the class
+ * loader that isolates the classes of one deployed
+ * application. It loads classes from its own Jar files
+ * before delegating to its parent, since the runtime
+ * class path may still contain the Jar files of a
+ * previously deployed version of the same application.
+ * Platform classes are always loaded by the parent.
+ * <p>
+ * The runtime libraries are excluded from application
+ * Jar files at deployment by file name only, so an
+ * application may still ship a different version of
+ * them. Classes of the shared runtime packages are
+ * therefore always loaded by the parent as well, so
+ * the resources an application defines implement the
+ * same runtime interfaces the runtime casts them to.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ApplicationClassLoader extends URLClassLoader {
+	/**
+	 * The <code>String</code> array of the package
+	 * prefixes that are always loaded by the parent.
+	 */
+	private static final String[] ParentFirstPrefixes = {
+		"java.", "javax.", "sun.", "jdk.", "hemera.core.", "org.apache.http.", "org.w3c.", "org.xml.", "org.json."
+	};
+
+	/**
+	 * Constructor of <code>ApplicationClassLoader</code>.
+	 * @param urls The <code>URL</code> array of the Jar
+	 * files to load from.
+	 * @param parent The parent <code>ClassLoader</code>.
+	 */
+	public ApplicationClassLoader(final URL[] urls, final ClassLoader parent) {
+		super(urls, parent);
+	}
+
+	@Override
+	protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+		if (this.isParentFirst(name)) {
+			return super.loadClass(name, resolve);
+		}
+		synchronized (this.getClassLoadingLock(name)) {
+			Class<?> c = this.findLoadedClass(name);
+			if (c == null) {
+				try {
+					c = this.findClass(name);
+				} catch (final ClassNotFoundException e) {
+					c = this.getParent().loadClass(name);
+				}
+			}
+			if (resolve) this.resolveClass(c);
+			return c;
+		}
+	}
+
+	/**
+	 * Check if the class with given name belongs to a
+	 * package that is always loaded by the parent.
+	 * @param name The <code>String</code> binary name
+	 * of the class.
+	 * @return <code>true</code> if loaded by the parent
+	 * first.
+	 */
+	private boolean isParentFirst(final String name) {
+		for (int i = 0; i < ApplicationClassLoader.ParentFirstPrefixes.length; i++) {
+			if (name.startsWith(ApplicationClassLoader.ParentFirstPrefixes[i])) return true;
+		}
+		return false;
+	}
+
+	@Override
+	public URL getResource(final String name) {
+		final URL url = this.findResource(name);
+		return (url != null) ? url : super.getResource(name);
+	}
+}
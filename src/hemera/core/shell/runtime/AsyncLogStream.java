@@ -0,0 +1,237 @@
+package hemera.core.shell.runtime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * <code>AsyncLogStream</code> defines the output stream
+ * that decouples the writing threads from the disk. The
+ * written bytes are copied into a bounded ring buffer,
+ * and a background thread writes them to a
+ * <code>RotatingLogFile</code>.
+ * <p>
+ * A write never waits for the disk. If the buffer does
+ * not have room for the written bytes, they are dropped
+ * and counted, and a line reporting the dropped output
+ * is written to the file once the writer catches up.
+ * Each write is either buffered or dropped as a whole.
+ * <p>
+ * <code>AsyncLogStream</code> is thread-safe.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class AsyncLogStream extends OutputStream implements Runnable {
+	/**
+	 * The <code>int</code> maximum number of bytes the
+	 * writer takes from the buffer at once.
+	 */
+	private static final int ChunkSize = 65536;
+	/**
+	 * The <code>long</code> maximum time in milliseconds
+	 * the writer waits for output before it checks the
+	 * buffer again.
+	 */
+	private static final long IdleInterval = 1000;
+	/**
+	 * The <code>RotatingLogFile</code> to write to.
+	 */
+	private final RotatingLogFile file;
+	/**
+	 * The <code>byte</code> ring buffer.
+	 */
+	private final byte[] buffer;
+	/**
+	 * The writer <code>Thread</code>.
+	 */
+	private final Thread writer;
+	/**
+	 * The <code>int</code> index of the first buffered
+	 * byte.
+	 */
+	private int head;
+	/**
+	 * The <code>int</code> number of buffered bytes.
+	 */
+	private int size;
+	/**
+	 * The <code>long</code> total number of bytes
+	 * written to the file.
+	 */
+	private long written;
+	/**
+	 * The <code>long</code> total number of dropped
+	 * bytes.
+	 */
+	private long dropped;
+	/**
+	 * The <code>long</code> total number of dropped
+	 * writes.
+	 */
+	private long droppedWrites;
+	/**
+	 * The <code>long</code> number of dropped bytes not
+	 * yet reported in the file.
+	 */
+	private long unreportedBytes;
+	/**
+	 * The <code>long</code> number of dropped writes
+	 * not yet reported in the file.
+	 */
+	private long unreportedWrites;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * stream is closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * Constructor of <code>AsyncLogStream</code>.
+	 * @param file The <code>RotatingLogFile</code> to
+	 * write to.
+	 * @param bufferSize The <code>int</code> size of the
+	 * ring buffer in bytes.
+	 * @param name The <code>String</code> name of the
+	 * writer thread.
+	 */
+	public AsyncLogStream(final RotatingLogFile file, final int bufferSize, final String name) {
+		this.file = file;
+		this.buffer = new byte[bufferSize];
+		this.writer = new Thread(this, name);
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void write(final int b) {
+		synchronized (this) {
+			if (this.closed) return;
+			if (this.size == this.buffer.length) {
+				this.drop(1);
+				return;
+			}
+			this.buffer[(this.head+this.size) % this.buffer.length] = (byte)b;
+			this.size++;
+			if (this.size == 1) this.notifyAll();
+		}
+	}
+
+	@Override
+	public void write(final byte[] bytes, final int offset, final int length) {
+		if (length <= 0) return;
+		synchronized (this) {
+			if (this.closed) return;
+			if (length > this.buffer.length-this.size) {
+				this.drop(length);
+				return;
+			}
+			final int tail = (this.head+this.size) % this.buffer.length;
+			final int first = Math.min(length, this.buffer.length-tail);
+			System.arraycopy(bytes, offset, this.buffer, tail, first);
+			if (first < length) System.arraycopy(bytes, offset+first, this.buffer, 0, length-first);
+			final boolean empty = (this.size == 0);
+			this.size += length;
+			if (empty) this.notifyAll();
+		}
+	}
+
+	/**
+	 * Count the given number of dropped bytes.
+	 * @param length The <code>int</code> number of
+	 * bytes.
+	 */
+	private void drop(final int length) {
+		this.dropped += length;
+		this.droppedWrites++;
+		this.unreportedBytes += length;
+		this.unreportedWrites++;
+	}
+
+	/**
+	 * Writes are buffered and the writer flushes the
+	 * file whenever the buffer is empty, so flushing
+	 * does not wait for the disk.
+	 */
+	@Override
+	public void flush() {
+	}
+
+	/**
+	 * Write all the buffered output and close the file.
+	 * Later writes are discarded.
+	 * @throws IOException If closing the file failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (this.closed) return;
+			this.closed = true;
+			this.notifyAll();
+		}
+		try {
+			this.writer.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.file.close();
+	}
+
+	/**
+	 * Retrieve the statistics of the stream.
+	 * @return The <code>long</code> array of the number
+	 * of bytes written to the file, the number of bytes
+	 * dropped and the number of writes dropped, in that
+	 * order.
+	 */
+	public synchronized long[] getStats() {
+		return new long[] {this.written, this.dropped, this.droppedWrites};
+	}
+
+	@Override
+	public void run() {
+		final byte[] chunk = new byte[Math.min(AsyncLogStream.ChunkSize, this.buffer.length)];
+		while (true) {
+			final int length;
+			final long droppedBytes;
+			final long droppedWrites;
+			synchronized (this) {
+				if (this.size == 0 && !this.closed) {
+					try {
+						this.wait(AsyncLogStream.IdleInterval);
+					} catch (final InterruptedException e) {
+						// Check for output again.
+					}
+				}
+				if (this.size == 0 && this.closed) return;
+				length = Math.min(this.size, chunk.length);
+				final int first = Math.min(length, this.buffer.length-this.head);
+				System.arraycopy(this.buffer, this.head, chunk, 0, first);
+				if (first < length) System.arraycopy(this.buffer, 0, chunk, first, length-first);
+				this.head = (this.head+length) % this.buffer.length;
+				this.size -= length;
+				droppedBytes = this.unreportedBytes;
+				droppedWrites = this.unreportedWrites;
+				this.unreportedBytes = 0;
+				this.unreportedWrites = 0;
+			}
+			try {
+				if (droppedWrites > 0) {
+					final String report = "[hemera] Output writer fell behind, dropped " + droppedBytes + " bytes in " + droppedWrites + " writes.\n";
+					final byte[] bytes = report.getBytes(Charset.forName("UTF-8"));
+					this.file.write(bytes, 0, bytes.length);
+				}
+				this.file.write(chunk, 0, length);
+				final boolean empty;
+				synchronized (this) {
+					this.written += length;
+					empty = (this.size == 0);
+				}
+				// Flush outside the lock, so writes never wait for the disk.
+				if (empty) this.file.flush();
+			} catch (final IOException e) {
+				// Nowhere left to report, the output is lost.
+			}
+		}
+	}
+}
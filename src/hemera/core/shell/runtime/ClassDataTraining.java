@@ -0,0 +1,102 @@
+package hemera.core.shell.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * <code>ClassDataTraining</code> defines the training
+ * run that the shell launches to build the class data
+ * sharing archive of the runtime. It loads, without
+ * initializing, every class of every Jar file on its
+ * class path, which is the class path of the runtime.
+ * The JVM then writes all the loaded classes into the
+ * archive when it exits.
+ * <p>
+ * The shell launcher loads every application through
+ * its own <code>ApplicationClassLoader</code>, so the
+ * application classes are not on the class path. Each
+ * argument is the class path of one application, and
+ * its classes are loaded through an application class
+ * loader the same way, and linked through reflection.
+ * The JVM archives them as classes of a custom loader,
+ * which the application loaders of the runtime share
+ * when they define the same class bytes.
+ * <p>
+ * Classes are not initialized, so no application code
+ * is executed and no port is bound, which allows the
+ * training to run while the runtime is serving.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ClassDataTraining {
+
+	/**
+	 * Training entry point.
+	 * @param args The <code>String</code> array of the
+	 * class paths of the applications.
+	 * @throws IOException If reading a Jar file failed.
+	 */
+	public static void main(final String[] args) throws IOException {
+		final ClassLoader loader = ClassDataTraining.class.getClassLoader();
+		final int[] counts = new int[2];
+		ClassDataTraining.load(System.getProperty("java.class.path").split(File.pathSeparator), loader, counts);
+		for (int i = 0; i < args.length; i++) {
+			final String[] paths = args[i].split(File.pathSeparator);
+			final URL[] urls = new URL[paths.length];
+			for (int j = 0; j < paths.length; j++) {
+				urls[j] = new File(paths[j]).toURI().toURL();
+			}
+			final ApplicationClassLoader appLoader = new ApplicationClassLoader(urls, loader);
+			try {
+				ClassDataTraining.load(paths, appLoader, counts);
+			} finally {
+				appLoader.close();
+			}
+		}
+		System.out.println("Loaded " + counts[0] + " classes, skipped " + counts[1] + " classes.");
+	}
+
+	/**
+	 * Load every class of the given Jar files through
+	 * the given class loader without initializing it.
+	 * @param paths The <code>String</code> array of the
+	 * Jar file paths.
+	 * @param loader The <code>ClassLoader</code> to
+	 * load with.
+	 * @param counts The <code>int</code> array of the
+	 * loaded and skipped class counts to update.
+	 * @throws IOException If reading a Jar file failed.
+	 */
+	private static void load(final String[] paths, final ClassLoader loader, final int[] counts) throws IOException {
+		for (int i = 0; i < paths.length; i++) {
+			if (!paths[i].endsWith(".jar")) continue;
+			final JarFile jar = new JarFile(paths[i]);
+			try {
+				final Enumeration<JarEntry> entries = jar.entries();
+				while (entries.hasMoreElements()) {
+					final String name = entries.nextElement().getName();
+					if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) continue;
+					final String classname = name.substring(0, name.length()-6).replace('/', '.');
+					try {
+						// Reflection links the class without initializing it. The JVM only
+						// archives linked classes, and only links the class path ones itself.
+						Class.forName(classname, false, loader).getDeclaredMethods();
+						counts[0]++;
+					} catch (final ClassNotFoundException e) {
+						counts[1]++;
+					} catch (final LinkageError e) {
+						// Optional dependency not on the class path.
+						counts[1]++;
+					}
+				}
+			} finally {
+				jar.close();
+			}
+		}
+	}
+}
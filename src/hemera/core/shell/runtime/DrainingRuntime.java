@@ -0,0 +1,558 @@
+package hemera.core.shell.runtime;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.w3c.dom.Document;
+
+import hemera.core.apache.runtime.ApacheRuntime;
+import hemera.core.environment.config.Configuration;
+import hemera.core.execution.assisted.AssistedService;
+import hemera.core.execution.interfaces.IExecutionService;
+import hemera.core.execution.interfaces.task.handle.ICyclicTaskHandle;
+import hemera.core.execution.scalable.ScalableService;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.structure.enumn.EHttpMethod;
+import hemera.core.structure.enumn.ERedirect;
+import hemera.core.structure.interfaces.IProcessor;
+import hemera.core.structure.interfaces.IRequest;
+import hemera.core.structure.interfaces.IResource;
+import hemera.core.structure.interfaces.IResponse;
+import hemera.core.structure.interfaces.runtime.util.IRuntimeHandle;
+import hemera.core.utility.uri.RESTURI;
+
+/**
+ * <code>DrainingRuntime</code> defines the Apache based
+ * runtime that the shell launcher uses, which can be
+ * drained before it is shut down, and that records
+ * request metrics and profiles. It tracks the
+ * requests that are being processed by wrapping the
+ * processors it routes requests to.
+ * <p>
+ * The runtime listens on two sockets. The loopback
+ * socket is bound to an ephemeral port on the loopback
+ * interface as soon as the runtime is activated, so
+ * the shell can probe, warm up and benchmark this
+ * instance alone. The configured port is only bound
+ * once the instance is admitted into rotation, and it
+ * is shared with <code>SO_REUSEPORT</code> when the
+ * shell launches it, so several instances and the
+ * surge instance of a rolling restart can serve it. If the start script asks
+ * the runtime to wait for admission, it admits itself
+ * after the admit timeout, so an instance started
+ * without the shell still serves.
+ * <p>
+ * Draining closes both sockets, so no new connections
+ * are accepted, and waits for the requests in process
+ * to complete. Requests that arrive on the already
+ * open connections during draining are answered with
+ * status 503, so clients can retry them against
+ * another instance.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class DrainingRuntime extends ApacheRuntime {
+	/**
+	 * The <code>long</code> interval between checks for
+	 * completed requests in milliseconds.
+	 */
+	private static final long DrainInterval = 50;
+	/**
+	 * The <code>Configuration</code> for the runtime.
+	 */
+	private final Configuration config;
+	/**
+	 * The <code>AtomicInteger</code> number of open
+	 * connections.
+	 */
+	private final AtomicInteger connections;
+	/**
+	 * The <code>AtomicLong</code> number of requests
+	 * in process.
+	 */
+	private final AtomicLong inFlight;
+	/**
+	 * The <code>AtomicLong</code> number of requests
+	 * completed during draining.
+	 */
+	private final AtomicLong drained;
+	/**
+	 * The <code>AtomicLong</code> number of requests
+	 * rejected during draining.
+	 */
+	private final AtomicLong rejected;
+	/**
+	 * The <code>RequestMetrics</code>.
+	 */
+	private final RequestMetrics metrics;
+	/**
+	 * The <code>RequestProfiler</code>.
+	 */
+	private final RequestProfiler profiler;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * runtime is draining.
+	 */
+	private volatile boolean draining;
+	/**
+	 * The <code>ThreadLocal</code> of the resource the
+	 * runtime created for the <code>add</code> call in
+	 * progress on the current thread.
+	 */
+	private final ThreadLocal<IResource> created;
+	/**
+	 * The <code>RequestRouter</code>. <code>null</code>
+	 * if the runtime is not activated.
+	 */
+	private RequestRouter router;
+	/**
+	 * The loopback <code>SocketListener</code>.
+	 * <code>null</code> if the runtime is not activated.
+	 */
+	private SocketListener loopbackListener;
+	/**
+	 * The <code>ICyclicTaskHandle</code> of the loopback
+	 * listener.
+	 */
+	private ICyclicTaskHandle loopbackHandle;
+	/**
+	 * The <code>ICyclicTaskHandle</code> of the listener
+	 * on the configured port. <code>null</code> if the
+	 * runtime is not admitted.
+	 */
+	private ICyclicTaskHandle sharedHandle;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * connection listeners are closed.
+	 */
+	private boolean listenerClosed;
+	/**
+	 * The <code>long</code> time draining gives up at.
+	 */
+	private long deadline;
+
+	/**
+	 * Constructor of <code>DrainingRuntime</code>.
+	 * @param service The <code>IExecutionService</code>
+	 * used to dispatch request processing.
+	 * @param config The <code>Configuration</code> for
+	 * the runtime.
+	 */
+	public DrainingRuntime(final IExecutionService service, final Configuration config) {
+		super(service, config);
+		this.config = config;
+		this.connections = new AtomicInteger();
+		this.inFlight = new AtomicLong();
+		this.drained = new AtomicLong();
+		this.rejected = new AtomicLong();
+		this.metrics = new RequestMetrics();
+		this.profiler = new RequestProfiler();
+		this.created = new ThreadLocal<IResource>();
+	}
+
+	/**
+	 * Retrieve the request metrics.
+	 * @return The <code>RequestMetrics</code>.
+	 */
+	public RequestMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Retrieve the request profiler.
+	 * @return The <code>RequestProfiler</code>.
+	 */
+	public RequestProfiler getProfiler() {
+		return this.profiler;
+	}
+
+	/**
+	 * Retrieve the current statistics of the execution
+	 * service. See <code>RuntimeControlMBean</code> for
+	 * the keys.
+	 * @return The <code>Map</code> of statistic name to
+	 * its <code>Number</code> value.
+	 */
+	public Map<String, Number> getExecutionStats() {
+		final Map<String, Number> stats = new HashMap<String, Number>();
+		stats.put("executors", this.service.getCurrentExecutorCount());
+		if (this.service instanceof ScalableService) {
+			stats.put("idle-executors", ((ScalableService)this.service).getAvailableCount());
+		} else if (this.service instanceof AssistedService) {
+			stats.put("average-queue-length", ((AssistedService)this.service).getAverageQueueLength());
+		}
+		return stats;
+	}
+
+	/**
+	 * Stop accepting connections and wait for the
+	 * requests in process to complete, up to the given
+	 * timeout. Draining an already draining runtime
+	 * waits for the remaining requests until the deadline
+	 * of the first drain.
+	 * @param timeout The <code>long</code> maximum time
+	 * to wait in milliseconds.
+	 * @return The <code>long</code> array of the number
+	 * of requests completed during draining, the number
+	 * of requests still in process when the timeout was
+	 * reached, and the number of requests rejected during
+	 * draining, in that order.
+	 * @throws Exception If closing the listener failed.
+	 */
+	public long[] drain(final long timeout) throws Exception {
+		final long deadline;
+		synchronized (this) {
+			if (!this.draining) {
+				this.deadline = System.currentTimeMillis() + timeout;
+				this.draining = true;
+				this.logger.info("Draining runtime with " + this.inFlight.get() + " requests in process.");
+			}
+			this.closeListener();
+			deadline = this.deadline;
+		}
+		while (this.inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(DrainingRuntime.DrainInterval);
+		}
+		final long[] result = new long[] {this.drained.get(), this.inFlight.get(), this.rejected.get()};
+		this.logger.info("Drained " + result[0] + " requests, " + result[1] + " still in process, " + result[2] + " rejected.");
+		return result;
+	}
+
+	/**
+	 * Retrieve the number of open connections.
+	 * @return The <code>int</code> number of connections.
+	 */
+	public int getConnectionCount() {
+		return this.connections.get();
+	}
+
+	/**
+	 * Retrieve the port of the loopback listener.
+	 * @return The <code>int</code> port. <code>-1</code>
+	 * if the runtime is not activated.
+	 */
+	public synchronized int getLoopbackPort() {
+		return (this.loopbackListener==null) ? -1 : this.loopbackListener.getPort();
+	}
+
+	/**
+	 * Check if the runtime is admitted into rotation.
+	 * @return <code>true</code> if the configured port
+	 * is bound.
+	 */
+	public synchronized boolean isAdmitted() {
+		return (this.sharedHandle != null);
+	}
+
+	/**
+	 * Admit the runtime into rotation by binding the
+	 * configured port. Admitting an already admitted
+	 * runtime has no effect.
+	 * @return <code>true</code> if the runtime was
+	 * admitted by this call.
+	 * @throws Exception If binding the port failed, or
+	 * the runtime is not activated or is draining.
+	 */
+	public synchronized boolean admit() throws Exception {
+		if (this.sharedHandle != null) return false;
+		if (this.router == null || this.listenerClosed) {
+			throw new IllegalStateException("Runtime cannot be admitted, it is not activated or is draining.");
+		}
+		final int port = this.config.runtime.socket.port;
+		final boolean shared = Boolean.getBoolean(EShell.SharedPortProperty.value);
+		try {
+			final SocketListener listener = new SocketListener(this.service, this.config.runtime.socket, new InetSocketAddress(port),
+					shared, this.router, this.connections);
+			this.sharedHandle = this.service.submit(listener);
+		} catch (final Exception e) {
+			this.logger.severe("Binding server socket on port: " + port + " failed.");
+			throw e;
+		}
+		this.logger.info("Runtime admitted into rotation on port " + port + ".");
+		return true;
+	}
+
+	@Override
+	protected synchronized void activateComponents() throws Exception {
+		final RequestRouter router = new RequestRouter(this.service.getExceptionHandler(), this);
+		final InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		this.loopbackListener = new SocketListener(this.service, this.config.runtime.socket, loopback, false, router, this.connections);
+		this.loopbackHandle = this.service.submit(this.loopbackListener);
+		this.router = router;
+		final long admitTimeout = Long.getLong(EShell.AdmitTimeoutProperty.value, 0);
+		if (admitTimeout <= 0) {
+			this.admit();
+			return;
+		}
+		// Admit without the shell if it does not within the timeout.
+		final Thread timer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(admitTimeout*1000L);
+					if (DrainingRuntime.this.admit()) {
+						DrainingRuntime.this.logger.warning("Runtime was not admitted within " + admitTimeout + " seconds, admitted itself.");
+					}
+				} catch (final InterruptedException e) {
+					// Runtime shut down.
+				} catch (final IllegalStateException e) {
+					// Runtime is draining before it was admitted.
+				} catch (final Exception e) {
+					DrainingRuntime.this.logger.exception(e);
+				}
+			}
+		}, "hemera-admit-timer");
+		timer.setDaemon(true);
+		timer.start();
+	}
+
+	/**
+	 * Close the connection listeners if they are not
+	 * closed already.
+	 */
+	private synchronized void closeListener() {
+		if (this.listenerClosed) return;
+		this.listenerClosed = true;
+		if (this.sharedHandle != null) this.sharedHandle.terminate();
+		if (this.loopbackHandle != null) this.loopbackHandle.terminate();
+	}
+
+	/**
+	 * Add an instance of the given resource class and
+	 * retrieve the path it is registered at. Unlike
+	 * <code>add</code>, a resource that fails to deploy
+	 * is removed again, so a failed deployment does not
+	 * leave it registered.
+	 * @param applicationPath The <code>String</code>
+	 * optional application path.
+	 * @param resourceClass The <code>Class</code> of the
+	 * resource.
+	 * @param configStream The optional configuration
+	 * <code>InputStream</code>.
+	 * @param resources The optional <code>List</code>
+	 * of resource <code>File</code>.
+	 * @return The <code>String</code> REST path of the
+	 * added resource. <code>null</code> if a resource is
+	 * already registered at the path.
+	 * @throws Exception If deploying the resource failed.
+	 */
+	public String deploy(final String applicationPath, final Class<? extends IResource> resourceClass, final InputStream configStream,
+			final List<File> resources) throws Exception {
+		this.created.remove();
+		try {
+			if (!this.add(applicationPath, resourceClass, configStream, resources)) return null;
+			return this.getPath(applicationPath, this.created.get());
+		} catch (final Exception e) {
+			final IResource resource = this.created.get();
+			if (resource != null) {
+				try {
+					this.remove(this.getPath(applicationPath, resource));
+				} catch (final Exception ex) {
+					this.logger.exception(ex);
+				}
+			}
+			throw e;
+		} finally {
+			this.created.remove();
+		}
+	}
+
+	/**
+	 * Compose the REST path the given resource is
+	 * registered at, the same way <code>add</code> does.
+	 * @param applicationPath The <code>String</code>
+	 * optional application path.
+	 * @param resource The <code>IResource</code>.
+	 * @return The <code>String</code> path.
+	 */
+	private String getPath(final String applicationPath, final IResource resource) {
+		final StringBuilder builder = new StringBuilder();
+		if (applicationPath != null) builder.append(applicationPath);
+		final String resourcePath = resource.getPath();
+		if (resourcePath != null) builder.append(resourcePath);
+		return builder.toString();
+	}
+
+	@Override
+	protected void injectServices(final IResource resource) {
+		super.injectServices(resource);
+		this.created.set(resource);
+	}
+
+	@Override
+	protected void shutdownComponents() throws Exception {
+		this.closeListener();
+	}
+
+	@Override
+	public IResource getResource(final RESTURI uri, final EHttpMethod method) {
+		final IResource resource = super.getResource(uri, method);
+		return (resource==null) ? null : new TrackedResource(resource);
+	}
+
+	/**
+	 * <code>TrackedResource</code> defines the resource
+	 * wrapper that routes requests to tracked processors.
+	 */
+	private class TrackedResource implements IResource {
+		/**
+		 * The wrapped <code>IResource</code>.
+		 */
+		private final IResource resource;
+
+		/**
+		 * Constructor of <code>TrackedResource</code>.
+		 * @param resource The <code>IResource</code> to
+		 * wrap.
+		 */
+		private TrackedResource(final IResource resource) {
+			this.resource = resource;
+		}
+
+		@Override
+		public void inject(final IExecutionService service) {
+			this.resource.inject(service);
+		}
+
+		@Override
+		public void inject(final IRuntimeHandle handle) {
+			this.resource.inject(handle);
+		}
+
+		@Override
+		public void inject(final List<File> resources) {
+			this.resource.inject(resources);
+		}
+
+		@Override
+		public void customize(final Document document) throws Exception {
+			this.resource.customize(document);
+		}
+
+		@Override
+		public void initialize() throws Exception {
+			this.resource.initialize();
+		}
+
+		@Override
+		public void activate() throws Exception {
+			this.resource.activate();
+		}
+
+		@Override
+		public void dispose() throws Exception {
+			this.resource.dispose();
+		}
+
+		@Override
+		public String getPath() {
+			return this.resource.getPath();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public IProcessor<?, ?> getProcessor(final String[] path, final EHttpMethod method) {
+			final IProcessor<IRequest, IResponse> processor = (IProcessor<IRequest, IResponse>)this.resource.getProcessor(path, method);
+			if (processor == null) return null;
+			final Class<?> resourceClass = this.resource.getClass();
+			return new TrackedProcessor(processor, resourceClass, DrainingRuntime.this.metrics.getCounter(resourceClass));
+		}
+	}
+
+	/**
+	 * <code>TrackedProcessor</code> defines the processor
+	 * wrapper that counts the requests in process,
+	 * records their metrics and profiles, and rejects requests during
+	 * draining.
+	 */
+	private class TrackedProcessor implements IProcessor<IRequest, IResponse> {
+		/**
+		 * The wrapped <code>IProcessor</code>.
+		 */
+		private final IProcessor<IRequest, IResponse> processor;
+		/**
+		 * The resource <code>Class</code> of the processor.
+		 */
+		private final Class<?> resourceClass;
+		/**
+		 * The <code>AtomicLong</code> request counter of
+		 * the application. <code>null</code> if unknown.
+		 */
+		private final AtomicLong counter;
+
+		/**
+		 * Constructor of <code>TrackedProcessor</code>.
+		 * @param processor The <code>IProcessor</code> to
+		 * wrap.
+		 * @param resourceClass The resource <code>Class</code>
+		 * of the processor.
+		 * @param counter The <code>AtomicLong</code>
+		 * request counter of the application.
+		 */
+		private TrackedProcessor(final IProcessor<IRequest, IResponse> processor, final Class<?> resourceClass, final AtomicLong counter) {
+			this.processor = processor;
+			this.resourceClass = resourceClass;
+			this.counter = counter;
+		}
+
+		@Override
+		public IResponse process(final IRequest request) {
+			// Count before checking, so draining waits for every admitted request.
+			DrainingRuntime.this.inFlight.incrementAndGet();
+			if (DrainingRuntime.this.draining) {
+				DrainingRuntime.this.inFlight.decrementAndGet();
+				DrainingRuntime.this.rejected.incrementAndGet();
+				// The request handler answers inactive processors with 503.
+				return null;
+			}
+			final RequestProfiler.Sample sample = DrainingRuntime.this.profiler.begin(this.resourceClass);
+			final long start = System.nanoTime();
+			try {
+				return this.processor.process(request);
+			} finally {
+				DrainingRuntime.this.metrics.record(this.counter, System.nanoTime()-start);
+				if (sample != null) DrainingRuntime.this.profiler.end(sample);
+				DrainingRuntime.this.inFlight.decrementAndGet();
+				if (DrainingRuntime.this.draining) DrainingRuntime.this.drained.incrementAndGet();
+			}
+		}
+
+		@Override
+		public void setActive(final boolean active) {
+			this.processor.setActive(active);
+		}
+
+		@Override
+		public Class<IRequest> getRequestType() {
+			return this.processor.getRequestType();
+		}
+
+		@Override
+		public String getRedirectURI(final IRequest request) {
+			return this.processor.getRedirectURI(request);
+		}
+
+		@Override
+		public String getRedirectURI(final IRequest request, final IResponse response) {
+			return this.processor.getRedirectURI(request, response);
+		}
+
+		@Override
+		public ERedirect getRedirectBehavior(final IRequest request) {
+			return this.processor.getRedirectBehavior(request);
+		}
+
+		@Override
+		public boolean isActive() {
+			return this.processor.isActive();
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package hemera.core.shell.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import hemera.core.shell.enumn.EShell;
+
+/**
+ * <code>OutputCapture</code> defines the capture of the
+ * standard output and error of the runtime process into
+ * rotating log files through <code>AsyncLogStream</code>,
+ * so threads printing to them never wait for the disk.
+ * <p>
+ * The capture is configured by the system properties
+ * the generated start script passes to the runtime.
+ * Output the JVM writes natively, before the capture is
+ * installed or outside of <code>System.out</code> and
+ * <code>System.err</code>, still goes to the files
+ * given to JSVC.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class OutputCapture {
+	/**
+	 * The original standard output <code>PrintStream</code>.
+	 */
+	private final PrintStream originalOut;
+	/**
+	 * The original standard error <code>PrintStream</code>.
+	 */
+	private final PrintStream originalErr;
+	/**
+	 * The standard output <code>AsyncLogStream</code>.
+	 */
+	private final AsyncLogStream out;
+	/**
+	 * The standard error <code>AsyncLogStream</code>.
+	 */
+	private final AsyncLogStream err;
+
+	/**
+	 * Constructor of <code>OutputCapture</code>.
+	 * @param out The standard output
+	 * <code>AsyncLogStream</code>.
+	 * @param err The standard error
+	 * <code>AsyncLogStream</code>.
+	 */
+	private OutputCapture(final AsyncLogStream out, final AsyncLogStream err) {
+		this.originalOut = System.out;
+		this.originalErr = System.err;
+		this.out = out;
+		this.err = err;
+	}
+
+	/**
+	 * Install the capture configured by the system
+	 * properties.
+	 * @return The installed <code>OutputCapture</code>.
+	 * <code>null</code> if the capture is not configured.
+	 * @throws IOException If opening the log files
+	 * failed.
+	 */
+	public static OutputCapture install() throws IOException {
+		final String outFile = System.getProperty(EShell.OutputFileProperty.value);
+		final String errFile = System.getProperty(EShell.ErrorFileProperty.value);
+		if (outFile == null || errFile == null) return null;
+		final int bufferSize = Integer.getInteger(EShell.OutputBufferSizeProperty.value, 8388608);
+		final long maxSize = Long.getLong(EShell.OutputMaxSizeProperty.value, 104857600);
+		final long interval = Long.getLong(EShell.OutputRotateIntervalProperty.value, 0) * 3600000L;
+		final int maxFiles = Integer.getInteger(EShell.OutputMaxFilesProperty.value, 10);
+		final boolean compress = Boolean.getBoolean(EShell.OutputCompressProperty.value);
+		final RotatingLogFile outLog = new RotatingLogFile(new File(outFile), maxSize, interval, maxFiles, compress);
+		final RotatingLogFile errLog = new RotatingLogFile(new File(errFile), maxSize, interval, maxFiles, compress);
+		final OutputCapture capture = new OutputCapture(new AsyncLogStream(outLog, bufferSize, "hemera-stdout-writer"),
+				new AsyncLogStream(errLog, bufferSize, "hemera-stderr-writer"));
+		System.setOut(new PrintStream(capture.out));
+		System.setErr(new PrintStream(capture.err));
+		return capture;
+	}
+
+	/**
+	 * Retrieve the combined statistics of the standard
+	 * output and error.
+	 * @return The <code>long</code> array of the number
+	 * of bytes written to the files, the number of bytes
+	 * dropped and the number of writes dropped, in that
+	 * order.
+	 */
+	public long[] getStats() {
+		final long[] stats = this.out.getStats();
+		final long[] errStats = this.err.getStats();
+		for (int i = 0; i < stats.length; i++) {
+			stats[i] += errStats[i];
+		}
+		return stats;
+	}
+
+	/**
+	 * Restore the original standard output and error,
+	 * then write all the captured output and close the
+	 * log files.
+	 * @throws IOException If closing the files failed.
+	 */
+	public void close() throws IOException {
+		System.setOut(this.originalOut);
+		System.setErr(this.originalErr);
+		try {
+			this.out.close();
+		} finally {
+			this.err.close();
+		}
+	}
+}
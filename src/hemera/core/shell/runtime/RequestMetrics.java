@@ -0,0 +1,123 @@
+package hemera.core.shell.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hemera.core.shell.util.LatencyHistogram;
+
+/**
+ * <code>RequestMetrics</code> defines the cumulative
+ * request metrics of a running runtime. It records the
+ * latency of every processed request, and counts the
+ * requests of every application by the class of the
+ * resource that processed them.
+ * <p>
+ * <code>RequestMetrics</code> is thread-safe and does
+ * not block request processing.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class RequestMetrics {
+	/**
+	 * The <code>LatencyHistogram</code> of all the
+	 * processed requests.
+	 */
+	private final LatencyHistogram latencies;
+	/**
+	 * The <code>ConcurrentMap</code> of application
+	 * name to its request count. Counts are kept when
+	 * applications are removed, so they stay cumulative
+	 * across redeployments.
+	 */
+	private final ConcurrentMap<String, AtomicLong> applications;
+	/**
+	 * The <code>ConcurrentMap</code> of deployed resource
+	 * class to the request count of its application.
+	 */
+	private final ConcurrentMap<Class<?>, AtomicLong> resources;
+
+	/**
+	 * Constructor of <code>RequestMetrics</code>.
+	 */
+	public RequestMetrics() {
+		this.latencies = new LatencyHistogram();
+		this.applications = new ConcurrentHashMap<String, AtomicLong>();
+		this.resources = new ConcurrentHashMap<Class<?>, AtomicLong>();
+	}
+
+	/**
+	 * Count the requests processed by the given resource
+	 * class for the given application.
+	 * @param resourceClass The resource <code>Class</code>.
+	 * @param applicationName The <code>String</code>
+	 * application name.
+	 */
+	public void track(final Class<?> resourceClass, final String applicationName) {
+		AtomicLong counter = this.applications.get(applicationName);
+		if (counter == null) {
+			final AtomicLong created = new AtomicLong();
+			counter = this.applications.putIfAbsent(applicationName, created);
+			if (counter == null) counter = created;
+		}
+		this.resources.put(resourceClass, counter);
+	}
+
+	/**
+	 * Stop counting the requests of the given resource
+	 * class, so its class loader can be discarded.
+	 * @param resourceClass The resource <code>Class</code>.
+	 */
+	public void untrack(final Class<?> resourceClass) {
+		this.resources.remove(resourceClass);
+	}
+
+	/**
+	 * Retrieve the request counter of the application
+	 * of the given resource class.
+	 * @param resourceClass The resource <code>Class</code>.
+	 * @return The <code>AtomicLong</code> counter. Or
+	 * <code>null</code> if the class is not tracked.
+	 */
+	AtomicLong getCounter(final Class<?> resourceClass) {
+		return this.resources.get(resourceClass);
+	}
+
+	/**
+	 * Record a processed request.
+	 * @param counter The <code>AtomicLong</code> counter
+	 * of the application. <code>null</code> if unknown.
+	 * @param nanos The <code>long</code> processing time
+	 * in nanoseconds.
+	 */
+	void record(final AtomicLong counter, final long nanos) {
+		this.latencies.record(nanos);
+		if (counter != null) counter.incrementAndGet();
+	}
+
+	/**
+	 * Retrieve the latency histogram counts.
+	 * @return The <code>long</code> array of cumulative
+	 * counts.
+	 */
+	public long[] getLatencyHistogram() {
+		return this.latencies.snapshot();
+	}
+
+	/**
+	 * Retrieve the request counts of all the
+	 * applications.
+	 * @return The <code>Map</code> of application name
+	 * to its cumulative request count.
+	 */
+	public Map<String, Long> getApplicationRequests() {
+		final Map<String, Long> requests = new HashMap<String, Long>();
+		for (final Map.Entry<String, AtomicLong> entry : this.applications.entrySet()) {
+			requests.put(entry.getKey(), entry.getValue().get());
+		}
+		return requests;
+	}
+}
@@ -0,0 +1,455 @@
+package hemera.core.shell.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hemera.core.shell.util.LatencyHistogram;
+
+/**
+ * <code>RequestProfiler</code> defines the request
+ * profiler of a running runtime. It profiles one
+ * application at a time, for a limited duration. While
+ * profiling, it measures the CPU time, allocated bytes
+ * and latency of every request processed by the
+ * resources of the application, and periodically
+ * samples the stacks of the threads processing them.
+ * <p>
+ * The overhead is limited to the profiled application.
+ * Requests of other applications only check whether
+ * profiling is active. Stacks are only sampled from
+ * the threads that are processing a profiled request,
+ * and sampling stops by itself at the end of the
+ * duration even if the profile is never collected.
+ * <p>
+ * <code>RequestProfiler</code> is thread-safe.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class RequestProfiler {
+	/**
+	 * The <code>int</code> maximum number of distinct
+	 * stacks recorded by one profile. Samples of any
+	 * further stacks are counted as truncated.
+	 */
+	private static final int MaxStacks = 20000;
+	/**
+	 * The <code>String</code> frame of the samples that
+	 * exceeded the maximum number of distinct stacks.
+	 */
+	private static final String TruncatedFrame = "[truncated]";
+	/**
+	 * The <code>ThreadMXBean</code> used to measure the
+	 * CPU time of requests.
+	 */
+	private final ThreadMXBean threads;
+	/**
+	 * The current or last <code>Session</code>.
+	 * <code>null</code> if no application was profiled.
+	 */
+	private volatile Session session;
+
+	/**
+	 * Constructor of <code>RequestProfiler</code>.
+	 */
+	public RequestProfiler() {
+		this.threads = ManagementFactory.getThreadMXBean();
+	}
+
+	/**
+	 * Start profiling the given resource classes of the
+	 * application with given name.
+	 * @param applicationName The <code>String</code>
+	 * application name.
+	 * @param resourceClasses The <code>Collection</code>
+	 * of the resource <code>Class</code> to profile.
+	 * @param duration The <code>long</code> duration in
+	 * milliseconds.
+	 * @param interval The <code>long</code> stack
+	 * sampling interval in milliseconds.
+	 * @throws IllegalStateException If another profile
+	 * is in progress.
+	 */
+	public synchronized void start(final String applicationName, final Collection<Class<?>> resourceClasses, final long duration, final long interval) {
+		if (this.session != null && !this.session.stopped) {
+			throw new IllegalStateException("Application " + this.session.applicationName + " is already being profiled.");
+		}
+		if (this.threads.isThreadCpuTimeSupported() && !this.threads.isThreadCpuTimeEnabled()) {
+			this.threads.setThreadCpuTimeEnabled(true);
+		}
+		final Session session = new Session(applicationName, resourceClasses, System.currentTimeMillis()+duration, interval);
+		final Thread sampler = new Thread(session, "hemera-profiler");
+		sampler.setDaemon(true);
+		session.sampler = sampler;
+		this.session = session;
+		sampler.start();
+	}
+
+	/**
+	 * Stop profiling and retrieve the last profile. If
+	 * the duration already ended, the profile is only
+	 * retrieved.
+	 * @return The stopped <code>Session</code>.
+	 * @throws InterruptedException If interrupted while
+	 * waiting for the sampler to stop.
+	 * @throws IllegalStateException If no application
+	 * was profiled.
+	 */
+	public synchronized Session stop() throws InterruptedException {
+		final Session session = this.session;
+		if (session == null) throw new IllegalStateException("No application was profiled.");
+		session.stopped = true;
+		session.sampler.interrupt();
+		session.sampler.join();
+		return session;
+	}
+
+	/**
+	 * Begin measuring a request processed by the given
+	 * resource class on the current thread.
+	 * @param resourceClass The resource <code>Class</code>.
+	 * @return The <code>Sample</code> to end when the
+	 * request is processed. <code>null</code> if the
+	 * request is not profiled.
+	 */
+	Sample begin(final Class<?> resourceClass) {
+		final Session session = this.session;
+		if (session == null || session.stopped || !session.resourceClasses.contains(resourceClass)) return null;
+		final Thread thread = Thread.currentThread();
+		final Sample sample = new Sample(session, resourceClass, thread, this.getCPUTime(), this.getAllocatedBytes(thread));
+		session.active.put(thread, sample);
+		return sample;
+	}
+
+	/**
+	 * End measuring the given request.
+	 * @param sample The <code>Sample</code> returned by
+	 * <code>begin</code>.
+	 */
+	void end(final Sample sample) {
+		final long nanos = System.nanoTime() - sample.start;
+		final long cpu = (sample.cpu < 0) ? -1 : this.getCPUTime() - sample.cpu;
+		final long allocated = (sample.allocated < 0) ? -1 : this.getAllocatedBytes(sample.thread) - sample.allocated;
+		final Session session = sample.session;
+		session.active.remove(sample.thread);
+		session.getProfile(sample.resourceClass).record(nanos, cpu, allocated);
+	}
+
+	/**
+	 * Retrieve the CPU time of the current thread.
+	 * @return The <code>long</code> CPU time in
+	 * nanoseconds. <code>-1</code> if not supported.
+	 */
+	private long getCPUTime() {
+		return this.threads.isThreadCpuTimeEnabled() ? this.threads.getCurrentThreadCpuTime() : -1;
+	}
+
+	/**
+	 * Retrieve the number of bytes allocated by the
+	 * given thread.
+	 * @param thread The <code>Thread</code>.
+	 * @return The <code>long</code> number of bytes.
+	 * <code>-1</code> if not supported.
+	 */
+	@SuppressWarnings("deprecation")
+	private long getAllocatedBytes(final Thread thread) {
+		if (!(this.threads instanceof com.sun.management.ThreadMXBean)) return -1;
+		final com.sun.management.ThreadMXBean extended = (com.sun.management.ThreadMXBean)this.threads;
+		if (!extended.isThreadAllocatedMemoryEnabled()) return -1;
+		return extended.getThreadAllocatedBytes(thread.getId());
+	}
+
+	/**
+	 * <code>Session</code> defines the profile of one
+	 * application, and the sampler that records its
+	 * stacks.
+	 */
+	public static class Session implements Runnable {
+		/**
+		 * The <code>String</code> application name.
+		 */
+		public final String applicationName;
+		/**
+		 * The <code>Set</code> of the profiled resource
+		 * <code>Class</code>.
+		 */
+		private final Set<Class<?>> resourceClasses;
+		/**
+		 * The <code>long</code> time sampling stops at.
+		 */
+		private final long deadline;
+		/**
+		 * The <code>long</code> sampling interval in
+		 * milliseconds.
+		 */
+		private final long interval;
+		/**
+		 * The <code>ConcurrentMap</code> of thread to the
+		 * profiled request it is processing.
+		 */
+		private final ConcurrentMap<Thread, Sample> active;
+		/**
+		 * The <code>ConcurrentMap</code> of resource class
+		 * to its <code>ResourceProfile</code>.
+		 */
+		private final ConcurrentMap<Class<?>, ResourceProfile> profiles;
+		/**
+		 * The <code>Map</code> of collapsed stack to its
+		 * number of samples. Only written by the sampler.
+		 */
+		private final Map<String, Long> stacks;
+		/**
+		 * The sampler <code>Thread</code>.
+		 */
+		private Thread sampler;
+		/**
+		 * The <code>boolean</code> flag indicating if the
+		 * profile is stopped.
+		 */
+		private volatile boolean stopped;
+
+		/**
+		 * Constructor of <code>Session</code>.
+		 * @param applicationName The <code>String</code>
+		 * application name.
+		 * @param resourceClasses The <code>Collection</code>
+		 * of the resource <code>Class</code> to profile.
+		 * @param deadline The <code>long</code> time
+		 * sampling stops at.
+		 * @param interval The <code>long</code> sampling
+		 * interval in milliseconds.
+		 */
+		private Session(final String applicationName, final Collection<Class<?>> resourceClasses, final long deadline, final long interval) {
+			this.applicationName = applicationName;
+			this.resourceClasses = new HashSet<Class<?>>(resourceClasses);
+			this.deadline = deadline;
+			this.interval = interval;
+			this.active = new ConcurrentHashMap<Thread, Sample>();
+			this.profiles = new ConcurrentHashMap<Class<?>, ResourceProfile>();
+			this.stacks = new HashMap<String, Long>();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!this.stopped) {
+					final long remaining = this.deadline - System.currentTimeMillis();
+					if (remaining <= 0) break;
+					Thread.sleep(Math.min(this.interval, remaining));
+					for (final Sample sample : this.active.values()) {
+						this.sample(sample);
+					}
+				}
+			} catch (final InterruptedException e) {
+				// Stopped.
+			} finally {
+				this.stopped = true;
+			}
+		}
+
+		/**
+		 * Record the stack of the thread processing the
+		 * given request.
+		 * @param sample The <code>Sample</code>.
+		 */
+		private void sample(final Sample sample) {
+			final StackTraceElement[] trace = sample.thread.getStackTrace();
+			// The thread may have moved on to another request.
+			if (trace.length == 0 || this.active.get(sample.thread) != sample) return;
+			// Only keep the frames within the processor.
+			int end = trace.length;
+			for (int i = 0; i < trace.length; i++) {
+				if (trace[i].getClassName().startsWith(DrainingRuntime.class.getName())) {
+					end = i;
+					break;
+				}
+			}
+			final StringBuilder builder = new StringBuilder();
+			builder.append(this.applicationName).append(';').append(sample.resourceClass.getName());
+			for (int i = end-1; i >= 0; i--) {
+				builder.append(';').append(trace[i].getClassName()).append('.').append(trace[i].getMethodName());
+			}
+			String stack = builder.toString();
+			final Long count = this.stacks.get(stack);
+			if (count == null && this.stacks.size() >= RequestProfiler.MaxStacks) {
+				stack = this.applicationName + ";" + RequestProfiler.TruncatedFrame;
+			}
+			final Long previous = this.stacks.get(stack);
+			this.stacks.put(stack, (previous==null) ? 1 : previous+1);
+		}
+
+		/**
+		 * Retrieve the profile of the given resource class,
+		 * creating it if necessary.
+		 * @param resourceClass The resource <code>Class</code>.
+		 * @return The <code>ResourceProfile</code>.
+		 */
+		private ResourceProfile getProfile(final Class<?> resourceClass) {
+			ResourceProfile profile = this.profiles.get(resourceClass);
+			if (profile == null) {
+				final ResourceProfile created = new ResourceProfile();
+				profile = this.profiles.putIfAbsent(resourceClass, created);
+				if (profile == null) profile = created;
+			}
+			return profile;
+		}
+
+		/**
+		 * Retrieve the measurements of every profiled
+		 * resource that processed requests.
+		 * @return The <code>Map</code> of resource class
+		 * name to its measurements. The values are the
+		 * number of requests, their total CPU time in
+		 * nanoseconds and the total number of bytes they
+		 * allocated, followed by the counts of their
+		 * <code>LatencyHistogram</code>. The CPU time and
+		 * the allocated bytes are <code>-1</code> if the
+		 * JVM does not support measuring them.
+		 */
+		public Map<String, long[]> getResources() {
+			final Map<String, long[]> resources = new HashMap<String, long[]>();
+			for (final Map.Entry<Class<?>, ResourceProfile> entry : this.profiles.entrySet()) {
+				resources.put(entry.getKey().getName(), entry.getValue().toArray());
+			}
+			return resources;
+		}
+
+		/**
+		 * Retrieve the sampled stacks in the collapsed
+		 * format, with the application and the resource
+		 * class as the root frames. Only valid once the
+		 * profile is stopped.
+		 * @return The <code>Map</code> of collapsed stack
+		 * to its number of samples.
+		 */
+		public Map<String, Long> getStacks() {
+			return new HashMap<String, Long>(this.stacks);
+		}
+	}
+
+	/**
+	 * <code>Sample</code> defines the measurement of one
+	 * profiled request in process.
+	 */
+	static class Sample {
+		/**
+		 * The <code>Session</code> the request belongs to.
+		 */
+		private final Session session;
+		/**
+		 * The resource <code>Class</code>.
+		 */
+		private final Class<?> resourceClass;
+		/**
+		 * The processing <code>Thread</code>.
+		 */
+		private final Thread thread;
+		/**
+		 * The <code>long</code> start time in nanoseconds.
+		 */
+		private final long start;
+		/**
+		 * The <code>long</code> thread CPU time at start.
+		 */
+		private final long cpu;
+		/**
+		 * The <code>long</code> thread allocated bytes at
+		 * start.
+		 */
+		private final long allocated;
+
+		/**
+		 * Constructor of <code>Sample</code>.
+		 * @param session The <code>Session</code>.
+		 * @param resourceClass The resource <code>Class</code>.
+		 * @param thread The processing <code>Thread</code>.
+		 * @param cpu The <code>long</code> thread CPU time.
+		 * @param allocated The <code>long</code> thread
+		 * allocated bytes.
+		 */
+		private Sample(final Session session, final Class<?> resourceClass, final Thread thread, final long cpu, final long allocated) {
+			this.session = session;
+			this.resourceClass = resourceClass;
+			this.thread = thread;
+			this.cpu = cpu;
+			this.allocated = allocated;
+			this.start = System.nanoTime();
+		}
+	}
+
+	/**
+	 * <code>ResourceProfile</code> defines the cumulative
+	 * measurements of the requests of one resource.
+	 */
+	private static class ResourceProfile {
+		/**
+		 * The <code>AtomicLong</code> number of requests.
+		 */
+		private final AtomicLong requests;
+		/**
+		 * The <code>AtomicLong</code> total CPU time in
+		 * nanoseconds. <code>-1</code> if not supported.
+		 */
+		private final AtomicLong cpu;
+		/**
+		 * The <code>AtomicLong</code> total allocated
+		 * bytes. <code>-1</code> if not supported.
+		 */
+		private final AtomicLong allocated;
+		/**
+		 * The <code>LatencyHistogram</code>.
+		 */
+		private final LatencyHistogram latencies;
+
+		/**
+		 * Constructor of <code>ResourceProfile</code>.
+		 */
+		private ResourceProfile() {
+			this.requests = new AtomicLong();
+			this.cpu = new AtomicLong();
+			this.allocated = new AtomicLong();
+			this.latencies = new LatencyHistogram();
+		}
+
+		/**
+		 * Record a processed request.
+		 * @param nanos The <code>long</code> latency in
+		 * nanoseconds.
+		 * @param cpu The <code>long</code> CPU time in
+		 * nanoseconds. <code>-1</code> if not supported.
+		 * @param allocated The <code>long</code> allocated
+		 * bytes. <code>-1</code> if not supported.
+		 */
+		private void record(final long nanos, final long cpu, final long allocated) {
+			this.requests.incrementAndGet();
+			this.latencies.record(nanos);
+			if (cpu < 0) this.cpu.set(-1);
+			else if (this.cpu.get() >= 0) this.cpu.addAndGet(cpu);
+			if (allocated < 0) this.allocated.set(-1);
+			else if (this.allocated.get() >= 0) this.allocated.addAndGet(allocated);
+		}
+
+		/**
+		 * Convert the measurements to their array form.
+		 * See <code>Session.getResources</code>.
+		 * @return The <code>long</code> array.
+		 */
+		private long[] toArray() {
+			final long[] latencies = this.latencies.snapshot();
+			final long[] array = new long[3+latencies.length];
+			array[0] = this.requests.get();
+			array[1] = this.cpu.get();
+			array[2] = this.allocated.get();
+			System.arraycopy(latencies, 0, array, 3, latencies.length);
+			return array;
+		}
+	}
+}
@@ -0,0 +1,360 @@
+package hemera.core.shell.runtime;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <code>RotatingLogFile</code> defines the log file
+ * that is rotated once it reaches the maximum size, or
+ * once it has been written to for the rotation interval.
+ * A file is only rotated at the end of a line, so lines
+ * are never split across files.
+ * <p>
+ * A rotated file is renamed with the time of rotation
+ * appended to its name, such as
+ * <code>jsvc.out.20140101-120000-000</code>, so the
+ * names sort in rotation order. Rotated files are optionally
+ * compressed on a separate thread, and the oldest ones
+ * are deleted beyond the maximum number of files.
+ * <p>
+ * Every log file has a sparse index file next to it,
+ * which records the file offset that was written at
+ * a given time, at most once per index interval. The
+ * index is rotated with its log file and is never
+ * compressed, so reading the logs written since a
+ * given time can seek directly to the offset. Each
+ * entry is the time in milliseconds followed by the
+ * offset, both as big-endian <code>long</code> values.
+ * <p>
+ * <code>RotatingLogFile</code> is not thread-safe. It
+ * is written by a single thread.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class RotatingLogFile {
+	/**
+	 * The <code>String</code> format of the rotation
+	 * time appended to rotated files.
+	 */
+	public static final String TimestampFormat = "yyyyMMdd-HHmmss-SSS";
+	/**
+	 * The <code>String</code> file extension of the
+	 * compressed rotated files.
+	 */
+	public static final String CompressedExtension = ".gz";
+	/**
+	 * The <code>String</code> file extension of a file
+	 * being compressed.
+	 */
+	private static final String TemporaryExtension = ".tmp";
+	/**
+	 * The <code>String</code> file extension of the
+	 * index file, appended to the name of the log file
+	 * without its compressed extension.
+	 */
+	public static final String IndexExtension = ".idx";
+	/**
+	 * The <code>long</code> minimum time in milliseconds
+	 * between index entries.
+	 */
+	private static final long IndexInterval = 1000;
+	/**
+	 * The <code>int</code> size of the write buffer.
+	 */
+	private static final int WriteBufferSize = 65536;
+	/**
+	 * The log <code>File</code>.
+	 */
+	private final File file;
+	/**
+	 * The <code>long</code> maximum file size in bytes.
+	 */
+	private final long maxSize;
+	/**
+	 * The <code>long</code> rotation interval in
+	 * milliseconds. <code>0</code> to only rotate by
+	 * size.
+	 */
+	private final long interval;
+	/**
+	 * The <code>int</code> maximum number of rotated
+	 * files.
+	 */
+	private final int maxFiles;
+	/**
+	 * The <code>boolean</code> flag indicating if the
+	 * rotated files are compressed.
+	 */
+	private final boolean compress;
+	/**
+	 * The <code>OutputStream</code> of the log file.
+	 */
+	private OutputStream output;
+	/**
+	 * The <code>DataOutputStream</code> of the index
+	 * file.
+	 */
+	private DataOutputStream index;
+	/**
+	 * The <code>long</code> time of the last index
+	 * entry.
+	 */
+	private long indexTime;
+	/**
+	 * The <code>long</code> current file size.
+	 */
+	private long size;
+	/**
+	 * The <code>long</code> time the current file is
+	 * rotated at by time.
+	 */
+	private long rotateTime;
+
+	/**
+	 * Constructor of <code>RotatingLogFile</code>.
+	 * @param file The log <code>File</code>.
+	 * @param maxSize The <code>long</code> maximum file
+	 * size in bytes.
+	 * @param interval The <code>long</code> rotation
+	 * interval in milliseconds. <code>0</code> to only
+	 * rotate by size.
+	 * @param maxFiles The <code>int</code> maximum
+	 * number of rotated files.
+	 * @param compress <code>true</code> to compress the
+	 * rotated files.
+	 * @throws IOException If opening the file failed.
+	 */
+	public RotatingLogFile(final File file, final long maxSize, final long interval, final int maxFiles, final boolean compress) throws IOException {
+		this.file = file;
+		this.maxSize = maxSize;
+		this.interval = interval;
+		this.maxFiles = maxFiles;
+		this.compress = compress;
+		this.open();
+	}
+
+	/**
+	 * Open the log file for appending.
+	 * @throws IOException If opening failed.
+	 */
+	private void open() throws IOException {
+		this.file.getParentFile().mkdirs();
+		this.output = new BufferedOutputStream(new FileOutputStream(this.file, true), RotatingLogFile.WriteBufferSize);
+		this.size = this.file.length();
+		// An index without its log content is stale.
+		final File indexFile = RotatingLogFile.getIndexFile(this.file);
+		this.index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, this.size > 0)));
+		this.indexTime = System.currentTimeMillis();
+		this.index.writeLong(this.indexTime);
+		this.index.writeLong(this.size);
+		this.rotateTime = (this.interval > 0) ? System.currentTimeMillis()+this.interval : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Retrieve the index file of the given log file.
+	 * @param file The current or rotated log
+	 * <code>File</code>.
+	 * @return The index <code>File</code>.
+	 */
+	public static File getIndexFile(final File file) {
+		String path = file.getPath();
+		if (path.endsWith(RotatingLogFile.CompressedExtension)) {
+			path = path.substring(0, path.length()-RotatingLogFile.CompressedExtension.length());
+		}
+		return new File(path + RotatingLogFile.IndexExtension);
+	}
+
+	/**
+	 * Write the given bytes, rotating the file at the
+	 * first line end once rotation is due.
+	 * @param bytes The <code>byte</code> array.
+	 * @param offset The <code>int</code> offset.
+	 * @param length The <code>int</code> length.
+	 * @throws IOException If writing failed.
+	 */
+	public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+		final long now = System.currentTimeMillis();
+		if (now-this.indexTime >= RotatingLogFile.IndexInterval) {
+			this.index.writeLong(now);
+			this.index.writeLong(this.size);
+			this.indexTime = now;
+		}
+		int start = offset;
+		final int end = offset + length;
+		while (start < end) {
+			if (this.size < this.maxSize && System.currentTimeMillis() < this.rotateTime) {
+				final int count = (int)Math.min(end-start, this.maxSize-this.size);
+				this.output.write(bytes, start, count);
+				this.size += count;
+				start += count;
+				continue;
+			}
+			// Rotation is due, write up to the line end.
+			int line = start;
+			while (line < end && bytes[line] != '\n') line++;
+			if (line == end) {
+				this.output.write(bytes, start, end-start);
+				this.size += end-start;
+				return;
+			}
+			this.output.write(bytes, start, line+1-start);
+			this.rotate();
+			start = line+1;
+		}
+	}
+
+	/**
+	 * Flush the written bytes to the file.
+	 * @throws IOException If flushing failed.
+	 */
+	public void flush() throws IOException {
+		this.output.flush();
+		this.index.flush();
+	}
+
+	/**
+	 * Close the file.
+	 * @throws IOException If closing failed.
+	 */
+	public void close() throws IOException {
+		try {
+			this.output.close();
+		} finally {
+			this.index.close();
+		}
+	}
+
+	/**
+	 * Rotate the current file and open a new one.
+	 * @throws IOException If rotating failed.
+	 */
+	private void rotate() throws IOException {
+		this.close();
+		long time = System.currentTimeMillis();
+		File rotated = this.getRotatedFile(time);
+		while (rotated.exists() || new File(rotated.getPath() + RotatingLogFile.CompressedExtension).exists()) {
+			time++;
+			rotated = this.getRotatedFile(time);
+		}
+		if (!this.file.renameTo(rotated)) {
+			// Keep writing to the same file rather than losing output.
+			this.open();
+			return;
+		}
+		RotatingLogFile.getIndexFile(this.file).renameTo(RotatingLogFile.getIndexFile(rotated));
+		this.open();
+		if (this.compress) {
+			final File source = rotated;
+			final Thread compressor = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					RotatingLogFile.this.compress(source);
+					RotatingLogFile.this.prune();
+				}
+			}, "hemera-log-compressor");
+			compressor.setDaemon(true);
+			compressor.start();
+		} else {
+			this.prune();
+		}
+	}
+
+	/**
+	 * Retrieve the rotated file for the given rotation
+	 * time.
+	 * @param time The <code>long</code> rotation time.
+	 * @return The rotated <code>File</code>.
+	 */
+	private File getRotatedFile(final long time) {
+		return new File(this.file.getPath() + "." + new SimpleDateFormat(RotatingLogFile.TimestampFormat).format(new Date(time)));
+	}
+
+	/**
+	 * Compress the given rotated file, replacing it with
+	 * the compressed file. The file is kept uncompressed
+	 * if compression fails.
+	 * @param source The rotated <code>File</code>.
+	 */
+	private void compress(final File source) {
+		final File temporary = new File(source.getPath() + RotatingLogFile.CompressedExtension + RotatingLogFile.TemporaryExtension);
+		try {
+			final InputStream input = new FileInputStream(source);
+			try {
+				final OutputStream output = new GZIPOutputStream(new FileOutputStream(temporary), RotatingLogFile.WriteBufferSize);
+				try {
+					final byte[] buffer = new byte[RotatingLogFile.WriteBufferSize];
+					int read;
+					while ((read = input.read(buffer)) >= 0) {
+						output.write(buffer, 0, read);
+					}
+				} finally {
+					output.close();
+				}
+			} finally {
+				input.close();
+			}
+			final File compressed = new File(source.getPath() + RotatingLogFile.CompressedExtension);
+			if (temporary.renameTo(compressed)) {
+				compressed.setLastModified(source.lastModified());
+				source.delete();
+			}
+		} catch (final IOException e) {
+			// Keep the uncompressed file.
+		} finally {
+			temporary.delete();
+		}
+	}
+
+	/**
+	 * Delete the oldest rotated files beyond the maximum
+	 * number of files.
+	 */
+	private synchronized void prune() {
+		final List<File> rotated = RotatingLogFile.getRotatedFiles(this.file);
+		final int excess = rotated.size() - this.maxFiles;
+		for (int i = 0; i < excess; i++) {
+			rotated.get(i).delete();
+			RotatingLogFile.getIndexFile(rotated.get(i)).delete();
+		}
+	}
+
+	/**
+	 * Retrieve the rotated files of the given log file,
+	 * excluding the index files and the files being
+	 * compressed.
+	 * @param file The log <code>File</code>.
+	 * @return The <code>List</code> of rotated
+	 * <code>File</code>, from the oldest to the newest.
+	 */
+	public static List<File> getRotatedFiles(final File file) {
+		final List<File> rotated = new ArrayList<File>();
+		final File[] files = file.getAbsoluteFile().getParentFile().listFiles();
+		if (files == null) return rotated;
+		Arrays.sort(files);
+		final String prefix = file.getName() + ".";
+		for (final File candidate : files) {
+			final String name = candidate.getName();
+			if (!name.startsWith(prefix) || name.endsWith(RotatingLogFile.TemporaryExtension) || name.endsWith(RotatingLogFile.IndexExtension)) continue;
+			// Both forms exist while compressing, only count one.
+			if (name.endsWith(RotatingLogFile.CompressedExtension)) {
+				final String uncompressed = name.substring(0, name.length()-RotatingLogFile.CompressedExtension.length());
+				if (new File(candidate.getParentFile(), uncompressed).exists()) continue;
+			}
+			rotated.add(candidate);
+		}
+		return rotated;
+	}
+}
@@ -0,0 +1,499 @@
+package hemera.core.shell.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+
+import hemera.core.environment.enumn.EEnvironment;
+import hemera.core.environment.ham.HAM;
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.structure.hab.HAB;
+import hemera.core.structure.hab.ResourceNode;
+import hemera.core.structure.interfaces.IResource;
+import hemera.core.utility.FileUtils;
+import hemera.core.utility.logging.FileLogger;
+
+/**
+ * <code>RuntimeControl</code> defines the management
+ * bean implementation that deploys applications into
+ * a running runtime. Every application is loaded by
+ * its own <code>ApplicationClassLoader</code> over its
+ * library Jar files, and every resource by a child
+ * loader over its resource Jar file, so an application
+ * can be replaced or removed without affecting the
+ * other applications hosted by the same runtime.
+ * <p>
+ * <code>RuntimeControl</code> is thread-safe. All the
+ * operations are serialized.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class RuntimeControl implements RuntimeControlMBean {
+	/**
+	 * The <code>DrainingRuntime</code> to deploy to.
+	 */
+	private final DrainingRuntime runtime;
+	/**
+	 * The <code>Map</code> of application name to its
+	 * <code>Deployment</code>, in deployment order.
+	 */
+	private final Map<String, Deployment> deployments;
+	/**
+	 * The <code>long</code> array of startup phase
+	 * times. See <code>getStartupTimes</code>.
+	 */
+	private final long[] startupTimes;
+	/**
+	 * The <code>OutputCapture</code> of the runtime.
+	 * <code>null</code> if the output is not captured.
+	 */
+	private volatile OutputCapture capture;
+
+	/**
+	 * Constructor of <code>RuntimeControl</code>.
+	 * @param runtime The <code>DrainingRuntime</code>
+	 * to deploy to.
+	 */
+	public RuntimeControl(final DrainingRuntime runtime) {
+		this.runtime = runtime;
+		this.deployments = new LinkedHashMap<String, Deployment>();
+		this.startupTimes = new long[4];
+		this.startupTimes[0] = ManagementFactory.getRuntimeMXBean().getStartTime();
+	}
+
+	/**
+	 * Record the times of the startup phases of the
+	 * runtime, in milliseconds since the epoch.
+	 * @param launched The <code>long</code> time the
+	 * launcher was started.
+	 * @param bound The <code>long</code> time the
+	 * runtime socket was bound.
+	 * @param loaded The <code>long</code> time all the
+	 * applications were deployed.
+	 */
+	public synchronized void setStartupTimes(final long launched, final long bound, final long loaded) {
+		this.startupTimes[1] = launched;
+		this.startupTimes[2] = bound;
+		this.startupTimes[3] = loaded;
+	}
+
+	/**
+	 * Set the capture of the output of the runtime.
+	 * @param capture The <code>OutputCapture</code>.
+	 * <code>null</code> if the output is not captured.
+	 */
+	public void setOutputCapture(final OutputCapture capture) {
+		this.capture = capture;
+	}
+
+	/**
+	 * Deploy all the applications in the given
+	 * applications directory.
+	 * @param appsDir The <code>String</code> path of
+	 * the applications directory.
+	 * @throws Exception If deploying any application
+	 * failed.
+	 */
+	public synchronized void deployAll(final String appsDir) throws Exception {
+		final List<File> hamFiles = FileUtils.instance.getFiles(appsDir, EEnvironment.HAMExtension.value);
+		if (hamFiles == null) return;
+		final int size = hamFiles.size();
+		for (int i = 0; i < size; i++) {
+			final Document document = FileUtils.instance.readAsDocument(hamFiles.get(i));
+			this.deploy(new HAM(document));
+		}
+	}
+
+	@Override
+	public synchronized int deploy(final String hamPath) {
+		try {
+			final Document document = FileUtils.instance.readAsDocument(new File(hamPath));
+			return this.deploy(new HAM(document));
+		} catch (final Exception e) {
+			FileLogger.getLogger(this.getClass()).exception(e);
+			throw new IllegalStateException("Deploying application " + hamPath + " failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Deploy the application defined by the given HAM,
+	 * replacing the existing deployment if there is one.
+	 * The classes of the new deployment are loaded before
+	 * the existing deployment is touched. The existing
+	 * resources are then unregistered and the new ones
+	 * registered in their place. If any new resource
+	 * fails to deploy, the new resources are removed and
+	 * the existing deployment is registered again.
+	 * @param ham The <code>HAM</code> document.
+	 * @return The <code>int</code> number of resources
+	 * deployed.
+	 * @throws Exception If deploying failed.
+	 */
+	private int deploy(final HAM ham) throws Exception {
+		final Deployment deployment = this.load(ham);
+		final Deployment existing = this.deployments.remove(ham.applicationName);
+		if (existing != null) this.unregister(existing);
+		try {
+			this.register(ham.applicationName, deployment);
+		} catch (final Exception e) {
+			this.close(deployment);
+			if (existing != null) {
+				try {
+					this.register(ham.applicationName, existing);
+					this.deployments.put(ham.applicationName, existing);
+					FileLogger.getLogger(this.getClass()).warning("Restored previous deployment of " + ham.applicationName + ".");
+				} catch (final Exception ex) {
+					FileLogger.getLogger(this.getClass()).exception(ex);
+					this.close(existing);
+				}
+			}
+			throw e;
+		}
+		if (existing != null) this.close(existing);
+		this.deployments.put(ham.applicationName, deployment);
+		return deployment.paths.size();
+	}
+
+	/**
+	 * Create the class loaders of the application
+	 * defined by the given HAM and load all of its
+	 * resource classes, without deploying them.
+	 * @param ham The <code>HAM</code> document.
+	 * @return The loaded <code>Deployment</code>.
+	 * @throws Exception If loading failed.
+	 */
+	@SuppressWarnings("unchecked")
+	private Deployment load(final HAM ham) throws Exception {
+		final HAB hab = new HAB(ham);
+		final Deployment deployment = new Deployment(hab.applicationPath, this.newApplicationLoader(ham));
+		try {
+			for (final ResourceNode resource : hab.resources) {
+				// Load resource in isolation.
+				final URL jarurl = new File(resource.jarLocation).toURI().toURL();
+				final ApplicationClassLoader loader = new ApplicationClassLoader(new URL[] {jarurl}, deployment.loaders.get(0));
+				deployment.loaders.add(loader);
+				deployment.resources.add(resource);
+				deployment.resourceClasses.add((Class<? extends IResource>)loader.loadClass(resource.classname));
+			}
+		} catch (final Exception e) {
+			this.close(deployment);
+			throw e;
+		}
+		return deployment;
+	}
+
+	/**
+	 * Add all the resources of the given loaded
+	 * deployment to the runtime. If any resource fails
+	 * to deploy, the resources already added are removed.
+	 * @param applicationName The <code>String</code>
+	 * application name.
+	 * @param deployment The <code>Deployment</code>.
+	 * @throws Exception If deploying any resource failed.
+	 */
+	private void register(final String applicationName, final Deployment deployment) throws Exception {
+		try {
+			final int size = deployment.resources.size();
+			for (int i = 0; i < size; i++) {
+				final ResourceNode resource = deployment.resources.get(i);
+				final Class<? extends IResource> resourceClass = deployment.resourceClasses.get(i);
+				final InputStream configStream = (resource.configLocation==null) ? null : new File(resource.configLocation).toURI().toURL().openStream();
+				final String path;
+				try {
+					path = this.runtime.deploy(deployment.applicationPath, resourceClass, configStream, this.getResources(resource));
+				} finally {
+					if (configStream != null) configStream.close();
+				}
+				if (path == null) {
+					throw new IllegalStateException("Resource " + resource.classname + " conflicts with an existing resource.");
+				}
+				deployment.paths.add(path);
+				this.runtime.getMetrics().track(resourceClass, applicationName);
+			}
+		} catch (final Exception e) {
+			this.unregister(deployment);
+			throw e;
+		}
+	}
+
+	/**
+	 * Create the class loader of all the library Jar
+	 * files of the given application.
+	 * @param ham The <code>HAM</code> document.
+	 * @return The <code>ApplicationClassLoader</code>.
+	 * @throws IOException If reading directory failed.
+	 */
+	private ApplicationClassLoader newApplicationLoader(final HAM ham) throws IOException {
+		final String appDir = UEnvironment.instance.getApplicationDir(ham.applicationName);
+		final List<File> libs = FileUtils.instance.getFiles(UEnvironment.instance.getApplicationLibDir(appDir), ".jar");
+		final int size = (libs==null) ? 0 : libs.size();
+		final URL[] urls = new URL[size];
+		for (int i = 0; i < size; i++) {
+			urls[i] = libs.get(i).toURI().toURL();
+		}
+		return new ApplicationClassLoader(urls, this.getClass().getClassLoader());
+	}
+
+	/**
+	 * Retrieve all the resource files of the given
+	 * resource.
+	 * @param resource The <code>ResourceNode</code>.
+	 * @return The <code>List</code> of resource
+	 * <code>File</code>. <code>null</code> if the
+	 * resource does not have any.
+	 */
+	private List<File> getResources(final ResourceNode resource) {
+		if (resource.resourcesDir == null && resource.sharedResourcesDir == null) return null;
+		final List<File> resources = new ArrayList<File>();
+		if (resource.resourcesDir != null) {
+			final List<File> files = FileUtils.instance.getFiles(resource.resourcesDir);
+			if (files != null) resources.addAll(files);
+		}
+		if (resource.sharedResourcesDir != null) {
+			final List<File> files = FileUtils.instance.getFiles(resource.sharedResourcesDir);
+			if (files != null) resources.addAll(files);
+		}
+		return resources;
+	}
+
+	@Override
+	public synchronized boolean undeploy(final String applicationName) {
+		try {
+			return this.remove(applicationName);
+		} catch (final Exception e) {
+			FileLogger.getLogger(this.getClass()).exception(e);
+			throw new IllegalStateException("Removing application " + applicationName + " failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Remove the deployment of the application with
+	 * given name.
+	 * @param applicationName The <code>String</code>
+	 * application name.
+	 * @return <code>true</code> if the application was
+	 * deployed.
+	 * @throws IOException If closing class loaders
+	 * failed.
+	 */
+	private boolean remove(final String applicationName) throws IOException {
+		final Deployment deployment = this.deployments.remove(applicationName);
+		if (deployment == null) return false;
+		this.dispose(deployment);
+		return true;
+	}
+
+	/**
+	 * Remove all the resources of the given deployment
+	 * from the runtime and close its class loaders.
+	 * @param deployment The <code>Deployment</code>.
+	 * @throws IOException If closing class loaders
+	 * failed.
+	 */
+	private void dispose(final Deployment deployment) throws IOException {
+		this.unregister(deployment);
+		this.close(deployment);
+	}
+
+	/**
+	 * Remove all the resources of the given deployment
+	 * from the runtime, keeping its class loaders open so
+	 * it can be registered again. Resources that fail to
+	 * dispose are logged.
+	 * @param deployment The <code>Deployment</code>.
+	 */
+	private void unregister(final Deployment deployment) {
+		final int size = deployment.paths.size();
+		for (int i = 0; i < size; i++) {
+			try {
+				this.runtime.remove(deployment.paths.get(i));
+			} catch (final Exception e) {
+				FileLogger.getLogger(this.getClass()).exception(e);
+			}
+		}
+		deployment.paths.clear();
+		final int classes = deployment.resourceClasses.size();
+		for (int i = 0; i < classes; i++) {
+			this.runtime.getMetrics().untrack(deployment.resourceClasses.get(i));
+		}
+	}
+
+	/**
+	 * Close all the class loaders of the given
+	 * deployment.
+	 * @param deployment The <code>Deployment</code>.
+	 * @throws IOException If closing class loaders
+	 * failed.
+	 */
+	private void close(final Deployment deployment) throws IOException {
+		final int loaders = deployment.loaders.size();
+		for (int i = loaders-1; i >= 0; i--) {
+			deployment.loaders.get(i).close();
+		}
+	}
+
+	@Override
+	public synchronized String[] getApplications() {
+		return this.deployments.keySet().toArray(new String[this.deployments.size()]);
+	}
+
+	@Override
+	public synchronized String[] getResourcePaths() {
+		final List<String> paths = new ArrayList<String>();
+		for (final Deployment deployment : this.deployments.values()) {
+			paths.addAll(deployment.paths);
+		}
+		return paths.toArray(new String[paths.size()]);
+	}
+
+	@Override
+	public synchronized long[] getStartupTimes() {
+		return this.startupTimes.clone();
+	}
+
+	@Override
+	public long[] getLatencyHistogram() {
+		return this.runtime.getMetrics().getLatencyHistogram();
+	}
+
+	@Override
+	public Map<String, Long> getApplicationRequests() {
+		return this.runtime.getMetrics().getApplicationRequests();
+	}
+
+	@Override
+	public Map<String, Number> getExecutionStats() {
+		return this.runtime.getExecutionStats();
+	}
+
+	@Override
+	public long[] getOutputStats() {
+		final OutputCapture capture = this.capture;
+		return (capture==null) ? null : capture.getStats();
+	}
+
+	@Override
+	public synchronized void startProfiling(final String applicationName, final long duration, final long interval) {
+		final Deployment deployment = this.deployments.get(applicationName);
+		if (deployment == null) throw new IllegalStateException("No such application deployed: " + applicationName);
+		this.runtime.getProfiler().start(applicationName, new ArrayList<Class<?>>(deployment.resourceClasses), duration, interval);
+	}
+
+	@Override
+	public Map<String, long[]> stopProfiling() {
+		try {
+			return this.runtime.getProfiler().stop().getResources();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Stopping profiler was interrupted.");
+		}
+	}
+
+	@Override
+	public Map<String, Long> getProfileStacks() {
+		try {
+			return this.runtime.getProfiler().stop().getStacks();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Stopping profiler was interrupted.");
+		}
+	}
+
+	@Override
+	public int getLoopbackPort() {
+		return this.runtime.getLoopbackPort();
+	}
+
+	@Override
+	public int getConnectionCount() {
+		return this.runtime.getConnectionCount();
+	}
+
+	@Override
+	public boolean isAdmitted() {
+		return this.runtime.isAdmitted();
+	}
+
+	@Override
+	public boolean admit() {
+		try {
+			return this.runtime.admit();
+		} catch (final IllegalStateException e) {
+			throw e;
+		} catch (final Exception e) {
+			FileLogger.getLogger(this.getClass()).exception(e);
+			throw new IllegalStateException("Admitting runtime failed: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public long[] drain(final long timeout) {
+		try {
+			return this.runtime.drain(timeout);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Draining runtime was interrupted.");
+		} catch (final Exception e) {
+			FileLogger.getLogger(this.getClass()).exception(e);
+			throw new IllegalStateException("Draining runtime failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * <code>Deployment</code> defines the record of the
+	 * resources and class loaders of one deployed
+	 * application.
+	 */
+	private static class Deployment {
+		/**
+		 * The <code>String</code> application path.
+		 */
+		private final String applicationPath;
+		/**
+		 * The <code>List</code> of the
+		 * <code>ResourceNode</code> of all the resources.
+		 */
+		private final List<ResourceNode> resources;
+		/**
+		 * The <code>List</code> of the classes of all
+		 * the resources, in the same order.
+		 */
+		private final List<Class<? extends IResource>> resourceClasses;
+		/**
+		 * The <code>List</code> of the REST paths of all
+		 * the resources registered in the runtime.
+		 */
+		private final List<String> paths;
+		/**
+		 * The <code>List</code> of all the
+		 * <code>ApplicationClassLoader</code>, starting
+		 * with the application library loader.
+		 */
+		private final List<ApplicationClassLoader> loaders;
+
+		/**
+		 * Constructor of <code>Deployment</code>.
+		 * @param applicationPath The <code>String</code>
+		 * application path.
+		 * @param loader The application library
+		 * <code>ApplicationClassLoader</code>.
+		 */
+		private Deployment(final String applicationPath, final ApplicationClassLoader loader) {
+			this.applicationPath = applicationPath;
+			this.resources = new ArrayList<ResourceNode>();
+			this.resourceClasses = new ArrayList<Class<? extends IResource>>();
+			this.paths = new ArrayList<String>();
+			this.loaders = new ArrayList<ApplicationClassLoader>();
+			this.loaders.add(loader);
+		}
+	}
+}
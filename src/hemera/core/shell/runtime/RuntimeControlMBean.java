@@ -0,0 +1,193 @@
+package hemera.core.shell.runtime;
+
+import java.util.Map;
+
+/**
+ * <code>RuntimeControlMBean</code> defines the interface
+ * of the management bean that the shell uses to deploy
+ * and remove applications in a running runtime without
+ * restarting the JVM. It only uses platform types so
+ * the shell can invoke it through a proxy without any
+ * of the runtime libraries.
+ * <p>
+ * All failures are reported as
+ * <code>IllegalStateException</code> carrying only a
+ * message, since the causes are application classes
+ * the shell cannot load.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public interface RuntimeControlMBean {
+
+	/**
+	 * Deploy the application defined by the HAM file at
+	 * the given path. If the application is already
+	 * deployed, its resources are removed first and its
+	 * class loaders are discarded.
+	 * @param hamPath The <code>String</code> path to the
+	 * deployed HAM file.
+	 * @return The <code>int</code> number of resources
+	 * deployed.
+	 */
+	public int deploy(final String hamPath);
+
+	/**
+	 * Remove all the resources of the application with
+	 * given name and discard its class loaders.
+	 * @param applicationName The <code>String</code>
+	 * application name.
+	 * @return <code>true</code> if the application was
+	 * deployed. <code>false</code> otherwise.
+	 */
+	public boolean undeploy(final String applicationName);
+
+	/**
+	 * Retrieve the names of all the applications that
+	 * are currently deployed.
+	 * @return The <code>String</code> array of names.
+	 */
+	public String[] getApplications();
+
+	/**
+	 * Retrieve the REST paths of all the resources that
+	 * are currently deployed.
+	 * @return The <code>String</code> array of paths.
+	 */
+	public String[] getResourcePaths();
+
+	/**
+	 * Retrieve the times of the startup phases of the
+	 * runtime, in milliseconds since the epoch. The
+	 * phases are the JVM start, the launcher start, the
+	 * runtime socket bind and the deployment of all the
+	 * applications, in that order.
+	 * @return The <code>long</code> array of times.
+	 */
+	public long[] getStartupTimes();
+
+	/**
+	 * Retrieve the cumulative latency histogram of all
+	 * the processed requests. The buckets are defined by
+	 * <code>LatencyHistogram</code>.
+	 * @return The <code>long</code> array of counts.
+	 */
+	public long[] getLatencyHistogram();
+
+	/**
+	 * Retrieve the cumulative number of requests
+	 * processed by every application.
+	 * @return The <code>Map</code> of application name
+	 * to its <code>Long</code> request count.
+	 */
+	public Map<String, Long> getApplicationRequests();
+
+	/**
+	 * Retrieve the current statistics of the execution
+	 * service. The <code>executors</code> key holds the
+	 * number of executors. A scalable service adds the
+	 * number of <code>idle-executors</code>, an assisted
+	 * service the <code>average-queue-length</code> of
+	 * its executor buffers.
+	 * @return The <code>Map</code> of statistic name to
+	 * its <code>Number</code> value.
+	 */
+	public Map<String, Number> getExecutionStats();
+
+	/**
+	 * Retrieve the cumulative statistics of the captured
+	 * standard output and error.
+	 * @return The <code>long</code> array of the number
+	 * of bytes written to the log files, the number of
+	 * bytes dropped because the writer fell behind and
+	 * the number of writes dropped, in that order.
+	 * <code>null</code> if the output is not captured.
+	 */
+	public long[] getOutputStats();
+
+	/**
+	 * Start profiling the requests of the application
+	 * with given name. Profiling stops by itself at the
+	 * end of the duration. Only one application can be
+	 * profiled at a time.
+	 * @param applicationName The <code>String</code>
+	 * application name.
+	 * @param duration The <code>long</code> duration in
+	 * milliseconds.
+	 * @param interval The <code>long</code> stack
+	 * sampling interval in milliseconds.
+	 */
+	public void startProfiling(final String applicationName, final long duration, final long interval);
+
+	/**
+	 * Stop profiling and retrieve the measurements of
+	 * every resource of the profiled application that
+	 * processed requests. The values are the number of
+	 * requests, their total CPU time in nanoseconds and
+	 * the total number of bytes they allocated, followed
+	 * by the counts of their latency histogram. The CPU
+	 * time and the allocated bytes are <code>-1</code>
+	 * if the JVM does not support measuring them.
+	 * @return The <code>Map</code> of resource class
+	 * name to its <code>long</code> array of values.
+	 */
+	public Map<String, long[]> stopProfiling();
+
+	/**
+	 * Retrieve the stacks sampled by the last profile,
+	 * in the collapsed format of flame graph tools. The
+	 * root frames are the application name and the
+	 * resource class name.
+	 * @return The <code>Map</code> of collapsed stack
+	 * to its <code>Long</code> number of samples.
+	 */
+	public Map<String, Long> getProfileStacks();
+
+	/**
+	 * Retrieve the port the runtime listens on for
+	 * connections from the loopback interface only. The
+	 * shell uses it to reach this instance alone, while
+	 * the configured port is shared by all instances.
+	 * @return The <code>int</code> port.
+	 */
+	public int getLoopbackPort();
+
+	/**
+	 * Retrieve the number of open connections on both
+	 * the configured port and the loopback port.
+	 * @return The <code>int</code> number of connections.
+	 */
+	public int getConnectionCount();
+
+	/**
+	 * Check if the runtime is admitted into rotation,
+	 * which means it listens on the configured port.
+	 * @return <code>true</code> if admitted.
+	 */
+	public boolean isAdmitted();
+
+	/**
+	 * Admit the runtime into rotation by binding the
+	 * configured port, so it receives its share of the
+	 * connections. Admitting an already admitted runtime
+	 * has no effect.
+	 * @return <code>true</code> if the runtime was
+	 * admitted by this call.
+	 */
+	public boolean admit();
+
+	/**
+	 * Stop accepting connections and wait for the
+	 * requests in process to complete, up to the given
+	 * timeout. The runtime cannot serve requests anymore
+	 * afterwards, and it is expected to be stopped.
+	 * @param timeout The <code>long</code> maximum time
+	 * to wait in milliseconds.
+	 * @return The <code>long</code> array of the number
+	 * of requests completed during draining, the number
+	 * of requests still in process when the timeout was
+	 * reached, and the number of requests rejected during
+	 * draining, in that order.
+	 */
+	public long[] drain(final long timeout);
+}
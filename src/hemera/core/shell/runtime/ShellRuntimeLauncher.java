@@ -0,0 +1,125 @@
+package hemera.core.shell.runtime;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import hemera.core.apache.ApacheRuntimeLauncher;
+import hemera.core.environment.config.Configuration;
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.execution.interfaces.IExecutionService;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.structure.interfaces.runtime.IRuntime;
+
+/**
+ * <code>ShellRuntimeLauncher</code> defines the runtime
+ * launching unit that the shell installs by default. It
+ * launches the Apache based runtime, deploys all the
+ * installed applications through a
+ * <code>RuntimeControl</code>, and registers it with
+ * the platform management bean server, so the shell
+ * can deploy and remove applications afterwards
+ * without restarting the JVM.
+ * <p>
+ * The launched runtime is drained before it is shut
+ * down, so the requests in process can complete. When
+ * configured by the start script, the standard output
+ * and error are captured into rotating log files.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ShellRuntimeLauncher extends ApacheRuntimeLauncher {
+	/**
+	 * The registered <code>ObjectName</code>.
+	 * <code>null</code> if not started.
+	 */
+	private ObjectName controlName;
+	/**
+	 * The <code>OutputCapture</code>. <code>null</code>
+	 * if the output is not captured.
+	 */
+	private OutputCapture capture;
+
+	/**
+	 * Constructor of <code>ShellRuntimeLauncher</code>.
+	 */
+	public ShellRuntimeLauncher() {
+		super();
+		this.setScanApps(false);
+	}
+
+	@Override
+	protected IRuntime newRuntime(final IExecutionService service, final Configuration config) {
+		return new DrainingRuntime(service, config);
+	}
+
+	@Override
+	public void start() throws Exception {
+		final long launched = System.currentTimeMillis();
+		this.capture = OutputCapture.install();
+		try {
+			super.start();
+		} catch (final Exception e) {
+			this.discardCapture();
+			throw e;
+		}
+		final long bound = System.currentTimeMillis();
+		try {
+			final RuntimeControl control = new RuntimeControl((DrainingRuntime)this.getRuntime());
+			control.deployAll(UEnvironment.instance.getInstalledAppsDir());
+			control.setStartupTimes(launched, bound, System.currentTimeMillis());
+			control.setOutputCapture(this.capture);
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(EShell.RuntimeControlName.value);
+			server.registerMBean(control, name);
+			this.controlName = name;
+		} catch (final Exception e) {
+			this.getRuntime().shutdown();
+			this.discardCapture();
+			throw e;
+		}
+	}
+
+	@Override
+	public void stop() throws Exception {
+		if (this.controlName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.controlName);
+			this.controlName = null;
+		}
+		// The shell may have drained already, then only the remaining requests are waited for.
+		final long drainTimeout = Long.getLong(EShell.DrainTimeoutProperty.value, 0);
+		((DrainingRuntime)this.getRuntime()).drain(drainTimeout*1000L);
+		try {
+			super.stop();
+		} finally {
+			this.closeCapture();
+		}
+	}
+
+	/**
+	 * Close the output capture if there is one, which
+	 * restores the standard output and error.
+	 * @throws IOException If flushing the captured
+	 * output failed.
+	 */
+	private void closeCapture() throws IOException {
+		if (this.capture == null) return;
+		this.capture.close();
+		this.capture = null;
+	}
+
+	/**
+	 * Close the output capture after a failed start, so
+	 * the failure is reported on the standard error of
+	 * JSVC. Errors closing it are ignored in favor of
+	 * the start failure.
+	 */
+	private void discardCapture() {
+		try {
+			this.closeCapture();
+		} catch (final IOException ignore) {}
+	}
+}
@@ -0,0 +1,337 @@
+package hemera.core.shell.runtime;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpServerConnection;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.DefaultHttpResponseFactory;
+import org.apache.http.impl.DefaultHttpServerConnection;
+import org.apache.http.params.CoreConnectionPNames;
+import org.apache.http.params.CoreProtocolPNames;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.SyncBasicHttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpRequestHandlerRegistry;
+import org.apache.http.protocol.HttpService;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.ResponseConnControl;
+import org.apache.http.protocol.ResponseContent;
+import org.apache.http.protocol.ResponseDate;
+import org.apache.http.protocol.ResponseServer;
+
+import hemera.core.environment.config.ConfigSocket;
+import hemera.core.execution.interfaces.IExecutionService;
+import hemera.core.execution.interfaces.task.ICyclicTask;
+import hemera.core.utility.logging.FileLogger;
+
+/**
+ * <code>SocketListener</code> defines the task unit
+ * that listens for incoming HTTP connections of the
+ * <code>DrainingRuntime</code>. Once a connection is
+ * established, a task that dispatches all the requests
+ * sent in that connection to the request router is
+ * submitted to the execution service.
+ * <p>
+ * Unlike the listener of the Apache runtime, the
+ * server socket can be bound with
+ * <code>SO_REUSEPORT</code>, so all the runtime
+ * instances on the host listen on the same port and
+ * the kernel balances new connections across them. An
+ * instance that closes its listener stops receiving new
+ * connections while the other instances keep serving.
+ * It can also be bound to any address, so a listener
+ * that is only reachable on the loopback interface can
+ * be opened next to it.
+ * <p>
+ * <code>SocketListener</code> terminates itself if an
+ * IO error occurs when accepting connections.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+class SocketListener implements ICyclicTask {
+	/**
+	 * The <code>String</code> server application name
+	 * used for the HTTP response header.
+	 */
+	private static final String AppName = "Hemera/1.1";
+	/**
+	 * The <code>FileLogger</code> instance.
+	 */
+	private final FileLogger logger;
+	/**
+	 * The <code>IExecutionService</code> used by the
+	 * runtime environment.
+	 */
+	private final IExecutionService service;
+	/**
+	 * The <code>ServerSocket</code> instance.
+	 */
+	private final ServerSocket serverSocket;
+	/**
+	 * The <code>HttpParams</code> instance.
+	 */
+	private final HttpParams httpParams;
+	/**
+	 * The <code>HttpService</code> instance.
+	 */
+	private final HttpService httpService;
+	/**
+	 * The <code>AtomicInteger</code> number of open
+	 * connections of the runtime.
+	 */
+	private final AtomicInteger connections;
+
+	/**
+	 * Constructor of <code>SocketListener</code>.
+	 * @param service The <code>IExecutionService</code>
+	 * used by the runtime environment.
+	 * @param socket The <code>ConfigSocket</code> of the
+	 * runtime.
+	 * @param address The <code>InetSocketAddress</code>
+	 * to bind to.
+	 * @param reusePort <code>true</code> if the port is
+	 * shared with other processes.
+	 * @param router The <code>RequestRouter</code> to
+	 * route the received requests with.
+	 * @param connections The <code>AtomicInteger</code>
+	 * number of open connections of the runtime.
+	 * @throws IOException If binding the server socket
+	 * failed.
+	 * @throws GeneralSecurityException If loading the
+	 * certificate failed.
+	 */
+	SocketListener(final IExecutionService service, final ConfigSocket socket, final InetSocketAddress address, final boolean reusePort,
+			final RequestRouter router, final AtomicInteger connections) throws IOException, GeneralSecurityException {
+		this.logger = FileLogger.getLogger(this.getClass());
+		this.service = service;
+		this.connections = connections;
+		this.serverSocket = this.newServerSocket(socket);
+		try {
+			if (reusePort) {
+				if (!this.serverSocket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+					throw new IOException("Sharing port " + address.getPort() + " requires SO_REUSEPORT, which is not supported.");
+				}
+				this.serverSocket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+			}
+			this.serverSocket.bind(address);
+		} catch (final IOException e) {
+			this.serverSocket.close();
+			throw e;
+		}
+		// Setup HTTP parameters.
+		this.httpParams = new SyncBasicHttpParams();
+		this.httpParams.setIntParameter(CoreConnectionPNames.SO_TIMEOUT, socket.timeout);
+		this.httpParams.setIntParameter(CoreConnectionPNames.SOCKET_BUFFER_SIZE, socket.bufferSize);
+		this.httpParams.setBooleanParameter(CoreConnectionPNames.STALE_CONNECTION_CHECK, false);
+		this.httpParams.setBooleanParameter(CoreConnectionPNames.TCP_NODELAY, true);
+		this.httpParams.setBooleanParameter(CoreConnectionPNames.SO_KEEPALIVE, true);
+		this.httpParams.setParameter(CoreProtocolPNames.ORIGIN_SERVER, SocketListener.AppName);
+		// Set up the HTTP protocol processor, using the basic chain.
+		final HttpProcessor httpprocessor = new ImmutableHttpProcessor(new HttpResponseInterceptor[] {
+				new ResponseDate(), new ResponseServer(), new ResponseContent(), new ResponseConnControl()
+		});
+		final HttpRequestHandlerRegistry handlerRegistry = new HttpRequestHandlerRegistry();
+		handlerRegistry.register("*", router);
+		this.httpService = new HttpService(httpprocessor, new DefaultConnectionReuseStrategy(),
+				new DefaultHttpResponseFactory(), handlerRegistry, this.httpParams);
+		this.logger.info(((socket.certPath==null) ? "Connection" : "SSL connection") + " listener opened on " +
+				this.serverSocket.getLocalSocketAddress() + (reusePort ? ", shared with other instances." : "."));
+	}
+
+	/**
+	 * Create the unbound server socket, using the SSL
+	 * certificate of the given socket configuration if
+	 * there is one.
+	 * @param socket The <code>ConfigSocket</code>.
+	 * @return The unbound <code>ServerSocket</code>.
+	 * @throws IOException If creating socket or reading
+	 * the certificate failed.
+	 * @throws GeneralSecurityException If loading the
+	 * certificate failed.
+	 */
+	private ServerSocket newServerSocket(final ConfigSocket socket) throws IOException, GeneralSecurityException {
+		if (socket.certPath == null) return new ServerSocket();
+		final SSLContext context = SSLContext.getInstance("SSL");
+		final KeyManagerFactory keyFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+		final char[] keyPassChars = socket.keyPass.toCharArray();
+		final InputStream input = new FileInputStream(socket.certPath);
+		try {
+			keyStore.load(input, keyPassChars);
+		} finally {
+			input.close();
+		}
+		keyFactory.init(keyStore, keyPassChars);
+		context.init(keyFactory.getKeyManagers(), null, new SecureRandom());
+		return context.getServerSocketFactory().createServerSocket();
+	}
+
+	/**
+	 * Retrieve the port the listener is bound to.
+	 * @return The <code>int</code> local port.
+	 */
+	int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	@Override
+	public boolean execute() throws Exception {
+		try {
+			// Accept new HTTP connection.
+			final Socket socket = this.serverSocket.accept();
+			final DefaultHttpServerConnection connection = new DefaultHttpServerConnection();
+			connection.bind(socket, this.httpParams);
+			// Submit handler for the new connection.
+			this.service.submit(new ConnectionHandler(this.httpService, connection, this.connections));
+			return true;
+		} catch (final SocketException e) {
+			// This could be due to task termination.
+			this.logger.info("Connection listener closed.");
+			return false;
+		} catch (final IOException e) {
+			this.logger.exception(e);
+			return false;
+		}
+	}
+
+	@Override
+	public void cleanup() throws Exception {
+		if (!this.serverSocket.isClosed()) {
+			this.serverSocket.close();
+		}
+	}
+
+	@Override
+	public void signalTerminate() throws Exception {
+		// Close the server socket to wake up execution block.
+		this.serverSocket.close();
+	}
+
+	@Override
+	public int getCycleCount() {
+		return 0;
+	}
+
+	@Override
+	public long getCycleLimit(final TimeUnit unit) {
+		return 0;
+	}
+
+	/**
+	 * <code>ConnectionHandler</code> defines the task
+	 * unit that dispatches all the requests received on
+	 * a single connection, and counts the connection as
+	 * open until it is closed.
+	 */
+	private static class ConnectionHandler implements ICyclicTask {
+		/**
+		 * The <code>HttpService</code> instance used by
+		 * the listener.
+		 */
+		private final HttpService httpService;
+		/**
+		 * The <code>HttpServerConnection</code> this
+		 * handler is responsible for.
+		 */
+		private final HttpServerConnection connection;
+		/**
+		 * The <code>HttpContext</code> shared by all the
+		 * requests received in the connection.
+		 */
+		private final HttpContext context;
+		/**
+		 * The <code>AtomicInteger</code> number of open
+		 * connections of the runtime.
+		 */
+		private final AtomicInteger connections;
+		/**
+		 * The <code>AtomicBoolean</code> flag indicating
+		 * if the connection is no longer counted.
+		 */
+		private final AtomicBoolean closed;
+
+		/**
+		 * Constructor of <code>ConnectionHandler</code>.
+		 * @param httpService The <code>HttpService</code>
+		 * instance used by the listener.
+		 * @param connection The accepted
+		 * <code>HttpServerConnection</code>.
+		 * @param connections The <code>AtomicInteger</code>
+		 * number of open connections of the runtime.
+		 */
+		private ConnectionHandler(final HttpService httpService, final HttpServerConnection connection, final AtomicInteger connections) {
+			this.httpService = httpService;
+			this.connection = connection;
+			this.context = new BasicHttpContext();
+			this.connections = connections;
+			this.closed = new AtomicBoolean();
+			this.connections.incrementAndGet();
+		}
+
+		@Override
+		public boolean execute() throws Exception {
+			try {
+				// Self-terminate if connection is closed.
+				if (!this.connection.isOpen()) return false;
+				this.httpService.handleRequest(this.connection, this.context);
+				return true;
+			} catch (final ConnectionClosedException e) {
+				// Terminate since connection closed.
+				return false;
+			} catch (final IOException e) {
+				// Terminate on IO error.
+				return false;
+			} catch (final HttpException e) {
+				// Terminate on unrecoverable HTTP protocol violation.
+				return false;
+			}
+		}
+
+		@Override
+		public void cleanup() throws Exception {
+			if (!this.closed.getAndSet(true)) this.connections.decrementAndGet();
+			try {
+				if (this.connection.isOpen()) {
+					this.connection.shutdown();
+				}
+			} catch (final IOException ignore) {}
+		}
+
+		@Override
+		public void signalTerminate() throws Exception {
+			this.connection.shutdown();
+		}
+
+		@Override
+		public int getCycleCount() {
+			return 0;
+		}
+
+		@Override
+		public long getCycleLimit(final TimeUnit unit) {
+			return 0;
+		}
+	}
+}
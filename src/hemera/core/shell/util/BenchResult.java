@@ -0,0 +1,208 @@
+package hemera.core.shell.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * <code>BenchResult</code> defines the immutable result
+ * of a benchmark run. It can be saved as a baseline
+ * file and compared against the result of a later run
+ * to detect regressions.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class BenchResult {
+	/**
+	 * The <code>double</code> array of percentiles that
+	 * are reported.
+	 */
+	public static final double[] Percentiles = {0.5, 0.9, 0.99, 0.999, 1};
+	/**
+	 * The <code>String</code> array of labels of the
+	 * reported percentiles.
+	 */
+	public static final String[] PercentileLabels = {"p50", "p90", "p99", "p99.9", "max"};
+
+	/**
+	 * The <code>long</code> array of latency histogram
+	 * counts of the completed requests.
+	 */
+	public final long[] latencies;
+	/**
+	 * The <code>long</code> number of requests that
+	 * failed without a response.
+	 */
+	public final long failed;
+	/**
+	 * The <code>long</code> number of responses with a
+	 * 5xx status.
+	 */
+	public final long serverErrors;
+	/**
+	 * The <code>long</code> number of responses with a
+	 * 4xx status.
+	 */
+	public final long clientErrors;
+	/**
+	 * The <code>double</code> duration in seconds.
+	 */
+	public final double seconds;
+
+	/**
+	 * Constructor of <code>BenchResult</code>.
+	 * @param latencies The <code>long</code> array of
+	 * latency histogram counts.
+	 * @param failed The <code>long</code> number of
+	 * failed requests.
+	 * @param serverErrors The <code>long</code> number
+	 * of 5xx responses.
+	 * @param clientErrors The <code>long</code> number
+	 * of 4xx responses.
+	 * @param seconds The <code>double</code> duration
+	 * in seconds.
+	 */
+	public BenchResult(final long[] latencies, final long failed, final long serverErrors, final long clientErrors, final double seconds) {
+		this.latencies = latencies;
+		this.failed = failed;
+		this.serverErrors = serverErrors;
+		this.clientErrors = clientErrors;
+		this.seconds = seconds;
+	}
+
+	/**
+	 * Load the result saved in the given baseline file.
+	 * @param file The baseline <code>File</code>.
+	 * @return The <code>BenchResult</code>.
+	 * @throws IOException If reading file failed or the
+	 * file is malformed.
+	 */
+	public static BenchResult load(final File file) throws IOException {
+		final Properties properties = new Properties();
+		final InputStream input = new FileInputStream(file);
+		try {
+			properties.load(input);
+		} finally {
+			input.close();
+		}
+		try {
+			final String[] values = properties.getProperty("latencies", "").split(",");
+			final long[] latencies = new long[values.length];
+			for (int i = 0; i < values.length; i++) {
+				latencies[i] = values[i].isEmpty() ? 0 : Long.parseLong(values[i]);
+			}
+			return new BenchResult(latencies, Long.parseLong(properties.getProperty("failed")),
+					Long.parseLong(properties.getProperty("server-errors")), Long.parseLong(properties.getProperty("client-errors")),
+					Double.parseDouble(properties.getProperty("seconds")));
+		} catch (final RuntimeException e) {
+			throw new IOException("Malformed baseline file: " + file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Save this result to the given baseline file.
+	 * @param file The baseline <code>File</code>.
+	 * @throws IOException If writing file failed.
+	 */
+	public void save(final File file) throws IOException {
+		final Properties properties = new Properties();
+		// Trailing empty buckets are omitted.
+		int length = this.latencies.length;
+		while (length > 0 && this.latencies[length-1] == 0) length--;
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			if (i > 0) builder.append(",");
+			builder.append(this.latencies[i]);
+		}
+		properties.setProperty("latencies", builder.toString());
+		properties.setProperty("failed", String.valueOf(this.failed));
+		properties.setProperty("server-errors", String.valueOf(this.serverErrors));
+		properties.setProperty("client-errors", String.valueOf(this.clientErrors));
+		properties.setProperty("seconds", String.valueOf(this.seconds));
+		file.getParentFile().mkdirs();
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			properties.store(output, "Hemera benchmark baseline");
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Retrieve the number of completed requests.
+	 * @return The <code>long</code> number of requests.
+	 */
+	public long getRequests() {
+		return LatencyHistogram.total(this.latencies);
+	}
+
+	/**
+	 * Retrieve the throughput of completed requests.
+	 * @return The <code>double</code> number of requests
+	 * per second.
+	 */
+	public double getThroughput() {
+		return (this.seconds > 0) ? this.getRequests()/this.seconds : 0;
+	}
+
+	/**
+	 * Retrieve the ratio of requests that failed or
+	 * were answered with a 5xx status.
+	 * @return The <code>double</code> ratio.
+	 */
+	public double getErrorRatio() {
+		final long errors = this.failed + this.serverErrors;
+		final long total = this.getRequests() + this.failed;
+		return (total > 0) ? (double)errors/total : 0;
+	}
+
+	/**
+	 * Retrieve the given percentile latency.
+	 * @param percentile The <code>double</code> percentile
+	 * between <code>0</code> and <code>1</code>.
+	 * @return The <code>double</code> latency in
+	 * milliseconds.
+	 */
+	public double getLatency(final double percentile) {
+		return LatencyHistogram.percentile(this.latencies, percentile);
+	}
+
+	/**
+	 * Compare this result against the given baseline.
+	 * The throughput and every reported percentile may
+	 * be worse by the given tolerance. The error ratio
+	 * may not grow by more than one percentage point.
+	 * @param baseline The baseline <code>BenchResult</code>.
+	 * @param tolerance The <code>double</code> tolerated
+	 * relative change, such as <code>0.1</code> for 10%.
+	 * @return The <code>List</code> of <code>String</code>
+	 * descriptions of all the regressions. Empty if there
+	 * are none.
+	 */
+	public List<String> compare(final BenchResult baseline, final double tolerance) {
+		final List<String> regressions = new ArrayList<String>();
+		final double throughput = baseline.getThroughput();
+		if (this.getThroughput() < throughput*(1-tolerance)) {
+			regressions.add(String.format("throughput dropped from %.1f/s to %.1f/s", throughput, this.getThroughput()));
+		}
+		// The max is a single sample, too noisy to gate on.
+		for (int i = 0; i < BenchResult.Percentiles.length-1; i++) {
+			final double before = baseline.getLatency(BenchResult.Percentiles[i]);
+			final double after = this.getLatency(BenchResult.Percentiles[i]);
+			if (after > before*(1+tolerance)) {
+				regressions.add(String.format("%s latency grew from %.2f ms to %.2f ms", BenchResult.PercentileLabels[i], before, after));
+			}
+		}
+		if (this.getErrorRatio() > baseline.getErrorRatio()+0.01) {
+			regressions.add(String.format("error ratio grew from %.2f%% to %.2f%%", baseline.getErrorRatio()*100, this.getErrorRatio()*100));
+		}
+		return regressions;
+	}
+}
@@ -0,0 +1,244 @@
+package hemera.core.shell.util;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import hemera.core.environment.enumn.EEnvironment;
+import hemera.core.environment.hbm.HBM;
+import hemera.core.environment.hbm.HBMResource;
+import hemera.core.utility.FileUtils;
+
+/**
+ * <code>BundleCache</code> defines the persistent cache
+ * of built resource and source dependency Jar files
+ * that is shared across bundle runs. Each entry is
+ * keyed by a hash of all the inputs of a build: its
+ * sources, its resolved dependency Jar files, and for
+ * resources its configuration files and its resource
+ * files. A build whose inputs did not change since the
+ * last run can reuse the cached Jar file instead of
+ * being recompiled.
+ * <p>
+ * <code>BundleCache</code> is thread-safe.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class BundleCache {
+	/**
+	 * The <code>String</code> cache entry extension.
+	 */
+	private static final String EntryExtension = ".jar";
+	/**
+	 * The <code>long</code> time in milliseconds after
+	 * which an unused entry is removed.
+	 */
+	private static final long EntryExpiration = 7L * 24L * 60L * 60L * 1000L;
+
+	/**
+	 * The <code>String</code> cache directory.
+	 */
+	private final String cacheDir;
+	/**
+	 * The <code>ConcurrentMap</code> of file absolute
+	 * path to its content hash, so shared dependencies
+	 * are only hashed once per run.
+	 */
+	private final ConcurrentMap<String, String> fileHashes;
+
+	/**
+	 * Constructor of <code>BundleCache</code>.
+	 * @param cacheDir The <code>String</code> cache
+	 * directory. It is created if it does not exist.
+	 */
+	public BundleCache(final String cacheDir) {
+		this.cacheDir = FileUtils.instance.getValidDir(cacheDir);
+		this.fileHashes = new ConcurrentHashMap<String, String>();
+		new File(this.cacheDir).mkdirs();
+	}
+
+	/**
+	 * Compute the cache key of the given resource.
+	 * @param bundle The <code>HBM</code> bundle.
+	 * @param resource The <code>HBMResource</code>.
+	 * @param dependencies The <code>List</code> of all
+	 * the resolved dependency <code>File</code> the
+	 * resource is compiled against.
+	 * @return The <code>String</code> key.
+	 * @throws IOException If reading inputs failed.
+	 */
+	public String getResourceKey(final HBM bundle, final HBMResource resource, final List<File> dependencies) throws IOException {
+		final MessageDigest digest = FileHasher.instance.newDigest();
+		// Build environment.
+		FileHasher.instance.update(digest, EEnvironment.Version.value);
+		FileHasher.instance.update(digest, System.getProperty("java.version"));
+		// Resource identity and sources.
+		FileHasher.instance.update(digest, resource.classname);
+		FileHasher.instance.updateDirectory(digest, resource.srcDir);
+		// Dependencies in classpath order.
+		final int size = dependencies.size();
+		for (int i = 0; i < size; i++) {
+			final File dependency = dependencies.get(i);
+			FileHasher.instance.update(digest, dependency.getName());
+			FileHasher.instance.update(digest, this.getFileHash(dependency));
+		}
+		// Configuration is merged with the shared configuration.
+		this.updateOptionalFile(digest, resource.configFile);
+		this.updateOptionalFile(digest, (bundle.shared==null) ? null : bundle.shared.configFile);
+		// Resource files.
+		if (resource.resourcesDir != null) {
+			FileHasher.instance.updateDirectory(digest, resource.resourcesDir);
+		}
+		return FileHasher.instance.toHex(digest.digest());
+	}
+
+	/**
+	 * Compute the cache key of the source directory
+	 * dependency at the given path.
+	 * @param srcDir The <code>String</code> source
+	 * directory of the dependency.
+	 * @param libs The <code>List</code> of all the
+	 * library <code>File</code> the sources are compiled
+	 * against.
+	 * @return The <code>String</code> key.
+	 * @throws IOException If reading inputs failed.
+	 */
+	public String getDependencyKey(final String srcDir, final List<File> libs) throws IOException {
+		final MessageDigest digest = FileHasher.instance.newDigest();
+		// Build environment.
+		FileHasher.instance.update(digest, EEnvironment.Version.value);
+		FileHasher.instance.update(digest, System.getProperty("java.version"));
+		// Dependency sources.
+		FileHasher.instance.update(digest, "dependency");
+		FileHasher.instance.update(digest, srcDir);
+		FileHasher.instance.updateDirectory(digest, srcDir);
+		// Libraries in classpath order.
+		final int size = libs.size();
+		for (int i = 0; i < size; i++) {
+			final File lib = libs.get(i);
+			FileHasher.instance.update(digest, lib.getName());
+			FileHasher.instance.update(digest, this.getFileHash(lib));
+		}
+		return FileHasher.instance.toHex(digest.digest());
+	}
+
+	/**
+	 * Retrieve the content hash of the given file,
+	 * computing it only once per cache instance. Jar
+	 * files are hashed by their entries so dependencies
+	 * rebuilt from unchanged sources keep the same hash.
+	 * @param file The <code>File</code> to hash.
+	 * @return The <code>String</code> hash.
+	 * @throws IOException If reading file failed.
+	 */
+	public String getFileHash(final File file) throws IOException {
+		final String path = file.getAbsolutePath();
+		final String existing = this.fileHashes.get(path);
+		if (existing != null) return existing;
+		final String hash;
+		if (file.isDirectory()) hash = this.hashDirectory(path);
+		else if (file.getName().endsWith(".jar")) hash = FileHasher.instance.hashArchive(file);
+		else hash = FileHasher.instance.hash(file);
+		this.fileHashes.putIfAbsent(path, hash);
+		return hash;
+	}
+
+	/**
+	 * Compute the hash of the given directory.
+	 * @param dir The <code>String</code> directory.
+	 * @return The <code>String</code> hash.
+	 * @throws IOException If reading files failed.
+	 */
+	private String hashDirectory(final String dir) throws IOException {
+		final MessageDigest digest = FileHasher.instance.newDigest();
+		FileHasher.instance.updateDirectory(digest, dir);
+		return FileHasher.instance.toHex(digest.digest());
+	}
+
+	/**
+	 * Update the given digest with the contents of
+	 * the file at the given path if there is one.
+	 * @param digest The <code>MessageDigest</code>.
+	 * @param path The <code>String</code> file path.
+	 * <code>null</code> if there is no file.
+	 * @throws IOException If reading file failed.
+	 */
+	private void updateOptionalFile(final MessageDigest digest, final String path) throws IOException {
+		if (path == null) {
+			FileHasher.instance.update(digest, "<none>");
+			return;
+		}
+		final File file = new File(path);
+		FileHasher.instance.update(digest, file.getName());
+		if (file.isFile()) FileHasher.instance.update(digest, file);
+	}
+
+	/**
+	 * Restore the contents of the cached entry with
+	 * the given key.
+	 * @param key The <code>String</code> entry key.
+	 * @return The <code>byte</code> array of the cached
+	 * Jar file. Or <code>null</code> if there is no such
+	 * entry.
+	 * @throws IOException If reading file failed.
+	 */
+	public byte[] restore(final String key) throws IOException {
+		final File entry = new File(this.cacheDir + key + BundleCache.EntryExtension);
+		if (!entry.isFile()) return null;
+		final byte[] data = new byte[(int)entry.length()];
+		final DataInputStream input = new DataInputStream(new FileInputStream(entry));
+		try {
+			input.readFully(data);
+		} finally {
+			input.close();
+		}
+		// Keep recently used entries from expiring.
+		entry.setLastModified(System.currentTimeMillis());
+		return data;
+	}
+
+	/**
+	 * Store the given Jar file contents as the entry
+	 * with the given key. The entry is first written to
+	 * a unique temporary file then renamed, so concurrent
+	 * bundle runs never observe a partially written entry.
+	 * @param key The <code>String</code> entry key.
+	 * @param data The <code>byte</code> array of the
+	 * built Jar file.
+	 * @throws IOException If writing file failed.
+	 */
+	public void store(final String key, final byte[] data) throws IOException {
+		final File entry = new File(this.cacheDir + key + BundleCache.EntryExtension);
+		final File temp = File.createTempFile(key, ".tmp", new File(this.cacheDir));
+		final OutputStream output = new FileOutputStream(temp);
+		try {
+			output.write(data);
+		} finally {
+			output.close();
+		}
+		if (!temp.renameTo(entry)) {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Remove all the entries that have not been used
+	 * within the expiration time.
+	 */
+	public void prune() {
+		final File[] files = new File(this.cacheDir).listFiles();
+		if (files == null) return;
+		final long threshold = System.currentTimeMillis() - BundleCache.EntryExpiration;
+		for (int i = 0; i < files.length; i++) {
+			if (files[i].lastModified() < threshold) files[i].delete();
+		}
+	}
+}
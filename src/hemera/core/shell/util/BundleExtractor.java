@@ -0,0 +1,333 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * <code>BundleExtractor</code> defines the unit that
+ * extracts the nested Jar entries of an application
+ * bundle. Nested entries are streamed directly from
+ * the bundle file without first being copied into a
+ * temporary file. Every extracted file is written to
+ * the target directory under its file name, discarding
+ * any directory structure within the nested Jar, which
+ * matches the environment extraction behavior.
+ * <p>
+ * Every extracted file is recorded in a deploy manifest
+ * by its checksum and size. If the manifest of the
+ * previous deployment is given, files whose recorded
+ * checksum and size match the incoming entry are left
+ * untouched instead of being rewritten. Written files
+ * replace the existing ones by renaming, so files held
+ * open by a running runtime are never modified in place.
+ * <p>
+ * <code>BundleExtractor</code> is thread-safe, so
+ * independent entries of the same bundle may be
+ * extracted concurrently.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class BundleExtractor {
+	/**
+	 * The <code>int</code> copy buffer size.
+	 */
+	private static final int BufferSize = 8192;
+
+	/**
+	 * The bundle <code>JarFile</code>.
+	 */
+	private final JarFile bundle;
+	/**
+	 * The <code>String</code> absolute application
+	 * directory that manifest paths are relative to.
+	 */
+	private final String baseDir;
+	/**
+	 * The <code>DeployManifest</code> of the previous
+	 * deployment. <code>null</code> if all files should
+	 * be written.
+	 */
+	private final DeployManifest previous;
+	/**
+	 * The <code>DeployManifest</code> recording all the
+	 * extracted files.
+	 */
+	private final DeployManifest current;
+	/**
+	 * The <code>AtomicInteger</code> number of files
+	 * written.
+	 */
+	private final AtomicInteger writtenCount;
+	/**
+	 * The <code>AtomicInteger</code> number of files
+	 * left untouched since they did not change.
+	 */
+	private final AtomicInteger unchangedCount;
+
+	/**
+	 * Constructor of <code>BundleExtractor</code>.
+	 * @param bundle The bundle <code>JarFile</code>.
+	 * @param baseDir The <code>String</code> application
+	 * directory that all files are extracted under.
+	 * @param previous The <code>DeployManifest</code>
+	 * of the previous deployment. <code>null</code> if
+	 * all files should be written.
+	 */
+	public BundleExtractor(final JarFile bundle, final String baseDir, final DeployManifest previous) {
+		this.bundle = bundle;
+		final String dir = new File(baseDir).getAbsolutePath();
+		this.baseDir = dir.endsWith(File.separator) ? dir : dir + File.separator;
+		this.previous = previous;
+		this.current = new DeployManifest();
+		this.writtenCount = new AtomicInteger();
+		this.unchangedCount = new AtomicInteger();
+	}
+
+	/**
+	 * Extract all the contents of the nested Jar entry
+	 * with given name into the given directory.
+	 * @param entryName The <code>String</code> name of
+	 * the nested Jar entry.
+	 * @param targetDir The <code>String</code> directory
+	 * to extract to.
+	 * @param excluded The <code>List</code> of all the
+	 * <code>File</code> whose names should not be
+	 * extracted, compared case-insensitively.
+	 * <code>null</code> if nothing is excluded.
+	 * @return The <code>List</code> of all the extracted
+	 * <code>File</code>.
+	 * @throws IOException If the entry does not exist or
+	 * extraction failed.
+	 */
+	public List<File> extract(final String entryName, final String targetDir, final List<File> excluded) throws IOException {
+		final Set<String> excludedNames = new HashSet<String>();
+		if (excluded != null) {
+			final int size = excluded.size();
+			for (int i = 0; i < size; i++) {
+				excludedNames.add(excluded.get(i).getName().toLowerCase());
+			}
+		}
+		final InputStream input = this.open(entryName);
+		try {
+			return this.extract(new JarInputStream(input), targetDir, excludedNames, null, null);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Extract all the contents of the nested Jar entry
+	 * with given name into the given directory, except
+	 * the doubly nested Jar with given name, whose
+	 * contents are extracted into its own directory.
+	 * @param entryName The <code>String</code> name of
+	 * the nested Jar entry.
+	 * @param targetDir The <code>String</code> directory
+	 * to extract to.
+	 * @param nestedName The <code>String</code> name of
+	 * the doubly nested Jar entry.
+	 * @param nestedDir The <code>String</code> directory
+	 * to extract the doubly nested Jar to. It is only
+	 * created if the nested Jar exists.
+	 * @return The <code>List</code> of all the extracted
+	 * <code>File</code>.
+	 * @throws IOException If the entry does not exist or
+	 * extraction failed.
+	 */
+	public List<File> extract(final String entryName, final String targetDir, final String nestedName,
+			final String nestedDir) throws IOException {
+		final InputStream input = this.open(entryName);
+		try {
+			return this.extract(new JarInputStream(input), targetDir, new HashSet<String>(), nestedName, nestedDir);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Open the input stream of the entry with given name.
+	 * @param entryName The <code>String</code> entry name.
+	 * @return The <code>InputStream</code>.
+	 * @throws IOException If the entry does not exist.
+	 */
+	private InputStream open(final String entryName) throws IOException {
+		final ZipEntry entry = this.bundle.getEntry(entryName);
+		if (entry == null) {
+			throw new IOException("Bundle does not contain entry: " + entryName);
+		}
+		return this.bundle.getInputStream(entry);
+	}
+
+	/**
+	 * Extract all the entries of the given stream. The
+	 * stream is not closed.
+	 * @param input The <code>JarInputStream</code>.
+	 * @param targetDir The <code>String</code> directory
+	 * to extract to.
+	 * @param excludedNames The <code>Set</code> of lower
+	 * case file names to skip.
+	 * @param nestedName The <code>String</code> name of
+	 * the nested Jar entry to extract separately.
+	 * <code>null</code> if there is none.
+	 * @param nestedDir The <code>String</code> directory
+	 * to extract the nested Jar to.
+	 * @return The <code>List</code> of all the extracted
+	 * <code>File</code>.
+	 * @throws IOException If extraction failed.
+	 */
+	private List<File> extract(final JarInputStream input, final String targetDir, final Set<String> excludedNames,
+			final String nestedName, final String nestedDir) throws IOException {
+		final String dir = targetDir.endsWith(File.separator) ? targetDir : targetDir + File.separator;
+		new File(dir).mkdirs();
+		final List<File> files = new ArrayList<File>();
+		final byte[] buffer = new byte[BundleExtractor.BufferSize];
+		ZipEntry entry = input.getNextEntry();
+		while (entry != null) {
+			final String name = entry.getName().substring(entry.getName().lastIndexOf('/')+1);
+			if (entry.isDirectory() || name.length() == 0 || excludedNames.contains(name.toLowerCase())) {
+				// Skip.
+			} else if (name.equals(nestedName)) {
+				files.addAll(this.extract(new JarInputStream(input), nestedDir, new HashSet<String>(), null, null));
+			} else {
+				final File file = new File(dir + name);
+				this.extractEntry(input, entry, file, buffer);
+				files.add(file);
+			}
+			entry = input.getNextEntry();
+		}
+		return files;
+	}
+
+	/**
+	 * Extract the current entry of the given stream into
+	 * the given file, unless the previous deployment
+	 * already wrote the same contents.
+	 * @param input The <code>JarInputStream</code>
+	 * positioned at the entry.
+	 * @param entry The <code>ZipEntry</code>.
+	 * @param file The target <code>File</code>.
+	 * @param buffer The copy buffer <code>byte</code>
+	 * array.
+	 * @throws IOException If extraction failed.
+	 */
+	private void extractEntry(final JarInputStream input, final ZipEntry entry, final File file, final byte[] buffer)
+			throws IOException {
+		final String path = this.getRelativePath(file);
+		byte[] data = null;
+		if (this.previous != null && this.previous.contains(path) && file.isFile()) {
+			long crc = entry.getCrc();
+			long size = entry.getSize();
+			// Compressed entries only carry the checksum after their data.
+			if (crc < 0 || size < 0) {
+				final ByteArrayOutputStream output = new ByteArrayOutputStream();
+				this.copy(input, output, buffer);
+				data = output.toByteArray();
+				final CRC32 checksum = new CRC32();
+				checksum.update(data);
+				crc = checksum.getValue();
+				size = data.length;
+			}
+			if (this.previous.matches(path, crc, size) && file.length() == size) {
+				this.current.put(path, crc, size);
+				this.unchangedCount.incrementAndGet();
+				return;
+			}
+		}
+		// Write to a hidden sibling then rename, so a running runtime that
+		// still has the existing file open never reads a truncated file.
+		final File temp = new File(file.getParentFile(), "." + file.getName() + ".tmp");
+		final CheckedOutputStream output = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), new CRC32());
+		long size = 0;
+		try {
+			if (data != null) {
+				output.write(data);
+				size = data.length;
+			} else {
+				size = this.copy(input, output, buffer);
+			}
+		} finally {
+			output.close();
+		}
+		if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+			temp.delete();
+			throw new IOException("Replacing file " + file.getAbsolutePath() + " failed.");
+		}
+		this.current.put(path, output.getChecksum().getValue(), size);
+		this.writtenCount.incrementAndGet();
+	}
+
+	/**
+	 * Copy all the remaining data of the given stream.
+	 * @param input The <code>InputStream</code>.
+	 * @param output The <code>OutputStream</code>.
+	 * @param buffer The copy buffer <code>byte</code>
+	 * array.
+	 * @return The <code>long</code> number of bytes
+	 * copied.
+	 * @throws IOException If copying failed.
+	 */
+	private long copy(final InputStream input, final OutputStream output, final byte[] buffer) throws IOException {
+		long total = 0;
+		int count = input.read(buffer);
+		while (count >= 0) {
+			output.write(buffer, 0, count);
+			total += count;
+			count = input.read(buffer);
+		}
+		return total;
+	}
+
+	/**
+	 * Retrieve the path of the given file relative to
+	 * the application directory, using forward slashes.
+	 * @param file The <code>File</code>.
+	 * @return The <code>String</code> relative path.
+	 */
+	private String getRelativePath(final File file) {
+		final String path = file.getAbsolutePath();
+		final String relative = path.startsWith(this.baseDir) ? path.substring(this.baseDir.length()) : path;
+		return relative.replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Retrieve the manifest recording all the files
+	 * extracted so far.
+	 * @return The <code>DeployManifest</code>.
+	 */
+	public DeployManifest getManifest() {
+		return this.current;
+	}
+
+	/**
+	 * Retrieve the number of files written.
+	 * @return The <code>int</code> count.
+	 */
+	public int getWrittenCount() {
+		return this.writtenCount.get();
+	}
+
+	/**
+	 * Retrieve the number of files left untouched
+	 * since their contents did not change.
+	 * @return The <code>int</code> count.
+	 */
+	public int getUnchangedCount() {
+		return this.unchangedCount.get();
+	}
+}
@@ -0,0 +1,108 @@
+package hemera.core.shell.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import hemera.core.shell.config.ConfigPlacement;
+import hemera.core.utility.FileUtils;
+
+/**
+ * <code>CPUTopology</code> defines the singleton utility
+ * that resolves the CPUs of the host and of its NUMA
+ * nodes. CPU lists use the Linux list format such as
+ * <code>0-7,16-23</code>, which is also accepted by
+ * <code>taskset</code> and <code>numactl</code>.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum CPUTopology {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Count the CPUs in the given CPU list.
+	 * @param list The <code>String</code> CPU list.
+	 * @return The <code>int</code> number of CPUs.
+	 * @throws IllegalArgumentException If the list is
+	 * not valid.
+	 */
+	public int countCPUs(final String list) {
+		if (!list.matches("[0-9]+(-[0-9]+)?(,[0-9]+(-[0-9]+)?)*")) {
+			throw new IllegalArgumentException("Invalid CPU list: " + list);
+		}
+		int count = 0;
+		final String[] ranges = list.split(",");
+		for (int i = 0; i < ranges.length; i++) {
+			final int index = ranges[i].indexOf('-');
+			if (index < 0) {
+				count++;
+			} else {
+				final int first = Integer.parseInt(ranges[i].substring(0, index));
+				final int last = Integer.parseInt(ranges[i].substring(index+1));
+				if (last < first) throw new IllegalArgumentException("Invalid CPU list: " + list);
+				count += last - first + 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Retrieve the CPU list of the given NUMA node.
+	 * @param node The <code>int</code> node.
+	 * @return The <code>String</code> CPU list.
+	 * @throws IOException If reading the topology
+	 * failed.
+	 * @throws IllegalArgumentException If there is no
+	 * such node.
+	 */
+	public String getNodeCPUs(final int node) throws IOException {
+		final File file = new File("/sys/devices/system/node/node" + node + "/cpulist");
+		if (!file.isFile()) {
+			throw new IllegalArgumentException("NUMA node " + node + " does not exist on this host.");
+		}
+		return FileUtils.instance.readAsString(file).trim();
+	}
+
+	/**
+	 * Retrieve the number of NUMA nodes of the host.
+	 * @return The <code>int</code> number of nodes. Or
+	 * <code>1</code> if the host does not expose its
+	 * NUMA topology.
+	 */
+	public int getNodeCount() {
+		int count = 0;
+		while (new File("/sys/devices/system/node/node" + count).isDirectory()) count++;
+		return Math.max(1, count);
+	}
+
+	/**
+	 * Retrieve the number of online CPUs of the host.
+	 * @return The <code>int</code> number of CPUs.
+	 * @throws IOException If reading the topology
+	 * failed.
+	 */
+	public int getHostCPUCount() throws IOException {
+		final File file = new File("/sys/devices/system/cpu/online");
+		if (!file.isFile()) return Runtime.getRuntime().availableProcessors();
+		return this.countCPUs(FileUtils.instance.readAsString(file).trim());
+	}
+
+	/**
+	 * Retrieve the number of CPUs the runtime is pinned
+	 * to by the given placement.
+	 * @param placement The <code>ConfigPlacement</code>.
+	 * @return The <code>int</code> number of CPUs. Or
+	 * the number of host CPUs if the runtime is not
+	 * pinned.
+	 * @throws IOException If reading the topology
+	 * failed.
+	 */
+	public int getPinnedCPUCount(final ConfigPlacement placement) throws IOException {
+		if (placement.cpuSet != null) return this.countCPUs(placement.cpuSet);
+		if (placement.numaNode >= 0) return this.countCPUs(this.getNodeCPUs(placement.numaNode));
+		return this.getHostCPUCount();
+	}
+}
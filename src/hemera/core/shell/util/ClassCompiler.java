@@ -0,0 +1,206 @@
+package hemera.core.shell.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import hemera.core.utility.FileUtils;
+
+/**
+ * <code>ClassCompiler</code> defines the singleton
+ * implementation that compiles Java source directories
+ * into class files held in memory. Unlike the utility
+ * compiler, it never writes class files to disk, so
+ * multiple compilations may run concurrently even if
+ * they share the same source directory, and no small
+ * files need to be written and deleted afterwards.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum ClassCompiler {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Compile all the source files under the given
+	 * source directory. This method is thread-safe.
+	 * @param srcDir The <code>String</code> source
+	 * directory.
+	 * @param dependencies The <code>List</code> of all
+	 * the dependency <code>File</code>.
+	 * @return The <code>SortedMap</code> of Jar entry
+	 * name such as <code>a/b/C.class</code> to the
+	 * <code>byte</code> array of the generated file. The
+	 * map is empty if there are no source files.
+	 * @throws Exception If compilation failed.
+	 */
+	public SortedMap<String, byte[]> compile(final String srcDir, final List<File> dependencies) throws Exception {
+		final SortedMap<String, byte[]> outputs = new TreeMap<String, byte[]>();
+		final List<File> sources = FileUtils.instance.getFiles(srcDir, ".java");
+		if (sources == null || sources.isEmpty()) return outputs;
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		final StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, null);
+		final MemoryFileManager manager = new MemoryFileManager(standard);
+		try {
+			final Iterable<? extends JavaFileObject> units = standard.getJavaFileObjectsFromFiles(sources);
+			final List<String> options = this.getCompileOptions(dependencies);
+			final boolean succeeded = compiler.getTask(null, manager, diagnostics, options, null, units).call();
+			if (!succeeded) {
+				final StringBuilder builder = new StringBuilder();
+				builder.append("Compiling source at directory: ").append(srcDir).append(" failed.\n");
+				for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+					builder.append(diagnostic.toString()).append("\n");
+				}
+				throw new RuntimeException(builder.toString());
+			}
+		} finally {
+			manager.close();
+		}
+		final int size = manager.outputs.size();
+		for (int i = 0; i < size; i++) {
+			final MemoryFileObject output = manager.outputs.get(i);
+			// Generated sources are compiled in the same task.
+			if (output.getKind() == JavaFileObject.Kind.SOURCE) continue;
+			outputs.put(output.entryName, output.data.toByteArray());
+		}
+		return outputs;
+	}
+
+	/**
+	 * Build the compiler options.
+	 * @param dependencies The <code>List</code> of all
+	 * the dependency <code>File</code>.
+	 * @return The <code>List</code> of options.
+	 */
+	private List<String> getCompileOptions(final List<File> dependencies) {
+		final List<String> options = new ArrayList<String>();
+		if (dependencies == null || dependencies.isEmpty()) return options;
+		options.add("-classpath");
+		final StringBuilder builder = new StringBuilder();
+		final int size = dependencies.size();
+		for (int i = 0; i < size; i++) {
+			builder.append(dependencies.get(i).getAbsolutePath());
+			if (i != size-1) builder.append(File.pathSeparator);
+		}
+		options.add(builder.toString());
+		return options;
+	}
+
+	/**
+	 * <code>MemoryFileManager</code> defines the file
+	 * manager that reads sources and dependencies from
+	 * disk through the standard file manager, but keeps
+	 * all the generated output files in memory.
+	 */
+	private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+		/**
+		 * The <code>List</code> of all the generated
+		 * <code>MemoryFileObject</code>.
+		 */
+		private final List<MemoryFileObject> outputs;
+
+		/**
+		 * Constructor of <code>MemoryFileManager</code>.
+		 * @param manager The <code>StandardJavaFileManager</code>
+		 * to forward to.
+		 */
+		private MemoryFileManager(final StandardJavaFileManager manager) {
+			super(manager);
+			this.outputs = new ArrayList<MemoryFileObject>();
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(final JavaFileManager.Location location, final String className,
+				final JavaFileObject.Kind kind, final FileObject sibling) {
+			return this.newOutput(className.replace('.', '/') + kind.extension, kind);
+		}
+
+		@Override
+		public FileObject getFileForOutput(final JavaFileManager.Location location, final String packageName,
+				final String relativeName, final FileObject sibling) {
+			final String prefix = (packageName==null || packageName.length()==0) ? "" : packageName.replace('.', '/') + "/";
+			return this.newOutput(prefix + relativeName, JavaFileObject.Kind.OTHER);
+		}
+
+		/**
+		 * Create and record a new in-memory output file.
+		 * @param entryName The <code>String</code> Jar
+		 * entry name of the file.
+		 * @param kind The <code>JavaFileObject.Kind</code>.
+		 * @return The <code>MemoryFileObject</code>.
+		 */
+		private MemoryFileObject newOutput(final String entryName, final JavaFileObject.Kind kind) {
+			final MemoryFileObject output = new MemoryFileObject(entryName, kind);
+			synchronized (this.outputs) {
+				this.outputs.add(output);
+			}
+			return output;
+		}
+	}
+
+	/**
+	 * <code>MemoryFileObject</code> defines the output
+	 * file that is written into a byte array.
+	 */
+	private static class MemoryFileObject extends SimpleJavaFileObject {
+		/**
+		 * The <code>String</code> Jar entry name.
+		 */
+		private final String entryName;
+		/**
+		 * The <code>ByteArrayOutputStream</code> data.
+		 */
+		private final ByteArrayOutputStream data;
+
+		/**
+		 * Constructor of <code>MemoryFileObject</code>.
+		 * @param entryName The <code>String</code> Jar
+		 * entry name.
+		 * @param kind The <code>JavaFileObject.Kind</code>.
+		 */
+		private MemoryFileObject(final String entryName, final JavaFileObject.Kind kind) {
+			super(URI.create("memory:///" + entryName), kind);
+			this.entryName = entryName;
+			this.data = new ByteArrayOutputStream();
+		}
+
+		@Override
+		public OutputStream openOutputStream() throws IOException {
+			this.data.reset();
+			return this.data;
+		}
+
+		@Override
+		public InputStream openInputStream() throws IOException {
+			return new ByteArrayInputStream(this.data.toByteArray());
+		}
+
+		@Override
+		public CharSequence getCharContent(final boolean ignoreEncodingErrors) throws IOException {
+			return new String(this.data.toByteArray(), "UTF-8");
+		}
+	}
+}
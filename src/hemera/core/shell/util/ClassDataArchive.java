@@ -0,0 +1,135 @@
+package hemera.core.shell.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.List;
+
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.shell.runtime.ClassDataTraining;
+import hemera.core.utility.FileUtils;
+import hemera.core.utility.shell.Shell;
+import hemera.core.utility.shell.ShellResult;
+
+/**
+ * <code>ClassDataArchive</code> defines the singleton
+ * implementation that maintains the dynamic class data
+ * sharing archive of the runtime. The archive holds the
+ * parsed and verified classes of the runtime class path
+ * and of the applications the shell launcher loads
+ * through their own class loaders, so the runtime maps
+ * them at startup instead of loading them from the Jar
+ * files one by one.
+ * <p>
+ * The JVM only uses an archive that was built for the
+ * exact same class path, with the same Jar files. The
+ * archive is therefore keyed by the class path and the
+ * application class paths, and the size and
+ * modification time of each of their files, and
+ * it is rebuilt by a training run whenever the key
+ * changes. Dynamic archives require Java 13 or later.
+ * If the training run fails, the runtime is launched
+ * without an archive.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum ClassDataArchive {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Retrieve the archive for the given class path,
+	 * building it first if the class path changed since
+	 * the archive was built.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 * @param environment The <code>String</code> script
+	 * section that exports the Java environment of the
+	 * runtime.
+	 * @param classpath The <code>String</code> runtime
+	 * class path.
+	 * @param applications The <code>List</code> of the
+	 * <code>String</code> class paths of the applications
+	 * loaded through their own class loaders.
+	 * @return The <code>String</code> archive path. Or
+	 * <code>null</code> if there is no usable archive.
+	 * @throws IOException If file processing failed.
+	 * @throws InterruptedException If the training run
+	 * was interrupted.
+	 */
+	public String update(final String homeDir, final String environment, final String classpath, final List<String> applications)
+			throws IOException, InterruptedException {
+		final String binDir = UEnvironment.instance.getBinDir(homeDir);
+		final File archive = new File(binDir + EShell.ClassDataArchiveFile.value);
+		final File keyFile = new File(binDir + EShell.ClassDataKeyFile.value);
+		final MessageDigest digest = FileHasher.instance.newDigest();
+		this.updateKey(digest, classpath);
+		final int size = applications.size();
+		for (int i = 0; i < size; i++) {
+			FileHasher.instance.update(digest, "|");
+			this.updateKey(digest, applications.get(i));
+		}
+		final String key = FileHasher.instance.toHex(digest.digest());
+		if (archive.isFile() && keyFile.isFile() && key.equals(FileUtils.instance.readAsString(keyFile).trim())) {
+			return archive.getAbsolutePath();
+		}
+		this.delete(homeDir);
+		System.out.println("Building class data sharing archive...");
+		// Write to a temporary archive, so running instances keep the mapped one.
+		final File trained = new File(archive.getAbsolutePath() + ".tmp");
+		trained.delete();
+		final String script = binDir + EShell.ClassDataTrainingScriptFile.value;
+		final StringBuilder builder = new StringBuilder();
+		builder.append(environment);
+		builder.append("$JAVA_HOME/bin/java -XX:ArchiveClassesAtExit=").append(trained.getAbsolutePath());
+		builder.append(" -cp ").append(classpath).append(" ").append(ClassDataTraining.class.getName());
+		for (int i = 0; i < size; i++) {
+			builder.append(" ").append(applications.get(i));
+		}
+		builder.append("\n");
+		FileUtils.instance.writeAsString(builder.toString(), script);
+		Shell.instance.makeExecutable(script);
+		final long start = System.currentTimeMillis();
+		final ShellResult result = Shell.instance.execute(new String[] {script}, false);
+		if (result.code != 0 || !trained.isFile() || !trained.renameTo(archive)) {
+			trained.delete();
+			System.err.println("Building class data sharing archive failed, the runtime starts without it. This requires Java 13 or later.");
+			System.err.println(result.output);
+			return null;
+		}
+		FileUtils.instance.writeAsString(key, keyFile.getAbsolutePath());
+		System.out.println("Built class data sharing archive in " + (System.currentTimeMillis()-start) + " ms.");
+		return archive.getAbsolutePath();
+	}
+
+	/**
+	 * Delete the archive of the given home directory.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 */
+	public void delete(final String homeDir) {
+		final String binDir = UEnvironment.instance.getBinDir(homeDir);
+		new File(binDir + EShell.ClassDataKeyFile.value).delete();
+		new File(binDir + EShell.ClassDataArchiveFile.value).delete();
+	}
+
+	/**
+	 * Update the key with the given class path.
+	 * @param digest The <code>MessageDigest</code> of
+	 * the key.
+	 * @param classpath The <code>String</code> class
+	 * path.
+	 */
+	private void updateKey(final MessageDigest digest, final String classpath) {
+		final String[] paths = classpath.split(File.pathSeparator);
+		for (int i = 0; i < paths.length; i++) {
+			final File file = new File(paths[i]);
+			FileHasher.instance.update(digest, paths[i]);
+			FileHasher.instance.update(digest, file.length() + ":" + file.lastModified());
+		}
+	}
+}
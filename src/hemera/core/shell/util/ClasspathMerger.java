@@ -0,0 +1,276 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import hemera.core.shell.enumn.EShell;
+import hemera.core.utility.FileUtils;
+
+/**
+ * <code>ClasspathMerger</code> defines the singleton
+ * implementation that merges the Jar files of the
+ * runtime class path into a single uncompressed runtime
+ * Jar file, so the runtime looks classes up in one
+ * central directory instead of scanning every Jar file,
+ * and reads them without inflating.
+ * <p>
+ * Entries keep the class path semantics: the first Jar
+ * file that contains an entry wins. Service provider
+ * files are concatenated, so providers of all the Jar
+ * files remain registered. Signed and multi-release Jar
+ * files cannot be merged without changing their
+ * behavior, so they are kept on the class path after
+ * the merged Jar file.
+ * <p>
+ * The merged Jar file is keyed by the paths, sizes and
+ * modification times of the merged Jar files, and it is
+ * only rebuilt when the key changes.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum ClasspathMerger {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * The <code>String</code> prefix of service provider
+	 * entries.
+	 */
+	private static final String ServicesPrefix = "META-INF/services/";
+
+	/**
+	 * Merge the given Jar files into the runtime Jar
+	 * file of the given home directory, unless it was
+	 * already merged from the same files.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 * @param jars The <code>List</code> of Jar
+	 * <code>File</code> in class path order.
+	 * @return The <code>List</code> of <code>File</code>
+	 * that form the class path, starting with the merged
+	 * Jar file.
+	 * @throws IOException If file processing failed.
+	 */
+	public List<File> merge(final String homeDir, final List<File> jars) throws IOException {
+		final File dir = new File(homeDir + EShell.ClasspathCacheDir.value);
+		final File merged = new File(dir, EShell.MergedRuntimeJarFile.value);
+		final File keyFile = new File(dir, EShell.MergedRuntimeKeyFile.value);
+		final String key = this.buildKey(jars);
+		// The key file lists the key, then the Jar files kept separate.
+		if (merged.isFile() && keyFile.isFile()) {
+			final String[] lines = FileUtils.instance.readAsString(keyFile).split("\n");
+			if (lines[0].trim().equals(key)) {
+				final List<File> classpath = new ArrayList<File>();
+				classpath.add(merged);
+				for (int i = 1; i < lines.length; i++) {
+					if (lines[i].trim().length() > 0) classpath.add(new File(lines[i].trim()));
+				}
+				return classpath;
+			}
+		}
+		System.out.println("Merging " + jars.size() + " class path Jar files...");
+		final long start = System.currentTimeMillis();
+		dir.mkdirs();
+		keyFile.delete();
+		// Write to a temporary file, so running instances keep the open one.
+		final File temp = new File(dir, EShell.MergedRuntimeJarFile.value + ".tmp");
+		final List<File> separate = this.write(jars, temp);
+		if (!temp.renameTo(merged)) {
+			temp.delete();
+			throw new IOException("Moving merged runtime Jar file to " + merged.getAbsolutePath() + " failed.");
+		}
+		final StringBuilder builder = new StringBuilder();
+		builder.append(key).append("\n");
+		final List<File> classpath = new ArrayList<File>();
+		classpath.add(merged);
+		final int size = separate.size();
+		for (int i = 0; i < size; i++) {
+			builder.append(separate.get(i).getAbsolutePath()).append("\n");
+			classpath.add(separate.get(i));
+		}
+		FileUtils.instance.writeAsString(builder.toString(), keyFile.getAbsolutePath());
+		System.out.println("Merged " + (jars.size()-size) + " Jar files in " + (System.currentTimeMillis()-start) + " ms, kept " +
+				size + " signed or multi-release Jar files separate.");
+		return classpath;
+	}
+
+	/**
+	 * Delete the merged runtime Jar file of the given
+	 * home directory.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 */
+	public void delete(final String homeDir) {
+		final File dir = new File(homeDir + EShell.ClasspathCacheDir.value);
+		new File(dir, EShell.MergedRuntimeKeyFile.value).delete();
+		new File(dir, EShell.MergedRuntimeJarFile.value).delete();
+	}
+
+	/**
+	 * Write all the mergeable Jar files into the given
+	 * target Jar file.
+	 * @param jars The <code>List</code> of Jar
+	 * <code>File</code> in class path order.
+	 * @param target The target <code>File</code>.
+	 * @return The <code>List</code> of Jar
+	 * <code>File</code> that were kept separate.
+	 * @throws IOException If file processing failed.
+	 */
+	private List<File> write(final List<File> jars, final File target) throws IOException {
+		final List<File> separate = new ArrayList<File>();
+		final Set<String> written = new HashSet<String>();
+		final Map<String, StringBuilder> services = new LinkedHashMap<String, StringBuilder>();
+		final Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		final JarOutputStream output = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(target)), manifest);
+		try {
+			output.setMethod(ZipEntry.STORED);
+			written.add(JarFile.MANIFEST_NAME);
+			final int size = jars.size();
+			for (int i = 0; i < size; i++) {
+				final JarFile jar = new JarFile(jars.get(i));
+				try {
+					if (this.isSeparate(jar)) {
+						separate.add(jars.get(i));
+						continue;
+					}
+					final Enumeration<JarEntry> entries = jar.entries();
+					while (entries.hasMoreElements()) {
+						final JarEntry entry = entries.nextElement();
+						final String name = entry.getName();
+						if (entry.isDirectory() || name.equals(JarFile.MANIFEST_NAME)) continue;
+						if (name.startsWith(ClasspathMerger.ServicesPrefix)) {
+							this.appendService(services, name, jar, entry);
+						} else if (written.add(name)) {
+							this.writeEntry(output, name, this.read(jar, entry));
+						}
+					}
+				} finally {
+					jar.close();
+				}
+			}
+			for (final Map.Entry<String, StringBuilder> service : services.entrySet()) {
+				this.writeEntry(output, service.getKey(), service.getValue().toString().getBytes("UTF-8"));
+			}
+		} finally {
+			output.close();
+		}
+		return separate;
+	}
+
+	/**
+	 * Check if the given Jar file has to be kept
+	 * separate from the merged Jar file.
+	 * @param jar The <code>JarFile</code>.
+	 * @return <code>true</code> if the Jar file is
+	 * signed or multi-release.
+	 * @throws IOException If reading file failed.
+	 */
+	private boolean isSeparate(final JarFile jar) throws IOException {
+		final Manifest manifest = jar.getManifest();
+		if (manifest != null && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue("Multi-Release"))) return true;
+		final Enumeration<JarEntry> entries = jar.entries();
+		while (entries.hasMoreElements()) {
+			final String name = entries.nextElement().getName().toUpperCase();
+			if (!name.startsWith("META-INF/") || name.indexOf('/', 9) >= 0) continue;
+			if (name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC")) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Append the providers in the given service entry
+	 * to the providers of the same service.
+	 * @param services The <code>Map</code> of service
+	 * entry name to its providers.
+	 * @param name The <code>String</code> entry name.
+	 * @param jar The <code>JarFile</code>.
+	 * @param entry The <code>JarEntry</code>.
+	 * @throws IOException If reading file failed.
+	 */
+	private void appendService(final Map<String, StringBuilder> services, final String name, final JarFile jar, final JarEntry entry)
+			throws IOException {
+		StringBuilder builder = services.get(name);
+		if (builder == null) {
+			builder = new StringBuilder();
+			services.put(name, builder);
+		}
+		builder.append(new String(this.read(jar, entry), "UTF-8"));
+		if (builder.length() > 0 && builder.charAt(builder.length()-1) != '\n') builder.append('\n');
+	}
+
+	/**
+	 * Read the contents of the given entry.
+	 * @param jar The <code>JarFile</code>.
+	 * @param entry The <code>JarEntry</code>.
+	 * @return The <code>byte</code> array contents.
+	 * @throws IOException If reading file failed.
+	 */
+	private byte[] read(final JarFile jar, final JarEntry entry) throws IOException {
+		final InputStream input = jar.getInputStream(entry);
+		try {
+			return input.readAllBytes();
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Write the given contents as an uncompressed entry.
+	 * @param output The <code>JarOutputStream</code>.
+	 * @param name The <code>String</code> entry name.
+	 * @param contents The <code>byte</code> array
+	 * contents.
+	 * @throws IOException If writing file failed.
+	 */
+	private void writeEntry(final JarOutputStream output, final String name, final byte[] contents) throws IOException {
+		final CRC32 crc = new CRC32();
+		crc.update(contents);
+		final JarEntry entry = new JarEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(contents.length);
+		entry.setCompressedSize(contents.length);
+		entry.setCrc(crc.getValue());
+		output.putNextEntry(entry);
+		output.write(contents);
+		output.closeEntry();
+	}
+
+	/**
+	 * Build the key of the given Jar files.
+	 * @param jars The <code>List</code> of Jar
+	 * <code>File</code>.
+	 * @return The <code>String</code> key.
+	 */
+	private String buildKey(final List<File> jars) {
+		final MessageDigest digest = FileHasher.instance.newDigest();
+		final int size = jars.size();
+		for (int i = 0; i < size; i++) {
+			final File file = jars.get(i);
+			FileHasher.instance.update(digest, file.getAbsolutePath());
+			FileHasher.instance.update(digest, file.length() + ":" + file.lastModified());
+		}
+		return FileHasher.instance.toHex(digest.digest());
+	}
+}
@@ -0,0 +1,158 @@
+package hemera.core.shell.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <code>CommandOptions</code> defines the immutable
+ * parsed form of the arguments given to a command. It
+ * separates the positional arguments from the named
+ * options. A named option is given in the form of
+ * <code>--name value</code>, or <code>--name</code>
+ * for a flag option that does not take a value.
+ * <p>
+ * An option is considered a flag if it is the last
+ * argument or is immediately followed by another
+ * option.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class CommandOptions {
+	/**
+	 * The <code>String</code> option prefix.
+	 */
+	private static final String Prefix = "--";
+
+	/**
+	 * The <code>List</code> of positional argument
+	 * <code>String</code> values.
+	 */
+	private final List<String> positionals;
+	/**
+	 * The <code>Map</code> of option name to its
+	 * <code>String</code> value. Flag options are
+	 * mapped to <code>null</code>.
+	 */
+	private final Map<String, String> options;
+
+	/**
+	 * Constructor of <code>CommandOptions</code>.
+	 * @param args The <code>String</code> array of
+	 * command arguments. <code>null</code> if there
+	 * are no arguments.
+	 */
+	public CommandOptions(final String[] args) {
+		this.positionals = new ArrayList<String>();
+		this.options = new HashMap<String, String>();
+		if (args == null) return;
+		for (int i = 0; i < args.length; i++) {
+			final String arg = args[i];
+			if (arg.startsWith(CommandOptions.Prefix) && arg.length() > CommandOptions.Prefix.length()) {
+				final String name = arg.substring(CommandOptions.Prefix.length());
+				if (i+1 < args.length && !args[i+1].startsWith(CommandOptions.Prefix)) {
+					this.options.put(name, args[i+1]);
+					i++;
+				} else {
+					this.options.put(name, null);
+				}
+			} else {
+				this.positionals.add(arg);
+			}
+		}
+	}
+
+	/**
+	 * Retrieve the number of positional arguments.
+	 * @return The <code>int</code> count.
+	 */
+	public int getPositionalCount() {
+		return this.positionals.size();
+	}
+
+	/**
+	 * Retrieve the positional argument at the given
+	 * index.
+	 * @param index The <code>int</code> index.
+	 * @return The <code>String</code> argument.
+	 */
+	public String getPositional(final int index) {
+		return this.positionals.get(index);
+	}
+
+	/**
+	 * Check if the option with given name is present.
+	 * @param name The <code>String</code> name of the
+	 * option without the prefix.
+	 * @return <code>true</code> if the option is given.
+	 */
+	public boolean has(final String name) {
+		return this.options.containsKey(name);
+	}
+
+	/**
+	 * Retrieve the value of the option with given name.
+	 * @param name The <code>String</code> name of the
+	 * option without the prefix.
+	 * @param defaultValue The <code>String</code> value
+	 * to return if the option is not given.
+	 * @return The <code>String</code> value.
+	 */
+	public String get(final String name, final String defaultValue) {
+		final String value = this.options.get(name);
+		return (value == null) ? defaultValue : value;
+	}
+
+	/**
+	 * Retrieve the value of the option with given name
+	 * as an integer.
+	 * @param name The <code>String</code> name of the
+	 * option without the prefix.
+	 * @param defaultValue The <code>int</code> value
+	 * to return if the option is not given.
+	 * @return The <code>int</code> value.
+	 */
+	public int getInt(final String name, final int defaultValue) {
+		final String value = this.options.get(name);
+		if (value == null) return defaultValue;
+		try {
+			return Integer.parseInt(value);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value for option --" + name + ": " + value);
+		}
+	}
+
+	/**
+	 * Retrieve the value of the option with given name
+	 * as a duration. A duration is a number optionally
+	 * followed by <code>s</code>, <code>m</code>,
+	 * <code>h</code> or <code>d</code>, such as
+	 * <code>10m</code>. A number without a unit is in
+	 * seconds.
+	 * @param name The <code>String</code> name of the
+	 * option without the prefix.
+	 * @param defaultValue The <code>long</code> value in
+	 * milliseconds to return if the option is not given.
+	 * @return The <code>long</code> duration in
+	 * milliseconds.
+	 */
+	public long getDuration(final String name, final long defaultValue) {
+		final String value = this.options.get(name);
+		if (value == null) return defaultValue;
+		if (!value.matches("[0-9]{1,9}[smhd]?")) {
+			throw new IllegalArgumentException("Invalid duration for option --" + name + ": " + value +
+					". Must be a number optionally followed by s, m, h or d, such as 10m.");
+		}
+		final char last = value.charAt(value.length()-1);
+		if (Character.isDigit(last)) return Long.parseLong(value) * 1000L;
+		final long amount = Long.parseLong(value.substring(0, value.length()-1));
+		switch (last) {
+		case 's': return amount * 1000L;
+		case 'm': return amount * 60000L;
+		case 'h': return amount * 3600000L;
+		default: return amount * 86400000L;
+		}
+	}
+}
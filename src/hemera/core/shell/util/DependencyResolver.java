@@ -0,0 +1,184 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hemera.core.environment.enumn.EDependencyType;
+import hemera.core.environment.hbm.HBMDependency;
+import hemera.core.utility.FileUtils;
+
+/**
+ * <code>DependencyResolver</code> defines the unit
+ * that resolves bundle dependencies into their Jar
+ * files exactly once per bundle run. Each distinct
+ * dependency is identified by its type, value and
+ * library directory, so the same dependency declared
+ * by multiple resources is only processed the first
+ * time it is requested.
+ * <p>
+ * Source directory dependencies are compiled in memory
+ * and packaged into the same Jar file name the
+ * environment would produce. If a bundle cache is given,
+ * the generated Jar is stored in it and reused by later
+ * runs while the sources and library Jar files remain
+ * unchanged.
+ * <p>
+ * <code>DependencyResolver</code> is not thread-safe.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class DependencyResolver {
+	/**
+	 * The <code>String</code> temporary directory.
+	 */
+	private final String tempDir;
+	/**
+	 * The <code>BundleCache</code>. <code>null</code> if
+	 * caching is disabled.
+	 */
+	private final BundleCache cache;
+	/**
+	 * The <code>Map</code> of dependency identity to
+	 * its resolved <code>List</code> of Jar files.
+	 */
+	private final Map<String, List<File>> resolved;
+	/**
+	 * The <code>int</code> number of source directory
+	 * dependencies restored from the cache.
+	 */
+	private int cachedCount;
+
+	/**
+	 * Constructor of <code>DependencyResolver</code>.
+	 * @param tempDir The <code>String</code> temporary
+	 * directory to write generated Jar files to.
+	 * @param cache The <code>BundleCache</code>.
+	 * <code>null</code> if caching is disabled.
+	 */
+	public DependencyResolver(final String tempDir, final BundleCache cache) {
+		this.tempDir = FileUtils.instance.getValidDir(tempDir);
+		this.cache = cache;
+		this.resolved = new HashMap<String, List<File>>();
+	}
+
+	/**
+	 * Resolve all the given dependencies in order.
+	 * @param dependencies The <code>List</code> of
+	 * <code>HBMDependency</code>. <code>null</code> if
+	 * there are none.
+	 * @return The <code>List</code> of all the resolved
+	 * Jar <code>File</code>.
+	 * @throws Exception If processing any dependency
+	 * failed.
+	 */
+	public List<File> resolve(final List<HBMDependency> dependencies) throws Exception {
+		final List<File> files = new ArrayList<File>();
+		if (dependencies == null) return files;
+		final int size = dependencies.size();
+		for (int i = 0; i < size; i++) {
+			files.addAll(this.resolve(dependencies.get(i)));
+		}
+		return files;
+	}
+
+	/**
+	 * Resolve the given dependency. The result is
+	 * memoized for the lifetime of this resolver.
+	 * @param dependency The <code>HBMDependency</code>.
+	 * @return The unmodifiable <code>List</code> of
+	 * resolved Jar <code>File</code>.
+	 * @throws Exception If processing dependency failed.
+	 */
+	public List<File> resolve(final HBMDependency dependency) throws Exception {
+		final String identity = dependency.type.name() + "|" + dependency.value + "|" + dependency.libDir;
+		final List<File> existing = this.resolved.get(identity);
+		if (existing != null) return existing;
+		final List<File> files;
+		if (dependency.type == EDependencyType.SourceDirectory) files = this.build(dependency);
+		else files = dependency.process(this.tempDir);
+		final List<File> result = Collections.unmodifiableList(new ArrayList<File>(files));
+		this.resolved.put(identity, result);
+		return result;
+	}
+
+	/**
+	 * Build the given source directory dependency into
+	 * a Jar file, restoring it from the cache if its
+	 * inputs did not change.
+	 * @param dependency The source directory
+	 * <code>HBMDependency</code>.
+	 * @return The <code>List</code> of the single built
+	 * Jar <code>File</code>.
+	 * @throws Exception If compiling sources failed.
+	 */
+	private List<File> build(final HBMDependency dependency) throws Exception {
+		// A missing library directory contributes no libraries, as with no directory.
+		final List<File> found = (dependency.libDir==null) ? null : FileUtils.instance.getFiles(dependency.libDir, ".jar");
+		final List<File> libs = (found==null) ? new ArrayList<File>() : found;
+		final String key = (this.cache==null) ? null : this.cache.getDependencyKey(dependency.value, libs);
+		byte[] jar = (key==null) ? null : this.cache.restore(key);
+		if (jar != null) {
+			this.cachedCount++;
+		} else {
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final JarStreamWriter writer = new JarStreamWriter(output, null);
+			writer.writeEntries(ClassCompiler.instance.compile(dependency.value, libs));
+			writer.close();
+			jar = output.toByteArray();
+			if (key != null) this.cache.store(key, jar);
+		}
+		final File file = new File(this.tempDir + this.getJarName(dependency.value));
+		final OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			output.write(jar);
+		} finally {
+			output.close();
+		}
+		final List<File> files = new ArrayList<File>(1);
+		files.add(file);
+		return files;
+	}
+
+	/**
+	 * Retrieve the Jar file name of the source directory
+	 * dependency with given path. The name is the path
+	 * without its first segment, with separators replaced
+	 * by dots, which matches the name generated by the
+	 * environment dependency processing.
+	 * @param srcDir The <code>String</code> source
+	 * directory.
+	 * @return The <code>String</code> Jar file name.
+	 */
+	private String getJarName(final String srcDir) {
+		final int start = srcDir.indexOf(File.separator) + 1;
+		final int end = srcDir.endsWith(File.separator) ? srcDir.length()-1 : srcDir.length();
+		return srcDir.substring(start, end).replace(File.separator, ".") + ".jar";
+	}
+
+	/**
+	 * Retrieve the number of distinct dependencies that
+	 * have been resolved.
+	 * @return The <code>int</code> count.
+	 */
+	public int getResolvedCount() {
+		return this.resolved.size();
+	}
+
+	/**
+	 * Retrieve the number of source directory
+	 * dependencies restored from the cache.
+	 * @return The <code>int</code> count.
+	 */
+	public int getCachedCount() {
+		return this.cachedCount;
+	}
+}
@@ -0,0 +1,148 @@
+package hemera.core.shell.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <code>DependencySet</code> defines the ordered set of
+ * library files that are packaged together into a flat
+ * library directory. Files are indexed by their names,
+ * since only one file of each name can exist in the
+ * packaged directory. When a file with an existing name
+ * is added, the contents of both files are compared by
+ * hash. Identical copies are silently merged, whereas
+ * files with different contents are recorded as a
+ * version conflict. In both cases the file added first
+ * is kept.
+ * <p>
+ * Content hashes are only computed for files whose
+ * names collide, so adding files stays constant time
+ * for the common case.
+ * <p>
+ * <code>DependencySet</code> is not thread-safe.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class DependencySet {
+	/**
+	 * The <code>Map</code> of file name to the kept
+	 * <code>File</code> in insertion order.
+	 */
+	private final Map<String, File> files;
+	/**
+	 * The <code>Map</code> of file absolute path to its
+	 * <code>String</code> content hash.
+	 */
+	private final Map<String, String> hashes;
+	/**
+	 * The <code>Set</code> of absolute paths of all the
+	 * files that have been ignored.
+	 */
+	private final Set<String> ignored;
+	/**
+	 * The <code>List</code> of all the conflict
+	 * <code>String</code> descriptions.
+	 */
+	private final List<String> conflicts;
+
+	/**
+	 * Constructor of <code>DependencySet</code>.
+	 */
+	public DependencySet() {
+		this.files = new LinkedHashMap<String, File>();
+		this.hashes = new HashMap<String, String>();
+		this.ignored = new HashSet<String>();
+		this.conflicts = new ArrayList<String>();
+	}
+
+	/**
+	 * Add all the given files.
+	 * @param files The <code>List</code> of all the
+	 * <code>File</code> to add.
+	 * @throws IOException If hashing a colliding file
+	 * failed.
+	 */
+	public void addAll(final List<File> files) throws IOException {
+		final int size = files.size();
+		for (int i = 0; i < size; i++) {
+			this.add(files.get(i));
+		}
+	}
+
+	/**
+	 * Add the given file.
+	 * @param file The <code>File</code> to add.
+	 * @return <code>true</code> if the file is added.
+	 * <code>false</code> if a file with the same name
+	 * already exists.
+	 * @throws IOException If hashing a colliding file
+	 * failed.
+	 */
+	public boolean add(final File file) throws IOException {
+		final String name = file.getName();
+		final File existing = this.files.get(name);
+		if (existing == null) {
+			this.files.put(name, file);
+			return true;
+		}
+		// The same file may be declared by multiple resources.
+		if (existing.getAbsolutePath().equals(file.getAbsolutePath())) return false;
+		if (!this.ignored.add(file.getAbsolutePath())) return false;
+		final String existingHash = this.getHash(existing);
+		final String hash = this.getHash(file);
+		if (!existingHash.equals(hash)) {
+			final StringBuilder builder = new StringBuilder();
+			builder.append(name).append(": using ").append(existing.getAbsolutePath());
+			builder.append(" (").append(existingHash.substring(0, 8)).append("), ignoring ");
+			builder.append(file.getAbsolutePath()).append(" (").append(hash.substring(0, 8)).append(")");
+			this.conflicts.add(builder.toString());
+		}
+		return false;
+	}
+
+	/**
+	 * Retrieve the content hash of the given file.
+	 * @param file The <code>File</code> to hash.
+	 * @return The <code>String</code> hash.
+	 * @throws IOException If reading file failed.
+	 */
+	private String getHash(final File file) throws IOException {
+		final String path = file.getAbsolutePath();
+		String hash = this.hashes.get(path);
+		if (hash == null) {
+			// Archives are compared by contents so rebuilt copies match.
+			if (file.getName().endsWith(".jar")) hash = FileHasher.instance.hashArchive(file);
+			else hash = FileHasher.instance.hash(file);
+			this.hashes.put(path, hash);
+		}
+		return hash;
+	}
+
+	/**
+	 * Retrieve all the kept files in the order they
+	 * were added.
+	 * @return The <code>List</code> of <code>File</code>.
+	 */
+	public List<File> getFiles() {
+		return new ArrayList<File>(this.files.values());
+	}
+
+	/**
+	 * Retrieve the descriptions of all the detected
+	 * version conflicts.
+	 * @return The <code>List</code> of conflict
+	 * <code>String</code> descriptions. Empty if there
+	 * are no conflicts.
+	 */
+	public List<String> getConflicts() {
+		return this.conflicts;
+	}
+}
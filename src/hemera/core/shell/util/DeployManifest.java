@@ -0,0 +1,163 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <code>DeployManifest</code> defines the record of all
+ * the files written by a deployment of an application.
+ * Each file is identified by its path relative to the
+ * application directory, and its contents are recorded
+ * by their CRC-32 checksum and size, which are the same
+ * values stored in the bundle Jar entries. A later
+ * deployment compares against the manifest to only
+ * write the files that were added or changed, and to
+ * remove the files that no longer exist in the bundle.
+ * <p>
+ * The manifest is stored as a text file with one line
+ * per file, in the form of <code>crc size path</code>.
+ * <p>
+ * <code>DeployManifest</code> is thread-safe.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class DeployManifest {
+	/**
+	 * The <code>Map</code> of relative path to its
+	 * <code>long</code> array of checksum and size.
+	 */
+	private final Map<String, long[]> records;
+
+	/**
+	 * Constructor of <code>DeployManifest</code>.
+	 */
+	public DeployManifest() {
+		this.records = new ConcurrentHashMap<String, long[]>();
+	}
+
+	/**
+	 * Load the manifest from the given file.
+	 * @param file The manifest <code>File</code>.
+	 * @return The <code>DeployManifest</code>. Or
+	 * <code>null</code> if the file does not exist.
+	 * @throws IOException If reading file failed or
+	 * the file is malformed.
+	 */
+	public static DeployManifest load(final File file) throws IOException {
+		if (!file.isFile()) return null;
+		final DeployManifest manifest = new DeployManifest();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line = reader.readLine();
+			while (line != null) {
+				if (line.length() > 0) {
+					final int first = line.indexOf(' ');
+					final int second = (first < 0) ? -1 : line.indexOf(' ', first+1);
+					if (second < 0) throw new IOException("Malformed deploy manifest line: " + line);
+					try {
+						final long crc = Long.parseLong(line.substring(0, first), 16);
+						final long size = Long.parseLong(line.substring(first+1, second));
+						manifest.put(line.substring(second+1), crc, size);
+					} catch (final NumberFormatException e) {
+						throw new IOException("Malformed deploy manifest line: " + line);
+					}
+				}
+				line = reader.readLine();
+			}
+		} finally {
+			reader.close();
+		}
+		return manifest;
+	}
+
+	/**
+	 * Record the given file.
+	 * @param path The <code>String</code> path relative
+	 * to the application directory.
+	 * @param crc The <code>long</code> CRC-32 checksum.
+	 * @param size The <code>long</code> size in bytes.
+	 */
+	public void put(final String path, final long crc, final long size) {
+		this.records.put(path, new long[] {crc, size});
+	}
+
+	/**
+	 * Check if the file with given path is recorded
+	 * with the given checksum and size.
+	 * @param path The <code>String</code> path relative
+	 * to the application directory.
+	 * @param crc The <code>long</code> CRC-32 checksum.
+	 * @param size The <code>long</code> size in bytes.
+	 * @return <code>true</code> if the record matches.
+	 */
+	public boolean matches(final String path, final long crc, final long size) {
+		final long[] record = this.records.get(path);
+		return (record != null && record[0] == crc && record[1] == size);
+	}
+
+	/**
+	 * Check if the file with given path is recorded.
+	 * @param path The <code>String</code> path relative
+	 * to the application directory.
+	 * @return <code>true</code> if it is recorded.
+	 */
+	public boolean contains(final String path) {
+		return this.records.containsKey(path);
+	}
+
+	/**
+	 * Retrieve all the recorded paths in sorted order.
+	 * @return The <code>List</code> of relative path
+	 * <code>String</code>.
+	 */
+	public List<String> getPaths() {
+		final List<String> paths = new ArrayList<String>(this.records.keySet());
+		Collections.sort(paths);
+		return paths;
+	}
+
+	/**
+	 * Save the manifest to the given file. The file is
+	 * written to a temporary file first then renamed,
+	 * so a failed deployment never leaves a partially
+	 * written manifest behind.
+	 * @param file The manifest <code>File</code>.
+	 * @throws IOException If writing file failed.
+	 */
+	public void save(final File file) throws IOException {
+		final File temp = new File(file.getAbsolutePath() + ".tmp");
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8");
+		try {
+			final List<String> paths = this.getPaths();
+			final int size = paths.size();
+			for (int i = 0; i < size; i++) {
+				final String path = paths.get(i);
+				final long[] record = this.records.get(path);
+				writer.write(Long.toHexString(record[0]));
+				writer.write(' ');
+				writer.write(Long.toString(record[1]));
+				writer.write(' ');
+				writer.write(path);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+		file.delete();
+		if (!temp.renameTo(file)) {
+			throw new IOException("Moving deploy manifest to " + file.getAbsolutePath() + " failed.");
+		}
+	}
+}
@@ -0,0 +1,509 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.w3c.dom.Document;
+
+import hemera.core.environment.enumn.EEnvironment;
+import hemera.core.environment.ham.HAM;
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.utility.FileUtils;
+
+/**
+ * <code>DeploymentRegistry</code> defines the record of
+ * all the deployed applications, so listing them and
+ * generating the runtime scripts do not need to parse
+ * every HAM file and scan the applications directory
+ * for Jar files. Each application is recorded with its
+ * name, version, deploy time, content hash, resource
+ * class names and Jar files.
+ * <p>
+ * The registry is stored in the home directory as a
+ * text file. Each application starts with a line in
+ * the form of <code>app name version time hash</code>,
+ * followed by one <code>resource classname</code> line
+ * per resource and one <code>jar path</code> line per
+ * Jar file, with the fields separated by tabs and the
+ * Jar paths relative to the applications directory.
+ * The content hash is the hash of the deploy manifest
+ * of the application, so it changes whenever any of
+ * the deployed files change.
+ * <p>
+ * Deployments update the registry while holding a lock
+ * on it, and write it to a temporary file first then
+ * atomically move it over the previous one, so
+ * concurrent updates are not lost and readers never
+ * see a partially written or missing registry. If
+ * the registry does not exist, for instance after
+ * upgrading from an environment without one, it is
+ * rebuilt from the deployed HAM files once.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class DeploymentRegistry {
+	/**
+	 * The <code>String</code> first line identifying
+	 * the registry format.
+	 */
+	private static final String Header = "hemera-registry\t1";
+	/**
+	 * The <code>String</code> version recorded when it
+	 * is not known.
+	 */
+	public static final String UnknownVersion = "unknown";
+	/**
+	 * The <code>String</code> hash recorded when the
+	 * application has no deploy manifest.
+	 */
+	public static final String UnknownHash = "-";
+	/**
+	 * The <code>Map</code> of application name to its
+	 * <code>Entry</code>, sorted by name.
+	 */
+	private final Map<String, Entry> entries;
+
+	/**
+	 * Constructor of <code>DeploymentRegistry</code>.
+	 */
+	private DeploymentRegistry() {
+		this.entries = new TreeMap<String, Entry>();
+	}
+
+	/**
+	 * Load the registry of the given home directory,
+	 * rebuilding it from the deployed applications if it
+	 * does not exist.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The <code>DeploymentRegistry</code>.
+	 * @throws IOException If reading or rebuilding the
+	 * registry failed.
+	 */
+	public static DeploymentRegistry load(final String homeDir) throws IOException {
+		final File file = DeploymentRegistry.getFile(homeDir);
+		if (file.isFile()) return DeploymentRegistry.read(file);
+		final RandomAccessFile lockFile = DeploymentRegistry.lock(homeDir);
+		try {
+			// Another process may have rebuilt it while waiting for the lock.
+			if (file.isFile()) return DeploymentRegistry.read(file);
+			final DeploymentRegistry registry = DeploymentRegistry.scan(homeDir);
+			registry.save(file);
+			return registry;
+		} finally {
+			lockFile.close();
+		}
+	}
+
+	/**
+	 * Rebuild the registry of the given home directory
+	 * from the deployed applications, replacing the
+	 * existing one.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The rebuilt <code>DeploymentRegistry</code>.
+	 * @throws IOException If rebuilding the registry
+	 * failed.
+	 */
+	public static DeploymentRegistry rebuild(final String homeDir) throws IOException {
+		final RandomAccessFile lockFile = DeploymentRegistry.lock(homeDir);
+		try {
+			final DeploymentRegistry registry = DeploymentRegistry.scan(homeDir);
+			registry.save(DeploymentRegistry.getFile(homeDir));
+			return registry;
+		} finally {
+			lockFile.close();
+		}
+	}
+
+	/**
+	 * Record the given application in the registry of
+	 * the given home directory, replacing the existing
+	 * entry of the application.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param entry The <code>Entry</code> to record.
+	 * @return The replaced <code>Entry</code>. Or
+	 * <code>null</code> if the application was not
+	 * recorded.
+	 * @throws IOException If updating the registry
+	 * failed.
+	 */
+	public static Entry register(final String homeDir, final Entry entry) throws IOException {
+		final RandomAccessFile lockFile = DeploymentRegistry.lock(homeDir);
+		try {
+			final DeploymentRegistry registry = DeploymentRegistry.loadLocked(homeDir);
+			final Entry previous = registry.entries.put(entry.name, entry);
+			registry.save(DeploymentRegistry.getFile(homeDir));
+			return previous;
+		} finally {
+			lockFile.close();
+		}
+	}
+
+	/**
+	 * Remove the given application from the registry of
+	 * the given home directory.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param appName The <code>String</code> name of the
+	 * application.
+	 * @return The removed <code>Entry</code>. Or
+	 * <code>null</code> if the application was not
+	 * recorded.
+	 * @throws IOException If updating the registry
+	 * failed.
+	 */
+	public static Entry unregister(final String homeDir, final String appName) throws IOException {
+		final RandomAccessFile lockFile = DeploymentRegistry.lock(homeDir);
+		try {
+			final DeploymentRegistry registry = DeploymentRegistry.loadLocked(homeDir);
+			final Entry previous = registry.entries.remove(appName);
+			registry.save(DeploymentRegistry.getFile(homeDir));
+			return previous;
+		} finally {
+			lockFile.close();
+		}
+	}
+
+	/**
+	 * Create the entry of the given deployed application
+	 * from its deploy manifest.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param ham The <code>HAM</code> document.
+	 * @param version The <code>String</code> version.
+	 * <code>null</code> if not known.
+	 * @param time The <code>long</code> deploy time in
+	 * milliseconds.
+	 * @return The <code>Entry</code>.
+	 * @throws IOException If reading the deploy manifest
+	 * failed.
+	 */
+	public static Entry newEntry(final String homeDir, final HAM ham, final String version, final long time) throws IOException {
+		final String appsDir = UEnvironment.instance.getAppsDir(homeDir);
+		final String appDir = appsDir + ham.applicationName + File.separator;
+		final List<String> resources = new ArrayList<String>(ham.resources.size());
+		for (int i = 0; i < ham.resources.size(); i++) {
+			resources.add(ham.resources.get(i).classname);
+		}
+		final List<String> jars = new ArrayList<String>();
+		final File manifestFile = new File(appDir + ham.applicationName + EShell.DeployManifestExtension.value);
+		final DeployManifest manifest = manifestFile.isFile() ? DeployManifest.load(manifestFile) : null;
+		final String hash;
+		if (manifest != null) {
+			final List<String> paths = manifest.getPaths();
+			final int size = paths.size();
+			for (int i = 0; i < size; i++) {
+				final String path = paths.get(i);
+				if (path.endsWith(".jar")) jars.add(ham.applicationName + "/" + path);
+			}
+			hash = FileHasher.instance.hash(manifestFile);
+		} else {
+			// Deployed before manifests were recorded.
+			final List<File> files = FileUtils.instance.getFiles(appDir, ".jar");
+			if (files != null) {
+				final int size = files.size();
+				for (int i = 0; i < size; i++) {
+					jars.add(DeploymentRegistry.relativize(appsDir, files.get(i)));
+				}
+				Collections.sort(jars);
+			}
+			hash = DeploymentRegistry.UnknownHash;
+		}
+		final String validVersion = (version==null || version.isEmpty()) ? DeploymentRegistry.UnknownVersion : version;
+		return new Entry(ham.applicationName, validVersion, time, hash, resources, jars);
+	}
+
+	/**
+	 * Build the registry of the given home directory by
+	 * parsing all the deployed HAM files.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The <code>DeploymentRegistry</code>.
+	 * @throws IOException If reading the deployed files
+	 * failed.
+	 */
+	private static DeploymentRegistry scan(final String homeDir) throws IOException {
+		final DeploymentRegistry registry = new DeploymentRegistry();
+		final String appsDir = UEnvironment.instance.getAppsDir(homeDir);
+		final List<File> hamFiles = FileUtils.instance.getFiles(appsDir, EEnvironment.HAMExtension.value);
+		if (hamFiles == null) return registry;
+		final int size = hamFiles.size();
+		for (int i = 0; i < size; i++) {
+			final File hamFile = hamFiles.get(i);
+			final HAM ham;
+			try {
+				final Document document = FileUtils.instance.readAsDocument(hamFile);
+				ham = new HAM(document);
+			} catch (final Exception e) {
+				throw new IOException("Parsing " + hamFile.getAbsolutePath() + " failed.", e);
+			}
+			final Entry entry = DeploymentRegistry.newEntry(homeDir, ham, null, hamFile.lastModified());
+			registry.entries.put(entry.name, entry);
+		}
+		return registry;
+	}
+
+	/**
+	 * Load the registry of the given home directory
+	 * while already holding its lock.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The <code>DeploymentRegistry</code>.
+	 * @throws IOException If reading the registry
+	 * failed.
+	 */
+	private static DeploymentRegistry loadLocked(final String homeDir) throws IOException {
+		final File file = DeploymentRegistry.getFile(homeDir);
+		return file.isFile() ? DeploymentRegistry.read(file) : DeploymentRegistry.scan(homeDir);
+	}
+
+	/**
+	 * Read the registry from the given file.
+	 * @param file The registry <code>File</code>.
+	 * @return The <code>DeploymentRegistry</code>.
+	 * @throws IOException If reading the file failed
+	 * or the file is malformed.
+	 */
+	private static DeploymentRegistry read(final File file) throws IOException {
+		final DeploymentRegistry registry = new DeploymentRegistry();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line = reader.readLine();
+			if (!DeploymentRegistry.Header.equals(line)) {
+				throw new IOException("Unsupported deployment registry: " + file.getAbsolutePath());
+			}
+			Entry entry = null;
+			line = reader.readLine();
+			while (line != null) {
+				final String[] fields = line.split("\t");
+				if (fields[0].equals("app") && fields.length == 5) {
+					try {
+						entry = new Entry(fields[1], fields[2], Long.parseLong(fields[3]), fields[4],
+								new ArrayList<String>(), new ArrayList<String>());
+					} catch (final NumberFormatException e) {
+						throw new IOException("Malformed deployment registry line: " + line);
+					}
+					registry.entries.put(entry.name, entry);
+				} else if (fields[0].equals("resource") && fields.length == 2 && entry != null) {
+					entry.resources.add(fields[1]);
+				} else if (fields[0].equals("jar") && fields.length == 2 && entry != null) {
+					entry.jars.add(fields[1]);
+				} else if (line.length() > 0) {
+					throw new IOException("Malformed deployment registry line: " + line);
+				}
+				line = reader.readLine();
+			}
+		} finally {
+			reader.close();
+		}
+		return registry;
+	}
+
+	/**
+	 * Save the registry to the given file. The file is
+	 * written to a temporary file first then atomically
+	 * moved over the previous file.
+	 * @param file The registry <code>File</code>.
+	 * @throws IOException If writing file failed.
+	 */
+	private void save(final File file) throws IOException {
+		final File temp = new File(file.getAbsolutePath() + ".tmp");
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8");
+		try {
+			writer.write(DeploymentRegistry.Header);
+			writer.write('\n');
+			for (final Entry entry : this.entries.values()) {
+				writer.write("app\t" + entry.name + "\t" + entry.version + "\t" + entry.time + "\t" + entry.hash + "\n");
+				for (int i = 0; i < entry.resources.size(); i++) {
+					writer.write("resource\t" + entry.resources.get(i) + "\n");
+				}
+				for (int i = 0; i < entry.jars.size(); i++) {
+					writer.write("jar\t" + entry.jars.get(i) + "\n");
+				}
+			}
+		} finally {
+			writer.close();
+		}
+		// Readers see either the previous or the new registry, never a missing one.
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Acquire the exclusive lock on the registry of the
+	 * given home directory, waiting for other processes
+	 * to release it. Closing the returned file releases
+	 * the lock.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The locked <code>RandomAccessFile</code>.
+	 * @throws IOException If locking failed.
+	 */
+	private static RandomAccessFile lock(final String homeDir) throws IOException {
+		final File file = new File(DeploymentRegistry.getFile(homeDir).getAbsolutePath() + ".lock");
+		final RandomAccessFile lockFile = new RandomAccessFile(file, "rw");
+		try {
+			final FileLock lock = lockFile.getChannel().lock();
+			if (lock == null) throw new IOException("Locking deployment registry failed.");
+		} catch (final IOException e) {
+			lockFile.close();
+			throw e;
+		}
+		return lockFile;
+	}
+
+	/**
+	 * Retrieve the registry file of the given home
+	 * directory.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The registry <code>File</code>.
+	 */
+	private static File getFile(final String homeDir) {
+		return new File(FileUtils.instance.getValidDir(homeDir) + EShell.DeploymentRegistryFile.value);
+	}
+
+	/**
+	 * Retrieve the path of the given file relative to
+	 * the given directory, using forward slashes.
+	 * @param dir The <code>String</code> directory.
+	 * @param file The <code>File</code>.
+	 * @return The <code>String</code> relative path.
+	 */
+	private static String relativize(final String dir, final File file) {
+		final String base = new File(dir).getAbsolutePath() + File.separator;
+		final String path = file.getAbsolutePath();
+		final String relative = path.startsWith(base) ? path.substring(base.length()) : path;
+		return relative.replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Retrieve the entries of all the recorded
+	 * applications.
+	 * @return The <code>List</code> of <code>Entry</code>
+	 * sorted by application name.
+	 */
+	public List<Entry> getEntries() {
+		return new ArrayList<Entry>(this.entries.values());
+	}
+
+	/**
+	 * Retrieve the entry of the given application.
+	 * @param appName The <code>String</code> name of the
+	 * application.
+	 * @return The <code>Entry</code>. Or <code>null</code>
+	 * if the application is not recorded.
+	 */
+	public Entry getEntry(final String appName) {
+		return this.entries.get(appName);
+	}
+
+	/**
+	 * Retrieve the Jar files of all the recorded
+	 * applications.
+	 * @param homeDir The <code>String</code> home
+	 * directory the Jar paths are resolved against.
+	 * @return The <code>List</code> of Jar <code>File</code>
+	 * ordered by application name then path.
+	 */
+	public List<File> getJars(final String homeDir) {
+		final List<File> jars = new ArrayList<File>();
+		for (final Entry entry : this.entries.values()) {
+			jars.addAll(this.getJars(homeDir, entry));
+		}
+		return jars;
+	}
+
+	/**
+	 * Retrieve the Jar files of the given recorded
+	 * application.
+	 * @param homeDir The <code>String</code> home
+	 * directory the Jar paths are resolved against.
+	 * @param entry The <code>Entry</code> of the
+	 * application.
+	 * @return The <code>List</code> of Jar <code>File</code>
+	 * ordered by path.
+	 */
+	public List<File> getJars(final String homeDir, final Entry entry) {
+		final String appsDir = UEnvironment.instance.getAppsDir(homeDir);
+		final List<File> jars = new ArrayList<File>(entry.jars.size());
+		for (int i = 0; i < entry.jars.size(); i++) {
+			jars.add(new File(appsDir + entry.jars.get(i).replace('/', File.separatorChar)));
+		}
+		return jars;
+	}
+
+	/**
+	 * <code>Entry</code> defines the registry record of
+	 * a single deployed application.
+	 */
+	public static class Entry {
+		/**
+		 * The <code>String</code> application name.
+		 */
+		public final String name;
+		/**
+		 * The <code>String</code> version.
+		 */
+		public final String version;
+		/**
+		 * The <code>long</code> deploy time in
+		 * milliseconds.
+		 */
+		public final long time;
+		/**
+		 * The <code>String</code> content hash.
+		 */
+		public final String hash;
+		/**
+		 * The <code>List</code> of resource class name
+		 * <code>String</code>.
+		 */
+		public final List<String> resources;
+		/**
+		 * The <code>List</code> of Jar file path
+		 * <code>String</code> relative to the
+		 * applications directory.
+		 */
+		public final List<String> jars;
+
+		/**
+		 * Constructor of <code>Entry</code>.
+		 * @param name The <code>String</code> application
+		 * name.
+		 * @param version The <code>String</code> version.
+		 * @param time The <code>long</code> deploy time.
+		 * @param hash The <code>String</code> content hash.
+		 * @param resources The <code>List</code> of resource
+		 * class names.
+		 * @param jars The <code>List</code> of Jar paths.
+		 */
+		private Entry(final String name, final String version, final long time, final String hash,
+				final List<String> resources, final List<String> jars) {
+			this.name = name;
+			this.version = version;
+			this.time = time;
+			this.hash = hash;
+			this.resources = resources;
+			this.jars = jars;
+		}
+	}
+}
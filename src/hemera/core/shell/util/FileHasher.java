@@ -0,0 +1,190 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * <code>FileHasher</code> defines the singleton
+ * implementation that computes content hashes of
+ * files and directories. All hashes are SHA-1 digests
+ * encoded as lower case hexadecimal strings.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum FileHasher {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Create a new message digest instance.
+	 * @return The <code>MessageDigest</code>.
+	 */
+	public MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 digest is not supported.", e);
+		}
+	}
+
+	/**
+	 * Compute the hash of the contents of the given
+	 * file.
+	 * @param file The <code>File</code> to hash.
+	 * @return The <code>String</code> hash.
+	 * @throws IOException If reading file failed.
+	 */
+	public String hash(final File file) throws IOException {
+		final MessageDigest digest = this.newDigest();
+		this.update(digest, file);
+		return this.toHex(digest.digest());
+	}
+
+	/**
+	 * Compute the hash of the entries of the given
+	 * archive file. Only entry names and contents are
+	 * hashed, so archives that are rebuilt from the same
+	 * contents at a different time hash the same.
+	 * @param file The archive <code>File</code>.
+	 * @return The <code>String</code> hash.
+	 * @throws IOException If reading file failed.
+	 */
+	public String hashArchive(final File file) throws IOException {
+		final MessageDigest digest = this.newDigest();
+		final ZipInputStream input = new ZipInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			final byte[] buffer = new byte[8192];
+			ZipEntry entry = input.getNextEntry();
+			while (entry != null) {
+				this.update(digest, entry.getName());
+				int count = input.read(buffer);
+				while (count >= 0) {
+					digest.update(buffer, 0, count);
+					count = input.read(buffer);
+				}
+				entry = input.getNextEntry();
+			}
+		} finally {
+			input.close();
+		}
+		return this.toHex(digest.digest());
+	}
+
+	/**
+	 * Compute the hash of the given bytes.
+	 * @param bytes The <code>byte</code> array.
+	 * @return The <code>String</code> hash.
+	 */
+	public String hash(final byte[] bytes) {
+		final MessageDigest digest = this.newDigest();
+		digest.update(bytes);
+		return this.toHex(digest.digest());
+	}
+
+	/**
+	 * Update the given digest with the contents of
+	 * the given file.
+	 * @param digest The <code>MessageDigest</code>.
+	 * @param file The <code>File</code> to read.
+	 * @throws IOException If reading file failed.
+	 */
+	public void update(final MessageDigest digest, final File file) throws IOException {
+		final InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			final byte[] buffer = new byte[8192];
+			int count = input.read(buffer);
+			while (count >= 0) {
+				digest.update(buffer, 0, count);
+				count = input.read(buffer);
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Update the given digest with the relative paths
+	 * and the contents of all the non-hidden files under
+	 * the given directory, in a stable order.
+	 * @param digest The <code>MessageDigest</code>.
+	 * @param dir The <code>String</code> directory. If
+	 * the directory does not exist, the digest is only
+	 * updated with a marker.
+	 * @throws IOException If reading files failed.
+	 */
+	public void updateDirectory(final MessageDigest digest, final String dir) throws IOException {
+		final File root = new File(dir);
+		if (!root.isDirectory()) {
+			this.update(digest, "<none>");
+			return;
+		}
+		this.updateDirectory(digest, root, "");
+	}
+
+	/**
+	 * Recursively update the given digest with the
+	 * contents of the given directory.
+	 * @param digest The <code>MessageDigest</code>.
+	 * @param dir The <code>File</code> directory.
+	 * @param prefix The <code>String</code> relative
+	 * path of the directory.
+	 * @throws IOException If reading files failed.
+	 */
+	private void updateDirectory(final MessageDigest digest, final File dir, final String prefix) throws IOException {
+		final File[] files = dir.listFiles();
+		if (files == null) return;
+		Arrays.sort(files);
+		for (int i = 0; i < files.length; i++) {
+			final File file = files[i];
+			if (file.isHidden()) continue;
+			final String path = prefix + file.getName();
+			if (file.isDirectory()) {
+				this.updateDirectory(digest, file, path + "/");
+			} else {
+				this.update(digest, path);
+				this.update(digest, file);
+			}
+		}
+	}
+
+	/**
+	 * Update the given digest with the given value
+	 * followed by a separator.
+	 * @param digest The <code>MessageDigest</code>.
+	 * @param value The <code>String</code> value.
+	 */
+	public void update(final MessageDigest digest, final String value) {
+		try {
+			digest.update(value.getBytes("UTF-8"));
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update((byte)0);
+	}
+
+	/**
+	 * Encode the given bytes as a hexadecimal string.
+	 * @param bytes The <code>byte</code> array.
+	 * @return The <code>String</code> encoding.
+	 */
+	public String toHex(final byte[] bytes) {
+		final char[] digits = "0123456789abcdef".toCharArray();
+		final char[] chars = new char[bytes.length*2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i*2] = digits[(bytes[i] >> 4) & 0xF];
+			chars[i*2+1] = digits[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+}
@@ -2,17 +2,29 @@ package hemera.core.shell.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
 
 import hemera.core.environment.config.Configuration;
+import hemera.core.environment.config.key.KConfigAssistedService;
+import hemera.core.environment.config.key.KConfigLogging;
+import hemera.core.environment.config.key.KConfigScalableService;
 import hemera.core.environment.enumn.EEnvironment;
 import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ConfigLogging;
+import hemera.core.shell.config.ConfigPlacement;
+import hemera.core.shell.config.ConfigTuning;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.enumn.EGarbageCollector;
 import hemera.core.shell.enumn.EShell;
 import hemera.core.utility.FileUtils;
 import hemera.core.utility.shell.Shell;
 
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 /**
@@ -31,9 +43,12 @@ public enum JSVCScriptGenerator {
 	instance;
 
 	/**
-	 * Export both start and stop scripts based on the
-	 * current environment setup to the runtime binary
-	 * directory derived from the specified home.
+	 * Export both start and stop scripts of every
+	 * configured runtime instance based on the current
+	 * environment setup to the runtime binary directory
+	 * derived from the specified home. The scripts of
+	 * instances that are no longer configured are
+	 * removed.
 	 * @param homeDir The <code>String</code> runtime
 	 * home directory.
 	 * @param config The <code>Configuration</code>
@@ -48,16 +63,59 @@ public enum JSVCScriptGenerator {
 	 */
 	public void exportScripts(final String homeDir, final Configuration config) throws IOException, SAXException, ParserConfigurationException, InterruptedException {
 		final String binDir = UEnvironment.instance.getBinDir(homeDir);
-		// Start script.
-		final String startScriptContents = JSVCScriptGenerator.instance.generateStartScript(homeDir, config);
-		final String startTarget = binDir + EShell.JSVCStartScriptFile.value;
-		FileUtils.instance.writeAsString(startScriptContents, startTarget);
-		Shell.instance.makeExecutable(startTarget);
-		// Stop script.
-		final String stopScriptContents = JSVCScriptGenerator.instance.generateStopScript(homeDir, config);
-		final String stopTarget = binDir + EShell.JSVCStopScriptFile.value;
-		FileUtils.instance.writeAsString(stopScriptContents, stopTarget);
-		Shell.instance.makeExecutable(stopTarget);
+		final ShellConfiguration shellConfig = UShell.instance.getConfiguration(homeDir);
+		final int count = shellConfig.instances.count;
+		if (count > 1 && !UShell.instance.isShellLauncher(config)) {
+			throw new IllegalArgumentException("Runtime instances share the configured port, which requires the shell launcher. " +
+					"Custom launcher " + config.runtime.launcher + " can only run a single instance.");
+		}
+		if (shellConfig.management.jmxPort > 0) ManagementCredentials.instance.ensure(homeDir);
+		final int nodeCount = shellConfig.instances.bindNodes ? CPUTopology.instance.getNodeCount() : 1;
+		final String classpath = this.buildClasspath(homeDir, config, shellConfig);
+		// The runtime JVM may differ from the shell JVM.
+		final int javaVersion = RuntimeJVM.instance.probe(homeDir, this.buildEnvironment());
+		// Class data sharing archive of the class path.
+		String archive = null;
+		if (shellConfig.tuning.classDataSharing) {
+			archive = ClassDataArchive.instance.update(homeDir, this.buildEnvironment(), classpath, this.buildApplicationClasspaths(homeDir, config));
+		}
+		else ClassDataArchive.instance.delete(homeDir);
+		for (int i = 0; i < count; i++) {
+			// Runtime configuration.
+			final ConfigPlacement placement = shellConfig.instances.bindNodes ? shellConfig.placement.forNode(i % nodeCount) : shellConfig.placement;
+			final String configPath = this.exportRuntimeConfiguration(homeDir, config, placement, i);
+			// Start script.
+			final String startScriptContents = this.generateStartScript(homeDir, config, shellConfig, placement, i, classpath, archive, configPath, javaVersion);
+			final String startTarget = binDir + UShell.instance.getInstanceFile(EShell.JSVCStartScriptFile.value, i);
+			FileUtils.instance.writeAsString(startScriptContents, startTarget);
+			Shell.instance.makeExecutable(startTarget);
+			// Stop script.
+			final String stopScriptContents = this.generateStopScript(homeDir, config, shellConfig, i, classpath, archive, configPath, javaVersion);
+			final String stopTarget = binDir + UShell.instance.getInstanceFile(EShell.JSVCStopScriptFile.value, i);
+			FileUtils.instance.writeAsString(stopScriptContents, stopTarget);
+			Shell.instance.makeExecutable(stopTarget);
+		}
+		this.removeInstances(homeDir, count);
+	}
+
+	/**
+	 * Remove the scripts and runtime configuration files
+	 * of all the instances starting at the given index.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 * @param from The <code>int</code> index of the
+	 * first instance to remove.
+	 */
+	private void removeInstances(final String homeDir, final int from) {
+		final String binDir = UEnvironment.instance.getBinDir(homeDir);
+		final String configDir = UEnvironment.instance.getConfigDir(homeDir);
+		for (int i = Math.max(1, from); true; i++) {
+			final File start = new File(binDir + UShell.instance.getInstanceFile(EShell.JSVCStartScriptFile.value, i));
+			if (!start.exists()) return;
+			start.delete();
+			new File(binDir + UShell.instance.getInstanceFile(EShell.JSVCStopScriptFile.value, i)).delete();
+			new File(configDir + UShell.instance.getInstanceFile(EShell.RuntimeConfigurationFile.value, i)).delete();
+		}
 	}
 
 	/**
@@ -68,25 +126,41 @@ public enum JSVCScriptGenerator {
 	 * home directory.
 	 * @param config The <code>Configuration</code>
 	 * used by the environment.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @param classpath The <code>String</code> class path.
+	 * @param archive The <code>String</code> path of the
+	 * class data sharing archive. <code>null</code> if
+	 * there is none.
+	 * @param configPath The <code>String</code> path of
+	 * the configuration file the runtime is launched with.
+	 * @param javaVersion The <code>int</code> major
+	 * version of the runtime JVM.
 	 * @return The <code>String</code> script.
-	 * @throws SAXException If loading configuration
-	 * from file failed.
-	 * @throws IOException If loading configuration
-	 * from file failed.
-	 * @throws ParserConfigurationException If loading
-	 * configuration from file failed.
-	 */
-	private String generateStopScript(final String homeDir, final Configuration config) throws SAXException, IOException, ParserConfigurationException {
-		final String header = this.buildHeader(homeDir);
-		final String classpath = this.buildClasspath(homeDir);
-		final String footer = this.buildFooter(homeDir, config);
+	 */
+	private String generateStopScript(final String homeDir, final Configuration config, final ShellConfiguration shellConfig,
+			final int index, final String classpath, final String archive, final String configPath, final int javaVersion) {
+		final String header = this.buildHeader(homeDir, config, shellConfig, null, index, archive, javaVersion);
+		final String footer = this.buildFooter(config, configPath);
 		// Build script.
 		final StringBuilder builder = new StringBuilder();
-		builder.append(header).append(" -stop -wait 20 -cp ").append(classpath).append(" ");
+		builder.append(header).append(" -stop -wait ").append(this.getStopWait(shellConfig)).append(" -cp ").append(classpath).append(" ");
 		builder.append(footer);
 		return builder.toString();
 	}
 
+	/**
+	 * Retrieve the number of seconds JSVC waits for the
+	 * runtime to stop. It covers the drain timeout and
+	 * the shutdown of the runtime, which waits up to 10
+	 * seconds for its tasks to terminate.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @return The <code>int</code> number of seconds.
+	 */
+	private int getStopWait(final ShellConfiguration shellConfig) {
+		return Math.max(20, shellConfig.shutdown.drainTimeout + 15);
+	}
+
 	/**
 	 * Generate the JSVC start script. This script will
 	 * scan all internal libraries as well as all the
@@ -95,18 +169,25 @@ public enum JSVCScriptGenerator {
 	 * home directory.
 	 * @param config The <code>Configuration</code>
 	 * used by the environment.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param placement The <code>ConfigPlacement</code>
+	 * of the instance.
+	 * @param index The <code>int</code> instance index.
+	 * @param classpath The <code>String</code> class path.
+	 * @param archive The <code>String</code> path of the
+	 * class data sharing archive. <code>null</code> if
+	 * there is none.
+	 * @param configPath The <code>String</code> path of
+	 * the configuration file the runtime is launched with.
+	 * @param javaVersion The <code>int</code> major
+	 * version of the runtime JVM.
 	 * @return The <code>String</code> script.
-	 * @throws SAXException If loading configuration
-	 * from file failed.
-	 * @throws IOException If loading configuration
-	 * from file failed.
-	 * @throws ParserConfigurationException If loading
-	 * configuration from file failed.
-	 */
-	private String generateStartScript(final String homeDir, final Configuration config) throws SAXException, IOException, ParserConfigurationException {
-		final String header = this.buildHeader(homeDir);
-		final String classpath = this.buildClasspath(homeDir);
-		final String footer = this.buildFooter(homeDir, config);
+	 */
+	private String generateStartScript(final String homeDir, final Configuration config, final ShellConfiguration shellConfig,
+			final ConfigPlacement placement, final int index, final String classpath, final String archive, final String configPath,
+			final int javaVersion) {
+		final String header = this.buildHeader(homeDir, config, shellConfig, placement, index, archive, javaVersion);
+		final String footer = this.buildFooter(config, configPath);
 		// Build script.
 		final StringBuilder builder = new StringBuilder();
 		builder.append(header).append(" -wait 20 -cp ").append(classpath).append(" ");
@@ -118,27 +199,26 @@ public enum JSVCScriptGenerator {
 	 * Build the header section of the script.
 	 * @param homeDir The <code>String</code> runtime
 	 * home directory.
+	 * @param config The <code>Configuration</code>
+	 * used by the environment.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param placement The <code>ConfigPlacement</code>
+	 * to place the launched process with. <code>null</code>
+	 * if the header does not launch the runtime.
+	 * @param index The <code>int</code> instance index.
+	 * @param archive The <code>String</code> path of the
+	 * class data sharing archive. <code>null</code> if
+	 * there is none.
+	 * @param javaVersion The <code>int</code> major
+	 * version of the runtime JVM.
 	 * @return The <code>String</code> header section
 	 * of the script.
-	 * @throws SAXException If loading configuration
-	 * from file failed.
-	 * @throws IOException If loading configuration
-	 * from file failed.
-	 * @throws ParserConfigurationException If loading
-	 * configuration from file failed.
-	 */
-	private String buildHeader(final String homeDir) throws SAXException, IOException, ParserConfigurationException {
+	 */
+	private String buildHeader(final String homeDir, final Configuration config, final ShellConfiguration shellConfig,
+			final ConfigPlacement placement, final int index, final String archive, final int javaVersion) {
 		final String binDir = UEnvironment.instance.getBinDir(homeDir);
-		final Configuration config = UEnvironment.instance.getConfiguration(homeDir);
 		final StringBuilder builder = new StringBuilder();
-		builder.append("#!/bin/sh\n\n");
-		// Export Java home based on operating system.
-		if (UEnvironment.instance.isOSX()) {
-			builder.append("export JAVA_HOME=$(/usr/libexec/java_home)\n");
-		} else if (UEnvironment.instance.isLinux()) {
-			builder.append("export JAVA_HOME=/usr/lib/jvm/default-java\n");
-		}
-		builder.append("export PATH=$JAVA_HOME:$PATH\n");
+		builder.append(this.buildEnvironment());
 		// JSVC executable based on operating system.
 		String jsvcFile = null;
 		if (UEnvironment.instance.isOSX()) {
@@ -146,44 +226,317 @@ public enum JSVCScriptGenerator {
 		} else if (UEnvironment.instance.isLinux()) {
 			jsvcFile = binDir + EShell.JSVCLinux.value;
 		}
+		if (placement != null) this.appendPlacement(builder, placement);
 		builder.append(jsvcFile).append(" ");
-		// Output file.
+		// Output files, the captured output is written by the runtime itself.
+		// Only the shell launcher captures output, custom launchers write to JSVC.
 		final String logDir = UEnvironment.instance.getLogDir(homeDir);
-		builder.append("-outfile ").append(logDir).append(EShell.JSVCOut.value).append(" ");
-		// Error file.
-		builder.append("-errfile ").append(logDir).append(EShell.JSVCError.value).append(" ");
+		final String outFile = logDir + UShell.instance.getInstanceFile(EShell.JSVCOut.value, index);
+		final String errFile = logDir + UShell.instance.getInstanceFile(EShell.JSVCError.value, index);
+		final ConfigLogging logging = shellConfig.logging;
+		final boolean capture = logging.enabled && UShell.instance.isShellLauncher(config);
+		if (capture) {
+			builder.append("-outfile ").append(logDir).append(UShell.instance.getInstanceFile(EShell.JSVCNativeOut.value, index)).append(" ");
+			builder.append("-errfile ").append(logDir).append(UShell.instance.getInstanceFile(EShell.JSVCNativeError.value, index)).append(" ");
+		} else {
+			builder.append("-outfile ").append(outFile).append(" ");
+			builder.append("-errfile ").append(errFile).append(" ");
+		}
 		// JVM arguments.
-		builder.append(" -jvm server -Xms").append(config.jvm.memoryMin).append(" -Xmx").append(config.jvm.memoryMax).append(" ");
+		final String memoryMin = (shellConfig.instances.memoryMin!=null) ? shellConfig.instances.memoryMin : config.jvm.memoryMin;
+		final String memoryMax = (shellConfig.instances.memoryMax!=null) ? shellConfig.instances.memoryMax : config.jvm.memoryMax;
+		builder.append(" -jvm server -Xms").append(memoryMin).append(" -Xmx").append(memoryMax).append(" ");
 		// File encoding.
 		builder.append("-Dfile.encoding=").append(config.jvm.fileEncoding).append(" ");
+		// Drain timeout.
+		builder.append("-D").append(EShell.DrainTimeoutProperty.value).append("=").append(shellConfig.shutdown.drainTimeout).append(" ");
+		// Admission and port sharing. Admission needs the management interface to admit through.
+		if (UShell.instance.isShellLauncher(config)) {
+			if (shellConfig.management.jmxPort > 0) {
+				builder.append("-D").append(EShell.AdmitTimeoutProperty.value).append("=").append(shellConfig.startup.admitTimeout).append(" ");
+			}
+			// Single instances share the port too, with the surge instance of a rolling restart.
+			builder.append("-D").append(EShell.SharedPortProperty.value).append("=true ");
+		}
+		// Output capture.
+		if (capture) {
+			builder.append("-D").append(EShell.OutputFileProperty.value).append("=").append(outFile).append(" ");
+			builder.append("-D").append(EShell.ErrorFileProperty.value).append("=").append(errFile).append(" ");
+			builder.append("-D").append(EShell.OutputBufferSizeProperty.value).append("=").append(logging.getBufferSizeBytes()).append(" ");
+			builder.append("-D").append(EShell.OutputMaxSizeProperty.value).append("=").append(logging.getMaxSizeBytes()).append(" ");
+			builder.append("-D").append(EShell.OutputRotateIntervalProperty.value).append("=").append(logging.rotateInterval).append(" ");
+			builder.append("-D").append(EShell.OutputMaxFilesProperty.value).append("=").append(logging.maxFiles).append(" ");
+			builder.append("-D").append(EShell.OutputCompressProperty.value).append("=").append(logging.compress).append(" ");
+		}
+		// JVM tuning.
+		this.appendTuning(builder, shellConfig.tuning, logDir + UShell.instance.getInstanceFile(EShell.GCLog.value, index), javaVersion);
+		if (shellConfig.placement.useNUMA) builder.append("-XX:+UseNUMA ");
+		// Continuous flight recording.
+		if (shellConfig.recording.enabled && RecordingDumper.instance.isSupported(javaVersion)) {
+			final String exitFile = logDir + UShell.instance.getInstanceFile(EShell.RecordingExitFile.value, index);
+			builder.append("-XX:StartFlightRecording=name=").append(EShell.RecordingName.value);
+			builder.append(",settings=").append(shellConfig.recording.settings);
+			builder.append(",maxsize=").append(shellConfig.recording.maxSize).append(",maxage=").append(shellConfig.recording.maxAge);
+			builder.append(",disk=true,dumponexit=true,filename=").append(exitFile).append(" ");
+		}
+		if (archive != null) builder.append("-XX:SharedArchiveFile=").append(archive).append(" ");
+		// Loopback only management interface, restricted to the owner of the credentials.
+		if (shellConfig.management.jmxPort > 0) {
+			final int port = shellConfig.management.jmxPort + index;
+			builder.append("-Dcom.sun.management.jmxremote.port=").append(port).append(" ");
+			builder.append("-Dcom.sun.management.jmxremote.rmi.port=").append(port).append(" ");
+			builder.append("-Dcom.sun.management.jmxremote.host=127.0.0.1 -Djava.rmi.server.hostname=127.0.0.1 ");
+			builder.append("-Dcom.sun.management.jmxremote.local.only=true ");
+			builder.append("-Dcom.sun.management.jmxremote.authenticate=true -Dcom.sun.management.jmxremote.ssl=false ");
+			builder.append("-Dcom.sun.management.jmxremote.password.file=").append(ManagementCredentials.instance.getPasswordFile(homeDir)).append(" ");
+			builder.append("-Dcom.sun.management.jmxremote.access.file=").append(ManagementCredentials.instance.getAccessFile(homeDir)).append(" ");
+		}
 		// PID file location.
-		builder.append("-pidfile ").append(binDir).append(EEnvironment.JSVCPIDFile.value);
+		builder.append("-pidfile ").append(binDir).append(UShell.instance.getInstanceFile(EEnvironment.JSVCPIDFile.value, index));
+		return builder.toString();
+	}
+
+	/**
+	 * Build the section of the script that exports the
+	 * Java environment of the runtime.
+	 * @return The <code>String</code> environment
+	 * section of the script.
+	 */
+	String buildEnvironment() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("#!/bin/sh\n\n");
+		// Export Java home based on operating system.
+		if (UEnvironment.instance.isOSX()) {
+			builder.append("export JAVA_HOME=$(/usr/libexec/java_home)\n");
+		} else if (UEnvironment.instance.isLinux()) {
+			builder.append("export JAVA_HOME=/usr/lib/jvm/default-java\n");
+		}
+		builder.append("export PATH=$JAVA_HOME:$PATH\n");
 		return builder.toString();
 	}
 
 	/**
-	 * Build the class path section of the script by
-	 * scanning the binary directory, the applications
-	 * resources directories and all the applications
-	 * library directories.
+	 * Append the command that places the runtime
+	 * process on the CPUs of the given placement. All
+	 * the threads JSVC starts inherit the placement.
+	 * @param builder The <code>StringBuilder</code>
+	 * to append to.
+	 * @param placement The <code>ConfigPlacement</code>.
+	 */
+	private void appendPlacement(final StringBuilder builder, final ConfigPlacement placement) {
+		if (placement.numaNode >= 0) {
+			builder.append("numactl ");
+			if (placement.cpuSet != null) builder.append("--physcpubind=").append(placement.cpuSet).append(" ");
+			else builder.append("--cpunodebind=").append(placement.numaNode).append(" ");
+			builder.append("--membind=").append(placement.numaNode).append(" ");
+		} else if (placement.cpuSet != null) {
+			builder.append("taskset -c ").append(placement.cpuSet).append(" ");
+		}
+	}
+
+	/**
+	 * Export the configuration file the given runtime
+	 * instance is launched with. All the instances share
+	 * the configured port, and every instance other
+	 * than the first logs into its own directory. If
+	 * the instance is pinned to a subset of the host
+	 * CPUs, the executor counts are scaled down to that
+	 * share. The changed values are written
+	 * to a separate runtime configuration file, leaving
+	 * the environment configuration untouched.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 * @param config The <code>Configuration</code>
+	 * used by the environment.
+	 * @param placement The <code>ConfigPlacement</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>String</code> path of the
+	 * configuration file to launch with.
+	 * @throws IOException If file processing failed.
+	 * @throws SAXException If parsing configuration
+	 * failed.
+	 * @throws ParserConfigurationException If parsing
+	 * configuration failed.
+	 */
+	private String exportRuntimeConfiguration(final String homeDir, final Configuration config, final ConfigPlacement placement,
+			final int index) throws IOException, SAXException, ParserConfigurationException {
+		final String configPath = UEnvironment.instance.getConfigurationFile(homeDir);
+		final String runtimeConfigPath = UEnvironment.instance.getConfigDir(homeDir) +
+				UShell.instance.getInstanceFile(EShell.RuntimeConfigurationFile.value, index);
+		final boolean scaled = placement.isPinned() && placement.scaleExecutors;
+		if (index == 0 && !scaled) {
+			new File(runtimeConfigPath).delete();
+			return configPath;
+		}
+		final Document document = FileUtils.instance.readAsDocument(new File(configPath));
+		if (scaled) {
+			final int pinned = CPUTopology.instance.getPinnedCPUCount(placement);
+			final int host = Math.max(pinned, CPUTopology.instance.getHostCPUCount());
+			final int executorCount = this.scale(config.runtime.execution.assisted.executorCount, pinned, host);
+			final int minExecutor = this.scale(config.runtime.execution.scalable.minExecutor, pinned, host);
+			final int maxExecutor = Math.max(minExecutor, this.scale(config.runtime.execution.scalable.maxExecutor, pinned, host));
+			this.setValue(document, KConfigAssistedService.ExecutorCount.tag, String.valueOf(executorCount));
+			this.setValue(document, KConfigScalableService.MinExecutor.tag, String.valueOf(minExecutor));
+			this.setValue(document, KConfigScalableService.MaxExecutor.tag, String.valueOf(maxExecutor));
+		}
+		if (index > 0) {
+			final String logDir = config.runtime.logging.directory + EShell.InstanceLogDir.value + index + File.separator;
+			new File(logDir).mkdirs();
+			this.setValue(document, KConfigLogging.Directory.tag, logDir);
+		}
+		try {
+			FileUtils.instance.writeDocument(document, runtimeConfigPath);
+		} catch (final TransformerException e) {
+			throw new IOException("Writing runtime configuration " + runtimeConfigPath + " failed.", e);
+		}
+		return runtimeConfigPath;
+	}
+
+	/**
+	 * Scale the given executor count to the given share
+	 * of the host CPUs.
+	 * @param count The <code>int</code> configured count.
+	 * @param pinned The <code>int</code> number of pinned
+	 * CPUs.
+	 * @param host The <code>int</code> number of host
+	 * CPUs.
+	 * @return The <code>int</code> scaled count, at
+	 * least <code>1</code>.
+	 */
+	private int scale(final int count, final int pinned, final int host) {
+		return (int)Math.max(1, Math.round((double)count * pinned / host));
+	}
+
+	/**
+	 * Set the value of the single tag with given name.
+	 * @param document The configuration <code>Document</code>.
+	 * @param tag The <code>String</code> tag name.
+	 * @param value The <code>String</code> value.
+	 */
+	private void setValue(final Document document, final String tag, final String value) {
+		final NodeList list = document.getElementsByTagName(tag);
+		if (list == null || list.getLength() != 1) {
+			throw new IllegalArgumentException("Invalid configuration. Must contain one " + tag + " tag.");
+		}
+		list.item(0).setTextContent(value);
+	}
+
+	/**
+	 * Append the JVM options of the given tuning
+	 * configuration.
+	 * @param builder The <code>StringBuilder</code>
+	 * to append to.
+	 * @param tuning The <code>ConfigTuning</code>.
+	 * @param gcLog The <code>String</code> path of the
+	 * garbage collection log file.
+	 * @param javaVersion The <code>int</code> major
+	 * version of the runtime JVM.
+	 */
+	private void appendTuning(final StringBuilder builder, final ConfigTuning tuning, final String gcLog, final int javaVersion) {
+		final EGarbageCollector collector = tuning.getCollector();
+		if (collector != null) {
+			if (collector.isExperimental(javaVersion)) builder.append("-XX:+UnlockExperimentalVMOptions ");
+			builder.append(collector.option).append(" ");
+		}
+		if (tuning.getMaxPauseMillis() > 0) {
+			builder.append("-XX:MaxGCPauseMillis=").append(tuning.getMaxPauseMillis()).append(" ");
+		}
+		if (tuning.largePages) builder.append("-XX:+UseLargePages ");
+		if (tuning.isAlwaysPreTouch()) builder.append("-XX:+AlwaysPreTouch ");
+		if (tuning.metaspaceSize != null) {
+			builder.append("-XX:MetaspaceSize=").append(tuning.metaspaceSize).append(" ");
+		}
+		if (tuning.maxMetaspaceSize != null) {
+			builder.append("-XX:MaxMetaspaceSize=").append(tuning.maxMetaspaceSize).append(" ");
+		}
+		if (tuning.maxDirectMemorySize != null) {
+			builder.append("-XX:MaxDirectMemorySize=").append(tuning.maxDirectMemorySize).append(" ");
+		}
+		if (tuning.gcLog) {
+			// Unified logging replaced the GC log options in Java 9.
+			if (javaVersion < 9) {
+				builder.append("-Xloggc:").append(gcLog).append(" -XX:+PrintGCDetails -XX:+PrintGCDateStamps ");
+				builder.append("-XX:+UseGCLogFileRotation -XX:NumberOfGCLogFiles=5 -XX:GCLogFileSize=10M ");
+			} else {
+				builder.append("-Xlog:gc*:file=").append(gcLog).append(":time,uptime:filecount=5,filesize=10m ");
+			}
+		}
+		final int size = tuning.options.size();
+		for (int i = 0; i < size; i++) {
+			builder.append(tuning.options.get(i)).append(" ");
+		}
+	}
+
+	/**
+	 * Build the class path section of the script from
+	 * the binary directory. Custom launchers load the
+	 * applications from the class path, so the Jar files
+	 * recorded in the deployment registry for all the
+	 * applications resources and library directories are
+	 * added as well. The shell launcher loads every
+	 * application from its own Jar files, so they are
+	 * left out. If configured, the Jar files are merged
+	 * into a single runtime Jar file.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 * @param config The <code>Configuration</code>
+	 * used by the environment.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
 	 * @return The <code>String</code> class path
 	 * section.
+	 * @throws IOException If reading the deployment
+	 * registry or merging Jar files failed.
 	 */
-	private String buildClasspath(final String homeDir) {
-		final StringBuilder builder = new StringBuilder();
+	private String buildClasspath(final String homeDir, final Configuration config, final ShellConfiguration shellConfig) throws IOException {
+		final List<File> jars = new ArrayList<File>();
 		// Scan internal library directory.
 		final String libDir = UEnvironment.instance.getBinDir(homeDir);
-		final List<File> libList = FileUtils.instance.getFiles(libDir, ".jar");
-		this.appendFiles(builder, libList);
-		// Scan applications resources directories and library directories.
-		final String appsDir = UEnvironment.instance.getAppsDir(homeDir);
-		final List<File> appsList = FileUtils.instance.getFiles(appsDir, ".jar");
-		this.appendFiles(builder, appsList);
+		jars.addAll(FileUtils.instance.getFiles(libDir, ".jar"));
+		// Applications resources and library Jar files are recorded on deployment.
+		if (!UShell.instance.isShellLauncher(config)) jars.addAll(DeploymentRegistry.load(homeDir).getJars(homeDir));
+		final StringBuilder builder = new StringBuilder();
+		if (shellConfig.tuning.mergedClasspath) {
+			this.appendFiles(builder, ClasspathMerger.instance.merge(homeDir, jars));
+		} else {
+			ClasspathMerger.instance.delete(homeDir);
+			this.appendFiles(builder, jars);
+		}
 		// Remove the last path separator.
 		builder.deleteCharAt(builder.length()-1);
 		return builder.toString();
 	}
 
+	/**
+	 * Build the class paths of the applications that the
+	 * shell launcher loads through their own class
+	 * loaders, one per application.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 * @param config The <code>Configuration</code>
+	 * used by the environment.
+	 * @return The <code>List</code> of <code>String</code>
+	 * class paths. Empty if applications are loaded
+	 * from the runtime class path.
+	 * @throws IOException If reading the deployment
+	 * registry failed.
+	 */
+	private List<String> buildApplicationClasspaths(final String homeDir, final Configuration config) throws IOException {
+		final List<String> classpaths = new ArrayList<String>();
+		if (!UShell.instance.isShellLauncher(config)) return classpaths;
+		final DeploymentRegistry registry = DeploymentRegistry.load(homeDir);
+		final List<DeploymentRegistry.Entry> entries = registry.getEntries();
+		final int size = entries.size();
+		for (int i = 0; i < size; i++) {
+			final List<File> jars = registry.getJars(homeDir, entries.get(i));
+			if (jars.isEmpty()) continue;
+			final StringBuilder builder = new StringBuilder();
+			this.appendFiles(builder, jars);
+			builder.deleteCharAt(builder.length()-1);
+			classpaths.add(builder.toString());
+		}
+		return classpaths;
+	}
+
 	/**
 	 * Append all the files in the given list to the
 	 * given string builder with class path format.
@@ -203,15 +556,17 @@ public enum JSVCScriptGenerator {
 	
 	/**
 	 * Build the footer section of the script based on
-	 * the specified environment configuration.
-	 * @param homeDir The <code>String</code> home
-	 * directory.
+	 * the specified environment configuration. Unless
+	 * a custom launcher is configured, the shell launcher
+	 * is used so applications can be deployed without
+	 * restarting the runtime.
 	 * @param config The <code>Configuration</code>.
+	 * @param configPath The <code>String</code> path of
+	 * the configuration file the runtime is launched with.
 	 * @return The footer <code>String</code> value.
 	 */
-	private String buildFooter(final String homeDir, final Configuration config) {
-		final String launcher = (config.runtime.launcher!=null) ? config.runtime.launcher : EEnvironment.DefaultLauncher.value;
-		final String configPath = UEnvironment.instance.getConfigurationFile(homeDir);
+	private String buildFooter(final Configuration config, final String configPath) {
+		final String launcher = (config.runtime.launcher!=null) ? config.runtime.launcher : EShell.RuntimeLauncher.value;
 		final StringBuilder builder = new StringBuilder();
 		builder.append(launcher).append(" ").append(configPath).append("\n");
 		return builder.toString();
@@ -0,0 +1,379 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * <code>JarStreamWriter</code> defines the utility that
+ * writes Jar entries directly into a single output
+ * stream. It allows nested archives to be added as
+ * <code>STORED</code> entries, so their already
+ * compressed contents are not deflated a second time,
+ * and it never creates intermediate files.
+ * <p>
+ * <code>JarStreamWriter</code> is not thread-safe.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class JarStreamWriter {
+	/**
+	 * The <code>int</code> copy buffer size.
+	 */
+	private static final int BufferSize = 8192;
+
+	/**
+	 * The <code>JarOutputStream</code>.
+	 */
+	private final JarOutputStream output;
+	/**
+	 * The copy buffer <code>byte</code> array.
+	 */
+	private final byte[] buffer;
+	/**
+	 * The <code>long</code> modification time of the
+	 * entries that are not backed by files.
+	 */
+	private final long time;
+
+	/**
+	 * Constructor of <code>JarStreamWriter</code>.
+	 * @param output The <code>OutputStream</code> to
+	 * write the Jar to.
+	 * @param manifest The <code>Manifest</code> of the
+	 * Jar. <code>null</code> if there is none.
+	 * @throws IOException If writing manifest failed.
+	 */
+	public JarStreamWriter(final OutputStream output, final Manifest manifest) throws IOException {
+		this(output, manifest, System.currentTimeMillis());
+	}
+
+	/**
+	 * Constructor of <code>JarStreamWriter</code>.
+	 * @param output The <code>OutputStream</code> to
+	 * write the Jar to.
+	 * @param manifest The <code>Manifest</code> of the
+	 * Jar. <code>null</code> if there is none.
+	 * @param time The <code>long</code> modification
+	 * time of the entries not backed by files.
+	 * @throws IOException If writing manifest failed.
+	 */
+	private JarStreamWriter(final OutputStream output, final Manifest manifest, final long time) throws IOException {
+		this.output = (manifest==null) ? new JarOutputStream(output) : new JarOutputStream(output, manifest);
+		this.buffer = new byte[JarStreamWriter.BufferSize];
+		this.time = time;
+	}
+
+	/**
+	 * Write the given data as a compressed entry.
+	 * @param name The <code>String</code> entry name.
+	 * @param data The <code>byte</code> array data.
+	 * @throws IOException If writing failed.
+	 */
+	public void writeEntry(final String name, final byte[] data) throws IOException {
+		final JarEntry entry = new JarEntry(name);
+		entry.setTime(this.time);
+		this.output.putNextEntry(entry);
+		this.output.write(data);
+		this.output.closeEntry();
+	}
+
+	/**
+	 * Write the given data as an uncompressed entry.
+	 * This should be used for data that is already
+	 * compressed such as nested Jar files.
+	 * @param name The <code>String</code> entry name.
+	 * @param data The <code>byte</code> array data.
+	 * @throws IOException If writing failed.
+	 */
+	public void writeStored(final String name, final byte[] data) throws IOException {
+		final CRC32 crc = new CRC32();
+		crc.update(data);
+		final JarEntry entry = new JarEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(data.length);
+		entry.setCompressedSize(data.length);
+		entry.setCrc(crc.getValue());
+		entry.setTime(this.time);
+		this.output.putNextEntry(entry);
+		this.output.write(data);
+		this.output.closeEntry();
+	}
+
+	/**
+	 * Write the given file as a compressed entry. The
+	 * file contents are streamed.
+	 * @param name The <code>String</code> entry name.
+	 * @param file The <code>File</code> to write.
+	 * @throws IOException If reading or writing failed.
+	 */
+	public void writeFile(final String name, final File file) throws IOException {
+		final JarEntry entry = new JarEntry(name);
+		entry.setTime(file.lastModified());
+		this.output.putNextEntry(entry);
+		this.copy(file);
+		this.output.closeEntry();
+	}
+
+	/**
+	 * Write the given file as an uncompressed entry.
+	 * The file is read twice, once to compute the
+	 * checksum and once to stream its contents, so it
+	 * is never buffered in memory.
+	 * @param name The <code>String</code> entry name.
+	 * @param file The <code>File</code> to write.
+	 * @throws IOException If reading or writing failed.
+	 */
+	public void writeStoredFile(final String name, final File file) throws IOException {
+		this.writeStoredFile(name, file, this.checksum(file));
+	}
+
+	/**
+	 * Write the given file as an uncompressed entry
+	 * with the given checksum.
+	 * @param name The <code>String</code> entry name.
+	 * @param file The <code>File</code> to write.
+	 * @param crc The <code>long</code> CRC-32 checksum
+	 * of the file contents.
+	 * @throws IOException If reading or writing failed.
+	 */
+	private void writeStoredFile(final String name, final File file, final long crc) throws IOException {
+		final JarEntry entry = new JarEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(file.length());
+		entry.setCompressedSize(file.length());
+		entry.setCrc(crc);
+		entry.setTime(file.lastModified());
+		this.output.putNextEntry(entry);
+		this.copy(file);
+		this.output.closeEntry();
+	}
+
+	/**
+	 * Write a nested archive containing all the given
+	 * files as uncompressed entries named by their file
+	 * names, as an uncompressed entry. This is meant for
+	 * packaging files that are already compressed such
+	 * as Jar files. The nested archive is generated
+	 * twice, once to compute its checksum and size and
+	 * once to stream it, so it is never buffered in
+	 * memory nor written to a temporary file.
+	 * @param name The <code>String</code> entry name.
+	 * @param files The <code>List</code> of all the
+	 * <code>File</code> to write.
+	 * @throws IOException If reading or writing failed.
+	 */
+	public void writeStoredArchive(final String name, final List<File> files) throws IOException {
+		// Compute file checksums once for both passes.
+		final Map<File, Long> checksums = new HashMap<File, Long>();
+		final int size = files.size();
+		for (int i = 0; i < size; i++) {
+			final File file = files.get(i);
+			checksums.put(file, Long.valueOf(this.checksum(file)));
+		}
+		// First pass computes the archive checksum and size.
+		final CountingOutputStream counter = new CountingOutputStream();
+		final CheckedOutputStream checked = new CheckedOutputStream(counter, new CRC32());
+		final JarStreamWriter dryrun = new JarStreamWriter(checked, null, this.time);
+		dryrun.writeStoredFiles(files, checksums);
+		dryrun.close();
+		// Second pass streams the identical archive.
+		final JarEntry entry = new JarEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(counter.count);
+		entry.setCompressedSize(counter.count);
+		entry.setCrc(checked.getChecksum().getValue());
+		entry.setTime(this.time);
+		this.output.putNextEntry(entry);
+		final JarStreamWriter nested = new JarStreamWriter(new UnclosableOutputStream(this.output), null, this.time);
+		nested.writeStoredFiles(files, checksums);
+		nested.output.finish();
+		this.output.closeEntry();
+	}
+
+	/**
+	 * Write all the given files as uncompressed entries
+	 * named by their file names.
+	 * @param files The <code>List</code> of all the
+	 * <code>File</code> to write.
+	 * @param checksums The <code>Map</code> of file to
+	 * its <code>Long</code> checksum.
+	 * @throws IOException If reading or writing failed.
+	 */
+	private void writeStoredFiles(final List<File> files, final Map<File, Long> checksums) throws IOException {
+		final int size = files.size();
+		for (int i = 0; i < size; i++) {
+			final File file = files.get(i);
+			this.writeStoredFile(file.getName(), file, checksums.get(file).longValue());
+		}
+	}
+
+	/**
+	 * Compute the CRC-32 checksum of the given file.
+	 * @param file The <code>File</code> to read.
+	 * @return The <code>long</code> checksum.
+	 * @throws IOException If reading failed.
+	 */
+	private long checksum(final File file) throws IOException {
+		final CRC32 crc = new CRC32();
+		final InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			int count = input.read(this.buffer);
+			while (count >= 0) {
+				crc.update(this.buffer, 0, count);
+				count = input.read(this.buffer);
+			}
+		} finally {
+			input.close();
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Write all the given files as compressed entries
+	 * named by their file names.
+	 * @param files The <code>List</code> of all the
+	 * <code>File</code> to write.
+	 * @throws IOException If reading or writing failed.
+	 */
+	public void writeFiles(final List<File> files) throws IOException {
+		final int size = files.size();
+		for (int i = 0; i < size; i++) {
+			final File file = files.get(i);
+			this.writeFile(file.getName(), file);
+		}
+	}
+
+	/**
+	 * Write all the given in-memory files as compressed
+	 * entries, preceded by entries for their parent
+	 * directories.
+	 * @param entries The <code>SortedMap</code> of entry
+	 * name to <code>byte</code> array data.
+	 * @throws IOException If writing failed.
+	 */
+	public void writeEntries(final SortedMap<String, byte[]> entries) throws IOException {
+		final Set<String> dirs = new HashSet<String>();
+		for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			final String name = entry.getKey();
+			int index = name.indexOf('/');
+			while (index >= 0) {
+				final String dir = name.substring(0, index+1);
+				if (dirs.add(dir)) {
+					final JarEntry dirEntry = new JarEntry(dir);
+					dirEntry.setTime(this.time);
+					this.output.putNextEntry(dirEntry);
+					this.output.closeEntry();
+				}
+				index = name.indexOf('/', index+1);
+			}
+			this.writeEntry(name, entry.getValue());
+		}
+	}
+
+	/**
+	 * Copy the contents of the given file to the
+	 * current entry.
+	 * @param file The <code>File</code> to copy.
+	 * @throws IOException If reading or writing failed.
+	 */
+	private void copy(final File file) throws IOException {
+		final InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			int count = input.read(this.buffer);
+			while (count >= 0) {
+				this.output.write(this.buffer, 0, count);
+				count = input.read(this.buffer);
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Finish writing the Jar and close the underlying
+	 * stream.
+	 * @throws IOException If closing failed.
+	 */
+	public void close() throws IOException {
+		this.output.close();
+	}
+
+	/**
+	 * <code>CountingOutputStream</code> defines the output
+	 * stream that discards all data and only counts the
+	 * number of bytes written.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		/**
+		 * The <code>long</code> number of bytes written.
+		 */
+		private long count;
+
+		@Override
+		public void write(final int b) {
+			this.count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			this.count += len;
+		}
+	}
+
+	/**
+	 * <code>UnclosableOutputStream</code> defines the
+	 * output stream wrapper that ignores close requests,
+	 * so a nested archive can be finished without closing
+	 * the enclosing archive.
+	 */
+	private static class UnclosableOutputStream extends OutputStream {
+		/**
+		 * The wrapped <code>OutputStream</code>.
+		 */
+		private final OutputStream output;
+
+		/**
+		 * Constructor of <code>UnclosableOutputStream</code>.
+		 * @param output The <code>OutputStream</code> to
+		 * wrap.
+		 */
+		private UnclosableOutputStream(final OutputStream output) {
+			this.output = output;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			this.output.write(b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.output.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			this.output.flush();
+		}
+
+		@Override
+		public void close() {}
+	}
+}
@@ -0,0 +1,165 @@
+package hemera.core.shell.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <code>LatencyHistogram</code> defines the lock-free
+ * histogram of request latencies. It uses the layout
+ * of a high dynamic range histogram: latencies below
+ * 64 microseconds are recorded exactly, and every power
+ * of two above is split into 32 linear buckets, so any
+ * latency up to about 9 hours is recorded within 3% of
+ * its value, while recording costs a few bit operations
+ * and an atomic increment.
+ * <p>
+ * The counts are cumulative. The distribution over an
+ * interval is the difference of two snapshots, which
+ * the static methods operate on.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class LatencyHistogram {
+	/**
+	 * The <code>int</code> number of bits of a value
+	 * that are kept within a power of two.
+	 */
+	private static final int SubBucketBits = 6;
+	/**
+	 * The <code>int</code> number of exactly recorded
+	 * values.
+	 */
+	private static final int SubBucketCount = 1 << LatencyHistogram.SubBucketBits;
+	/**
+	 * The <code>int</code> number of buckets per power
+	 * of two above the exactly recorded values.
+	 */
+	private static final int HalfCount = LatencyHistogram.SubBucketCount >> 1;
+	/**
+	 * The <code>long</code> largest recorded value in
+	 * microseconds. Larger values are clamped.
+	 */
+	private static final long MaxValue = (1L << 35) - 1;
+	/**
+	 * The <code>int</code> number of buckets.
+	 */
+	private static final int BucketCount = LatencyHistogram.getBucket(LatencyHistogram.MaxValue) + 1;
+	/**
+	 * The <code>AtomicLongArray</code> of counts.
+	 */
+	private final AtomicLongArray counts;
+
+	/**
+	 * Constructor of <code>LatencyHistogram</code>.
+	 */
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(LatencyHistogram.BucketCount);
+	}
+
+	/**
+	 * Record the given latency.
+	 * @param nanos The <code>long</code> latency in
+	 * nanoseconds.
+	 */
+	public void record(final long nanos) {
+		final long micros = Math.max(0, Math.min(nanos/1000, LatencyHistogram.MaxValue));
+		this.counts.incrementAndGet(LatencyHistogram.getBucket(micros));
+	}
+
+	/**
+	 * Retrieve a snapshot of the counts.
+	 * @return The <code>long</code> array of counts.
+	 */
+	public long[] snapshot() {
+		final long[] snapshot = new long[this.counts.length()];
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = this.counts.get(i);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Retrieve the index of the bucket of the given
+	 * latency.
+	 * @param micros The <code>long</code> latency in
+	 * microseconds.
+	 * @return The <code>int</code> bucket index.
+	 */
+	private static int getBucket(final long micros) {
+		if (micros < LatencyHistogram.SubBucketCount) return (int)micros;
+		final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		final int shift = exponent - LatencyHistogram.SubBucketBits + 1;
+		final int sub = (int)(micros >>> shift);
+		return LatencyHistogram.SubBucketCount + (shift-1)*LatencyHistogram.HalfCount + (sub-LatencyHistogram.HalfCount);
+	}
+
+	/**
+	 * Retrieve the largest latency of the bucket with
+	 * given index.
+	 * @param bucket The <code>int</code> bucket index.
+	 * @return The <code>long</code> latency in
+	 * microseconds.
+	 */
+	private static long getUpperBound(final int bucket) {
+		if (bucket < LatencyHistogram.SubBucketCount) return bucket;
+		final int offset = bucket - LatencyHistogram.SubBucketCount;
+		final int shift = offset/LatencyHistogram.HalfCount + 1;
+		final long sub = offset%LatencyHistogram.HalfCount + LatencyHistogram.HalfCount;
+		return ((sub+1) << shift) - 1;
+	}
+
+	/**
+	 * Compute the counts recorded between the given
+	 * snapshots.
+	 * @param previous The <code>long</code> array of
+	 * counts of the earlier snapshot. <code>null</code>
+	 * if all the counts of the later snapshot are used.
+	 * @param current The <code>long</code> array of
+	 * counts of the later snapshot.
+	 * @return The <code>long</code> array of counts.
+	 */
+	public static long[] subtract(final long[] previous, final long[] current) {
+		final long[] result = new long[current.length];
+		for (int i = 0; i < current.length; i++) {
+			result[i] = (previous==null || i >= previous.length) ? current[i] : current[i]-previous[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the total number of the given counts.
+	 * @param counts The <code>long</code> array of
+	 * counts.
+	 * @return The <code>long</code> total.
+	 */
+	public static long total(final long[] counts) {
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			total += counts[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Retrieve the given percentile of the given counts
+	 * as the upper bound of its bucket.
+	 * @param counts The <code>long</code> array of
+	 * counts.
+	 * @param percentile The <code>double</code> percentile
+	 * between <code>0</code> and <code>1</code>.
+	 * @return The <code>double</code> latency in
+	 * milliseconds. <code>0</code> if there are no
+	 * counts.
+	 */
+	public static double percentile(final long[] counts, final double percentile) {
+		final long total = LatencyHistogram.total(counts);
+		if (total == 0) return 0;
+		final long rank = Math.max(1, (long)Math.ceil(percentile*total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return LatencyHistogram.getUpperBound(i) / 1000.0;
+		}
+		return LatencyHistogram.getUpperBound(counts.length-1) / 1000.0;
+	}
+}
@@ -0,0 +1,108 @@
+package hemera.core.shell.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <code>LoadGenerator</code> defines the singleton
+ * implementation that drives concurrent HTTP load
+ * against a runtime instance on the loopback interface.
+ * Every worker thread sends the requests of the mix in
+ * turn over its own keep-alive connection.
+ * <p>
+ * Without a rate, every worker sends its next request
+ * as soon as the previous one completes, which measures
+ * the maximum throughput. With a rate, the requests are
+ * sent on a fixed schedule, and the latency of every
+ * request is measured from its scheduled time, so a
+ * stalled runtime shows up in the percentiles instead
+ * of slowing the load down.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum LoadGenerator {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Drive load with the given parameters and record
+	 * the results.
+	 * @param client The <code>LoopbackClient</code>.
+	 * @param mix The <code>List</code> of
+	 * <code>ReplayRequest</code> to send in turn.
+	 * @param concurrency The <code>int</code> number of
+	 * concurrent connections.
+	 * @param rate The <code>double</code> total number of
+	 * requests per second. <code>0</code> for maximum
+	 * throughput.
+	 * @param duration The <code>long</code> duration in
+	 * milliseconds.
+	 * @return The <code>BenchResult</code>.
+	 * @throws InterruptedException If the load was
+	 * interrupted.
+	 */
+	public BenchResult run(final LoopbackClient client, final List<ReplayRequest> mix, final int concurrency, final double rate,
+			final long duration) throws InterruptedException {
+		// The JDK only keeps 5 idle connections per destination by default.
+		if (Integer.getInteger("http.maxConnections", 5) < concurrency) {
+			System.setProperty("http.maxConnections", String.valueOf(concurrency));
+		}
+		final LatencyHistogram latencies = new LatencyHistogram();
+		final AtomicLong failed = new AtomicLong();
+		final AtomicLong serverErrors = new AtomicLong();
+		final AtomicLong clientErrors = new AtomicLong();
+		final long start = System.nanoTime();
+		final long end = start + duration*1000000L;
+		final long interval = (rate > 0) ? (long)(concurrency*1000000000.0/rate) : 0;
+		final List<Thread> workers = new ArrayList<Thread>(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			final int offset = i;
+			final Thread worker = new Thread("Hemera-Bench-" + i) {
+				@Override
+				public void run() {
+					int next = offset % mix.size();
+					// Spread the schedules of the workers evenly.
+					long scheduled = start + ((interval > 0) ? interval*offset/concurrency : 0);
+					while (!this.isInterrupted()) {
+						if (interval > 0) {
+							while (System.nanoTime() < scheduled) LockSupport.parkNanos(scheduled-System.nanoTime());
+						} else {
+							scheduled = System.nanoTime();
+						}
+						if (scheduled >= end) return;
+						try {
+							final int status = client.send(mix.get(next));
+							if (status >= 500) serverErrors.incrementAndGet();
+							else if (status >= 400) clientErrors.incrementAndGet();
+							latencies.record(System.nanoTime()-scheduled);
+						} catch (final IOException e) {
+							failed.incrementAndGet();
+						}
+						next = (next+1) % mix.size();
+						scheduled += interval;
+					}
+				}
+			};
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+		try {
+			for (final Thread worker : workers) {
+				worker.join();
+			}
+		} finally {
+			for (final Thread worker : workers) {
+				worker.interrupt();
+			}
+		}
+		final double seconds = (System.nanoTime()-start) / 1000000000.0;
+		return new BenchResult(latencies.snapshot(), failed.get(), serverErrors.get(), clientErrors.get(), seconds);
+	}
+}
@@ -0,0 +1,307 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import hemera.core.shell.runtime.RotatingLogFile;
+
+/**
+ * <code>LogReader</code> defines the reader of the
+ * rotating runtime log files that prints the lines
+ * matching an optional pattern.
+ * <p>
+ * Uncompressed files are read through memory mapped
+ * windows, so no read buffers are copied and the
+ * reader never loads more than one window at once.
+ * The sparse index written next to every log file is
+ * used to seek directly to the lines written since a
+ * given time, instead of scanning the file from its
+ * start. Compressed files can only be read as a
+ * stream, but the index still allows skipping the
+ * older lines without matching them.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class LogReader {
+	/**
+	 * The <code>long</code> size of a memory mapped
+	 * window in bytes.
+	 */
+	private static final long WindowSize = 64L << 20;
+	/**
+	 * The <code>int</code> size of the window used to
+	 * search backwards in bytes.
+	 */
+	private static final int BackwardWindowSize = 1 << 20;
+	/**
+	 * The <code>int</code> size of an index entry in
+	 * bytes.
+	 */
+	private static final int IndexEntrySize = 16;
+	/**
+	 * The <code>Pattern</code> the printed lines must
+	 * contain. <code>null</code> to print all lines.
+	 */
+	private final Pattern pattern;
+	/**
+	 * The <code>PrintStream</code> to print to.
+	 */
+	private final PrintStream out;
+	/**
+	 * The <code>Charset</code> of the log files.
+	 */
+	private final Charset charset;
+
+	/**
+	 * Constructor of <code>LogReader</code>.
+	 * @param pattern The <code>Pattern</code> the
+	 * printed lines must contain. <code>null</code> to
+	 * print all lines.
+	 * @param out The <code>PrintStream</code> to print
+	 * to.
+	 */
+	public LogReader(final Pattern pattern, final PrintStream out) {
+		this.pattern = pattern;
+		this.out = out;
+		this.charset = Charset.defaultCharset();
+	}
+
+	/**
+	 * Retrieve the rotated files of the given log file
+	 * followed by the log file itself.
+	 * @param file The current log <code>File</code>.
+	 * @return The <code>List</code> of log
+	 * <code>File</code>, from the oldest to the newest.
+	 */
+	public static List<File> getLogFiles(final File file) {
+		final List<File> files = new ArrayList<File>(RotatingLogFile.getRotatedFiles(file));
+		if (file.isFile()) files.add(file);
+		return files;
+	}
+
+	/**
+	 * Check if the given log file is compressed.
+	 * @param file The log <code>File</code>.
+	 * @return <code>true</code> if compressed.
+	 */
+	private static boolean isCompressed(final File file) {
+		return file.getName().endsWith(RotatingLogFile.CompressedExtension);
+	}
+
+	/**
+	 * Retrieve the offset of the given log file that
+	 * was written at or before the given time, using
+	 * its index.
+	 * @param file The log <code>File</code>.
+	 * @param time The <code>long</code> time in
+	 * milliseconds.
+	 * @return The <code>long</code> offset. <code>0</code>
+	 * if the file has no index entry at or before the
+	 * time.
+	 * @throws IOException If reading the index failed.
+	 */
+	public static long getOffset(final File file, final long time) throws IOException {
+		final File indexFile = RotatingLogFile.getIndexFile(file);
+		if (!indexFile.isFile()) return 0;
+		final RandomAccessFile index = new RandomAccessFile(indexFile, "r");
+		try {
+			final FileChannel channel = index.getChannel();
+			final long count = channel.size() / LogReader.IndexEntrySize;
+			if (count == 0) return 0;
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, count*LogReader.IndexEntrySize);
+			// Binary search for the last entry at or before the time.
+			long low = 0;
+			long high = count-1;
+			long found = -1;
+			while (low <= high) {
+				final long middle = (low+high) >>> 1;
+				if (buffer.getLong((int)(middle*LogReader.IndexEntrySize)) <= time) {
+					found = middle;
+					low = middle+1;
+				} else {
+					high = middle-1;
+				}
+			}
+			return (found < 0) ? 0 : buffer.getLong((int)(found*LogReader.IndexEntrySize)+8);
+		} finally {
+			index.close();
+		}
+	}
+
+	/**
+	 * Retrieve the offset of the start of the given
+	 * number of last lines of the given uncompressed
+	 * log file.
+	 * @param file The log <code>File</code>.
+	 * @param lines The <code>int</code> number of lines.
+	 * @return The <code>long</code> offset.
+	 * @throws IOException If reading the file failed.
+	 */
+	public static long getTailOffset(final File file, final int lines) throws IOException {
+		if (lines <= 0) return file.length();
+		final RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = input.getChannel();
+			final long length = channel.size();
+			if (length == 0) return 0;
+			// A final line end does not start another line.
+			long end = length;
+			if (channel.map(FileChannel.MapMode.READ_ONLY, length-1, 1).get(0) == '\n') end--;
+			int count = 0;
+			while (end > 0) {
+				final long start = Math.max(0, end-LogReader.BackwardWindowSize);
+				final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end-start);
+				for (int i = (int)(end-start)-1; i >= 0; i--) {
+					if (buffer.get(i) == '\n' && ++count == lines) return start+i+1;
+				}
+				end = start;
+			}
+			return 0;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Print the matching lines of the given log file
+	 * starting with the line that contains the given
+	 * offset.
+	 * @param file The log <code>File</code>.
+	 * @param offset The <code>long</code> offset.
+	 * @param partial <code>true</code> to also print the
+	 * last line if it does not end yet.
+	 * @return The <code>long</code> offset after the
+	 * last printed line.
+	 * @throws IOException If reading the file failed.
+	 */
+	public long read(final File file, final long offset, final boolean partial) throws IOException {
+		if (LogReader.isCompressed(file)) return this.readCompressed(file, offset);
+		final RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = input.getChannel();
+			final long length = channel.size();
+			long position = this.getLineStart(channel, Math.min(offset, length));
+			while (position < length) {
+				final long size = Math.min(LogReader.WindowSize, length-position);
+				final boolean last = (position+size == length);
+				final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+				int start = 0;
+				for (int i = 0; i < size; i++) {
+					if (buffer.get(i) != '\n') continue;
+					this.print(buffer, start, i);
+					start = i+1;
+				}
+				if (start == 0 && !last) {
+					// A line longer than a window is printed in pieces.
+					this.print(buffer, 0, (int)size);
+					start = (int)size;
+				} else if (start < size && last && partial) {
+					this.print(buffer, start, (int)size);
+					start = (int)size;
+				}
+				position += start;
+				if (last) break;
+			}
+			return position;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Retrieve the start of the line that contains the
+	 * given offset.
+	 * @param channel The <code>FileChannel</code>.
+	 * @param offset The <code>long</code> offset.
+	 * @return The <code>long</code> line start offset.
+	 * @throws IOException If reading the file failed.
+	 */
+	private long getLineStart(final FileChannel channel, final long offset) throws IOException {
+		long end = offset;
+		while (end > 0) {
+			final long start = Math.max(0, end-LogReader.BackwardWindowSize);
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end-start);
+			for (int i = (int)(end-start)-1; i >= 0; i--) {
+				if (buffer.get(i) == '\n') return start+i+1;
+			}
+			end = start;
+		}
+		return 0;
+	}
+
+	/**
+	 * Print the matching lines of the given compressed
+	 * log file starting with the line that contains the
+	 * given offset of the uncompressed content.
+	 * @param file The compressed log <code>File</code>.
+	 * @param offset The <code>long</code> offset.
+	 * @return The <code>long</code> uncompressed length.
+	 * @throws IOException If reading the file failed.
+	 */
+	private long readCompressed(final File file, final long offset) throws IOException {
+		final InputStream input = new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 65536), 65536);
+		try {
+			// Skip to before the offset, the line containing it starts after a line end.
+			final long skip = Math.max(0, offset-LogReader.BackwardWindowSize);
+			long position = 0;
+			while (position < skip) {
+				final long skipped = input.skip(skip-position);
+				if (skipped <= 0) break;
+				position += skipped;
+			}
+			boolean lineStart = (position == 0);
+			final ByteArrayOutputStream line = new ByteArrayOutputStream();
+			int b;
+			while ((b = input.read()) >= 0) {
+				position++;
+				if (b != '\n') {
+					line.write(b);
+					continue;
+				}
+				// Lines ending before the offset were written earlier.
+				if (lineStart && position > offset) this.print(ByteBuffer.wrap(line.toByteArray()), 0, line.size());
+				lineStart = true;
+				line.reset();
+			}
+			if (lineStart && line.size() > 0) this.print(ByteBuffer.wrap(line.toByteArray()), 0, line.size());
+			return position;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Print the given line if it matches.
+	 * @param buffer The <code>ByteBuffer</code>.
+	 * @param start The <code>int</code> start index.
+	 * @param end The <code>int</code> end index,
+	 * excluding the line end.
+	 */
+	private void print(final ByteBuffer buffer, final int start, final int end) {
+		int length = end-start;
+		if (length > 0 && buffer.get(start+length-1) == '\r') length--;
+		final byte[] bytes = new byte[length];
+		final ByteBuffer view = buffer.duplicate();
+		view.position(start);
+		view.get(bytes);
+		final String line = new String(bytes, this.charset);
+		if (this.pattern == null || this.pattern.matcher(line).find()) {
+			this.out.println(line);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package hemera.core.shell.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * <code>LoopbackClient</code> defines the HTTP client
+ * that sends <code>ReplayRequest</code> to a runtime
+ * instance on the loopback interface. If the runtime
+ * serves HTTPS, its certificate is accepted without
+ * validation, since the connection never leaves the
+ * host.
+ * <p>
+ * <code>LoopbackClient</code> is thread-safe.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class LoopbackClient {
+	/**
+	 * The <code>String</code> base URL.
+	 */
+	private final String baseURL;
+	/**
+	 * The <code>int</code> connect and read timeout in
+	 * milliseconds.
+	 */
+	private final int timeout;
+	/**
+	 * The <code>SSLSocketFactory</code> that accepts any
+	 * certificate. <code>null</code> for plain HTTP.
+	 */
+	private final SSLSocketFactory socketFactory;
+
+	/**
+	 * Constructor of <code>LoopbackClient</code>.
+	 * @param port The <code>int</code> local port.
+	 * @param secure <code>true</code> if the runtime
+	 * serves HTTPS.
+	 * @param timeout The <code>int</code> connect and
+	 * read timeout in milliseconds.
+	 */
+	public LoopbackClient(final int port, final boolean secure, final int timeout) {
+		this.baseURL = (secure ? "https" : "http") + "://127.0.0.1:" + port;
+		this.timeout = timeout;
+		this.socketFactory = secure ? this.newSocketFactory() : null;
+	}
+
+	/**
+	 * Create the socket factory that accepts any
+	 * certificate.
+	 * @return The <code>SSLSocketFactory</code>.
+	 */
+	private SSLSocketFactory newSocketFactory() {
+		final TrustManager trustAll = new X509TrustManager() {
+			@Override
+			public void checkClientTrusted(final X509Certificate[] chain, final String authType) {}
+
+			@Override
+			public void checkServerTrusted(final X509Certificate[] chain, final String authType) {}
+
+			@Override
+			public X509Certificate[] getAcceptedIssuers() {
+				return new X509Certificate[0];
+			}
+		};
+		try {
+			final SSLContext context = SSLContext.getInstance("TLS");
+			context.init(null, new TrustManager[] {trustAll}, null);
+			return context.getSocketFactory();
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException("TLS is not supported.", e);
+		}
+	}
+
+	/**
+	 * Send the given request and read the response
+	 * completely.
+	 * @param request The <code>ReplayRequest</code>.
+	 * @return The <code>int</code> HTTP status code.
+	 * @throws IOException If the request could not be
+	 * sent or the response could not be read.
+	 */
+	public int send(final ReplayRequest request) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection)new URL(this.baseURL + request.path).openConnection();
+		if (this.socketFactory != null) {
+			final HttpsURLConnection secure = (HttpsURLConnection)connection;
+			secure.setSSLSocketFactory(this.socketFactory);
+			secure.setHostnameVerifier(new HostnameVerifier() {
+				@Override
+				public boolean verify(final String hostname, final SSLSession session) {
+					return "127.0.0.1".equals(hostname);
+				}
+			});
+		}
+		connection.setConnectTimeout(this.timeout);
+		connection.setReadTimeout(this.timeout);
+		connection.setRequestMethod(request.method);
+		if (request.body != null) {
+			final byte[] body = request.body.getBytes("UTF-8");
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+			connection.setFixedLengthStreamingMode(body.length);
+			final OutputStream output = connection.getOutputStream();
+			try {
+				output.write(body);
+			} finally {
+				output.close();
+			}
+		}
+		final int status = connection.getResponseCode();
+		// Drain the response, so the connection can be reused.
+		final InputStream input = (status >= 400) ? connection.getErrorStream() : connection.getInputStream();
+		if (input != null) {
+			try {
+				final byte[] buffer = new byte[8192];
+				while (input.read(buffer) >= 0);
+			} finally {
+				input.close();
+			}
+		}
+		return status;
+	}
+}
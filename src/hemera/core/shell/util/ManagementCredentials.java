@@ -0,0 +1,151 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.SecureRandom;
+
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.enumn.EShell;
+
+/**
+ * <code>ManagementCredentials</code> defines the
+ * singleton implementation that maintains the password
+ * and access files of the runtime management interface.
+ * The runtime runs as root, so its management interface
+ * requires authentication. The files are created once
+ * with a random password and are only readable and
+ * writable by their owner, so only the user that runs
+ * the runtime can manage it.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum ManagementCredentials {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * The <code>int</code> number of random bytes of
+	 * a generated password.
+	 */
+	private static final int PasswordBytes = 24;
+
+	/**
+	 * Create the password and access files of the given
+	 * home directory if they do not exist yet. Existing
+	 * files are kept, so running instances can still be
+	 * reached.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @throws IOException If writing the files failed.
+	 */
+	public void ensure(final String homeDir) throws IOException {
+		final File passwordFile = this.getPasswordFile(homeDir);
+		if (!passwordFile.isFile()) {
+			final SecureRandom random = new SecureRandom();
+			final byte[] bytes = new byte[ManagementCredentials.PasswordBytes];
+			random.nextBytes(bytes);
+			final StringBuilder password = new StringBuilder();
+			for (int i = 0; i < bytes.length; i++) {
+				password.append(String.format("%02x", bytes[i]));
+			}
+			this.writeRestricted(passwordFile, EShell.ManagementUser.value + " " + password + "\n");
+		}
+		final File accessFile = this.getAccessFile(homeDir);
+		if (!accessFile.isFile()) {
+			this.writeRestricted(accessFile, EShell.ManagementUser.value + " readwrite\n");
+		}
+	}
+
+	/**
+	 * Write the given contents into a new file that is
+	 * only readable and writable by its owner. The
+	 * permissions are restricted before the contents
+	 * are written.
+	 * @param file The <code>File</code> to write.
+	 * @param contents The <code>String</code> contents.
+	 * @throws IOException If writing the file failed.
+	 */
+	private void writeRestricted(final File file, final String contents) throws IOException {
+		file.getParentFile().mkdirs();
+		final File temp = new File(file.getAbsolutePath() + ".tmp");
+		temp.delete();
+		if (!temp.createNewFile()) {
+			throw new IOException("Creating " + temp.getAbsolutePath() + " failed.");
+		}
+		final boolean restricted = temp.setReadable(false, false) && temp.setWritable(false, false) && temp.setExecutable(false, false) &&
+				temp.setReadable(true, true) && temp.setWritable(true, true);
+		if (!restricted) {
+			temp.delete();
+			throw new IOException("Restricting the permissions of " + temp.getAbsolutePath() + " failed.");
+		}
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8");
+		try {
+			writer.write(contents);
+		} finally {
+			writer.close();
+		}
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Moving " + temp.getAbsolutePath() + " to " + file.getAbsolutePath() + " failed.");
+		}
+	}
+
+	/**
+	 * Read the credentials of the management interface
+	 * of the installed environment.
+	 * @return The <code>String</code> array of the user
+	 * name and the password. <code>null</code> if the
+	 * password file does not exist or cannot be read by
+	 * the current user.
+	 */
+	public String[] read() {
+		final File file = this.getPasswordFile(UEnvironment.instance.getInstalledHomeDir());
+		if (!file.canRead()) return null;
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					final String[] fields = line.trim().split("\\s+");
+					if (fields.length == 2 && fields[0].equals(EShell.ManagementUser.value)) return fields;
+				}
+				return null;
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Retrieve the password file of the given home
+	 * directory.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The password <code>File</code>.
+	 */
+	public File getPasswordFile(final String homeDir) {
+		return new File(UEnvironment.instance.getConfigDir(homeDir) + EShell.ManagementPasswordFile.value);
+	}
+
+	/**
+	 * Retrieve the access file of the given home
+	 * directory.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The access <code>File</code>.
+	 */
+	public File getAccessFile(final String homeDir) {
+		return new File(UEnvironment.instance.getConfigDir(homeDir) + EShell.ManagementAccessFile.value);
+	}
+}
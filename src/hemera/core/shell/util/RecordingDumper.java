@@ -0,0 +1,166 @@
+package hemera.core.shell.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+
+import hemera.core.environment.enumn.EEnvironment;
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.utility.FileUtils;
+import hemera.core.utility.shell.Shell;
+import hemera.core.utility.shell.ShellResult;
+
+/**
+ * <code>RecordingDumper</code> defines the singleton
+ * utility that dumps the continuous flight recording
+ * of a running runtime instance into the log directory.
+ * <p>
+ * The recording is dumped by the runtime JVM itself,
+ * through the diagnostic command bean over the
+ * management interface. If the interface cannot be
+ * reached, such as when the runtime is stuck shutting
+ * down, the JDK <code>jcmd</code> tool is used on the
+ * process instead.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum RecordingDumper {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * The <code>String</code> name of the diagnostic
+	 * command bean.
+	 */
+	private static final String DiagnosticCommandName = "com.sun.management:type=DiagnosticCommand";
+
+	/**
+	 * Check if the given runtime JVM version supports
+	 * the continuous flight recording, which requires
+	 * Java 11 or later.
+	 * @param javaVersion The <code>int</code> major
+	 * version of the runtime JVM.
+	 * @return <code>true</code> if supported.
+	 */
+	public boolean isSupported(final int javaVersion) {
+		return javaVersion >= 11;
+	}
+
+	/**
+	 * Dump the continuous recording of the given runtime
+	 * instance into the log directory.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @param last The <code>int</code> number of most
+	 * recent seconds to dump. <code>0</code> to dump all
+	 * the recorded data.
+	 * @return The dumped recording <code>File</code>.
+	 * @throws IOException If running the dump failed.
+	 * @throws InterruptedException If interrupted while
+	 * running the dump.
+	 * @throws IllegalStateException If the runtime did
+	 * not dump the recording.
+	 */
+	public File dump(final String homeDir, final ShellConfiguration shellConfig, final int index, final int last) throws IOException, InterruptedException {
+		if (!shellConfig.recording.enabled) {
+			throw new IllegalStateException("Continuous flight recording is not enabled in the shell configuration.");
+		}
+		final String logDir = UEnvironment.instance.getLogDir(homeDir);
+		final String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		final File file = new File(logDir + UShell.instance.getInstanceFile(EShell.RecordingFilePrefix.value + timestamp + EShell.RecordingExtension.value, index));
+		final List<String> arguments = new ArrayList<String>();
+		arguments.add("name=" + EShell.RecordingName.value);
+		arguments.add("filename=" + file.getAbsolutePath());
+		if (last > 0) arguments.add("maxage=" + last + "s");
+		String output = this.dumpManaged(shellConfig, index, arguments);
+		if (output == null) output = this.dumpAttached(index, arguments);
+		if (!file.isFile()) {
+			throw new IllegalStateException("Dumping flight recording failed: " + output.trim());
+		}
+		return file;
+	}
+
+	/**
+	 * Dump the recording through the management
+	 * interface of the given instance.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @param arguments The <code>List</code> of dump
+	 * command arguments.
+	 * @return The <code>String</code> command output.
+	 * <code>null</code> if the interface cannot be
+	 * reached.
+	 */
+	private String dumpManaged(final ShellConfiguration shellConfig, final int index, final List<String> arguments) {
+		final JMXConnector connector = RuntimeConnector.instance.connect(shellConfig, index);
+		if (connector == null) return null;
+		try {
+			final ObjectName name = new ObjectName(RecordingDumper.DiagnosticCommandName);
+			final Object[] params = new Object[] {arguments.toArray(new String[arguments.size()])};
+			final Object result = connector.getMBeanServerConnection().invoke(name, "jfrDump", params, new String[] {String[].class.getName()});
+			return (result==null) ? "" : result.toString();
+		} catch (final IOException e) {
+			return null;
+		} catch (final JMException e) {
+			return e.getMessage();
+		} finally {
+			RuntimeConnector.instance.close(connector);
+		}
+	}
+
+	/**
+	 * Dump the recording by attaching to the process of
+	 * the given instance with <code>jcmd</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @param arguments The <code>List</code> of dump
+	 * command arguments.
+	 * @return The <code>String</code> command output.
+	 * @throws IOException If reading the PID file or
+	 * running the command failed.
+	 * @throws InterruptedException If interrupted while
+	 * running the command.
+	 */
+	private String dumpAttached(final int index, final List<String> arguments) throws IOException, InterruptedException {
+		final String binDir = UEnvironment.instance.getInstalledBinDir();
+		final File pidFile = new File(binDir + UShell.instance.getInstanceFile(EEnvironment.JSVCPIDFile.value, index));
+		if (!pidFile.isFile()) return "No PID file found, the runtime is not running.";
+		final String pid = FileUtils.instance.readAsString(pidFile).trim();
+		final List<String> command = new ArrayList<String>();
+		command.add(this.getJCmd());
+		command.add(pid);
+		command.add("JFR.dump");
+		command.addAll(arguments);
+		// The runtime runs as root.
+		final ShellResult result = Shell.instance.execute(command.toArray(new String[command.size()]), true);
+		return result.output;
+	}
+
+	/**
+	 * Locate the <code>jcmd</code> tool of the JDK the
+	 * shell runs on.
+	 * @return The <code>String</code> path to the tool.
+	 */
+	private String getJCmd() {
+		final File home = new File(System.getProperty("java.home"));
+		File jcmd = new File(home, "bin/jcmd");
+		if (jcmd.isFile()) return jcmd.getAbsolutePath();
+		// Java 8 home is the JRE within the JDK.
+		jcmd = new File(home.getParentFile(), "bin/jcmd");
+		if (jcmd.isFile()) return jcmd.getAbsolutePath();
+		return "jcmd";
+	}
+}
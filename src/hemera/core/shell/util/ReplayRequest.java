@@ -0,0 +1,90 @@
+package hemera.core.shell.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>ReplayRequest</code> defines the immutable HTTP
+ * request that the shell replays against the local
+ * runtime.
+ * <p>
+ * Recorded requests are stored as a text file with one
+ * request per line, in the form of
+ * <code>METHOD path [body]</code>. The optional body is
+ * the rest of the line and is sent as URL encoded form
+ * data. Empty lines and lines starting with
+ * <code>#</code> are ignored.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class ReplayRequest {
+	/**
+	 * The <code>String</code> HTTP method.
+	 */
+	public final String method;
+	/**
+	 * The <code>String</code> path including the query.
+	 */
+	public final String path;
+	/**
+	 * The <code>String</code> body. <code>null</code> if
+	 * the request has no body.
+	 */
+	public final String body;
+
+	/**
+	 * Constructor of <code>ReplayRequest</code>.
+	 * @param method The <code>String</code> HTTP method.
+	 * @param path The <code>String</code> path.
+	 * @param body The <code>String</code> body.
+	 * <code>null</code> if there is none.
+	 */
+	public ReplayRequest(final String method, final String path, final String body) {
+		this.method = method.toUpperCase();
+		this.path = path.startsWith("/") ? path : "/" + path;
+		this.body = body;
+	}
+
+	/**
+	 * Load all the requests recorded in the given file.
+	 * @param file The requests <code>File</code>.
+	 * @return The <code>List</code> of
+	 * <code>ReplayRequest</code>.
+	 * @throws IOException If reading file failed or
+	 * the file is malformed.
+	 */
+	public static List<ReplayRequest> load(final File file) throws IOException {
+		final List<ReplayRequest> requests = new ArrayList<ReplayRequest>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line = reader.readLine();
+			while (line != null) {
+				line = line.trim();
+				if (line.length() > 0 && !line.startsWith("#")) {
+					final int first = line.indexOf(' ');
+					if (first < 0) throw new IOException("Malformed request line: " + line);
+					final int second = line.indexOf(' ', first+1);
+					final String method = line.substring(0, first);
+					final String path = (second < 0) ? line.substring(first+1) : line.substring(first+1, second);
+					final String body = (second < 0) ? null : line.substring(second+1).trim();
+					requests.add(new ReplayRequest(method, path, body));
+				}
+				line = reader.readLine();
+			}
+		} finally {
+			reader.close();
+		}
+		return requests;
+	}
+
+	@Override
+	public String toString() {
+		return this.method + " " + this.path;
+	}
+}
@@ -0,0 +1,193 @@
+package hemera.core.shell.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import javax.management.remote.JMXConnector;
+
+import hemera.core.environment.config.Configuration;
+import hemera.core.shell.config.ConfigInstances;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.enumn.ECommand;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.shell.runtime.RuntimeControlMBean;
+
+/**
+ * <code>RollingRestart</code> defines the singleton
+ * implementation that restarts the runtime instances
+ * one at a time, so the instances that are not being
+ * restarted keep serving the shared port.
+ * <p>
+ * A single instance has no other instance to serve
+ * while it restarts. A temporary surge instance is
+ * started with the next instance index, its own PID
+ * file and management port, and admitted to the shared
+ * port first. The single instance is then drained,
+ * restarted and probed, and the surge instance is
+ * drained and stopped once it is back. The surge
+ * instance requires the shell launcher, the management
+ * interface and a running instance that shares its
+ * port. Otherwise the instance is restarted in place,
+ * which interrupts the service, and a warning says so.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum RollingRestart {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Restart the given number of runtime instances one
+	 * at a time, starting from the first. Each instance
+	 * is drained through its runtime control and stopped,
+	 * then started on the current scripts and probed. The
+	 * next instance is only restarted once the previous
+	 * one is ready and admitted to the shared port.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param config The <code>Configuration</code>.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param count The <code>int</code> number of
+	 * instances to restart.
+	 * @param readyTimeout The <code>int</code> readiness
+	 * timeout of each instance in seconds.
+	 * @return The <code>int</code> index of the instance
+	 * that did not become ready. Or <code>-1</code> if
+	 * all the instances became ready.
+	 * @throws Exception If restarting failed.
+	 */
+	public int restart(final String homeDir, final Configuration config, final ShellConfiguration shellConfig, final int count,
+			final int readyTimeout) throws Exception {
+		if (shellConfig.instances.count == 1 && count == 1 && UShell.instance.isRunning(0)) {
+			if (this.canSurge(config, shellConfig)) return this.restartWithSurge(homeDir, config, shellConfig, readyTimeout);
+			System.err.println("WARNING: A single runtime instance cannot be restarted without interrupting the service. " +
+					"Run more than one instance with the shell launcher and the management interface enabled for rolling restarts.");
+		}
+		for (int i = 0; i < count; i++) {
+			if (!this.restartInstance(config, shellConfig, i, readyTimeout)) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Restart the single runtime instance while a surge
+	 * instance serves the shared port. If the surge
+	 * instance does not become ready, the single instance
+	 * is left running untouched.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param config The <code>Configuration</code>.
+	 * @param shellConfig The single instance
+	 * <code>ShellConfiguration</code>.
+	 * @param readyTimeout The <code>int</code> readiness
+	 * timeout of each instance in seconds.
+	 * @return The <code>int</code> <code>0</code> if
+	 * the surge instance or the restarted instance did
+	 * not become ready. Or <code>-1</code> if the
+	 * instance was restarted.
+	 * @throws Exception If restarting failed.
+	 */
+	private int restartWithSurge(final String homeDir, final Configuration config, final ShellConfiguration shellConfig,
+			final int readyTimeout) throws Exception {
+		final int surge = shellConfig.instances.count;
+		final ShellConfiguration surgeConfig = new ShellConfiguration(shellConfig, new ConfigInstances(shellConfig.instances, surge+1));
+		UShell.instance.writeConfiguration(homeDir, surgeConfig);
+		try {
+			JSVCScriptGenerator.instance.exportScripts(homeDir, config);
+			System.out.println("Starting surge instance " + surge + " to serve while the runtime restarts...");
+			ECommand.Start.execute(new String[] {"--instance", String.valueOf(surge), "--ready-timeout", String.valueOf(readyTimeout)});
+			if (!this.isReady(config, surgeConfig, surge)) {
+				System.err.println("Surge instance did not become ready within " + readyTimeout + " seconds, the runtime was not restarted.");
+				return 0;
+			}
+			return this.restartInstance(config, surgeConfig, 0, readyTimeout) ? -1 : 0;
+		} finally {
+			if (UShell.instance.isRunning(surge)) ECommand.Stop.execute(new String[] {"--instance", String.valueOf(surge)});
+			UShell.instance.writeConfiguration(homeDir, shellConfig);
+			JSVCScriptGenerator.instance.exportScripts(homeDir, config);
+		}
+	}
+
+	/**
+	 * Check if a surge instance can serve while the
+	 * single running instance restarts. The running
+	 * instance must have been launched sharing its port,
+	 * which it reports through the management interface.
+	 * @param config The <code>Configuration</code>.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @return <code>true</code> if a surge instance can
+	 * be started.
+	 */
+	private boolean canSurge(final Configuration config, final ShellConfiguration shellConfig) {
+		if (!UShell.instance.isShellLauncher(config) || shellConfig.management.jmxPort <= 0) return false;
+		final JMXConnector connector = RuntimeConnector.instance.connect(shellConfig, 0);
+		if (connector == null) return false;
+		try {
+			final RuntimeMXBean runtime = ManagementFactory.newPlatformMXBeanProxy(connector.getMBeanServerConnection(),
+					ManagementFactory.RUNTIME_MXBEAN_NAME, RuntimeMXBean.class);
+			return Boolean.parseBoolean(runtime.getSystemProperties().get(EShell.SharedPortProperty.value));
+		} catch (final IOException e) {
+			return false;
+		} catch (final UndeclaredThrowableException e) {
+			return false;
+		} finally {
+			RuntimeConnector.instance.close(connector);
+		}
+	}
+
+	/**
+	 * Drain, stop, start and probe the given runtime
+	 * instance.
+	 * @param config The <code>Configuration</code>.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @param readyTimeout The <code>int</code> readiness
+	 * timeout in seconds.
+	 * @return <code>true</code> if the instance is ready.
+	 * @throws Exception If restarting failed.
+	 */
+	private boolean restartInstance(final Configuration config, final ShellConfiguration shellConfig, final int index,
+			final int readyTimeout) throws Exception {
+		final String value = String.valueOf(index);
+		ECommand.Stop.execute(new String[] {"--instance", value});
+		if (UShell.instance.isRunning(index)) return false;
+		ECommand.Start.execute(new String[] {"--instance", value, "--ready-timeout", String.valueOf(readyTimeout)});
+		return this.isReady(config, shellConfig, index);
+	}
+
+	/**
+	 * Check if the given started runtime instance is
+	 * ready. It must answer the health probe, and be
+	 * admitted to the shared port if management is
+	 * enabled.
+	 * @param config The <code>Configuration</code>.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return <code>true</code> if the instance is ready.
+	 * @throws InterruptedException If probing was
+	 * interrupted.
+	 */
+	private boolean isReady(final Configuration config, final ShellConfiguration shellConfig, final int index) throws InterruptedException {
+		if (!UShell.instance.isRunning(index)) return false;
+		final int port = RuntimeConnector.instance.getInstancePort(config, shellConfig, index);
+		final ReplayRequest probe = new ReplayRequest("GET", shellConfig.startup.healthPath, null);
+		if (RuntimeProbe.instance.waitUntilServing(RuntimeConnector.instance.newClient(config, port), probe, 0) < 0) return false;
+		if (shellConfig.management.jmxPort <= 0) return true;
+		final JMXConnector connector = RuntimeConnector.instance.connect(shellConfig, index);
+		try {
+			final RuntimeControlMBean control = (connector==null) ? null : RuntimeConnector.instance.getControl(connector);
+			return (control != null && control.isAdmitted());
+		} catch (final IOException e) {
+			return false;
+		} catch (final UndeclaredThrowableException e) {
+			return false;
+		} finally {
+			RuntimeConnector.instance.close(connector);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package hemera.core.shell.util;
+
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMX;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import hemera.core.environment.config.Configuration;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.shell.runtime.RuntimeControlMBean;
+
+/**
+ * <code>RuntimeConnector</code> defines the singleton
+ * utility that connects the shell to the management
+ * interface of the running runtime, which is exposed
+ * over JMX on the loopback interface only.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum RuntimeConnector {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Connect to the management interface of the
+	 * first runtime instance.
+	 * @param config The <code>ShellConfiguration</code>.
+	 * @return The <code>JMXConnector</code>. Or
+	 * <code>null</code> if management is disabled or
+	 * the runtime cannot be reached.
+	 */
+	public JMXConnector connect(final ShellConfiguration config) {
+		return this.connect(config, 0);
+	}
+
+	/**
+	 * Connect to the management interface of the given
+	 * runtime instance, which listens on the configured
+	 * management port offset by its index. Connecting
+	 * requires the management credentials, which only
+	 * the user that runs the runtime can read.
+	 * @param config The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>JMXConnector</code>. Or
+	 * <code>null</code> if management is disabled, the
+	 * credentials cannot be read or the runtime cannot
+	 * be reached.
+	 */
+	public JMXConnector connect(final ShellConfiguration config, final int index) {
+		if (config.management.jmxPort <= 0) return null;
+		final String[] credentials = ManagementCredentials.instance.read();
+		if (credentials == null) return null;
+		final int port = config.management.jmxPort + index;
+		try {
+			final JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://127.0.0.1:" + port + "/jmxrmi");
+			final Map<String, Object> environment = new HashMap<String, Object>();
+			environment.put(JMXConnector.CREDENTIALS, credentials);
+			return JMXConnectorFactory.connect(url, environment);
+		} catch (final IOException e) {
+			return null;
+		} catch (final SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Retrieve the runtime control through the given
+	 * connector.
+	 * @param connector The <code>JMXConnector</code>.
+	 * @return The <code>RuntimeControlMBean</code> proxy.
+	 * Or <code>null</code> if the runtime was not
+	 * launched by the shell launcher.
+	 * @throws IOException If communication failed.
+	 */
+	public RuntimeControlMBean getControl(final JMXConnector connector) throws IOException {
+		final ObjectName name;
+		try {
+			name = new ObjectName(EShell.RuntimeControlName.value);
+		} catch (final MalformedObjectNameException e) {
+			throw new IllegalStateException(e);
+		}
+		if (!connector.getMBeanServerConnection().isRegistered(name)) return null;
+		return JMX.newMBeanProxy(connector.getMBeanServerConnection(), name, RuntimeControlMBean.class);
+	}
+
+	/**
+	 * Retrieve the port that reaches the given runtime
+	 * instance alone. All the instances share the
+	 * configured port, so the loopback port of the
+	 * instance is retrieved through its runtime control.
+	 * @param config The <code>Configuration</code>.
+	 * @param shellConfig The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>int</code> loopback port of the
+	 * instance. Or the configured port if the runtime
+	 * control cannot be reached or the runtime is not
+	 * activated, which may be served by any instance.
+	 */
+	public int getInstancePort(final Configuration config, final ShellConfiguration shellConfig, final int index) {
+		final JMXConnector connector = this.connect(shellConfig, index);
+		try {
+			final RuntimeControlMBean control = (connector==null) ? null : this.getControl(connector);
+			final int port = (control==null) ? -1 : control.getLoopbackPort();
+			if (port > 0) return port;
+		} catch (final IOException e) {
+			// Runtime went away.
+		} catch (final UndeclaredThrowableException e) {
+			// Runtime went away during a proxy call.
+		} finally {
+			this.close(connector);
+		}
+		return config.runtime.socket.port;
+	}
+
+	/**
+	 * Create a loopback client to the given port of the
+	 * runtime.
+	 * @param config The <code>Configuration</code>.
+	 * @param port The <code>int</code> port.
+	 * @return The <code>LoopbackClient</code>.
+	 */
+	public LoopbackClient newClient(final Configuration config, final int port) {
+		final boolean secure = (config.runtime.socket.certPath != null && !config.runtime.socket.certPath.isEmpty());
+		return new LoopbackClient(port, secure, config.runtime.socket.timeout);
+	}
+
+	/**
+	 * Retrieve a GET request to every resource deployed
+	 * in the given runtime instance.
+	 * @param config The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>List</code> of
+	 * <code>ReplayRequest</code>. Empty if the runtime
+	 * cannot be reached.
+	 * @throws IOException If communication failed.
+	 */
+	public List<ReplayRequest> getResourceRequests(final ShellConfiguration config, final int index) throws IOException {
+		final List<ReplayRequest> requests = new ArrayList<ReplayRequest>();
+		final JMXConnector connector = this.connect(config, index);
+		if (connector == null) return requests;
+		try {
+			final RuntimeControlMBean control = this.getControl(connector);
+			if (control == null) return requests;
+			final String[] paths = control.getResourcePaths();
+			for (int i = 0; i < paths.length; i++) {
+				requests.add(new ReplayRequest("GET", paths[i], null));
+			}
+		} finally {
+			this.close(connector);
+		}
+		return requests;
+	}
+
+	/**
+	 * Close the given connector, ignoring failures.
+	 * @param connector The <code>JMXConnector</code>.
+	 * <code>null</code> if there is none.
+	 */
+	public void close(final JMXConnector connector) {
+		if (connector == null) return;
+		try {
+			connector.close();
+		} catch (final IOException e) {
+			// Runtime already gone.
+		}
+	}
+}
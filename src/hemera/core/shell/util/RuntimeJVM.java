@@ -0,0 +1,120 @@
+package hemera.core.shell.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.utility.FileUtils;
+import hemera.core.utility.shell.Shell;
+import hemera.core.utility.shell.ShellResult;
+
+/**
+ * <code>RuntimeJVM</code> defines the singleton utility
+ * that determines the version of the JVM the runtime
+ * is launched with. The runtime runs on the Java home
+ * exported by the generated scripts, which is not
+ * necessarily the JVM that runs the shell. The version
+ * is probed once when the scripts are exported, and it
+ * is recorded in the binary directory for the commands
+ * that act on the running runtime.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum RuntimeJVM {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * The <code>Pattern</code> of the version string
+	 * printed by <code>java -version</code>.
+	 */
+	private final Pattern versionPattern = Pattern.compile("version \"([0-9][0-9._]*)");
+
+	/**
+	 * Probe the major version of the JVM the runtime is
+	 * launched with and record it. If the probe fails,
+	 * the version of the shell JVM is assumed.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 * @param environment The <code>String</code> script
+	 * section that exports the Java environment of the
+	 * runtime.
+	 * @return The <code>int</code> major version.
+	 * @throws IOException If file processing failed.
+	 * @throws InterruptedException If the probe was
+	 * interrupted.
+	 */
+	public int probe(final String homeDir, final String environment) throws IOException, InterruptedException {
+		final String binDir = UEnvironment.instance.getBinDir(homeDir);
+		final String script = binDir + EShell.JavaVersionScriptFile.value;
+		FileUtils.instance.writeAsString(environment + "$JAVA_HOME/bin/java -version\n", script);
+		Shell.instance.makeExecutable(script);
+		final ShellResult result = Shell.instance.execute(new String[] {script}, false);
+		final Matcher matcher = this.versionPattern.matcher(result.output);
+		int version = -1;
+		if (result.code == 0 && matcher.find()) version = this.parse(matcher.group(1));
+		if (version <= 0) {
+			version = this.getShellVersion();
+			System.err.println("Probing the runtime JVM version failed, assuming Java " + version + " of the shell.");
+			System.err.println(result.output);
+		}
+		FileUtils.instance.writeAsString(String.valueOf(version), binDir + EShell.JavaVersionFile.value);
+		return version;
+	}
+
+	/**
+	 * Retrieve the major version of the JVM the runtime
+	 * is launched with, as recorded when the scripts
+	 * were last exported. If there is no record, the
+	 * version of the shell JVM is assumed.
+	 * @param homeDir The <code>String</code> runtime
+	 * home directory.
+	 * @return The <code>int</code> major version.
+	 */
+	public int getVersion(final String homeDir) {
+		final File file = new File(UEnvironment.instance.getBinDir(homeDir) + EShell.JavaVersionFile.value);
+		if (file.isFile()) {
+			try {
+				final int version = Integer.parseInt(FileUtils.instance.readAsString(file).trim());
+				if (version > 0) return version;
+			} catch (final Exception e) {
+				// Unreadable record, assume the shell version.
+			}
+		}
+		return this.getShellVersion();
+	}
+
+	/**
+	 * Retrieve the major version of the JVM that runs
+	 * the shell.
+	 * @return The <code>int</code> major version.
+	 */
+	private int getShellVersion() {
+		return this.parse(System.getProperty("java.specification.version"));
+	}
+
+	/**
+	 * Parse the major version from the given version
+	 * string, in either the <code>1.8.0_292</code> or
+	 * the <code>17.0.1</code> format.
+	 * @param value The <code>String</code> version.
+	 * @return The <code>int</code> major version.
+	 * <code>-1</code> if the value is not a version.
+	 */
+	private int parse(final String value) {
+		final String[] parts = value.split("[._]");
+		try {
+			final int major = Integer.parseInt(parts[0]);
+			if (major == 1 && parts.length > 1) return Integer.parseInt(parts[1]);
+			return major;
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package hemera.core.shell.util;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * <code>RuntimeProbe</code> defines the singleton
+ * implementation that checks whether the runtime
+ * environment is ready to serve requests, by probing
+ * its listening socket and sending health probe
+ * requests on the local host.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum RuntimeProbe {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * The <code>int</code> connect timeout of a single
+	 * probe in milliseconds.
+	 */
+	private static final int ConnectTimeout = 500;
+	/**
+	 * The <code>long</code> interval between probes in
+	 * milliseconds.
+	 */
+	private static final long ProbeInterval = 200;
+
+	/**
+	 * Check if the runtime is accepting connections on
+	 * the given local port.
+	 * @param port The <code>int</code> port number.
+	 * @return <code>true</code> if a connection can be
+	 * established.
+	 */
+	public boolean isAccepting(final int port) {
+		final Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress("127.0.0.1", port), RuntimeProbe.ConnectTimeout);
+			return true;
+		} catch (final IOException e) {
+			return false;
+		} finally {
+			try {
+				socket.close();
+			} catch (final IOException e) {}
+		}
+	}
+
+	/**
+	 * Wait until the runtime accepts connections on the
+	 * given local port or the timeout is reached.
+	 * @param port The <code>int</code> port number.
+	 * @param timeout The <code>long</code> maximum time
+	 * to wait in milliseconds.
+	 * @return The <code>long</code> time in milliseconds
+	 * it took for the runtime to become ready. Or
+	 * <code>-1</code> if it did not become ready within
+	 * the timeout.
+	 * @throws InterruptedException If waiting was
+	 * interrupted.
+	 */
+	public long waitUntilAccepting(final int port, final long timeout) throws InterruptedException {
+		final long start = System.currentTimeMillis();
+		while (true) {
+			if (this.isAccepting(port)) return System.currentTimeMillis() - start;
+			if (System.currentTimeMillis() - start >= timeout) return -1;
+			Thread.sleep(RuntimeProbe.ProbeInterval);
+		}
+	}
+
+	/**
+	 * Wait until the runtime answers the given health
+	 * probe request with a status code below 500 or the
+	 * timeout is reached.
+	 * @param client The <code>LoopbackClient</code> to
+	 * send the probe with.
+	 * @param probe The health probe
+	 * <code>ReplayRequest</code>.
+	 * @param timeout The <code>long</code> maximum time
+	 * to wait in milliseconds.
+	 * @return The <code>long</code> time in milliseconds
+	 * it took for the runtime to answer. Or
+	 * <code>-1</code> if it did not answer within the
+	 * timeout.
+	 * @throws InterruptedException If waiting was
+	 * interrupted.
+	 */
+	public long waitUntilServing(final LoopbackClient client, final ReplayRequest probe, final long timeout) throws InterruptedException {
+		final long start = System.currentTimeMillis();
+		while (true) {
+			try {
+				if (client.send(probe) < 500) return System.currentTimeMillis() - start;
+			} catch (final IOException e) {
+				// Not serving yet.
+			}
+			if (System.currentTimeMillis() - start >= timeout) return -1;
+			Thread.sleep(RuntimeProbe.ProbeInterval);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package hemera.core.shell.util;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServerConnection;
+
+import hemera.core.shell.runtime.RuntimeControlMBean;
+
+/**
+ * <code>RuntimeSnapshot</code> defines the immutable
+ * snapshot of the metrics of a running runtime instance
+ * at one point in time. The request metrics are
+ * cumulative, so rates and latency percentiles are
+ * computed over the interval between two snapshots.
+ * <p>
+ * The request and execution metrics are read through
+ * the runtime control, and the heap and garbage
+ * collection metrics through the platform management
+ * beans of the same connection.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public class RuntimeSnapshot {
+	/**
+	 * The <code>long</code> time the snapshot was taken
+	 * in nanoseconds.
+	 */
+	public final long time;
+	/**
+	 * The <code>long</code> array of cumulative latency
+	 * histogram counts.
+	 */
+	public final long[] latencies;
+	/**
+	 * The <code>Map</code> of application name to its
+	 * cumulative request count.
+	 */
+	public final Map<String, Long> applications;
+	/**
+	 * The <code>Map</code> of execution service
+	 * statistics.
+	 */
+	public final Map<String, Number> execution;
+	/**
+	 * The <code>long</code> array of captured output
+	 * statistics. See <code>RuntimeControlMBean</code>.
+	 * <code>null</code> if the output is not captured.
+	 */
+	public final long[] output;
+	/**
+	 * The <code>MemoryUsage</code> of the heap.
+	 */
+	public final MemoryUsage heap;
+	/**
+	 * The <code>long</code> cumulative number of garbage
+	 * collections.
+	 */
+	public final long gcCount;
+	/**
+	 * The <code>long</code> cumulative garbage collection
+	 * time in milliseconds.
+	 */
+	public final long gcTime;
+	/**
+	 * The <code>int</code> number of open connections
+	 * of the instance.
+	 */
+	public final int connections;
+
+	/**
+	 * Constructor of <code>RuntimeSnapshot</code>.
+	 * @param connection The <code>MBeanServerConnection</code>
+	 * of the runtime.
+	 * @param control The <code>RuntimeControlMBean</code>.
+	 * @throws IOException If communication failed.
+	 */
+	public RuntimeSnapshot(final MBeanServerConnection connection, final RuntimeControlMBean control) throws IOException {
+		this.time = System.nanoTime();
+		this.latencies = control.getLatencyHistogram();
+		this.applications = control.getApplicationRequests();
+		this.execution = control.getExecutionStats();
+		this.output = control.getOutputStats();
+		this.heap = ManagementFactory.getPlatformMXBean(connection, MemoryMXBean.class).getHeapMemoryUsage();
+		final List<GarbageCollectorMXBean> collectors = ManagementFactory.getPlatformMXBeans(connection, GarbageCollectorMXBean.class);
+		long gcCount = 0;
+		long gcTime = 0;
+		for (final GarbageCollectorMXBean collector : collectors) {
+			gcCount += Math.max(0, collector.getCollectionCount());
+			gcTime += Math.max(0, collector.getCollectionTime());
+		}
+		this.gcCount = gcCount;
+		this.gcTime = gcTime;
+		this.connections = control.getConnectionCount();
+	}
+}
@@ -0,0 +1,143 @@
+package hemera.core.shell.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import hemera.core.shell.config.ConfigWarmUp;
+
+/**
+ * <code>RuntimeWarmUp</code> defines the singleton
+ * implementation that warms up a started runtime
+ * instance by replaying a request set against it in
+ * rounds, so the JIT compiler optimizes the request
+ * paths before real traffic is served. The latency of
+ * every round is reported, which shows the latency
+ * curve of the runtime as it warms up.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum RuntimeWarmUp {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Replay the given requests against the runtime.
+	 * Any HTTP response counts as a completed request,
+	 * since error responses exercise the request paths
+	 * as well. Warm-up stops early if no request of a
+	 * round completes.
+	 * @param client The <code>LoopbackClient</code>.
+	 * @param requests The <code>List</code> of
+	 * <code>ReplayRequest</code> to replay each round.
+	 * @param config The <code>ConfigWarmUp</code>.
+	 * @throws InterruptedException If warm-up was
+	 * interrupted.
+	 */
+	public void warmUp(final LoopbackClient client, final List<ReplayRequest> requests, final ConfigWarmUp config) throws InterruptedException {
+		final int size = requests.size();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(config.concurrency, size));
+		try {
+			final List<Callable<Long>> tasks = new ArrayList<Callable<Long>>(size);
+			for (int i = 0; i < size; i++) {
+				tasks.add(this.newTask(client, requests.get(i)));
+			}
+			final long start = System.currentTimeMillis();
+			double firstP99 = -1;
+			double lastP99 = -1;
+			for (int round = 1; round <= config.rounds; round++) {
+				final long[] latencies = this.replay(executor, tasks);
+				if (latencies.length == 0) {
+					System.err.println("Round " + round + "/" + config.rounds + ": all " + size + " requests failed, stopping warm-up.");
+					return;
+				}
+				final double p50 = this.percentile(latencies, 0.5);
+				final double p99 = this.percentile(latencies, 0.99);
+				final double max = this.percentile(latencies, 1);
+				if (firstP99 < 0) firstP99 = p99;
+				lastP99 = p99;
+				System.out.println(String.format("Round %d/%d: %d requests, %d failed, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+						round, config.rounds, size, size-latencies.length, p50, p99, max));
+			}
+			System.out.println(String.format("Warm-up completed in %d ms, p99 went from %.2f ms to %.2f ms.",
+					System.currentTimeMillis()-start, firstP99, lastP99));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Create the task that sends the given request.
+	 * @param client The <code>LoopbackClient</code>.
+	 * @param request The <code>ReplayRequest</code>.
+	 * @return The <code>Callable</code> task that returns
+	 * the <code>long</code> latency in nanoseconds, or
+	 * <code>-1</code> if the request failed.
+	 */
+	private Callable<Long> newTask(final LoopbackClient client, final ReplayRequest request) {
+		return new Callable<Long>() {
+			@Override
+			public Long call() {
+				final long start = System.nanoTime();
+				try {
+					client.send(request);
+					return System.nanoTime() - start;
+				} catch (final IOException e) {
+					return -1L;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Replay one round of the given tasks.
+	 * @param executor The <code>ExecutorService</code>.
+	 * @param tasks The <code>List</code> of request
+	 * <code>Callable</code> tasks.
+	 * @return The sorted <code>long</code> array of the
+	 * latencies of all the completed requests in
+	 * nanoseconds.
+	 * @throws InterruptedException If replay was
+	 * interrupted.
+	 */
+	private long[] replay(final ExecutorService executor, final List<Callable<Long>> tasks) throws InterruptedException {
+		final List<Future<Long>> futures = executor.invokeAll(tasks);
+		final long[] latencies = new long[futures.size()];
+		int count = 0;
+		for (int i = 0; i < latencies.length; i++) {
+			try {
+				final long latency = futures.get(i).get();
+				if (latency >= 0) latencies[count++] = latency;
+			} catch (final ExecutionException e) {
+				// Tasks report failures as negative latency.
+			}
+		}
+		final long[] completed = Arrays.copyOf(latencies, count);
+		Arrays.sort(completed);
+		return completed;
+	}
+
+	/**
+	 * Retrieve the given percentile of the given sorted
+	 * latencies.
+	 * @param latencies The sorted <code>long</code> array
+	 * of latencies in nanoseconds. Must not be empty.
+	 * @param percentile The <code>double</code> percentile
+	 * between <code>0</code> and <code>1</code>.
+	 * @return The <code>double</code> latency in
+	 * milliseconds.
+	 */
+	private double percentile(final long[] latencies, final double percentile) {
+		final int index = Math.max(0, (int)Math.ceil(percentile*latencies.length) - 1);
+		return latencies[index] / 1000000.0;
+	}
+}
@@ -0,0 +1,148 @@
+package hemera.core.shell.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import hemera.core.environment.config.Configuration;
+import hemera.core.environment.enumn.EEnvironment;
+import hemera.core.environment.util.UEnvironment;
+import hemera.core.shell.config.ShellConfiguration;
+import hemera.core.shell.enumn.EShell;
+import hemera.core.utility.FileUtils;
+
+/**
+ * <code>UShell</code> defines the singleton utility
+ * that provides access to the shell configuration of
+ * an installed home directory.
+ *
+ * @author Yi Wang (Neakor)
+ * @version 1.0.7
+ */
+public enum UShell {
+	/**
+	 * The singleton instance.
+	 */
+	instance;
+
+	/**
+	 * Retrieve the shell configuration file path.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The <code>String</code> file path.
+	 */
+	public String getConfigurationFile(final String homeDir) {
+		return UEnvironment.instance.getConfigDir(homeDir) + EShell.ShellConfigurationFile.value;
+	}
+
+	/**
+	 * Retrieve the shell configuration of the given
+	 * home directory. If the home directory was
+	 * installed without a shell configuration file, the
+	 * default configuration is returned.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @return The <code>ShellConfiguration</code>.
+	 * @throws IOException If reading file failed.
+	 * @throws SAXException If parsing file failed.
+	 * @throws ParserConfigurationException If parsing
+	 * file failed.
+	 */
+	public ShellConfiguration getConfiguration(final String homeDir) throws IOException, SAXException, ParserConfigurationException {
+		final File file = new File(this.getConfigurationFile(homeDir));
+		if (!file.isFile()) return new ShellConfiguration();
+		final Document document = FileUtils.instance.readAsDocument(file);
+		return new ShellConfiguration(document);
+	}
+
+	/**
+	 * Write the given shell configuration as the shell
+	 * configuration file of the given home directory.
+	 * @param homeDir The <code>String</code> home
+	 * directory.
+	 * @param config The <code>ShellConfiguration</code>.
+	 * @throws IOException If writing file failed.
+	 * @throws ParserConfigurationException If XML
+	 * processing failed.
+	 * @throws TransformerException If writing XML
+	 * file failed.
+	 */
+	public void writeConfiguration(final String homeDir, final ShellConfiguration config) throws IOException, ParserConfigurationException, TransformerException {
+		FileUtils.instance.writeDocument(config.toDocument(), this.getConfigurationFile(homeDir));
+	}
+
+	/**
+	 * Retrieve the file name of the given runtime
+	 * instance. Instance <code>0</code> uses the given
+	 * name as is, so a single instance runtime keeps
+	 * the file names it always had. Other instances
+	 * insert their index before the file extension.
+	 * @param name The <code>String</code> file name.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>String</code> file name.
+	 */
+	public String getInstanceFile(final String name, final int index) {
+		if (index == 0) return name;
+		final int dot = name.lastIndexOf('.');
+		if (dot < 0) return name + "-" + index;
+		return name.substring(0, dot) + "-" + index + name.substring(dot);
+	}
+
+	/**
+	 * Check if the runtime is launched by the shell
+	 * launcher, which is the only launcher that shares
+	 * its port, waits for admission and captures its
+	 * output.
+	 * @param config The <code>Configuration</code>.
+	 * @return <code>true</code> if no custom launcher is
+	 * configured.
+	 */
+	public boolean isShellLauncher(final Configuration config) {
+		return (config.runtime.launcher == null || config.runtime.launcher.equals(EShell.RuntimeLauncher.value));
+	}
+
+	/**
+	 * Check if the given runtime instance of the
+	 * installed home directory is running.
+	 * @param index The <code>int</code> instance index.
+	 * @return <code>true</code> if the PID file of the
+	 * instance exists.
+	 */
+	public boolean isRunning(final int index) {
+		final String binDir = UEnvironment.instance.getInstalledBinDir();
+		return new File(binDir + this.getInstanceFile(EEnvironment.JSVCPIDFile.value, index)).exists();
+	}
+
+	/**
+	 * Parse the runtime instance selected by the
+	 * <code>--instance I</code> option.
+	 * @param options The <code>CommandOptions</code>.
+	 * @param config The <code>ShellConfiguration</code>.
+	 * @return The <code>int</code> instance index. Or
+	 * <code>-1</code> if all instances are selected.
+	 */
+	public int parseInstance(final CommandOptions options, final ShellConfiguration config) {
+		final int index = options.getInt("instance", -1);
+		if (options.has("instance") && (index < 0 || index >= config.instances.count)) {
+			throw new IllegalArgumentException("Invalid instance: " + index + ". Instances are numbered 0 to " + (config.instances.count-1) + ".");
+		}
+		return index;
+	}
+
+	/**
+	 * Retrieve the name of the given runtime instance
+	 * used in command output.
+	 * @param config The <code>ShellConfiguration</code>.
+	 * @param index The <code>int</code> instance index.
+	 * @return The <code>String</code> name.
+	 */
+	public String getInstanceName(final ShellConfiguration config, final int index) {
+		if (config.instances.count == 1) return "Hemera runtime environment";
+		return "Hemera runtime instance " + index;
+	}
+}